@@ -0,0 +1,123 @@
+package planer;
+
+import org.xml.sax.SAXException;
+import planer.shapes.Shape;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.Function;
+
+/**
+ * Diese Klasse erzeugt die Dokumente, mit denen die Benchmarks arbeiten.
+ * <p>Die Formen werden mit einem festen Startwert zufällig im Fenster {@code [0, 1] × [0, 1]} verteilt, so dass jeder
+ * Lauf dasselbe Dokument misst. Ihre Größe nimmt mit der Anzahl der Formen ab, damit die Überdeckung des Fensters
+ * ungefähr gleich bleibt.</p>
+ */
+final class BenchmarkDocuments {
+    /**
+     * Der Startwert des Zufallsgenerators
+     */
+    private static final long SEED = 0x5eed_1234L;
+
+    /**
+     * Diese Klasse enthält nur statische Methoden.
+     */
+    private BenchmarkDocuments() {
+    }
+
+    /**
+     * @return Das Verzeichnis aller Formen aus {@code shapeClasses.xml}
+     */
+    static ShapeRegistry registry() {
+        try (InputStream in = ShapeRegistry.class.getResourceAsStream("shapeClasses.xml")) {
+            if (in == null) {
+                throw new IllegalStateException("shapeClasses.xml is not on the class path");
+            }
+            return new ShapeRegistry(in, e -> {
+                throw e;
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (SAXException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param registry Das Verzeichnis der Formen
+     * @return Die Funktion, die eine neue Form eines Typs erzeugt, wie sie auch das Programm verwendet
+     */
+    static Function<String, Shape> factory(ShapeRegistry registry) {
+        return name -> {
+            ShapeFactory f = registry.factory(name);
+            return f != null ? f.create(0, 0, 0, 0) : null;
+        };
+    }
+
+    /**
+     * Diese Methode erzeugt ein Dokument mit zufälligen Formen aller Typen.
+     *
+     * @param registry Das Verzeichnis der Formen
+     * @param size     Die Anzahl der Formen
+     * @return Die Formen
+     */
+    static ShapeStore store(ShapeRegistry registry, int size) {
+        return store(registry, size, null);
+    }
+
+    /**
+     * Diese Methode erzeugt ein Dokument mit zufälligen Formen.
+     *
+     * @param registry Das Verzeichnis der Formen
+     * @param size     Die Anzahl der Formen
+     * @param type     Der Name des einzigen Typs oder {@code null} für alle Typen im Wechsel
+     * @return Die Formen
+     */
+    static ShapeStore store(ShapeRegistry registry, int size, String type) {
+        ShapeStore store = new ShapeStore(factory(registry));
+        List<String> names = shapeNames(registry);
+        short[] types = new short[names.size()];
+        for (int i = 0; i < types.length; i++) {
+            types[i] = store.typeId(names.get(i));
+        }
+        short only = type != null ? store.typeId(type) : -1;
+        SplittableRandom random = new SplittableRandom(SEED);
+        double extent = Math.min(0.1, 2 / Math.sqrt(size));
+        store.ensureCapacity(size);
+        for (int i = 0; i < size; i++) {
+            double x0 = random.nextDouble(), y0 = random.nextDouble();
+            store.add(only >= 0 ? only : types[i % types.length], x0, y0,
+                    x0 + (random.nextDouble() - 0.5) * extent, y0 + (random.nextDouble() - 0.5) * extent);
+        }
+        return store;
+    }
+
+    /**
+     * @param registry Das Verzeichnis der Formen
+     * @return Die Namen aller Formen, die keine Gruppe sind, in der Reihenfolge von {@code shapeClasses.xml}
+     */
+    static List<String> shapeNames(ShapeRegistry registry) {
+        List<String> names = new ArrayList<>();
+        collect(registry.getEntries(), names);
+        return names;
+    }
+
+    /**
+     * @param entries Die Einträge einer Ebene
+     * @param names   Die Liste, an die die Namen angehängt werden
+     */
+    private static void collect(List<ShapeRegistry.Entry> entries, List<String> names) {
+        for (ShapeRegistry.Entry e :
+                entries) {
+            if (e.isGroup()) {
+                collect(e.getChildren(), names);
+            } else {
+                names.add(e.getName());
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package planer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dieser Benchmark misst das Neuzeichnen wie in {@code Planer.redraw()}, aber in ein {@link BufferedImage} statt auf
+ * das {@link ch.aplu.util.GPanel}, so dass kein Fenster benötigt wird.
+ * <p>{@code redraw} zeichnet jede Form. {@code culled} zeichnet den ganzen Ausschnitt über den räumlichen Index mit
+ * Platzhaltern für sehr kleine Formen, {@code zoomed} einen Ausschnitt, der hundertmal vergrößert ist.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RedrawBenchmark {
+    /**
+     * Die Größe des Bildes in Pixeln
+     */
+    private static final int WIDTH = 1280, HEIGHT = 800;
+    /**
+     * Die Vergrößerung für {@code zoomed}
+     */
+    private static final double ZOOM = 100;
+    /**
+     * Die Anzahl der Formen
+     */
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public int size;
+    /**
+     * Die Formen
+     */
+    private ShapeStore store;
+    /**
+     * Der räumliche Index über die Formen
+     */
+    private ShapeIndex index;
+    /**
+     * Das Bild, in das gezeichnet wird
+     */
+    private BufferedImage image;
+    /**
+     * Das Grafikobjekt des Bildes
+     */
+    private Graphics2D g;
+    /**
+     * Die Zeichenfläche über dem Bild
+     */
+    private Graphics2DCanvas canvas;
+    /**
+     * Die Zeichenfläche über dem Bild für den vergrößerten Ausschnitt
+     */
+    private Graphics2DCanvas zoomedCanvas;
+
+    @Setup
+    public void setup() {
+        System.setProperty("java.awt.headless", "true");
+        store = BenchmarkDocuments.store(BenchmarkDocuments.registry(), size);
+        image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        g = image.createGraphics();
+        canvas = new Graphics2DCanvas(g, WIDTH, HEIGHT, 0, 0, 1, 1);
+        zoomedCanvas = new Graphics2DCanvas(g, WIDTH, HEIGHT, zoomedMin(), zoomedMin(), zoomedMax(), zoomedMax());
+        index = new ShapeIndex(store);
+        index.rebuild();
+    }
+
+    @TearDown
+    public void tearDown() {
+        g.dispose();
+    }
+
+    @Benchmark
+    public BufferedImage redraw() {
+        clear();
+        Planer.drawShapes(store, canvas);
+        return image;
+    }
+
+    @Benchmark
+    public BufferedImage culled() {
+        clear();
+        Planer.drawShapes(store, index, canvas, 0, 0, 1, 1, 1.0 / WIDTH, 1.0 / HEIGHT, -1);
+        return image;
+    }
+
+    @Benchmark
+    public BufferedImage zoomed() {
+        clear();
+        Planer.drawShapes(store, index, zoomedCanvas, zoomedMin(), zoomedMin(), zoomedMax(), zoomedMax(),
+                1 / ZOOM / WIDTH, 1 / ZOOM / HEIGHT, -1);
+        return image;
+    }
+
+    /**
+     * Diese Methode füllt das Bild mit der Hintergrundfarbe und setzt die Zeichenfarbe.
+     */
+    private void clear() {
+        g.setColor(Color.white);
+        g.fillRect(0, 0, WIDTH, HEIGHT);
+        g.setColor(Color.black);
+    }
+
+    /**
+     * @return Die linke und untere Grenze des vergrößerten Ausschnitts
+     */
+    private static double zoomedMin() {
+        return 0.5 - 0.5 / ZOOM;
+    }
+
+    /**
+     * @return Die rechte und obere Grenze des vergrößerten Ausschnitts
+     */
+    private static double zoomedMax() {
+        return 0.5 + 0.5 / ZOOM;
+    }
+}
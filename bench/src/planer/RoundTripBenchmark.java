@@ -0,0 +1,108 @@
+package planer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.xml.sax.SAXException;
+import planer.shapes.Shape;
+
+import javax.xml.stream.XMLStreamException;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Dieser Benchmark misst das Speichern und Laden eines Dokuments in beiden Formaten, mit denselben Klassen, die
+ * {@code Planer.saveShapes(File)} und {@code Planer.replaceShapes(File)} verwenden.
+ * <p>{@code save} schreibt das Dokument, {@code load} liest die in {@link RoundTripBenchmark#setup()} geschriebene
+ * Datei in einen leeren {@link ShapeStore}.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class RoundTripBenchmark {
+    /**
+     * Das Format der Datei
+     */
+    @Param({"xml", "pln"})
+    public String format;
+    /**
+     * Die Anzahl der Formen
+     */
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public int size;
+    /**
+     * Die Formen
+     */
+    private ShapeStore store;
+    /**
+     * Die Funktion, die eine neue Form eines Typs erzeugt
+     */
+    private Function<String, Shape> factory;
+    /**
+     * Die Datei, die gelesen wird
+     */
+    private Path source;
+    /**
+     * Die Datei, die geschrieben wird
+     */
+    private Path target;
+
+    @Setup
+    public void setup() throws IOException, XMLStreamException {
+        ShapeRegistry registry = BenchmarkDocuments.registry();
+        factory = BenchmarkDocuments.factory(registry);
+        store = BenchmarkDocuments.store(registry, size);
+        source = Files.createTempFile("planer-bench", "." + format);
+        target = Files.createTempFile("planer-bench", "." + format);
+        write(source);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(source);
+        Files.deleteIfExists(target);
+    }
+
+    @Benchmark
+    public Path save() throws IOException, XMLStreamException {
+        write(target);
+        return target;
+    }
+
+    @Benchmark
+    public ShapeStore load() throws IOException, SAXException {
+        ShapeStore loaded = new ShapeStore(factory);
+        if (format.equals(BinaryShapeFormat.EXTENSION)) {
+            BinaryShapeFormat.read(source, loaded);
+        } else {
+            ParallelXmlShapeReader.read(source, loaded, factory);
+        }
+        return loaded;
+    }
+
+    /**
+     * @param f Die Datei, in die das Dokument im gemessenen Format geschrieben wird
+     * @throws IOException        falls die Datei nicht geschrieben werden konnte
+     * @throws XMLStreamException falls beim Schreiben des XML ein Fehler auftritt
+     */
+    private void write(Path f) throws IOException, XMLStreamException {
+        if (format.equals(BinaryShapeFormat.EXTENSION)) {
+            BinaryShapeFormat.write(store, f);
+        } else {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(f))) {
+                XmlShapeWriter.write(store, out);
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package planer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import planer.shapes.Shape;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dieser Benchmark misst das Erzeugen einer Form wie in {@code Planer.getNewShapeInstance(...)}: das Nachschlagen der
+ * {@link ShapeFactory} im {@link ShapeRegistry} und der Aufruf des Konstruktors.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ShapeCreationBenchmark {
+    /**
+     * Der Name der Form-Klasse
+     */
+    @Param({"Rectangle", "Square", "RightTriangle", "Circle"})
+    public String type;
+    /**
+     * Das Verzeichnis der Formen
+     */
+    private ShapeRegistry registry;
+    /**
+     * Die Koordinate, die sich bei jedem Aufruf ändert
+     */
+    private double x = 0;
+
+    @Setup
+    public void setup() {
+        registry = BenchmarkDocuments.registry();
+        registry.factory(type);
+    }
+
+    @Benchmark
+    public Shape create() {
+        x += 0x1p-20;
+        ShapeFactory factory = registry.factory(type);
+        return factory != null ? factory.create(x, 0.25, 0.75, 0.75) : null;
+    }
+}
@@ -0,0 +1,127 @@
+package planer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import planer.shapes.Shape;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dieser Benchmark misst {@link Shape#isHit(double, double)} für jeden Typ.
+ * <p>{@code single} prüft eine einzelne Form an wechselnden Punkten. {@code scan} prüft einen Punkt gegen alle Formen
+ * eines Dokuments über die wiederverwendeten Formen des {@link ShapeStore}s, so wie es ohne räumlichen Index nötig
+ * wäre. {@code batch} prüft einen Punkt gegen alle Formen eines Dokuments, deren Koordinaten vorher in einen
+ * {@link HitTester} gepackt wurden, mit und ohne Vector API.</p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ShapeHitBenchmark {
+    /**
+     * Die Anzahl der vorberechneten Punkte; eine Zweierpotenz
+     */
+    private static final int POINTS = 1024;
+    /**
+     * Der Name der Form-Klasse
+     */
+    @Param({"Rectangle", "Square", "RightTriangle", "Circle"})
+    public String type;
+    /**
+     * Die einzelne Form für {@code single}
+     */
+    private Shape shape;
+    /**
+     * Die Punkte, abwechselnd x und y
+     */
+    private final double[] points = new double[2 * POINTS];
+    /**
+     * Der Index des nächsten Punkts
+     */
+    private int next = 0;
+
+    @Setup
+    public void setup() {
+        shape = BenchmarkDocuments.registry().factory(type).create(0.25, 0.25, 0.75, 0.75);
+        SplittableRandom random = new SplittableRandom(POINTS);
+        for (int i = 0; i < points.length; i++) {
+            points[i] = random.nextDouble();
+        }
+    }
+
+    @Benchmark
+    public boolean single() {
+        int i = next++ & (POINTS - 1);
+        return shape.isHit(points[2 * i], points[2 * i + 1]);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void scan(Document d, Blackhole bh) {
+        int p = next++ & (POINTS - 1);
+        double x = points[2 * p], y = points[2 * p + 1];
+        ShapeStore store = d.store;
+        for (int i = 0; i < store.size(); i++) {
+            bh.consume(store.view(i).isHit(x, y));
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public int batch(Packed packed) {
+        int p = next++ & (POINTS - 1);
+        return packed.tester.test(points[2 * p], points[2 * p + 1]);
+    }
+
+    /**
+     * Ein Dokument, das nur Formen des gemessenen Typs enthält.
+     */
+    @State(Scope.Thread)
+    public static class Document {
+        /**
+         * Die Anzahl der Formen
+         */
+        @Param({"1000", "10000", "100000", "1000000", "10000000"})
+        public int size;
+        /**
+         * Die Formen
+         */
+        ShapeStore store;
+
+        @Setup
+        public void setup(ShapeHitBenchmark b) {
+            store = BenchmarkDocuments.store(BenchmarkDocuments.registry(), size, b.type);
+        }
+    }
+
+    /**
+     * Alle Formen eines Dokuments als Kandidaten eines {@link HitTester}s.
+     */
+    @State(Scope.Thread)
+    public static class Packed {
+        /**
+         * Der {@link HitTester}: {@code scalar} für {@link ScalarHitTester}, {@code vector} für {@link VectorHitTester}
+         */
+        @Param({"scalar", "vector"})
+        public String kernel;
+        /**
+         * Der {@link HitTester} mit allen Formen
+         */
+        HitTester tester;
+
+        @Setup
+        public void setup(Document d) {
+            tester = kernel.equals("vector") ? new VectorHitTester(d.store) : new ScalarHitTester(d.store);
+            for (int i = 0; i < d.store.size(); i++) {
+                tester.add(i);
+            }
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package planer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import planer.shapes.Shape;
+import planer.shapes.Square;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Dieser Benchmark misst {@link Square#setCoords(double, double, double, double, boolean)} mit Punkten in allen vier
+ * Quadranten, einmal für die temporären und einmal für die aktuellen Koordinaten.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SquareSetCoordsBenchmark {
+    /**
+     * Die Anzahl der vorberechneten Punkte; eine Zweierpotenz
+     */
+    private static final int POINTS = 1024;
+    /**
+     * Das Quadrat
+     */
+    private Shape square;
+    /**
+     * Die Punkte, abwechselnd x und y
+     */
+    private final double[] points = new double[2 * POINTS];
+    /**
+     * Der Index des nächsten Punkts
+     */
+    private int next = 0;
+
+    @Setup
+    public void setup() {
+        square = BenchmarkDocuments.registry().factory("Square").create(0.5, 0.5, 0.5, 0.5);
+        SplittableRandom random = new SplittableRandom(POINTS);
+        for (int i = 0; i < points.length; i++) {
+            points[i] = random.nextDouble();
+        }
+    }
+
+    @Benchmark
+    public double temporary() {
+        int i = next++ & (POINTS - 1);
+        square.setCoords(0.5, 0.5, points[2 * i], points[2 * i + 1], true);
+        return square.getX1();
+    }
+
+    @Benchmark
+    public double current() {
+        int i = next++ & (POINTS - 1);
+        square.setCoords(0.5, 0.5, points[2 * i], points[2 * i + 1], false);
+        return square.getX1();
+    }
+}
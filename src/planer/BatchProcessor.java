@@ -0,0 +1,578 @@
+package planer;
+
+import org.xml.sax.SAXException;
+import planer.shapes.Shape;
+
+import javax.xml.stream.XMLStreamException;
+import java.awt.Color;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Diese Klasse verarbeitet viele Dateien ohne Fenster von der Kommandozeile aus.
+ * <p>Sie wird von {@link Planer#main(String...)} aufgerufen, sobald Argumente übergeben werden:</p>
+ * <pre>
+ * java planer.Planer validate [--threads N] &lt;Datei oder Verzeichnis&gt;...
+ * java planer.Planer convert --to xml|pln [--out Verzeichnis] [--threads N] &lt;Datei oder Verzeichnis&gt;...
+ * java planer.Planer render [--width Pixel] [--out Verzeichnis] [--threads N] &lt;Datei oder Verzeichnis&gt;...
+ * </pre>
+ * <p>{@code validate} liest jede Datei vollständig, {@code convert} schreibt sie zusätzlich im anderen Format und
+ * {@code render} zeichnet alle Formen mit dem {@link TileExporter} in ein PNG-Vorschaubild. Verzeichnisse werden
+ * nach XML- und Binärdateien durchsucht. Die Formen werden wie im Fenster über {@code shapeClasses.xml}, die Plugins
+ * und die {@link ShapeRegistry} erzeugt und mit {@link BinaryShapeFormat} oder {@link ParallelXmlShapeReader} gelesen.
+ * Enthält eine Datei einen Typ, der nicht erzeugt werden kann, schlägt sie fehl.</p>
+ * <p>Ergebnisse werden zuerst in eine temporäre Datei im Zielverzeichnis geschrieben und dann atomar umbenannt, so
+ * dass nie eine halb geschriebene Datei liegen bleibt. Eine Datei, die selbst verarbeitet wird oder schon das Ergebnis
+ * einer anderen Datei ist, wird nie überschrieben; die betroffene Datei schlägt stattdessen fehl.</p>
+ * <p>Jede Datei wird in einem eigenen Thread verarbeitet. Ab Java 21 sind das virtuelle Threads, so dass auch
+ * tausende Dateien kaum Speicher für Threads kosten; auf älteren Versionen wird ein fester Pool verwendet. Lesen,
+ * Zeichnen und Schreiben belasten den Prozessor, deshalb dürfen nur so viele Dateien gleichzeitig daran arbeiten,
+ * wie mit {@code --threads} angegeben ist, standardmäßig so viele wie Prozessoren. Damit liegen auch nie mehr
+ * Dokumente gleichzeitig im Speicher.</p>
+ * <p>Am Ende wird der Durchsatz und eine Übersicht der {@link Metrics Messungen} ausgegeben. Der Rückgabewert ist
+ * {@code 0}, wenn alle Dateien verarbeitet wurden, {@code 1}, wenn mindestens eine fehlgeschlagen ist, und {@code 2}
+ * bei falschen Argumenten.</p>
+ */
+final class BatchProcessor {
+    /**
+     * Die Datei mit allen verfügbaren Formen
+     */
+    private static final String SHAPE_CLASSES_PATH = "shapeClasses.xml";
+    /**
+     * Die Breite eines Vorschaubildes in Pixeln, wenn keine angegeben ist
+     */
+    private static final int DEFAULT_WIDTH = 256;
+    /**
+     * Der Anteil der Breite und Höhe der Zeichnung, der bei einem Vorschaubild als Rand hinzugefügt wird
+     */
+    private static final double MARGIN = 0.02;
+    /**
+     * Das größte Seitenverhältnis eines Vorschaubildes; schmalere Zeichnungen werden in der Mitte gezeigt
+     */
+    private static final double MAX_ASPECT = 16;
+    /**
+     * Die Beschreibung der Argumente
+     */
+    private static final String USAGE = String.join(System.lineSeparator(),
+            "Usage: planer.Planer <command> [options] <file or directory>...",
+            "Commands:",
+            "  validate               read every file completely",
+            "  convert --to xml|pln   write every file in the given format",
+            "  render                 write a PNG thumbnail of every file",
+            "Options:",
+            "  --out <directory>      output directory (default: next to the input file)",
+            "  --width <pixels>       thumbnail width (default: " + DEFAULT_WIDTH + ")",
+            "  --threads <n>          files processed at the same time (default: number of processors)");
+
+    /**
+     * Der Befehl
+     */
+    private final Command command;
+    /**
+     * Das Format, in das umgewandelt wird: {@code xml} oder {@link BinaryShapeFormat#EXTENSION}
+     */
+    private final String format;
+    /**
+     * Das Verzeichnis für die Ergebnisse oder {@code null}, falls sie neben der gelesenen Datei liegen
+     */
+    private final Path out;
+    /**
+     * Die Breite eines Vorschaubildes in Pixeln
+     */
+    private final int width;
+    /**
+     * Die Anzahl der Dateien, die gleichzeitig gelesen, gezeichnet oder geschrieben werden
+     */
+    private final int threads;
+    /**
+     * Die Funktion, die eine neue Form eines Typs erzeugt oder {@code null} zurückgibt, falls der Typ unbekannt ist
+     */
+    private final Function<String, Shape> factory;
+    /**
+     * Die Zähler der einzelnen Abschnitte
+     */
+    private final Metrics metrics;
+    /**
+     * Die Erlaubnisse, mit denen die Anzahl der Dateien begrenzt wird, die gleichzeitig den Prozessor belasten
+     */
+    private final Semaphore cpu;
+    /**
+     * Die Ausgabe für Fehler
+     */
+    private final PrintStream err;
+    /**
+     * Die Anzahl der verarbeiteten und der fehlgeschlagenen Dateien
+     */
+    private final AtomicInteger done = new AtomicInteger(), failed = new AtomicInteger();
+    /**
+     * Die Anzahl der gelesenen Formen
+     */
+    private final LongAdder shapes = new LongAdder();
+    /**
+     * Die Anzahl der gelesenen Bytes
+     */
+    private final LongAdder bytes = new LongAdder();
+    /**
+     * Die Dateien, die verarbeitet werden, als absolute Pfade
+     */
+    private final Set<Path> inputs = new HashSet<>();
+    /**
+     * Die Dateien, in die bereits ein Ergebnis geschrieben wird, als absolute Pfade
+     */
+    private final Set<Path> targets = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param command  Der Befehl
+     * @param format   Das Format, in das umgewandelt wird, oder {@code null}
+     * @param out      Das Verzeichnis für die Ergebnisse oder {@code null}
+     * @param width    Die Breite eines Vorschaubildes in Pixeln
+     * @param threads  Die Anzahl der Dateien, die gleichzeitig den Prozessor belasten
+     * @param registry Das Verzeichnis aller verfügbaren Formen
+     * @param err      Die Ausgabe für Fehler
+     */
+    private BatchProcessor(Command command, String format, Path out, int width, int threads, ShapeRegistry registry,
+                           PrintStream err) {
+        this.command = command;
+        this.format = format;
+        this.out = out;
+        this.width = width;
+        this.threads = threads;
+        this.err = err;
+        factory = name -> {
+            ShapeFactory f = registry.factory(name);
+            try {
+                return f != null ? f.create(0, 0, 0, 0) : null;
+            } catch (IllegalArgumentException e) {
+                return null;
+            }
+        };
+        metrics = new Metrics(new ShapeStore(factory));
+        cpu = new Semaphore(threads);
+    }
+
+    /**
+     * Diese Methode wertet die Argumente aus und verarbeitet alle Dateien.
+     *
+     * @param args Der Befehl, die Optionen und die Dateien oder Verzeichnisse
+     * @return {@code 0}, falls alle Dateien verarbeitet wurden, {@code 1}, falls mindestens eine fehlgeschlagen
+     * ist, und {@code 2} bei falschen Argumenten
+     */
+    static int run(String... args) {
+        Command command;
+        try {
+            command = Command.valueOf(args[0].toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            return usage("Unknown command: " + args[0]);
+        }
+        String format = null;
+        Path out = null;
+        int width = DEFAULT_WIDTH;
+        int threads = Runtime.getRuntime().availableProcessors();
+        List<Path> inputs = new ArrayList<>();
+        try {
+            for (int i = 1; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--to":
+                        format = args[++i].toLowerCase(Locale.ROOT);
+                        break;
+                    case "--out":
+                        out = Paths.get(args[++i]);
+                        break;
+                    case "--width":
+                        width = Integer.parseInt(args[++i]);
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(args[++i]);
+                        break;
+                    default:
+                        if (args[i].startsWith("--")) {
+                            return usage("Unknown option: " + args[i]);
+                        }
+                        inputs.add(Paths.get(args[i]));
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            return usage("Missing value for " + args[args.length - 1]);
+        } catch (NumberFormatException e) {
+            return usage("Not a number: " + e.getMessage());
+        }
+        if (command == Command.CONVERT && !"xml".equals(format) && !BinaryShapeFormat.EXTENSION.equals(format)) {
+            return usage("convert needs --to xml or --to " + BinaryShapeFormat.EXTENSION);
+        }
+        if (width <= 0 || threads <= 0) {
+            return usage("--width and --threads must be positive");
+        }
+        if (inputs.isEmpty()) {
+            return usage("No files given");
+        }
+        ShapeRegistry registry;
+        try (InputStream ist = Planer.class.getResourceAsStream(SHAPE_CLASSES_PATH)) {
+            if (ist == null) {
+                throw new IOException(SHAPE_CLASSES_PATH + " not found");
+            }
+            registry = new ShapeRegistry(ist, e -> System.err.println("Misformed shape class: " + e.getMessage()));
+            registry.loadPlugins(ShapeRegistry.pluginDirectory());
+        } catch (IOException | SAXException e) {
+            System.err.println("The file containing the usable shapes could not be loaded: " + e.getMessage());
+            return 1;
+        }
+        try {
+            if (out != null) {
+                Files.createDirectories(out);
+            }
+            return new BatchProcessor(command, format, out, width, threads, registry, System.err).process(files(inputs));
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            return 1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 1;
+        }
+    }
+
+    /**
+     * Diese Methode gibt einen Fehler in den Argumenten und die Beschreibung der Argumente aus.
+     *
+     * @param message Der Fehler
+     * @return {@code 2}
+     */
+    private static int usage(String message) {
+        System.err.println(message);
+        System.err.println(USAGE);
+        return 2;
+    }
+
+    /**
+     * Diese Methode sucht alle Dateien, die verarbeitet werden. Verzeichnisse werden rekursiv nach XML- und
+     * Binärdateien durchsucht, Dateien werden unverändert übernommen.
+     *
+     * @param inputs Die übergebenen Dateien und Verzeichnisse
+     * @return Die Dateien
+     * @throws IOException falls ein Verzeichnis nicht gelesen werden konnte
+     */
+    private static List<Path> files(List<Path> inputs) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (Path in :
+                inputs) {
+            if (Files.isDirectory(in)) {
+                try (Stream<Path> s = Files.walk(in)) {
+                    files.addAll(s.filter(f -> Files.isRegularFile(f) && (BinaryShapeFormat.hasExtension(f)
+                            || f.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".xml")))
+                            .sorted().collect(Collectors.toList()));
+                }
+            } else {
+                files.add(in);
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Diese Methode verarbeitet alle Dateien gleichzeitig und gibt danach den Durchsatz aus.
+     *
+     * @param files Die Dateien
+     * @return {@code 0}, falls alle Dateien verarbeitet wurden, sonst {@code 1}
+     * @throws InterruptedException falls der Thread beim Warten unterbrochen wurde
+     */
+    private int process(List<Path> files) throws InterruptedException {
+        for (Path f :
+                files) {
+            inputs.add(f.toAbsolutePath().normalize());
+        }
+        long start = System.nanoTime();
+        ExecutorService executor = newExecutor();
+        try {
+            for (Path f :
+                    files) {
+                executor.execute(() -> process(f));
+            }
+        } finally {
+            executor.shutdown();
+        }
+        while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+            err.printf("%d of %d files processed%n", done.get(), files.size());
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        PrintStream o = System.out;
+        o.printf(Locale.ROOT, "%d files (%d failed), %d shapes, %.1f MB in %.2f s%n", done.get(), failed.get(),
+                shapes.sum(), bytes.sum() / 1e6, seconds);
+        o.printf(Locale.ROOT, "%.1f files/s, %.0f shapes/s, %.1f MB/s with %d threads%n", done.get() / seconds,
+                shapes.sum() / seconds, bytes.sum() / 1e6 / seconds, threads);
+        o.println();
+        o.print(metrics.report());
+        return failed.get() == 0 ? 0 : 1;
+    }
+
+    /**
+     * Diese Methode erzeugt den {@link ExecutorService}, der jede Datei in einem eigenen Thread verarbeitet.
+     * <p>Gibt es {@code Executors.newVirtualThreadPerTaskExecutor()} (ab Java 21), wird für jede Datei ein virtueller
+     * Thread gestartet; die Methode wird über Reflection gesucht, damit das Programm weiterhin mit Java 17 übersetzt
+     * werden kann. Sonst wird ein Pool mit {@link BatchProcessor#threads} Threads verwendet.</p>
+     *
+     * @return Der {@link ExecutorService}
+     */
+    private ExecutorService newExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(threads);
+        }
+    }
+
+    /**
+     * Diese Methode verarbeitet eine Datei und meldet einen Fehler, ohne die übrigen Dateien abzubrechen.
+     *
+     * @param f Die Datei
+     */
+    private void process(Path f) {
+        try {
+            Path target = null;
+            switch (command) {
+                case CONVERT:
+                    target = claim(target(f, format));
+                    break;
+                case RENDER:
+                    target = claim(target(f, "png"));
+                    break;
+            }
+            ShapeStore store = read(f);
+            switch (command) {
+                case CONVERT:
+                    convert(store, target);
+                    break;
+                case RENDER:
+                    render(store, target);
+                    break;
+            }
+        } catch (IOException | SAXException | XMLStreamException | RuntimeException e) {
+            failed.incrementAndGet();
+            err.println(f + ": " + e);
+        } catch (InterruptedException e) {
+            failed.incrementAndGet();
+            Thread.currentThread().interrupt();
+        } finally {
+            done.incrementAndGet();
+        }
+    }
+
+    /**
+     * Diese Methode liest alle Formen einer Datei im Binärformat oder als XML.
+     *
+     * <p>Die Typen, die nicht erzeugt werden können, werden beim Lesen gesammelt; gibt es solche, schlägt die Datei
+     * fehl, statt dass die Formen stillschweigend fehlen.</p>
+     *
+     * @param f Die Datei
+     * @return Die gelesenen Formen
+     * @throws IOException          falls die Datei nicht gelesen werden konnte oder unbekannte Typen enthält
+     * @throws SAXException         falls die Datei kein gültiges XML enthält
+     * @throws InterruptedException falls der Thread beim Warten unterbrochen wurde
+     */
+    private ShapeStore read(Path f) throws IOException, SAXException, InterruptedException {
+        Set<String> unknown = ConcurrentHashMap.newKeySet();
+        Function<String, Shape> known = name -> {
+            Shape s = factory.apply(name);
+            if (s == null) {
+                unknown.add(String.valueOf(name));
+            }
+            return s;
+        };
+        ShapeStore store = new ShapeStore(known);
+        cpu.acquire();
+        Metrics.Span span = metrics.begin(Metrics.Phase.LOAD);
+        span.setDetail(f.toString());
+        try {
+            if (BinaryShapeFormat.isBinary(f)) {
+                BinaryShapeFormat.read(f, store);
+            } else {
+                ParallelXmlShapeReader.read(f, store, known);
+            }
+        } finally {
+            span.end();
+            cpu.release();
+        }
+        if (!unknown.isEmpty()) {
+            throw new IOException("Unknown shape types: " + String.join(", ", unknown));
+        }
+        for (int i = 0; i < store.size(); i++) {
+            if (!Double.isFinite(store.x0(i)) || !Double.isFinite(store.y0(i))
+                    || !Double.isFinite(store.x1(i)) || !Double.isFinite(store.y1(i))) {
+                throw new IOException("Shape " + i + " has invalid coordinates");
+            }
+        }
+        shapes.add(store.count());
+        bytes.add(Files.size(f));
+        return store;
+    }
+
+    /**
+     * Diese Methode schreibt alle Formen im Format {@link BatchProcessor#format}.
+     *
+     * @param store  Die Formen
+     * @param target Die Datei, die geschrieben wird
+     * @throws IOException          falls die Datei nicht geschrieben werden konnte
+     * @throws XMLStreamException   falls beim Schreiben der XML-Datei ein Fehler auftritt
+     * @throws InterruptedException falls der Thread beim Warten unterbrochen wurde
+     */
+    private void convert(ShapeStore store, Path target) throws IOException, XMLStreamException, InterruptedException {
+        cpu.acquire();
+        Metrics.Span span = metrics.begin(Metrics.Phase.SAVE);
+        span.setDetail(target.toString());
+        try {
+            if (BinaryShapeFormat.EXTENSION.equals(format)) {
+                writeAtomically(target, tmp -> BinaryShapeFormat.write(store, tmp));
+            } else {
+                writeAtomically(target, tmp -> {
+                    try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(tmp))) {
+                        XmlShapeWriter.write(store, os);
+                    }
+                });
+            }
+        } finally {
+            span.end();
+            cpu.release();
+        }
+    }
+
+    /**
+     * Diese Methode zeichnet alle Formen in ein Vorschaubild mit der Breite {@link BatchProcessor#width}.
+     * <p>Das Bild zeigt das Rechteck, das alle Formen umschließt, mit einem kleinen Rand. Die Höhe ergibt sich aus
+     * dessen Seitenverhältnis, das höchstens {@link BatchProcessor#MAX_ASPECT} beträgt.</p>
+     *
+     * @param store  Die Formen
+     * @param target Die Datei, die geschrieben wird
+     * @throws IOException          falls die Datei nicht geschrieben werden konnte
+     * @throws InterruptedException falls der Thread beim Warten unterbrochen wurde
+     */
+    private void render(ShapeStore store, Path target) throws IOException, InterruptedException {
+        double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+        double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < store.size(); i++) {
+            if (store.isAlive(i)) {
+                Shape s = store.view(i);
+                minX = Math.min(minX, s.getMinX());
+                minY = Math.min(minY, s.getMinY());
+                maxX = Math.max(maxX, s.getMaxX());
+                maxY = Math.max(maxY, s.getMaxY());
+            }
+        }
+        if (minX > maxX) {
+            minX = minY = 0;
+            maxX = maxY = 1;
+        }
+        double size = Math.max(Math.max(maxX - minX, maxY - minY), Double.MIN_NORMAL);
+        double w = Math.max(maxX - minX, size / MAX_ASPECT) * (0.5 + MARGIN);
+        double h = Math.max(maxY - minY, size / MAX_ASPECT) * (0.5 + MARGIN);
+        double cx = (minX + maxX) / 2, cy = (minY + maxY) / 2;
+        minX = cx - w;
+        maxX = cx + w;
+        minY = cy - h;
+        maxY = cy + h;
+        int height = (int) Math.max(1, Math.round(width * h / w));
+        cpu.acquire();
+        Metrics.Span span = metrics.begin(Metrics.Phase.EXPORT);
+        span.setDetail(target.toString());
+        try {
+            TileExporter exporter = new TileExporter(store, width, height, minX, minY, maxX, maxY, Color.black,
+                    Color.white, 1);
+            writeAtomically(target, tmp -> exporter.write(tmp, rows -> {}));
+        } finally {
+            span.end();
+            cpu.release();
+        }
+    }
+
+    /**
+     * @param f         Die gelesene Datei
+     * @param extension Die Endung des Ergebnisses
+     * @return Die Datei für das Ergebnis: im Verzeichnis {@link BatchProcessor#out} oder neben {@code f}, mit der
+     * Endung {@code extension} statt der Endung von {@code f}
+     */
+    private Path target(Path f, String extension) {
+        String name = f.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        name = (dot > 0 ? name.substring(0, dot) : name) + "." + extension;
+        Path dir = out != null ? out : f.toAbsolutePath().getParent();
+        return dir.resolve(name);
+    }
+
+    /**
+     * Diese Methode reserviert eine Datei für ein Ergebnis.
+     *
+     * @param target Die Datei für das Ergebnis
+     * @return Die Datei als absoluter Pfad
+     * @throws IOException falls die Datei selbst verarbeitet wird oder bereits das Ergebnis einer anderen Datei ist
+     */
+    private Path claim(Path target) throws IOException {
+        Path t = target.toAbsolutePath().normalize();
+        if (inputs.contains(t)) {
+            throw new IOException("Refusing to overwrite the input file " + t);
+        }
+        if (!targets.add(t)) {
+            throw new IOException(t + " is already written for another input file");
+        }
+        return t;
+    }
+
+    /**
+     * Diese Methode schreibt ein Ergebnis zuerst in eine temporäre Datei im Zielverzeichnis und benennt sie danach
+     * atomar um. Schlägt das Schreiben fehl, wird die temporäre Datei gelöscht und das Ziel bleibt unverändert.
+     *
+     * @param target Die Datei für das Ergebnis
+     * @param output Schreibt das Ergebnis in die übergebene Datei
+     * @param <E>    Die Ausnahme, die beim Schreiben außer {@link IOException} auftreten kann
+     * @throws IOException falls die Datei nicht geschrieben werden konnte
+     * @throws E           falls beim Schreiben ein anderer Fehler auftritt
+     */
+    private static <E extends Exception> void writeAtomically(Path target, Output<E> output) throws IOException, E {
+        Path tmp = Files.createTempFile(target.getParent(), "." + target.getFileName(), ".tmp");
+        try {
+            output.write(tmp);
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Die Befehle
+     */
+    private enum Command {
+        VALIDATE, CONVERT, RENDER
+    }
+
+    /**
+     * Schreibt ein Ergebnis in eine Datei.
+     *
+     * @param <E> Die Ausnahme, die beim Schreiben außer {@link IOException} auftreten kann
+     */
+    private interface Output<E extends Exception> {
+        /**
+         * @param f Die Datei, die geschrieben wird
+         * @throws IOException falls die Datei nicht geschrieben werden konnte
+         * @throws E           falls beim Schreiben ein anderer Fehler auftritt
+         */
+        void write(Path f) throws IOException, E;
+    }
+}
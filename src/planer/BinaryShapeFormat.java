@@ -0,0 +1,400 @@
+package planer;
+
+import planer.shapes.Points;
+import planer.shapes.Shape;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+
+/**
+ * Diese Klasse liest und schreibt Formen in einem kompakten Binärformat.
+ * <p>Eine Datei beginnt mit einem Kopf aus der Kennung {@code PLNR}, der Versionsnummer und einer Tabelle, die jedem
+ * verwendeten Typ eine Nummer zuordnet. Die Typen werden mit den Namen aus {@code shapeClasses.xml} gespeichert.
+ * Danach folgen die Anzahl der Formen und für jede Form ein Datensatz fester Länge aus der Typnummer und den vier
+ * Koordinaten. Hat eine Form {@link Points Punkte}, ist in ihrer Typnummer das höchste Bit gesetzt und die Punkte
+ * folgen direkt auf ihren Datensatz (siehe {@link PointsCodec}); diese Erweiterung kam mit Version 2 hinzu, Dateien
+ * der Version 1 werden weiterhin gelesen. Version 2 wird nur geschrieben, wenn eine Form Punkte hat; alle anderen
+ * Dateien bleiben für ältere Versionen lesbar. Alle Werte werden in Big-Endian-Reihenfolge geschrieben.</p>
+ * <p>Gelesen und geschrieben wird blockweise über einen {@link FileChannel}, ohne die Koordinaten in Text umzuwandeln.</p>
+ */
+final class BinaryShapeFormat {
+    /**
+     * Die Dateiendung des Binärformats
+     */
+    static final String EXTENSION = "pln";
+    /**
+     * Die Kennung am Anfang jeder Datei
+     */
+    private static final int MAGIC = 0x504C4E52;
+    /**
+     * Die neueste Version des Formats; sie wird nur für Dateien mit Punkten geschrieben
+     */
+    private static final short VERSION = 2;
+    /**
+     * Die Version des Formats ohne Punkte
+     */
+    private static final short VERSION_WITHOUT_POINTS = 1;
+    /**
+     * Das Bit in der Typnummer, das anzeigt, dass auf den Datensatz Punkte folgen
+     */
+    private static final int POINTS_FLAG = 0x8000;
+    /**
+     * Die Länge eines Datensatzes: eine Typnummer und vier Koordinaten
+     */
+    private static final int RECORD_SIZE = Short.BYTES + 4 * Double.BYTES;
+    /**
+     * Die Größe des Puffers, in dem blockweise gelesen und geschrieben wird
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+    /**
+     * Die Anzahl an Formen pro Block beim schrittweisen Lesen
+     */
+    private static final int BATCH_SIZE = 8192;
+    /**
+     * Die Anzahl an Formen, nach der beim Schreiben jeweils der Fortschritt gemeldet wird
+     */
+    private static final int PROGRESS_INTERVAL = 8192;
+
+    /**
+     * Diese Klasse enthält nur statische Methoden.
+     */
+    private BinaryShapeFormat() {
+    }
+
+    /**
+     * Diese Methode überprüft, ob eine Datei mit der Kennung des Binärformats beginnt.
+     *
+     * @param f Die Datei, die überprüft werden soll
+     * @return {@code true} falls die Datei im Binärformat vorliegt
+     * @throws IOException falls die Datei nicht gelesen werden konnte
+     */
+    static boolean isBinary(Path f) throws IOException {
+        try (FileChannel ch = FileChannel.open(f, StandardOpenOption.READ)) {
+            ByteBuffer b = ByteBuffer.allocate(Integer.BYTES);
+            while (b.hasRemaining() && ch.read(b) >= 0) {
+                // Es wird gelesen, bis die Kennung vollständig ist oder die Datei endet.
+            }
+            return !b.hasRemaining() && b.getInt(0) == MAGIC;
+        }
+    }
+
+    /**
+     * Diese Methode überprüft, ob eine Datei die Endung des Binärformats hat.
+     *
+     * @param f Die Datei, die überprüft werden soll
+     * @return {@code true} falls die Datei im Binärformat gespeichert werden soll
+     */
+    static boolean hasExtension(Path f) {
+        return f.getFileName().toString().toLowerCase().endsWith("." + EXTENSION);
+    }
+
+    /**
+     * Diese Methode schreibt alle Formen, die nicht gelöscht sind, in eine Datei.
+     *
+     * @param store Die Formen, die geschrieben werden sollen
+     * @param f     Die Datei, die geschrieben wird
+     * @throws IOException falls die Datei nicht geschrieben werden konnte
+     */
+    static void write(ShapeStore store, Path f) throws IOException {
+        write(store, f, written -> {
+        });
+    }
+
+    /**
+     * Diese Methode schreibt alle Formen, die nicht gelöscht sind, in eine Datei und meldet dabei regelmäßig den
+     * Fortschritt.
+     * <p>Wirft {@code progress} eine Ausnahme, wird das Schreiben abgebrochen.</p>
+     *
+     * @param store    Die Formen, die geschrieben werden sollen
+     * @param f        Die Datei, die geschrieben wird
+     * @param progress Erhält die Anzahl der bisher geschriebenen Formen
+     * @throws IOException falls die Datei nicht geschrieben werden konnte
+     */
+    static void write(ShapeStore store, Path f, IntConsumer progress) throws IOException {
+        int written = 0;
+        try (FileChannel ch = FileChannel.open(f, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer b = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            b.putInt(MAGIC);
+            b.putShort(hasPoints(store) ? VERSION : VERSION_WITHOUT_POINTS);
+            b.putShort((short) store.typeCount());
+            for (short t = 0; t < store.typeCount(); t++) {
+                byte[] name = store.typeName(t).getBytes(StandardCharsets.UTF_8);
+                if (b.remaining() < Short.BYTES + name.length) {
+                    flush(ch, b);
+                }
+                b.putShort((short) name.length);
+                b.put(name);
+            }
+            if (b.remaining() < Integer.BYTES) {
+                flush(ch, b);
+            }
+            b.putInt(store.count());
+            for (int i = 0; i < store.size(); i++) {
+                if (!store.isAlive(i)) {
+                    continue;
+                }
+                if (b.remaining() < RECORD_SIZE) {
+                    flush(ch, b);
+                }
+                Points points = store.points(i);
+                b.putShort((short) (points != null ? store.type(i) | POINTS_FLAG : store.type(i)));
+                b.putDouble(store.x0(i));
+                b.putDouble(store.y0(i));
+                b.putDouble(store.x1(i));
+                b.putDouble(store.y1(i));
+                if (points != null) {
+                    writePoints(ch, b, points);
+                }
+                if (++written % PROGRESS_INTERVAL == 0) {
+                    progress.accept(written);
+                }
+            }
+            flush(ch, b);
+        }
+        progress.accept(written);
+    }
+
+    /**
+     * @param store Die Formen, die geschrieben werden sollen
+     * @return Ob eine Form, die nicht gelöscht ist, Punkte hat
+     */
+    private static boolean hasPoints(ShapeStore store) {
+        for (int i = 0; i < store.size(); i++) {
+            if (store.isAlive(i) && store.points(i) != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Diese Methode liest alle Formen aus einer Datei und fügt sie in ihrer Reihenfolge als oberste Formen hinzu.
+     * <p>Die Koordinaten wurden beim Schreiben aus einem {@link ShapeStore} gelesen und werden deshalb unverändert
+     * übernommen. Formen, deren Typ nicht erzeugt werden kann, werden übersprungen.</p>
+     *
+     * @param f     Die Datei, die gelesen wird
+     * @param store Die Formen, zu denen die gelesenen Formen hinzugefügt werden
+     * @throws IOException falls die Datei nicht gelesen werden konnte oder nicht im Binärformat vorliegt
+     */
+    static void read(Path f, ShapeStore store) throws IOException {
+        try (FileChannel ch = FileChannel.open(f, StandardOpenOption.READ)) {
+            ByteBuffer b = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            b.limit(0);
+            String[] names = readHeader(ch, b);
+            short[] types = new short[names.length];
+            for (int t = 0; t < types.length; t++) {
+                types[t] = store.typeId(names[t]);
+            }
+            int count = readCount(ch, b);
+            store.ensureCapacity(count);
+            for (int i = 0; i < count; i++) {
+                if (b.remaining() < RECORD_SIZE) {
+                    fill(ch, b, RECORD_SIZE);
+                }
+                int t = b.getShort() & 0xFFFF;
+                double x0 = b.getDouble(), y0 = b.getDouble(), x1 = b.getDouble(), y1 = b.getDouble();
+                Points points = null;
+                if ((t & POINTS_FLAG) != 0) {
+                    t &= ~POINTS_FLAG;
+                    points = readPoints(ch, b);
+                }
+                if (t < types.length && types[t] >= 0) {
+                    store.append(types[t], x0, y0, x1, y1, points);
+                }
+            }
+        }
+    }
+
+    /**
+     * Diese Methode liest alle Formen aus einer Datei und übergibt sie blockweise an einen Empfänger.
+     * <p>Ist ein sichtbarer Bereich angegeben, enthält jeder Block entweder nur Formen in diesem Bereich oder nur
+     * Formen außerhalb.</p>
+     *
+     * @param f        Die Datei, die gelesen wird
+     * @param factory  Die Funktion, die eine neue Form des übergebenen Typs erzeugt oder {@code null} zurückgibt
+     * @param viewport Der sichtbare Bereich als {@code minX, minY, maxX, maxY} oder {@code null}
+     * @param sink     Der Empfänger der Blöcke
+     * @throws IOException falls die Datei nicht gelesen werden konnte oder nicht im Binärformat vorliegt
+     */
+    static void read(Path f, Function<String, Shape> factory, double[] viewport, ShapeBatch.Sink sink) throws IOException {
+        try (FileChannel ch = FileChannel.open(f, StandardOpenOption.READ)) {
+            ByteBuffer b = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            b.limit(0);
+            String[] names = readHeader(ch, b);
+            ShapeBatch.Builder builder = new ShapeBatch.Builder(factory, sink, viewport, false, BATCH_SIZE);
+            short[] types = new short[names.length];
+            for (int t = 0; t < types.length; t++) {
+                types[t] = builder.typeId(names[t]);
+            }
+            int count = readCount(ch, b);
+            sink.begin(count);
+            for (int i = 0; i < count; i++) {
+                if (b.remaining() < RECORD_SIZE) {
+                    fill(ch, b, RECORD_SIZE);
+                }
+                int t = b.getShort() & 0xFFFF;
+                double x0 = b.getDouble(), y0 = b.getDouble(), x1 = b.getDouble(), y1 = b.getDouble();
+                Points points = null;
+                if ((t & POINTS_FLAG) != 0) {
+                    t &= ~POINTS_FLAG;
+                    points = readPoints(ch, b);
+                }
+                if (t < types.length) {
+                    builder.add(types[t], x0, y0, x1, y1, points, i);
+                }
+            }
+            builder.finish();
+        }
+    }
+
+    /**
+     * Diese Methode liest die Kennung, die Version und die Typtabelle.
+     *
+     * @param ch Der Kanal, aus dem gelesen wird
+     * @param b  Der leere Puffer, in den gelesen wird
+     * @return Die Namen der Typen, sortiert nach ihrer Typnummer in der Datei
+     * @throws IOException falls die Datei nicht im Binärformat vorliegt
+     */
+    private static String[] readHeader(FileChannel ch, ByteBuffer b) throws IOException {
+        fill(ch, b, Integer.BYTES + 2 * Short.BYTES);
+        if (b.getInt() != MAGIC) {
+            throw new IOException("Not a Planer binary file");
+        }
+        short version = b.getShort();
+        if (version < 1 || version > VERSION) {
+            throw new IOException("Unsupported version " + version);
+        }
+        int types = b.getShort() & 0xFFFF;
+        // Das höchste Bit der Typnummer ist POINTS_FLAG.
+        if (types > POINTS_FLAG) {
+            throw new IOException("Invalid number of types " + types);
+        }
+        String[] names = new String[types];
+        for (int t = 0; t < names.length; t++) {
+            fill(ch, b, Short.BYTES);
+            byte[] name = new byte[b.getShort() & 0xFFFF];
+            fill(ch, b, name.length);
+            b.get(name);
+            names[t] = new String(name, StandardCharsets.UTF_8);
+        }
+        return names;
+    }
+
+    /**
+     * Diese Methode liest die Anzahl der Formen nach der Typtabelle und überprüft sie, bevor dafür Speicher
+     * angelegt wird.
+     *
+     * @param ch Der Kanal, aus dem gelesen wird
+     * @param b  Der Puffer, in den gelesen wird
+     * @return Die Anzahl der Formen
+     * @throws IOException falls die Anzahl negativ ist oder ihre Datensätze nicht in den Rest der Datei passen
+     */
+    private static int readCount(FileChannel ch, ByteBuffer b) throws IOException {
+        fill(ch, b, Integer.BYTES);
+        int count = b.getInt();
+        long remaining = ch.size() - ch.position() + b.remaining();
+        if (count < 0 || (long) count * RECORD_SIZE > remaining) {
+            throw new IOException("Invalid number of shapes " + count);
+        }
+        return count;
+    }
+
+    /**
+     * Diese Methode schreibt die Punkte einer Form und leert den Puffer dabei nach Bedarf.
+     *
+     * @param ch     Der Kanal, in den geschrieben wird
+     * @param b      Der Puffer, in den geschrieben wird
+     * @param points Die Punkte, die geschrieben werden
+     * @throws IOException falls nicht geschrieben werden konnte
+     */
+    private static void writePoints(FileChannel ch, ByteBuffer b, Points points) throws IOException {
+        if (b.remaining() < PointsCodec.HEADER_SIZE) {
+            flush(ch, b);
+        }
+        b.putFloat(points.getTolerance());
+        b.putInt(points.size());
+        for (int i = 0; i < points.size(); i++) {
+            if (b.remaining() < PointsCodec.POINT_SIZE) {
+                flush(ch, b);
+            }
+            b.putChar((char) points.getU(i));
+            b.putChar((char) points.getV(i));
+        }
+    }
+
+    /**
+     * Diese Methode liest die Punkte einer Form und liest dabei nach Bedarf aus dem Kanal nach.
+     *
+     * @param ch Der Kanal, aus dem gelesen wird
+     * @param b  Der Puffer, in den gelesen wird
+     * @return Die Punkte
+     * @throws IOException falls die Datei vorher endet oder keine gültigen Punkte enthält
+     */
+    private static Points readPoints(FileChannel ch, ByteBuffer b) throws IOException {
+        fill(ch, b, PointsCodec.HEADER_SIZE);
+        float tolerance = b.getFloat();
+        int count = b.getInt();
+        // Eine ungültige Anzahl darf nicht zu einem riesigen Array führen.
+        if (count < 0 || (long) count * PointsCodec.POINT_SIZE > ch.size() - ch.position() + b.remaining()) {
+            throw new IOException("Invalid number of points " + count);
+        }
+        char[] coords = new char[2 * count];
+        for (int i = 0; i < coords.length; ) {
+            fill(ch, b, Character.BYTES);
+            int n = Math.min(b.remaining() / Character.BYTES, coords.length - i);
+            b.asCharBuffer().get(coords, i, n);
+            b.position(b.position() + n * Character.BYTES);
+            i += n;
+        }
+        try {
+            return new Points(coords, tolerance);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid points", e);
+        }
+    }
+
+    /**
+     * Diese Methode schreibt den Inhalt des Puffers vollständig in den Kanal und leert ihn.
+     *
+     * @param ch Der Kanal, in den geschrieben wird
+     * @param b  Der Puffer, der geschrieben wird
+     * @throws IOException falls nicht geschrieben werden konnte
+     */
+    private static void flush(FileChannel ch, ByteBuffer b) throws IOException {
+        b.flip();
+        while (b.hasRemaining()) {
+            ch.write(b);
+        }
+        b.clear();
+    }
+
+    /**
+     * Diese Methode liest aus dem Kanal nach, bis mindestens die übergebene Anzahl an Bytes im Puffer bereitliegt.
+     * <p>Der Puffer ist vor und nach dem Aufruf zum Lesen bereit.</p>
+     *
+     * @param ch     Der Kanal, aus dem gelesen wird
+     * @param b      Der Puffer, in den gelesen wird
+     * @param needed Die Anzahl an Bytes, die mindestens bereitliegen müssen
+     * @throws IOException falls die Datei vorher endet
+     */
+    private static void fill(FileChannel ch, ByteBuffer b, int needed) throws IOException {
+        if (b.remaining() >= needed) {
+            return;
+        }
+        b.compact();
+        while (b.position() < needed) {
+            if (ch.read(b) < 0) {
+                b.flip();
+                throw new IOException("Unexpected end of file");
+            }
+        }
+        b.flip();
+    }
+}
@@ -0,0 +1,89 @@
+package planer;
+
+import planer.shapes.Shape;
+
+/**
+ * Diese Klasse sammelt die Bereiche der Zeichenfläche, die seit dem letzten Neuzeichnen verändert wurden.
+ * <p>Jede Bearbeitung meldet das umschließende Rechteck der betroffenen Form vor und nach der Veränderung. Der
+ * beschädigte Bereich ist das kleinste Rechteck, das alle gemeldeten Rechtecke umschließt.</p>
+ */
+final class DirtyRegion {
+    /**
+     * Die Grenzen des beschädigten Bereichs
+     */
+    private double minX, minY, maxX, maxY;
+
+    /**
+     * Der Konstruktor erzeugt einen leeren Bereich.
+     */
+    DirtyRegion() {
+        clear();
+    }
+
+    /**
+     * Diese Methode meldet das aktuelle umschließende Rechteck einer Form als beschädigt.
+     *
+     * @param s Die Form, deren Bereich neu gezeichnet werden muss
+     */
+    void add(Shape s) {
+        add(s.getMinX(), s.getMinY(), s.getMaxX(), s.getMaxY());
+    }
+
+    /**
+     * Diese Methode meldet ein Rechteck als beschädigt.
+     *
+     * @param minX Die linke Grenze
+     * @param minY Die untere Grenze
+     * @param maxX Die rechte Grenze
+     * @param maxY Die obere Grenze
+     */
+    void add(double minX, double minY, double maxX, double maxY) {
+        this.minX = Math.min(this.minX, minX);
+        this.minY = Math.min(this.minY, minY);
+        this.maxX = Math.max(this.maxX, maxX);
+        this.maxY = Math.max(this.maxY, maxY);
+    }
+
+    /**
+     * Diese Methode setzt den Bereich zurück, nachdem er neu gezeichnet wurde.
+     */
+    void clear() {
+        minX = minY = Double.POSITIVE_INFINITY;
+        maxX = maxY = Double.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * @return Ob seit dem letzten Zurücksetzen kein Bereich gemeldet wurde
+     */
+    boolean isEmpty() {
+        return minX > maxX || minY > maxY;
+    }
+
+    /**
+     * @return Die linke Grenze des beschädigten Bereichs
+     */
+    double getMinX() {
+        return minX;
+    }
+
+    /**
+     * @return Die untere Grenze des beschädigten Bereichs
+     */
+    double getMinY() {
+        return minY;
+    }
+
+    /**
+     * @return Die rechte Grenze des beschädigten Bereichs
+     */
+    double getMaxX() {
+        return maxX;
+    }
+
+    /**
+     * @return Die obere Grenze des beschädigten Bereichs
+     */
+    double getMaxY() {
+        return maxY;
+    }
+}
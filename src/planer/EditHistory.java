@@ -0,0 +1,773 @@
+package planer;
+
+import planer.shapes.Points;
+import planer.shapes.Shape;
+
+import java.util.ArrayDeque;
+
+/**
+ * Diese Klasse führt die Bearbeitungen aus, die rückgängig gemacht und wiederholt werden können, und verwaltet sie.
+ * <p>Jede Bearbeitung wird als kleines {@link Edit Kommando} gespeichert, das nur die z-Position der Form und die
+ * Änderung enthält, und nie als Kopie aller Formen. Rückgängig machen und Wiederholen sind damit unabhängig von der
+ * Anzahl der Formen, da auch der Platz einer z-Position ohne Suche gefunden wird (siehe
+ * {@link ShapeStore#slotOf(int)}).</p>
+ * <p>Die Bearbeitungen werden hier ausgeführt und nicht vom Aufrufer, damit jede Änderung am {@link ShapeStore} genau
+ * einmal dem {@link Listener} gemeldet wird, egal ob sie neu ist, rückgängig gemacht oder wiederholt wird.</p>
+ * <p>Bearbeitungen vieler Formen auf einmal, zum Beispiel der Auswahl, werden als ein Kommando mit den z-Positionen
+ * aller Formen und einer gemeinsamen Verschiebung oder Skalierung gespeichert. Nur beim Löschen werden zusätzlich
+ * die Koordinaten gepackt gespeichert.</p>
+ * <p>Der Speicherbedarf der Kommandos wird geschätzt. Überschreitet er das Budget, werden die ältesten Kommandos
+ * vergessen. Das neueste Kommando bleibt immer erhalten; überschreitet es das Budget allein, wird das dem
+ * {@link Listener} gemeldet.</p>
+ */
+final class EditHistory {
+    /**
+     * Der geschätzte Speicherbedarf eines Objektkopfs und des Verweises darauf in Bytes
+     */
+    private static final int OVERHEAD = 16 + 8;
+    /**
+     * Die Formen, die bearbeitet werden
+     */
+    private final ShapeStore store;
+    /**
+     * Der Empfänger der Änderungen
+     */
+    private final Listener listener;
+    /**
+     * Der Speicherbedarf in Bytes, den alle Kommandos zusammen höchstens belegen dürfen
+     */
+    private final long budget;
+    /**
+     * Die Kommandos, die rückgängig gemacht werden können; das neueste liegt am Ende
+     */
+    private final ArrayDeque<Edit> undo = new ArrayDeque<>();
+    /**
+     * Die Kommandos, die wiederholt werden können; das zuletzt rückgängig gemachte liegt am Ende
+     */
+    private final ArrayDeque<Edit> redo = new ArrayDeque<>();
+    /**
+     * Der geschätzte Speicherbedarf aller Kommandos in Bytes
+     */
+    private long bytes = 0;
+
+    /**
+     * @param store    Die Formen, die bearbeitet werden
+     * @param listener Der Empfänger aller Änderungen am {@link ShapeStore}
+     * @param budget   Der Speicherbedarf in Bytes, den alle Kommandos zusammen höchstens belegen dürfen
+     */
+    EditHistory(ShapeStore store, Listener listener, long budget) {
+        this.store = store;
+        this.listener = listener;
+        this.budget = budget;
+    }
+
+    /**
+     * Diese Methode fügt eine Form als oberste Form hinzu.
+     *
+     * @param name Der Name des Typs
+     * @param s    Die Form, deren aktuelle Koordinaten übernommen werden
+     * @return Der Platz der neuen Form oder {@code -1}, falls der Typ nicht erzeugt werden kann
+     */
+    int add(String name, Shape s) {
+        int slot = store.add(name, s);
+        if (slot >= 0) {
+            push(new Add(slot));
+            listener.added(slot);
+        }
+        return slot;
+    }
+
+    /**
+     * Diese Methode löscht eine Form.
+     *
+     * @param slot Der Platz der Form
+     */
+    void delete(int slot) {
+        Delete e = new Delete(slot);
+        push(e);
+        e.redo();
+    }
+
+    /**
+     * Diese Methode verschiebt eine Form.
+     *
+     * @param slot Der Platz der Form
+     * @param dx   Die Verschiebung in x-Richtung
+     * @param dy   Die Verschiebung in y-Richtung
+     */
+    void move(int slot, double dx, double dy) {
+        Move e = new Move(store.z(slot), dx, dy);
+        push(e);
+        e.redo();
+    }
+
+    /**
+     * Diese Methode setzt die Koordinaten einer Form, ohne sie anzupassen.
+     *
+     * @param slot Der Platz der Form
+     * @param x0   Die neue x0-Koordinate
+     * @param y0   Die neue y0-Koordinate
+     * @param x1   Die neue x1-Koordinate
+     * @param y1   Die neue y1-Koordinate
+     */
+    void set(int slot, double x0, double y0, double x1, double y1) {
+        SetCoords e = new SetCoords(slot, x0, y0, x1, y1);
+        push(e);
+        e.redo();
+    }
+
+    /**
+     * Diese Methode verschiebt viele Formen um dieselbe Distanz.
+     *
+     * @param slots Die Plätze der Formen
+     * @param dx    Die Verschiebung in x-Richtung
+     * @param dy    Die Verschiebung in y-Richtung
+     */
+    void moveAll(int[] slots, double dx, double dy) {
+        MoveAll e = new MoveAll(positions(slots), dx, dy);
+        push(e);
+        e.redo();
+    }
+
+    /**
+     * Diese Methode skaliert viele Formen um denselben Mittelpunkt (siehe
+     * {@link ShapeStore#scale(int, double, double, double)}).
+     *
+     * @param slots Die Plätze der Formen
+     * @param cx    Die x-Koordinate des Mittelpunkts
+     * @param cy    Die y-Koordinate des Mittelpunkts
+     * @param f     Der Faktor; er muss größer als {@code 0} sein, damit die Skalierung rückgängig gemacht werden kann
+     */
+    void scaleAll(int[] slots, double cx, double cy, double f) {
+        ScaleAll e = new ScaleAll(positions(slots), cx, cy, f);
+        push(e);
+        e.redo();
+    }
+
+    /**
+     * Diese Methode löscht viele Formen.
+     *
+     * @param slots Die Plätze der Formen
+     */
+    void deleteAll(int[] slots) {
+        DeleteAll e = new DeleteAll(slots);
+        push(e);
+        e.redo();
+    }
+
+    /**
+     * @return Der Speicherbedarf in Bytes, den alle Kommandos zusammen höchstens belegen dürfen
+     */
+    long budget() {
+        return budget;
+    }
+
+    /**
+     * @return Ob es eine Bearbeitung gibt, die rückgängig gemacht werden kann
+     */
+    boolean canUndo() {
+        return !undo.isEmpty();
+    }
+
+    /**
+     * @return Ob es eine Bearbeitung gibt, die wiederholt werden kann
+     */
+    boolean canRedo() {
+        return !redo.isEmpty();
+    }
+
+    /**
+     * Diese Methode macht die letzte Bearbeitung rückgängig.
+     */
+    void undo() {
+        Edit e = undo.pollLast();
+        if (e != null) {
+            e.undo();
+            redo.addLast(e);
+        }
+    }
+
+    /**
+     * Diese Methode wiederholt die letzte rückgängig gemachte Bearbeitung.
+     */
+    void redo() {
+        Edit e = redo.pollLast();
+        if (e != null) {
+            e.redo();
+            undo.addLast(e);
+        }
+    }
+
+    /**
+     * Diese Methode vergisst alle Bearbeitungen.
+     */
+    void clear() {
+        undo.clear();
+        redo.clear();
+        bytes = 0;
+    }
+
+    /**
+     * @param slots Plätze von Formen
+     * @return Die z-Positionen der Formen in derselben Reihenfolge
+     */
+    private int[] positions(int[] slots) {
+        int[] positions = new int[slots.length];
+        for (int i = 0; i < slots.length; i++) {
+            positions[i] = store.z(slots[i]);
+        }
+        return positions;
+    }
+
+    /**
+     * @param pos Die z-Position einer Form
+     * @return Der Platz der Form, falls sie existiert und nicht gelöscht ist, sonst {@code -1}
+     */
+    private int aliveSlot(int pos) {
+        int slot = store.slotOf(pos);
+        return slot >= 0 && store.isAlive(slot) ? slot : -1;
+    }
+
+    /**
+     * Diese Methode speichert ein neues Kommando, verwirft alle wiederholbaren Kommandos und hält das Budget ein, soweit
+     * das ohne das neue Kommando möglich ist.
+     *
+     * @param e Das Kommando
+     */
+    private void push(Edit e) {
+        for (Edit r :
+                redo) {
+            bytes -= r.bytes();
+        }
+        redo.clear();
+        undo.addLast(e);
+        bytes += e.bytes();
+        while (bytes > budget && undo.size() > 1) {
+            bytes -= undo.pollFirst().bytes();
+        }
+        if (bytes > budget) {
+            listener.overBudget(bytes);
+        }
+    }
+
+    /**
+     * Der Empfänger aller Änderungen, die beim Ausführen, Rückgängigmachen und Wiederholen am {@link ShapeStore}
+     * vorgenommen werden. Er aktualisiert zum Beispiel den räumlichen Index und das Journal und zeichnet neu.
+     */
+    interface Listener {
+        /**
+         * Diese Methode wird aufgerufen, bevor viele Formen auf einmal verändert, gelöscht oder wiederhergestellt
+         * werden. Bis {@link Listener#endBulk()} folgen für jede Form die üblichen Aufrufe.
+         *
+         * @param count Die Anzahl der Formen
+         */
+        void beginBulk(int count);
+
+        /**
+         * Diese Methode wird aufgerufen, nachdem viele Formen auf einmal verändert wurden, zum Beispiel um den
+         * räumlichen Index einmal neu aufzubauen.
+         */
+        void endBulk();
+
+        /**
+         * Diese Methode wird aufgerufen, bevor eine Form verändert oder gelöscht wird.
+         *
+         * @param slot Der Platz der Form
+         */
+        void changing(int slot);
+
+        /**
+         * Diese Methode wird aufgerufen, nachdem eine Form hinzugefügt oder wiederhergestellt wurde.
+         *
+         * @param slot Der Platz der Form
+         */
+        void added(int slot);
+
+        /**
+         * Diese Methode wird aufgerufen, nachdem die Koordinaten einer Form verändert wurden.
+         *
+         * @param slot Der Platz der Form
+         */
+        void changed(int slot);
+
+        /**
+         * Diese Methode wird aufgerufen, nachdem eine Form gelöscht wurde.
+         *
+         * @param slot Der Platz der Form
+         */
+        void removed(int slot);
+
+        /**
+         * Diese Methode wird aufgerufen, wenn eine einzelne Bearbeitung mehr Speicher belegt, als das Budget erlaubt.
+         * Sie bleibt als einzige Bearbeitung erhalten; alle älteren wurden vergessen.
+         *
+         * @param bytes Der geschätzte Speicherbedarf der Bearbeitung in Bytes
+         */
+        void overBudget(long bytes);
+    }
+
+    /**
+     * Eine Bearbeitung, die rückgängig gemacht und wiederholt werden kann.
+     * <p>Die Form wird über ihre z-Position gefunden. Existiert sie nicht mehr, zum Beispiel weil das Laden einer Datei
+     * abgebrochen wurde, wird das Kommando übersprungen.</p>
+     */
+    private abstract class Edit {
+        /**
+         * Die z-Position der Form
+         */
+        final int pos;
+
+        /**
+         * @param pos Die z-Position der Form
+         */
+        Edit(int pos) {
+            this.pos = pos;
+        }
+
+        /**
+         * Diese Methode macht die Bearbeitung rückgängig.
+         */
+        abstract void undo();
+
+        /**
+         * Diese Methode wiederholt die Bearbeitung.
+         */
+        abstract void redo();
+
+        /**
+         * @return Der geschätzte Speicherbedarf des Kommandos in Bytes
+         */
+        abstract int bytes();
+
+    }
+
+    /**
+     * Das Hinzufügen oder Löschen einer Form. Es enthält die Form vollständig, damit sie wiederhergestellt werden kann.
+     */
+    private abstract class Existence extends Edit {
+        /**
+         * Die Typnummer der Form
+         */
+        private final short type;
+        /**
+         * Die Koordinaten der Form
+         */
+        private final double x0, y0, x1, y1;
+        /**
+         * Die Punkte der Form oder {@code null}; sie sind unveränderlich und werden mit dem {@link ShapeStore} geteilt
+         */
+        private final Points points;
+
+        /**
+         * @param slot Der Platz der Form, die noch nicht gelöscht ist
+         */
+        Existence(int slot) {
+            super(store.z(slot));
+            type = store.type(slot);
+            x0 = store.x0(slot);
+            y0 = store.y0(slot);
+            x1 = store.x1(slot);
+            y1 = store.y1(slot);
+            points = store.points(slot);
+        }
+
+        /**
+         * Diese Methode stellt die Form wieder her.
+         */
+        void restore() {
+            if (aliveSlot(pos) < 0) {
+                listener.added(store.revive(pos, type, x0, y0, x1, y1, points));
+            }
+        }
+
+        /**
+         * Diese Methode löscht die Form.
+         */
+        void delete() {
+            int slot = aliveSlot(pos);
+            if (slot >= 0) {
+                listener.changing(slot);
+                store.remove(slot);
+                listener.removed(slot);
+            }
+        }
+
+        @Override
+        int bytes() {
+            return OVERHEAD + Integer.BYTES + Short.BYTES + 4 * Double.BYTES
+                    + (points != null ? OVERHEAD + PointsCodec.bytes(points) : 0);
+        }
+    }
+
+    /**
+     * Das Hinzufügen einer Form.
+     */
+    private final class Add extends Existence {
+        /**
+         * @param slot Der Platz der neuen Form
+         */
+        Add(int slot) {
+            super(slot);
+        }
+
+        @Override
+        void undo() {
+            delete();
+        }
+
+        @Override
+        void redo() {
+            restore();
+        }
+    }
+
+    /**
+     * Das Löschen einer Form.
+     */
+    private final class Delete extends Existence {
+        /**
+         * @param slot Der Platz der Form, die noch nicht gelöscht ist
+         */
+        Delete(int slot) {
+            super(slot);
+        }
+
+        @Override
+        void undo() {
+            restore();
+        }
+
+        @Override
+        void redo() {
+            delete();
+        }
+    }
+
+    /**
+     * Das Verschieben einer Form um eine Distanz.
+     */
+    private final class Move extends Edit {
+        /**
+         * Die Verschiebung
+         */
+        private final double dx, dy;
+
+        /**
+         * @param pos Die z-Position der Form
+         * @param dx  Die Verschiebung in x-Richtung
+         * @param dy  Die Verschiebung in y-Richtung
+         */
+        Move(int pos, double dx, double dy) {
+            super(pos);
+            this.dx = dx;
+            this.dy = dy;
+        }
+
+        @Override
+        void undo() {
+            move(-dx, -dy);
+        }
+
+        @Override
+        void redo() {
+            move(dx, dy);
+        }
+
+        /**
+         * @param dx Die Verschiebung in x-Richtung
+         * @param dy Die Verschiebung in y-Richtung
+         */
+        private void move(double dx, double dy) {
+            int slot = aliveSlot(pos);
+            if (slot >= 0) {
+                listener.changing(slot);
+                store.move(slot, dx, dy);
+                listener.changed(slot);
+            }
+        }
+
+        @Override
+        int bytes() {
+            return OVERHEAD + Integer.BYTES + 2 * Double.BYTES;
+        }
+    }
+
+    /**
+     * Das Setzen der Koordinaten einer Form, zum Beispiel beim Ändern der Größe.
+     */
+    private final class SetCoords extends Edit {
+        /**
+         * Die Koordinaten vor der Bearbeitung
+         */
+        private final double oldX0, oldY0, oldX1, oldY1;
+        /**
+         * Die Koordinaten nach der Bearbeitung
+         */
+        private final double newX0, newY0, newX1, newY1;
+
+        /**
+         * @param slot Der Platz der Form, die noch die alten Koordinaten hat
+         * @param x0   Die neue x0-Koordinate
+         * @param y0   Die neue y0-Koordinate
+         * @param x1   Die neue x1-Koordinate
+         * @param y1   Die neue y1-Koordinate
+         */
+        SetCoords(int slot, double x0, double y0, double x1, double y1) {
+            super(store.z(slot));
+            oldX0 = store.x0(slot);
+            oldY0 = store.y0(slot);
+            oldX1 = store.x1(slot);
+            oldY1 = store.y1(slot);
+            newX0 = x0;
+            newY0 = y0;
+            newX1 = x1;
+            newY1 = y1;
+        }
+
+        @Override
+        void undo() {
+            set(oldX0, oldY0, oldX1, oldY1);
+        }
+
+        @Override
+        void redo() {
+            set(newX0, newY0, newX1, newY1);
+        }
+
+        /**
+         * @param x0 Die x0-Koordinate
+         * @param y0 Die y0-Koordinate
+         * @param x1 Die x1-Koordinate
+         * @param y1 Die y1-Koordinate
+         */
+        private void set(double x0, double y0, double x1, double y1) {
+            int slot = aliveSlot(pos);
+            if (slot >= 0) {
+                listener.changing(slot);
+                store.set(slot, x0, y0, x1, y1);
+                listener.changed(slot);
+            }
+        }
+
+        @Override
+        int bytes() {
+            return OVERHEAD + Integer.BYTES + 8 * Double.BYTES;
+        }
+    }
+
+    /**
+     * Das Verschieben vieler Formen um dieselbe Distanz, zum Beispiel der Auswahl. Das Kommando selbst hat keine
+     * z-Position.
+     */
+    private final class MoveAll extends Edit {
+        /**
+         * Die z-Positionen der Formen
+         */
+        private final int[] positions;
+        /**
+         * Die Verschiebung
+         */
+        private final double dx, dy;
+
+        /**
+         * @param positions Die z-Positionen der Formen
+         * @param dx        Die Verschiebung in x-Richtung
+         * @param dy        Die Verschiebung in y-Richtung
+         */
+        MoveAll(int[] positions, double dx, double dy) {
+            super(-1);
+            this.positions = positions;
+            this.dx = dx;
+            this.dy = dy;
+        }
+
+        @Override
+        void undo() {
+            move(-dx, -dy);
+        }
+
+        @Override
+        void redo() {
+            move(dx, dy);
+        }
+
+        /**
+         * @param dx Die Verschiebung in x-Richtung
+         * @param dy Die Verschiebung in y-Richtung
+         */
+        private void move(double dx, double dy) {
+            listener.beginBulk(positions.length);
+            for (int p :
+                    positions) {
+                int slot = aliveSlot(p);
+                if (slot >= 0) {
+                    listener.changing(slot);
+                    store.move(slot, dx, dy);
+                    listener.changed(slot);
+                }
+            }
+            listener.endBulk();
+        }
+
+        @Override
+        int bytes() {
+            return 2 * OVERHEAD + positions.length * Integer.BYTES + 2 * Double.BYTES;
+        }
+    }
+
+    /**
+     * Das Skalieren vieler Formen um denselben Mittelpunkt, zum Beispiel der Auswahl. Rückgängig gemacht wird mit dem
+     * Kehrwert des Faktors. Das Kommando selbst hat keine z-Position.
+     */
+    private final class ScaleAll extends Edit {
+        /**
+         * Die z-Positionen der Formen
+         */
+        private final int[] positions;
+        /**
+         * Der Mittelpunkt
+         */
+        private final double cx, cy;
+        /**
+         * Der Faktor
+         */
+        private final double f;
+
+        /**
+         * @param positions Die z-Positionen der Formen
+         * @param cx        Die x-Koordinate des Mittelpunkts
+         * @param cy        Die y-Koordinate des Mittelpunkts
+         * @param f         Der Faktor
+         */
+        ScaleAll(int[] positions, double cx, double cy, double f) {
+            super(-1);
+            this.positions = positions;
+            this.cx = cx;
+            this.cy = cy;
+            this.f = f;
+        }
+
+        @Override
+        void undo() {
+            scale(1 / f);
+        }
+
+        @Override
+        void redo() {
+            scale(f);
+        }
+
+        /**
+         * @param f Der Faktor
+         */
+        private void scale(double f) {
+            listener.beginBulk(positions.length);
+            for (int p :
+                    positions) {
+                int slot = aliveSlot(p);
+                if (slot >= 0) {
+                    listener.changing(slot);
+                    store.scale(slot, cx, cy, f);
+                    listener.changed(slot);
+                }
+            }
+            listener.endBulk();
+        }
+
+        @Override
+        int bytes() {
+            return 2 * OVERHEAD + positions.length * Integer.BYTES + 3 * Double.BYTES;
+        }
+    }
+
+    /**
+     * Das Löschen vieler Formen, zum Beispiel der Auswahl. Die Formen werden gepackt in primitiven Arrays gespeichert,
+     * damit sie wiederhergestellt werden können. Das Kommando selbst hat keine z-Position.
+     */
+    private final class DeleteAll extends Edit {
+        /**
+         * Die z-Positionen der Formen
+         */
+        private final int[] positions;
+        /**
+         * Die Typnummern der Formen
+         */
+        private final short[] types;
+        /**
+         * Die Koordinaten der Formen, jeweils x0, y0, x1 und y1 hintereinander
+         */
+        private final double[] coords;
+        /**
+         * Die Punkte der Formen oder {@code null}, falls keine Form Punkte hat
+         */
+        private final Points[] points;
+
+        /**
+         * @param slots Die Plätze der Formen, die noch nicht gelöscht sind
+         */
+        DeleteAll(int[] slots) {
+            super(-1);
+            positions = positions(slots);
+            types = new short[slots.length];
+            coords = new double[4 * slots.length];
+            Points[] p = null;
+            for (int i = 0; i < slots.length; i++) {
+                int slot = slots[i];
+                types[i] = store.type(slot);
+                coords[4 * i] = store.x0(slot);
+                coords[4 * i + 1] = store.y0(slot);
+                coords[4 * i + 2] = store.x1(slot);
+                coords[4 * i + 3] = store.y1(slot);
+                if (store.points(slot) != null) {
+                    if (p == null) {
+                        p = new Points[slots.length];
+                    }
+                    p[i] = store.points(slot);
+                }
+            }
+            points = p;
+        }
+
+        @Override
+        void undo() {
+            listener.beginBulk(positions.length);
+            for (int i = 0; i < positions.length; i++) {
+                if (aliveSlot(positions[i]) < 0) {
+                    listener.added(store.revive(positions[i], types[i], coords[4 * i], coords[4 * i + 1],
+                            coords[4 * i + 2], coords[4 * i + 3], points != null ? points[i] : null));
+                }
+            }
+            listener.endBulk();
+        }
+
+        @Override
+        void redo() {
+            listener.beginBulk(positions.length);
+            for (int p :
+                    positions) {
+                int slot = aliveSlot(p);
+                if (slot >= 0) {
+                    listener.changing(slot);
+                    store.remove(slot);
+                    listener.removed(slot);
+                }
+            }
+            listener.endBulk();
+        }
+
+        @Override
+        int bytes() {
+            int sum = 4 * OVERHEAD + positions.length * (Integer.BYTES + Short.BYTES + 4 * Double.BYTES);
+            if (points != null) {
+                sum += OVERHEAD + points.length * 8;
+                for (Points p :
+                        points) {
+                    if (p != null) {
+                        sum += OVERHEAD + PointsCodec.bytes(p);
+                    }
+                }
+            }
+            return sum;
+        }
+    }
+}
@@ -0,0 +1,558 @@
+package planer;
+
+import planer.shapes.Points;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * Dieses Journal hält jede Bearbeitung im {@link ShapeStore} fest, damit eine Zeichnung nach einem Absturz
+ * wiederhergestellt werden kann.
+ * <p>Der Stand wird in Generationen gespeichert. Jede Generation besteht aus einem vollständigen Abbild
+ * ({@code snapshot-<n>.bin}) und einem Journal ({@code journal-<n>.log}), an das jede Bearbeitung danach angehängt
+ * wird. Die Einträge werden im Speicher gesammelt und von einem Hintergrund-Thread alle
+ * {@link EditJournal#FLUSH_MILLIS} Millisekunden gemeinsam geschrieben und mit {@link FileChannel#force(boolean)} auf
+ * die Platte gebracht.</p>
+ * <p>Beim {@link EditJournal#checkpoint(ShapeStore) Zusammenfassen} beginnt eine neue Generation: Neue Bearbeitungen
+ * gehen sofort in das neue Journal, das Abbild wird im Hintergrund unter einem temporären Namen geschrieben und erst
+ * danach umbenannt. Erst dann werden ältere Generationen gelöscht. Zum Wiederherstellen wird das neueste vollständige
+ * Abbild gelesen und alle Journale ab seiner Generation werden der Reihe nach angewendet.</p>
+ * <p>Formen werden über ihre z-Position identifiziert, da sich ihre Plätze beim Verdichten ändern. Die
+ * {@link Points Punkte} einer Form folgen in einem eigenen Eintrag direkt auf den Eintrag, der sie hinzufügt.</p>
+ * <p>Beide Dateiarten bestehen aus Rahmen mit Länge, CRC32-Prüfsumme und Einträgen. Ein Rahmen, der nach einem Absturz
+ * unvollständig ist oder dessen Prüfsumme nicht stimmt, beendet das Lesen.</p>
+ */
+final class EditJournal implements Closeable {
+    /**
+     * Die Zeit in Millisekunden, nach der gesammelte Einträge spätestens geschrieben werden
+     */
+    private static final long FLUSH_MILLIS = 1000;
+    /**
+     * Die Größe des Journals in Bytes, ab der sich ein neues Abbild lohnt
+     */
+    private static final long CHECKPOINT_BYTES = 4 << 20;
+    /**
+     * Die Größe eines Rahmens beim Schreiben eines Abbilds
+     */
+    private static final int FRAME_SIZE = 1 << 16;
+    /**
+     * Die Größe des Kopfs eines Rahmens: Länge und Prüfsumme
+     */
+    private static final int FRAME_HEADER = 2 * Integer.BYTES;
+    /**
+     * Der Eintrag, der einem Typnamen eine Nummer innerhalb einer Datei zuordnet
+     */
+    private static final byte TYPE = 'T';
+    /**
+     * Der Eintrag für eine hinzugefügte Form
+     */
+    private static final byte ADD = 'A';
+    /**
+     * Der Eintrag für eine verschobene oder in der Größe veränderte Form
+     */
+    private static final byte SET = 'S';
+    /**
+     * Der Eintrag für eine gelöschte Form
+     */
+    private static final byte REMOVE = 'R';
+    /**
+     * Der Eintrag für die Punkte einer Form (siehe {@link PointsCodec})
+     */
+    private static final byte POINTS = 'P';
+    /**
+     * Das Verzeichnis, in dem Abbilder und Journale liegen
+     */
+    private final Path dir;
+    /**
+     * Die Sperre, die verhindert, dass zwei Programme dasselbe Verzeichnis verwenden
+     */
+    private final FileLock lock;
+    /**
+     * Der Thread, der im Hintergrund schreibt
+     */
+    private final ScheduledExecutorService io = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "Planer journal");
+        t.setDaemon(true);
+        return t;
+    });
+    /**
+     * Die Typnummern im aktuellen Journal
+     */
+    private final HashMap<String, Short> typeIds = new HashMap<>();
+    /**
+     * Die Einträge, die noch nicht geschrieben wurden; sie gehören immer zur Generation {@link EditJournal#generation}
+     */
+    private ByteBuffer pending = ByteBuffer.allocate(FRAME_SIZE);
+    /**
+     * Das Journal, in das geschrieben wird, oder {@code null}, bevor die erste Generation begonnen hat
+     */
+    private FileChannel journal;
+    /**
+     * Die Generation von {@link EditJournal#journal} oder {@code -1}; wird nur im Hintergrund-Thread verwendet
+     */
+    private int journalGeneration = -1;
+    /**
+     * Die aktuelle Generation
+     */
+    private int generation;
+    /**
+     * Die Größe des aktuellen Journals in Bytes
+     */
+    private long journalBytes = 0;
+
+    /**
+     * Der Konstruktor öffnet das Verzeichnis, schreibt aber noch nichts.
+     * <p>Bevor Bearbeitungen festgehalten werden, muss mit {@link EditJournal#checkpoint(ShapeStore)} eine Generation
+     * begonnen werden; vorher kann der alte Stand mit {@link EditJournal#recover(ShapeStore)} gelesen werden.</p>
+     *
+     * @param dir Das Verzeichnis, in dem Abbilder und Journale liegen
+     * @throws IOException falls das Verzeichnis nicht verwendet werden kann, zum Beispiel weil es bereits von einem
+     *                     anderen Programm verwendet wird
+     */
+    EditJournal(Path dir) throws IOException {
+        this.dir = dir;
+        Files.createDirectories(dir);
+        FileChannel ch = FileChannel.open(dir.resolve("lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        FileLock l;
+        try {
+            l = ch.tryLock();
+        } catch (OverlappingFileLockException e) {
+            l = null;
+        }
+        lock = l;
+        if (lock == null) {
+            ch.close();
+            throw new IOException("The journal directory is in use");
+        }
+        generation = Math.max(latest("snapshot-"), latest("journal-"));
+        io.scheduleWithFixedDelay(this::flushQuietly, FLUSH_MILLIS, FLUSH_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Diese Methode liest das neueste vollständige Abbild und wendet alle Journale ab seiner Generation an.
+     * <p>Die Formen werden mit ihren gespeicherten z-Positionen zu einem leeren {@link ShapeStore} hinzugefügt.</p>
+     *
+     * @param store Der leere {@link ShapeStore}
+     * @throws IOException falls eine Datei nicht gelesen werden konnte
+     */
+    void recover(ShapeStore store) throws IOException {
+        int from = latest("snapshot-");
+        int maxZ = -1;
+        if (from >= 0) {
+            maxZ = replay(snapshotFile(from), store, maxZ);
+        }
+        for (int g = Math.max(from, 0); g <= generation; g++) {
+            if (Files.exists(journalFile(g))) {
+                maxZ = replay(journalFile(g), store, maxZ);
+            }
+        }
+        store.sortByZ();
+        store.reserveZ(maxZ + 1);
+    }
+
+    /**
+     * Diese Methode hält fest, dass eine Form hinzugefügt wurde.
+     *
+     * @param store Die Formen
+     * @param slot  Der Platz der Form
+     */
+    synchronized void added(ShapeStore store, int slot) {
+        short t = journalType(store.typeName(store.type(slot)));
+        ensurePending(1 + Integer.BYTES + Short.BYTES + 4 * Double.BYTES);
+        pending.put(ADD).putInt(store.z(slot)).putShort(t);
+        putCoords(store, slot);
+        Points points = store.points(slot);
+        if (points != null) {
+            ensurePending(1 + Integer.BYTES + PointsCodec.bytes(points));
+            pending.put(POINTS).putInt(store.z(slot));
+            PointsCodec.put(pending, points);
+        }
+    }
+
+    /**
+     * Diese Methode hält fest, dass die Koordinaten einer Form verändert wurden.
+     *
+     * @param store Die Formen
+     * @param slot  Der Platz der Form
+     */
+    synchronized void changed(ShapeStore store, int slot) {
+        ensurePending(1 + Integer.BYTES + 4 * Double.BYTES);
+        pending.put(SET).putInt(store.z(slot));
+        putCoords(store, slot);
+    }
+
+    /**
+     * Diese Methode hält fest, dass eine Form gelöscht wurde.
+     *
+     * @param store Die Formen
+     * @param slot  Der Platz der Form
+     */
+    synchronized void removed(ShapeStore store, int slot) {
+        ensurePending(1 + Integer.BYTES);
+        pending.put(REMOVE).putInt(store.z(slot));
+    }
+
+    /**
+     * @return Ob das aktuelle Journal so groß ist, dass es in ein neues Abbild zusammengefasst werden sollte
+     */
+    synchronized boolean needsCheckpoint() {
+        return journalBytes + pending.position() > CHECKPOINT_BYTES;
+    }
+
+    /**
+     * Diese Methode beginnt eine neue Generation mit einem Abbild der übergebenen Formen.
+     * <p>Das Abbild wird im Hintergrund geschrieben. Bearbeitungen, die danach festgehalten werden, gehören bereits zur
+     * neuen Generation.</p>
+     *
+     * @param snapshot Eine unveränderliche Kopie der Formen (siehe {@link ShapeStore#snapshot()})
+     */
+    synchronized void checkpoint(ShapeStore snapshot) {
+        ByteBuffer old = takePending();
+        int g = ++generation;
+        typeIds.clear();
+        journalBytes = 0;
+        io.execute(() -> {
+            try {
+                writeCheckpoint(old, g, snapshot);
+            } catch (IOException e) {
+                // Die alte Generation bleibt gültig; beim nächsten Zusammenfassen wird es erneut versucht.
+            }
+        });
+    }
+
+    /**
+     * Diese Methode schreibt alle gesammelten Einträge und beendet den Hintergrund-Thread. Die Dateien bleiben
+     * erhalten.
+     */
+    @Override
+    public void close() {
+        io.execute(this::flushQuietly);
+        io.shutdown();
+        try {
+            io.awaitTermination(10, TimeUnit.SECONDS);
+            if (journal != null) {
+                journal.close();
+            }
+            lock.release();
+            lock.channel().close();
+        } catch (InterruptedException | IOException ignored) {
+        }
+    }
+
+    /**
+     * Diese Methode schließt das alte Journal, öffnet das neue und schreibt das Abbild der neuen Generation. Sie wird
+     * im Hintergrund-Thread ausgeführt.
+     *
+     * @param old      Die letzten Einträge der alten Generation
+     * @param g        Die neue Generation
+     * @param snapshot Die Formen, die in das Abbild geschrieben werden
+     * @throws IOException falls eine Datei nicht geschrieben werden konnte
+     */
+    private void writeCheckpoint(ByteBuffer old, int g, ShapeStore snapshot) throws IOException {
+        if (journal != null) {
+            writeFrame(journal, old);
+            journal.force(false);
+            journal.close();
+        }
+        journal = FileChannel.open(journalFile(g), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+        journalGeneration = g;
+        Path tmp = dir.resolve(snapshotFile(g).getFileName() + ".tmp");
+        try (FileChannel ch = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer b = ByteBuffer.allocate(FRAME_SIZE);
+            for (short t = 0; t < snapshot.typeCount(); t++) {
+                byte[] name = snapshot.typeName(t).getBytes(StandardCharsets.UTF_8);
+                b.put(TYPE).putShort(t).putShort((short) name.length).put(name);
+            }
+            for (int i = 0; i < snapshot.size(); i++) {
+                if (!snapshot.isAlive(i)) {
+                    continue;
+                }
+                if (b.remaining() < 1 + Integer.BYTES + Short.BYTES + 4 * Double.BYTES) {
+                    writeFrame(ch, b);
+                }
+                b.put(ADD).putInt(snapshot.z(i)).putShort(snapshot.type(i)).putDouble(snapshot.x0(i))
+                        .putDouble(snapshot.y0(i)).putDouble(snapshot.x1(i)).putDouble(snapshot.y1(i));
+                Points points = snapshot.points(i);
+                if (points != null) {
+                    int needed = 1 + Integer.BYTES + PointsCodec.bytes(points);
+                    if (b.remaining() < needed) {
+                        writeFrame(ch, b);
+                        if (b.capacity() < needed) {
+                            b = ByteBuffer.allocate(needed);
+                        }
+                    }
+                    b.put(POINTS).putInt(snapshot.z(i));
+                    PointsCodec.put(b, points);
+                }
+            }
+            writeFrame(ch, b);
+            ch.force(true);
+        }
+        try {
+            Files.move(tmp, snapshotFile(g), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, snapshotFile(g), StandardCopyOption.REPLACE_EXISTING);
+        }
+        for (Path f :
+                files()) {
+            if (generationOf(f) < g) {
+                Files.deleteIfExists(f);
+            }
+        }
+    }
+
+    /**
+     * Diese Methode schreibt alle gesammelten Einträge in das aktuelle Journal. Sie wird im Hintergrund-Thread
+     * ausgeführt.
+     * <p>Hat {@link EditJournal#checkpoint(ShapeStore)} schon eine neue Generation begonnen, deren Journal noch nicht
+     * geöffnet ist, gehören die Einträge bereits zu ihr. Sie bleiben dann gesammelt, bis
+     * {@link EditJournal#writeCheckpoint(ByteBuffer, int, ShapeStore)} das neue Journal geöffnet hat, statt im alten
+     * Journal zu landen, das danach gelöscht wird.</p>
+     */
+    private void flushQuietly() {
+        ByteBuffer b;
+        synchronized (this) {
+            if (pending.position() == 0 || journal == null || journalGeneration != generation) {
+                return;
+            }
+            b = takePending();
+        }
+        try {
+            writeFrame(journal, b);
+            journal.force(false);
+        } catch (IOException ignored) {
+            // Das Journal ist nicht mehr beschreibbar; das nächste Abbild enthält die Bearbeitungen trotzdem.
+        }
+    }
+
+    /**
+     * Diese Methode schreibt die Einträge eines Puffers als einen Rahmen und leert den Puffer.
+     *
+     * @param ch Die Datei
+     * @param b  Der Puffer mit den Einträgen ab Position {@code 0}
+     * @throws IOException falls nicht geschrieben werden konnte
+     */
+    private static void writeFrame(FileChannel ch, ByteBuffer b) throws IOException {
+        b.flip();
+        if (b.hasRemaining()) {
+            CRC32 crc = new CRC32();
+            crc.update(b.duplicate());
+            ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER);
+            header.putInt(b.remaining()).putInt((int) crc.getValue()).flip();
+            ByteBuffer[] frame = {header, b};
+            while (b.hasRemaining()) {
+                ch.write(frame);
+            }
+        }
+        b.clear();
+    }
+
+    /**
+     * Diese Methode wendet alle vollständigen Rahmen einer Datei an.
+     *
+     * @param f     Die Datei
+     * @param store Die Formen
+     * @param maxZ  Die bisher größte z-Position
+     * @return Die größte z-Position danach
+     * @throws IOException falls die Datei nicht gelesen werden konnte
+     */
+    private static int replay(Path f, ShapeStore store, int maxZ) throws IOException {
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(f));
+        ArrayList<Short> types = new ArrayList<>();
+        CRC32 crc = new CRC32();
+        while (data.remaining() >= FRAME_HEADER) {
+            int length = data.getInt(), sum = data.getInt();
+            if (length < 0 || length > data.remaining()) {
+                break;
+            }
+            ByteBuffer frame = data.slice();
+            frame.limit(length);
+            crc.reset();
+            crc.update(frame.duplicate());
+            if ((int) crc.getValue() != sum) {
+                break;
+            }
+            data.position(data.position() + length);
+            while (frame.hasRemaining()) {
+                byte op = frame.get();
+                if (op == TYPE) {
+                    short t = frame.getShort();
+                    byte[] name = new byte[frame.getShort()];
+                    frame.get(name);
+                    while (types.size() <= t) {
+                        types.add((short) -1);
+                    }
+                    types.set(t, store.typeId(new String(name, StandardCharsets.UTF_8)));
+                } else if (op == ADD) {
+                    int z = frame.getInt();
+                    short t = frame.getShort();
+                    double x0 = frame.getDouble(), y0 = frame.getDouble(), x1 = frame.getDouble(), y1 = frame.getDouble();
+                    if (t >= 0 && t < types.size() && types.get(t) >= 0) {
+                        store.revive(z, types.get(t), x0, y0, x1, y1, null);
+                        maxZ = Math.max(maxZ, z);
+                    }
+                } else if (op == SET) {
+                    int slot = store.slotOf(frame.getInt());
+                    double x0 = frame.getDouble(), y0 = frame.getDouble(), x1 = frame.getDouble(), y1 = frame.getDouble();
+                    if (slot >= 0 && store.isAlive(slot)) {
+                        store.set(slot, x0, y0, x1, y1);
+                    }
+                } else if (op == POINTS) {
+                    int slot = store.slotOf(frame.getInt());
+                    Points points;
+                    try {
+                        points = PointsCodec.get(frame);
+                    } catch (IllegalArgumentException e) {
+                        throw new IOException("Invalid points in " + f, e);
+                    }
+                    if (slot >= 0 && store.isAlive(slot)) {
+                        store.setPoints(slot, points);
+                    }
+                } else if (op == REMOVE) {
+                    int slot = store.slotOf(frame.getInt());
+                    if (slot >= 0) {
+                        store.remove(slot);
+                    }
+                } else {
+                    throw new IOException("Unknown journal entry " + op + " in " + f);
+                }
+            }
+        }
+        return maxZ;
+    }
+
+    /**
+     * Diese Methode liefert die Typnummer eines Typs im aktuellen Journal und hält neue Typen fest.
+     *
+     * @param name Der Name des Typs
+     * @return Die Typnummer
+     */
+    private short journalType(String name) {
+        Short id = typeIds.get(name);
+        if (id == null) {
+            id = (short) typeIds.size();
+            typeIds.put(name, id);
+            byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+            ensurePending(1 + 2 * Short.BYTES + bytes.length);
+            pending.put(TYPE).putShort(id).putShort((short) bytes.length).put(bytes);
+        }
+        return id;
+    }
+
+    /**
+     * Diese Methode schreibt die Koordinaten einer Form in die gesammelten Einträge.
+     *
+     * @param store Die Formen
+     * @param slot  Der Platz der Form
+     */
+    private void putCoords(ShapeStore store, int slot) {
+        pending.putDouble(store.x0(slot)).putDouble(store.y0(slot)).putDouble(store.x1(slot)).putDouble(store.y1(slot));
+    }
+
+    /**
+     * Diese Methode vergrößert den Puffer der gesammelten Einträge, falls nötig.
+     *
+     * @param bytes Die Anzahl der Bytes, die hinzugefügt werden sollen
+     */
+    private void ensurePending(int bytes) {
+        if (pending.remaining() < bytes) {
+            ByteBuffer b = ByteBuffer.allocate(Math.max(2 * pending.capacity(), pending.position() + bytes));
+            pending.flip();
+            b.put(pending);
+            pending = b;
+        }
+    }
+
+    /**
+     * Diese Methode übergibt die gesammelten Einträge und beginnt einen neuen Puffer.
+     *
+     * @return Die gesammelten Einträge ab Position {@code 0}
+     */
+    private ByteBuffer takePending() {
+        ByteBuffer b = pending;
+        journalBytes += b.position();
+        pending = ByteBuffer.allocate(FRAME_SIZE);
+        return b;
+    }
+
+    /**
+     * @return Alle Abbilder und Journale im Verzeichnis
+     * @throws IOException falls das Verzeichnis nicht gelesen werden konnte
+     */
+    private ArrayList<Path> files() throws IOException {
+        ArrayList<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, "{snapshot,journal}-*.{bin,log}")) {
+            for (Path f :
+                    ds) {
+                if (generationOf(f) >= 0) {
+                    files.add(f);
+                }
+            }
+        }
+        return files;
+    }
+
+    /**
+     * @param prefix Der Anfang des Dateinamens, {@code snapshot-} oder {@code journal-}
+     * @return Die neueste Generation mit einer Datei dieser Art oder {@code -1}
+     * @throws IOException falls das Verzeichnis nicht gelesen werden konnte
+     */
+    private int latest(String prefix) throws IOException {
+        int latest = -1;
+        for (Path f :
+                files()) {
+            if (f.getFileName().toString().startsWith(prefix)) {
+                latest = Math.max(latest, generationOf(f));
+            }
+        }
+        return latest;
+    }
+
+    /**
+     * @param f Ein Abbild oder Journal
+     * @return Die Generation der Datei oder {@code -1}, falls der Name nicht passt
+     */
+    private static int generationOf(Path f) {
+        String name = f.getFileName().toString();
+        try {
+            return Integer.parseInt(name.substring(name.indexOf('-') + 1, name.lastIndexOf('.')));
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * @param g Eine Generation
+     * @return Das Abbild der Generation
+     */
+    private Path snapshotFile(int g) {
+        return dir.resolve("snapshot-" + g + ".bin");
+    }
+
+    /**
+     * @param g Eine Generation
+     * @return Das Journal der Generation
+     */
+    private Path journalFile(int g) {
+        return dir.resolve("journal-" + g + ".log");
+    }
+}
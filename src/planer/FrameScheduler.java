@@ -0,0 +1,111 @@
+package planer;
+
+import javax.swing.Timer;
+import java.awt.DisplayMode;
+import java.awt.GraphicsEnvironment;
+
+/**
+ * Diese Klasse fasst Anfragen zum Neuzeichnen zusammen und zeichnet höchstens einmal pro Bild des Bildschirms.
+ * <p>Jedes Mausereignis meldet nur, dass sich etwas geändert hat. Ein {@link Timer} im Takt der Bildwiederholrate ruft
+ * die Zeichenmethode auf dem Event Dispatch Thread auf, falls seit dem letzten Bild mindestens eine Anfrage eingegangen
+ * ist. Die Zeichenmethode liest dann den neuesten Zustand, alle Zwischenstände dazwischen werden nie gezeichnet.</p>
+ * <p>Dauert ein Bild länger als ein Takt, werden so viele Takte ausgelassen, dass der Event Dispatch Thread danach
+ * mindestens so lange für Eingaben frei ist, wie das Bild gedauert hat. Ohne Anfragen hält der {@link Timer} an.</p>
+ * <p>Alle Methoden dürfen nur auf dem Event Dispatch Thread aufgerufen werden.</p>
+ */
+final class FrameScheduler {
+    /**
+     * Die Bildwiederholrate in Hertz, falls die des Bildschirms nicht bekannt ist
+     */
+    private static final int DEFAULT_REFRESH_RATE = 60;
+    /**
+     * Die Methode, die ein Bild zeichnet
+     */
+    private final Runnable frame;
+    /**
+     * Der {@link Timer}, der im Takt der Bildwiederholrate auslöst
+     */
+    private final Timer timer;
+    /**
+     * Die Dauer eines Takts in Nanosekunden
+     */
+    private final long periodNanos;
+    /**
+     * Ob seit dem letzten Bild eine Anfrage eingegangen ist
+     */
+    private boolean pending;
+    /**
+     * Der Zeitpunkt nach {@link System#nanoTime()}, vor dem kein Bild gezeichnet wird
+     */
+    private long notBefore;
+
+    /**
+     * @param frame Die Methode, die ein Bild mit dem neuesten Zustand zeichnet
+     */
+    FrameScheduler(Runnable frame) {
+        this.frame = frame;
+        int period = Math.max(1, 1000 / refreshRate());
+        periodNanos = period * 1_000_000L;
+        timer = new Timer(period, e -> tick());
+        timer.setInitialDelay(0);
+        timer.setCoalesce(true);
+    }
+
+    /**
+     * Diese Methode meldet, dass beim nächsten Takt ein Bild gezeichnet werden soll.
+     */
+    void request() {
+        pending = true;
+        if (!timer.isRunning()) {
+            timer.start();
+        }
+    }
+
+    /**
+     * Diese Methode zeichnet sofort ein Bild, falls noch eine Anfrage offen ist.
+     * <p>Sie wird aufgerufen, bevor ein Zustand übernommen wird, damit der neueste Zustand nicht verloren geht.</p>
+     */
+    void flush() {
+        if (pending) {
+            render();
+        }
+    }
+
+    /**
+     * Diese Methode wird bei jedem Takt aufgerufen.
+     * <p>Ohne offene Anfrage wird der {@link Timer} angehalten, bis zum Zeitpunkt {@link FrameScheduler#notBefore}
+     * wird der Takt ausgelassen.</p>
+     */
+    private void tick() {
+        if (!pending) {
+            timer.stop();
+        } else if (System.nanoTime() - notBefore >= 0) {
+            render();
+        }
+    }
+
+    /**
+     * Diese Methode zeichnet ein Bild und misst, wie lange es gedauert hat.
+     */
+    private void render() {
+        pending = false;
+        long start = System.nanoTime();
+        frame.run();
+        long end = System.nanoTime();
+        long cost = end - start;
+        notBefore = cost > periodNanos ? end + cost - periodNanos : end;
+    }
+
+    /**
+     * @return Die Bildwiederholrate des Bildschirms in Hertz oder {@link FrameScheduler#DEFAULT_REFRESH_RATE}, falls
+     * sie nicht bekannt ist
+     */
+    private static int refreshRate() {
+        if (GraphicsEnvironment.isHeadless()) {
+            return DEFAULT_REFRESH_RATE;
+        }
+        DisplayMode mode = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDisplayMode();
+        int rate = mode != null ? mode.getRefreshRate() : DisplayMode.REFRESH_RATE_UNKNOWN;
+        return rate > 0 ? rate : DEFAULT_REFRESH_RATE;
+    }
+}
@@ -0,0 +1,56 @@
+package planer;
+
+import ch.aplu.util.GPanel;
+import planer.shapes.Canvas;
+
+/**
+ * Diese Klasse leitet das Zeichnen einer Form an ein {@link GPanel} weiter.
+ */
+final class GPanelCanvas implements Canvas {
+    /**
+     * Das Panel, auf dem gezeichnet wird
+     */
+    private final GPanel panel;
+
+    /**
+     * @param panel Das Panel, auf dem gezeichnet wird
+     */
+    GPanelCanvas(GPanel panel) {
+        this.panel = panel;
+    }
+
+    @Override
+    public void move(double x, double y) {
+        panel.move(x, y);
+    }
+
+    @Override
+    public void lineTo(double x, double y) {
+        panel.draw(x, y);
+    }
+
+    @Override
+    public void circle(double r) {
+        panel.circle(r);
+    }
+
+    @Override
+    public void rectangle(double x0, double y0, double x1, double y1) {
+        panel.rectangle(x0, y0, x1, y1);
+    }
+
+    @Override
+    public void triangle(double x0, double y0, double x1, double y1, double x2, double y2) {
+        panel.triangle(x0, y0, x1, y1, x2, y2);
+    }
+
+    @Override
+    public void fillRectangle(double x0, double y0, double x1, double y1) {
+        panel.fillRectangle(x0, y0, x1, y1);
+    }
+
+    @Override
+    public void point(double x, double y) {
+        panel.point(x, y);
+    }
+}
@@ -0,0 +1,123 @@
+package planer;
+
+import planer.shapes.Canvas;
+
+import java.awt.Graphics2D;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+
+/**
+ * Diese Klasse zeichnet Formen mit einem {@link Graphics2D}, zum Beispiel in ein {@link java.awt.image.BufferedImage},
+ * ohne dass ein Fenster benötigt wird.
+ * <p>Fensterkoordinaten werden wie beim {@link ch.aplu.util.GPanel} auf Pixel abgebildet: die x-Achse zeigt nach
+ * rechts, die y-Achse nach oben. Die geometrischen Objekte werden für jede Form wiederverwendet.</p>
+ */
+final class Graphics2DCanvas implements Canvas {
+    /**
+     * Das Grafikobjekt, mit dem gezeichnet wird
+     */
+    private final Graphics2D g;
+    /**
+     * Die Abbildung der Fensterkoordinaten auf Pixel: {@code px = x * scaleX + offsetX}
+     */
+    private final double scaleX, offsetX, scaleY, offsetY;
+    /**
+     * Das wiederverwendete Rechteck
+     */
+    private final Rectangle2D.Double rect = new Rectangle2D.Double();
+    /**
+     * Die wiederverwendete Ellipse
+     */
+    private final Ellipse2D.Double ellipse = new Ellipse2D.Double();
+    /**
+     * Die wiederverwendete Strecke
+     */
+    private final Line2D.Double line = new Line2D.Double();
+    /**
+     * Der wiederverwendete Pfad für Dreiecke
+     */
+    private final Path2D.Double path = new Path2D.Double(Path2D.WIND_NON_ZERO, 4);
+    /**
+     * Die aktuelle Position in Pixeln
+     */
+    private double posX = 0, posY = 0;
+
+    /**
+     * @param g      Das Grafikobjekt, mit dem gezeichnet wird
+     * @param width  Die Breite der Zeichenfläche in Pixeln
+     * @param height Die Höhe der Zeichenfläche in Pixeln
+     * @param minX   Die Fensterkoordinate am linken Rand
+     * @param minY   Die Fensterkoordinate am unteren Rand
+     * @param maxX   Die Fensterkoordinate am rechten Rand
+     * @param maxY   Die Fensterkoordinate am oberen Rand
+     */
+    Graphics2DCanvas(Graphics2D g, int width, int height, double minX, double minY, double maxX, double maxY) {
+        this.g = g;
+        scaleX = width / (maxX - minX);
+        offsetX = -minX * scaleX;
+        scaleY = -height / (maxY - minY);
+        offsetY = -maxY * scaleY;
+    }
+
+    /**
+     * @return Das Grafikobjekt, mit dem gezeichnet wird
+     */
+    Graphics2D getGraphics() {
+        return g;
+    }
+
+    @Override
+    public void move(double x, double y) {
+        posX = x * scaleX + offsetX;
+        posY = y * scaleY + offsetY;
+    }
+
+    @Override
+    public void lineTo(double x, double y) {
+        double px = x * scaleX + offsetX, py = y * scaleY + offsetY;
+        line.setLine(posX, posY, px, py);
+        g.draw(line);
+        posX = px;
+        posY = py;
+    }
+
+    @Override
+    public void circle(double r) {
+        double rx = Math.abs(r * scaleX), ry = Math.abs(r * scaleY);
+        ellipse.setFrame(posX - rx, posY - ry, 2 * rx, 2 * ry);
+        g.draw(ellipse);
+    }
+
+    @Override
+    public void rectangle(double x0, double y0, double x1, double y1) {
+        double px0 = x0 * scaleX + offsetX, px1 = x1 * scaleX + offsetX;
+        double py0 = y0 * scaleY + offsetY, py1 = y1 * scaleY + offsetY;
+        rect.setFrame(Math.min(px0, px1), Math.min(py0, py1), Math.abs(px1 - px0), Math.abs(py1 - py0));
+        g.draw(rect);
+    }
+
+    @Override
+    public void fillRectangle(double x0, double y0, double x1, double y1) {
+        double px0 = x0 * scaleX + offsetX, px1 = x1 * scaleX + offsetX;
+        double py0 = y0 * scaleY + offsetY, py1 = y1 * scaleY + offsetY;
+        rect.setFrame(Math.min(px0, px1), Math.min(py0, py1), Math.abs(px1 - px0), Math.abs(py1 - py0));
+        g.fill(rect);
+    }
+
+    @Override
+    public void point(double x, double y) {
+        g.fillRect((int) Math.floor(x * scaleX + offsetX), (int) Math.floor(y * scaleY + offsetY), 1, 1);
+    }
+
+    @Override
+    public void triangle(double x0, double y0, double x1, double y1, double x2, double y2) {
+        path.reset();
+        path.moveTo(x0 * scaleX + offsetX, y0 * scaleY + offsetY);
+        path.lineTo(x1 * scaleX + offsetX, y1 * scaleY + offsetY);
+        path.lineTo(x2 * scaleX + offsetX, y2 * scaleY + offsetY);
+        path.closePath();
+        g.draw(path);
+    }
+}
@@ -0,0 +1,282 @@
+package planer;
+
+import planer.shapes.Circle;
+import planer.shapes.Rectangle;
+import planer.shapes.RightTriangle;
+import planer.shapes.Square;
+
+import java.util.Arrays;
+
+/**
+ * Diese Klasse überprüft für viele Formen in einem Durchgang, ob ein Punkt in ihnen liegt.
+ * <p>Die Kandidaten werden mit {@link HitTester#add(int)} gesammelt. Dabei werden ihre Koordinaten aus dem
+ * {@link ShapeStore} nach der Art der Form getrennt in primitive Arrays gepackt: Rechtecke und Quadrate, Kreise und
+ * rechtwinklige Dreiecke. {@link HitTester#test(double, double)} überprüft dann jede Art in einer eigenen Schleife
+ * über zusammenhängende Arrays, ohne {@link planer.shapes.Shape#isHit(double, double)} für jede Form aufzurufen.
+ * Formen anderer Klassen, auch Unterklassen der bekannten, werden weiterhin über ihr wiederverwendetes Objekt
+ * überprüft.</p>
+ * <p>Die Schleifen rechnen genau wie {@code isHit} der jeweiligen Klasse und liefern deshalb dieselben Ergebnisse.
+ * {@link ScalarHitTester} rechnet Form für Form, {@code VectorHitTester} mehrere Formen gleichzeitig mit der Vector
+ * API. Welche verwendet wird, entscheidet {@link HitTester#create(ShapeStore)}.</p>
+ * <p>{@code VectorHitTester} liegt im eigenen Quellverzeichnis {@code vector/src}, da es nur mit
+ * {@code --add-modules jdk.incubator.vector} übersetzt werden kann. Alle anderen Klassen kommen ohne die Vector API
+ * aus und verwenden sie nur über Reflection.</p>
+ * <p>Ein Objekt dieser Klasse darf nur von einem Thread verwendet werden.</p>
+ */
+abstract class HitTester {
+    /**
+     * Das Modul der Vector API
+     */
+    private static final String VECTOR_MODULE = "jdk.incubator.vector";
+    /**
+     * Die Art einer Form, die nur über ihr Objekt überprüft werden kann
+     */
+    private static final byte OTHER = 0;
+    /**
+     * Die Art eines Rechtecks oder Quadrats
+     */
+    private static final byte BOX = 1;
+    /**
+     * Die Art eines Kreises
+     */
+    private static final byte CIRCLE = 2;
+    /**
+     * Die Art eines rechtwinkligen Dreiecks
+     */
+    private static final byte RIGHT_TRIANGLE = 3;
+    /**
+     * Die Formen, die überprüft werden
+     */
+    private final ShapeStore store;
+    /**
+     * Die Rechtecke und Quadrate unter den Kandidaten
+     */
+    final Batch boxes = new Batch();
+    /**
+     * Die Kreise unter den Kandidaten
+     */
+    final Batch circles = new Batch();
+    /**
+     * Die rechtwinkligen Dreiecke unter den Kandidaten
+     */
+    final Batch rightTriangles = new Batch();
+    /**
+     * Die Plätze der übrigen Kandidaten
+     */
+    private int[] others = new int[16];
+    /**
+     * Die Anzahl der übrigen Kandidaten
+     */
+    private int otherCount = 0;
+    /**
+     * Die Art jeder Typnummer des {@link ShapeStore}s
+     */
+    private byte[] kinds = new byte[0];
+    /**
+     * Die Plätze der getroffenen Formen
+     */
+    private int[] hits = new int[16];
+    /**
+     * Die Anzahl der getroffenen Formen
+     */
+    private int hitCount = 0;
+
+    /**
+     * @param store Die Formen, die überprüft werden
+     */
+    HitTester(ShapeStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Diese Methode erzeugt einen {@code VectorHitTester}, falls das Modul {@code jdk.incubator.vector} geladen ist
+     * (zum Beispiel mit {@code --add-modules jdk.incubator.vector}) und die Klasse mit übersetzt wurde, und sonst einen
+     * {@link ScalarHitTester}.
+     * <p>Mit der Systemeigenschaft {@code planer.scalarHitTest} wird immer ein {@link ScalarHitTester} verwendet.</p>
+     *
+     * @param store Die Formen, die überprüft werden
+     * @return Der neue {@link HitTester}
+     */
+    static HitTester create(ShapeStore store) {
+        if (!Boolean.getBoolean("planer.scalarHitTest") && ModuleLayer.boot().findModule(VECTOR_MODULE).isPresent()) {
+            try {
+                return (HitTester) Class.forName("planer.VectorHitTester").getDeclaredConstructor(ShapeStore.class)
+                        .newInstance(store);
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // Die Klasse wurde nicht mit übersetzt oder die Vector API wird auf dieser Plattform nicht unterstützt;
+                // es wird ohne sie weitergearbeitet.
+            }
+        }
+        return new ScalarHitTester(store);
+    }
+
+    /**
+     * Diese Methode entfernt alle Kandidaten.
+     */
+    final void clear() {
+        boxes.size = 0;
+        circles.size = 0;
+        rightTriangles.size = 0;
+        otherCount = 0;
+    }
+
+    /**
+     * @return Die Anzahl der Kandidaten
+     */
+    final int size() {
+        return boxes.size + circles.size + rightTriangles.size + otherCount;
+    }
+
+    /**
+     * Diese Methode fügt eine Form zu den Kandidaten hinzu und packt ihre Koordinaten.
+     *
+     * @param slot Der Platz der Form, die nicht gelöscht sein darf
+     */
+    final void add(int slot) {
+        switch (kind(store.type(slot))) {
+            case BOX:
+                boxes.add(store, slot);
+                break;
+            case CIRCLE:
+                circles.add(store, slot);
+                break;
+            case RIGHT_TRIANGLE:
+                rightTriangles.add(store, slot);
+                break;
+            default:
+                if (otherCount == others.length) {
+                    others = Arrays.copyOf(others, 2 * otherCount);
+                }
+                others[otherCount++] = slot;
+        }
+    }
+
+    /**
+     * Diese Methode überprüft alle Kandidaten.
+     *
+     * @param x Die x-Koordinate, die überprüft werden soll
+     * @param y Die y-Koordinate, die überprüft werden soll
+     * @return Die Anzahl der getroffenen Formen; ihre Plätze liefert {@link HitTester#getHits()}
+     */
+    final int test(double x, double y) {
+        hitCount = 0;
+        testBoxes(x, y);
+        testCircles(x, y);
+        testRightTriangles(x, y);
+        for (int i = 0; i < otherCount; i++) {
+            if (store.view(others[i]).isHit(x, y)) {
+                hit(others[i]);
+            }
+        }
+        return hitCount;
+    }
+
+    /**
+     * @return Die Plätze der Formen, die beim letzten {@link HitTester#test(double, double)} getroffen wurden, in
+     * beliebiger Reihenfolge; gültig sind nur so viele, wie {@code test} zurückgegeben hat
+     */
+    final int[] getHits() {
+        return hits;
+    }
+
+    /**
+     * Diese Methode überprüft alle Rechtecke und Quadrate wie {@link Rectangle#isHit(double, double)} und meldet
+     * jeden Treffer mit {@link HitTester#hit(int)}.
+     *
+     * @param x Die x-Koordinate
+     * @param y Die y-Koordinate
+     */
+    abstract void testBoxes(double x, double y);
+
+    /**
+     * Diese Methode überprüft alle Kreise wie {@link Circle#isHit(double, double)} und meldet jeden Treffer mit
+     * {@link HitTester#hit(int)}.
+     *
+     * @param x Die x-Koordinate
+     * @param y Die y-Koordinate
+     */
+    abstract void testCircles(double x, double y);
+
+    /**
+     * Diese Methode überprüft alle rechtwinkligen Dreiecke wie {@link RightTriangle#isHit(double, double)} und meldet
+     * jeden Treffer mit {@link HitTester#hit(int)}.
+     *
+     * @param x Die x-Koordinate
+     * @param y Die y-Koordinate
+     */
+    abstract void testRightTriangles(double x, double y);
+
+    /**
+     * Diese Methode meldet eine getroffene Form.
+     *
+     * @param slot Der Platz der Form
+     */
+    final void hit(int slot) {
+        if (hitCount == hits.length) {
+            hits = Arrays.copyOf(hits, 2 * hitCount);
+        }
+        hits[hitCount++] = slot;
+    }
+
+    /**
+     * Diese Methode bestimmt die Art einer Typnummer anhand der genauen Klasse ihrer Formen. Neue Typnummern werden beim
+     * ersten Aufruf eingeordnet.
+     *
+     * @param type Die Typnummer
+     * @return Die Art
+     */
+    private byte kind(short type) {
+        if (type >= kinds.length) {
+            int old = kinds.length;
+            kinds = Arrays.copyOf(kinds, store.typeCount());
+            for (short t = (short) old; t < kinds.length; t++) {
+                Class<?> c = store.typeClass(t);
+                kinds[t] = c == Rectangle.class || c == Square.class ? BOX
+                        : c == Circle.class ? CIRCLE
+                        : c == RightTriangle.class ? RIGHT_TRIANGLE
+                        : OTHER;
+            }
+        }
+        return kinds[type];
+    }
+
+    /**
+     * Die gepackten Koordinaten aller Kandidaten einer Art.
+     */
+    static final class Batch {
+        /**
+         * Die Koordinaten der Kandidaten
+         */
+        double[] x0 = new double[16], y0 = new double[16], x1 = new double[16], y1 = new double[16];
+        /**
+         * Die Plätze der Kandidaten
+         */
+        int[] slots = new int[16];
+        /**
+         * Die Anzahl der Kandidaten
+         */
+        int size = 0;
+
+        /**
+         * Diese Methode packt die Koordinaten einer Form.
+         *
+         * @param store Die Formen
+         * @param slot  Der Platz der Form
+         */
+        private void add(ShapeStore store, int slot) {
+            if (size == slots.length) {
+                int capacity = 2 * size;
+                x0 = Arrays.copyOf(x0, capacity);
+                y0 = Arrays.copyOf(y0, capacity);
+                x1 = Arrays.copyOf(x1, capacity);
+                y1 = Arrays.copyOf(y1, capacity);
+                slots = Arrays.copyOf(slots, capacity);
+            }
+            x0[size] = store.x0(slot);
+            y0[size] = store.y0(slot);
+            x1[size] = store.x1(slot);
+            y1[size] = store.y1(slot);
+            slots[size++] = slot;
+        }
+    }
+}
@@ -0,0 +1,417 @@
+package planer;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import javax.swing.SwingUtilities;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Diese Klasse misst, wie viel Zeit die einzelnen Abschnitte des Programms kosten.
+ * <p>Jeder {@link Phase Abschnitt} wird mit {@link Metrics#begin(Phase)} begonnen und mit {@link Span#end()} beendet.
+ * Dabei werden Anzahl, Gesamtdauer, längste Dauer und ein Histogramm der Dauer in Zweierpotenzen von Nanosekunden
+ * gezählt. Zusätzlich wird die Anzahl der gezeichneten Formen und Platzhalter, der überprüften Formen und der
+ * erzeugten Formen jeder Klasse gezählt. Die Zähler kosten nur einige Nanosekunden und sind immer aktiv.</p>
+ * <p>Jeder Abschnitt erzeugt außerdem ein {@link PhaseEvent JFR-Ereignis}. Es wird nur geschrieben, wenn eine
+ * Aufzeichnung läuft, zum Beispiel mit {@code -XX:StartFlightRecording}; sonst kostet es fast nichts.</p>
+ * <p>Die Zähler dürfen von mehreren Threads verwendet werden. Die gezeichneten Formen pro Typ und die Werte des
+ * letzten Bildes werden nur im Event Dispatch Thread gezählt.</p>
+ */
+final class Metrics {
+    /**
+     * Die Anzahl der Stufen eines Histogramms; die letzte Stufe enthält alle Dauern ab etwa 9 Minuten
+     */
+    private static final int BUCKETS = 40;
+    /**
+     * Die Formen, deren Typnummern gezählt werden
+     */
+    private final ShapeStore store;
+    /**
+     * Die Anzahl der Messungen jedes Abschnitts
+     */
+    private final LongAdder[] counts = new LongAdder[Phase.values().length];
+    /**
+     * Die Gesamtdauer jedes Abschnitts in Nanosekunden
+     */
+    private final LongAdder[] totals = new LongAdder[Phase.values().length];
+    /**
+     * Die längste Dauer jedes Abschnitts in Nanosekunden
+     */
+    private final LongAccumulator[] maxima = new LongAccumulator[Phase.values().length];
+    /**
+     * Die Histogramme aller Abschnitte hintereinander; Stufe {@code i} zählt Dauern von {@code 2^(i-1)} bis unter
+     * {@code 2^i} Nanosekunden
+     */
+    private final AtomicLongArray histograms = new AtomicLongArray(Phase.values().length * BUCKETS);
+    /**
+     * Die Anzahl der einzeln gezeichneten Formen
+     */
+    private final LongAdder shapesDrawn = new LongAdder();
+    /**
+     * Die Anzahl der gezeichneten Platzhalter
+     */
+    private final LongAdder impostorsDrawn = new LongAdder();
+    /**
+     * Die Anzahl der Formen, für die überprüft wurde, ob ein Punkt in ihnen liegt
+     */
+    private final LongAdder shapesHitTested = new LongAdder();
+    /**
+     * Die Anzahl der gezeichneten Formen pro Typnummer
+     */
+    private long[] drawnByType = new long[0];
+    /**
+     * Die Anzahl und Gesamtdauer der erzeugten Formen pro Form-Klasse
+     */
+    private final ConcurrentHashMap<String, LongAdder[]> created = new ConcurrentHashMap<>();
+    /**
+     * Die letzte Messung jedes Abschnitts im Event Dispatch Thread
+     */
+    private final Span[] last = new Span[Phase.values().length];
+    /**
+     * Die letzte Messung im Event Dispatch Thread, die ein Bild gezeichnet hat, oder {@code null}
+     */
+    private Span lastFrame;
+
+    /**
+     * @param store Die Formen, deren Typnummern beim Zeichnen gezählt werden
+     */
+    Metrics(ShapeStore store) {
+        this.store = store;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = new LongAdder();
+            totals[i] = new LongAdder();
+            maxima[i] = new LongAccumulator(Math::max, 0);
+        }
+    }
+
+    /**
+     * Diese Methode beginnt die Messung eines Abschnitts.
+     *
+     * @param phase Der Abschnitt
+     * @return Die Messung, die mit {@link Span#end()} beendet werden muss
+     */
+    Span begin(Phase phase) {
+        return new Span(phase);
+    }
+
+    /**
+     * Diese Methode zählt eine erzeugte Form.
+     *
+     * @param shapeClass Der Name der Form-Klasse
+     * @param nanos      Die Dauer in Nanosekunden
+     */
+    void created(String shapeClass, long nanos) {
+        LongAdder[] c = created.computeIfAbsent(shapeClass, k -> new LongAdder[]{new LongAdder(), new LongAdder()});
+        c[0].increment();
+        c[1].add(nanos);
+    }
+
+    /**
+     * @return Die letzte Messung im Event Dispatch Thread, die ein Bild gezeichnet hat, oder {@code null}
+     */
+    Span getLastFrame() {
+        return lastFrame;
+    }
+
+    /**
+     * @param phase Ein Abschnitt
+     * @return Die letzte Messung des Abschnitts im Event Dispatch Thread oder {@code null}
+     */
+    Span getLast(Phase phase) {
+        return last[phase.ordinal()];
+    }
+
+    /**
+     * Diese Methode setzt alle Zähler zurück.
+     */
+    void reset() {
+        for (int i = 0; i < counts.length; i++) {
+            counts[i].reset();
+            totals[i].reset();
+            maxima[i].reset();
+        }
+        for (int i = 0; i < histograms.length(); i++) {
+            histograms.set(i, 0);
+        }
+        shapesDrawn.reset();
+        impostorsDrawn.reset();
+        shapesHitTested.reset();
+        Arrays.fill(drawnByType, 0);
+        created.clear();
+    }
+
+    /**
+     * @return Eine Übersicht aller Zähler als Text mit fester Zeichenbreite
+     */
+    String report() {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%-16s %8s %10s %10s %10s  %s%n", "Phase", "Count", "Mean ms", "Max ms", "Total ms",
+                "Histogram (count per power of two)"));
+        for (Phase phase :
+                Phase.values()) {
+            int i = phase.ordinal();
+            long n = counts[i].sum();
+            if (n == 0) {
+                continue;
+            }
+            long total = totals[i].sum();
+            sb.append(String.format("%-16s %8d %10.3f %10.3f %10.1f  ", phase.label, n, total / 1e6 / n,
+                    maxima[i].get() / 1e6, total / 1e6));
+            for (int b = 0; b < BUCKETS; b++) {
+                long c = histograms.get(i * BUCKETS + b);
+                if (c > 0) {
+                    sb.append(bucketLabel(b)).append(':').append(c).append(' ');
+                }
+            }
+            sb.append(System.lineSeparator());
+        }
+        sb.append(System.lineSeparator());
+        sb.append(String.format("Shapes drawn: %d, placeholders drawn: %d, shapes hit-tested: %d%n", shapesDrawn.sum(),
+                impostorsDrawn.sum(), shapesHitTested.sum()));
+        TreeMap<String, long[]> classes = new TreeMap<>();
+        for (int t = 0; t < drawnByType.length; t++) {
+            classes.computeIfAbsent(store.typeName((short) t), k -> new long[3])[0] += drawnByType[t];
+        }
+        for (Map.Entry<String, LongAdder[]> e :
+                created.entrySet()) {
+            long[] c = classes.computeIfAbsent(e.getKey(), k -> new long[3]);
+            c[1] = e.getValue()[0].sum();
+            c[2] = e.getValue()[1].sum();
+        }
+        if (!classes.isEmpty()) {
+            sb.append(System.lineSeparator());
+            sb.append(String.format("%-16s %12s %10s %14s%n", "Shape class", "Drawn", "Created", "Mean create us"));
+            for (Map.Entry<String, long[]> e :
+                    classes.entrySet()) {
+                long[] c = e.getValue();
+                sb.append(String.format("%-16s %12d %10d %14.2f%n", e.getKey(), c[0], c[1], c[1] > 0 ? c[2] / 1e3 / c[1] : 0));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param bucket Eine Stufe eines Histogramms
+     * @return Die untere Grenze der Stufe, zum Beispiel {@code 256ns}, {@code 1us} oder {@code 4ms}
+     */
+    private static String bucketLabel(int bucket) {
+        long nanos = bucket == 0 ? 0 : 1L << (bucket - 1);
+        if (nanos < 1_000) {
+            return nanos + "ns";
+        } else if (nanos < 1_000_000) {
+            return nanos / 1_000 + "us";
+        } else if (nanos < 1_000_000_000) {
+            return nanos / 1_000_000 + "ms";
+        }
+        return nanos / 1_000_000_000 + "s";
+    }
+
+    /**
+     * Die Abschnitte, die gemessen werden.
+     */
+    enum Phase {
+        PRESS("Mouse pressed", false), FRAME("Drag frame", true), RELEASE("Mouse released", false),
+        HIT_TEST("Hit test", false), REDRAW("Redraw", true), DAMAGE("Damage redraw", true),
+        CREATE("Shape creation", false), LOAD("Load file", false), SAVE("Save file", false),
+        EXPORT("Export image", false);
+
+        /**
+         * Der Name des Abschnitts in Übersichten und JFR-Ereignissen
+         */
+        final String label;
+        /**
+         * Ob der Abschnitt ein Bild zeichnet
+         */
+        final boolean frame;
+
+        /**
+         * @param label Der Name des Abschnitts in Übersichten und JFR-Ereignissen
+         * @param frame Ob der Abschnitt ein Bild zeichnet
+         */
+        Phase(String label, boolean frame) {
+            this.label = label;
+            this.frame = frame;
+        }
+    }
+
+    /**
+     * Die Messung eines Abschnitts.
+     */
+    final class Span {
+        /**
+         * Der Abschnitt
+         */
+        private final Phase phase;
+        /**
+         * Der Beginn nach {@link System#nanoTime()}
+         */
+        private final long start;
+        /**
+         * Das JFR-Ereignis des Abschnitts
+         */
+        private final PhaseEvent event = new PhaseEvent();
+        /**
+         * Die Dauer in Nanosekunden oder {@code -1}, solange die Messung nicht beendet ist
+         */
+        private long nanos = -1;
+        /**
+         * Die Anzahl der einzeln gezeichneten Formen
+         */
+        private int shapes;
+        /**
+         * Die Anzahl der gezeichneten Platzhalter
+         */
+        private int impostors;
+        /**
+         * Die Anzahl der Formen, für die überprüft wurde, ob ein Punkt in ihnen liegt
+         */
+        private int hitTested;
+        /**
+         * Eine Beschreibung, zum Beispiel der Zustand des Programms oder der Name einer Datei, oder {@code null}
+         */
+        private String detail;
+
+        /**
+         * @param phase Der Abschnitt
+         */
+        private Span(Phase phase) {
+            this.phase = phase;
+            event.begin();
+            start = System.nanoTime();
+        }
+
+        /**
+         * Diese Methode zählt eine einzeln gezeichnete Form.
+         *
+         * @param type Die Typnummer der Form oder {@code -1}, falls sie unbekannt ist
+         */
+        void drew(short type) {
+            shapes++;
+            if (type < 0) {
+                return;
+            }
+            if (type >= drawnByType.length) {
+                drawnByType = Arrays.copyOf(drawnByType, store.typeCount());
+            }
+            drawnByType[type]++;
+        }
+
+        /**
+         * Diese Methode zählt einen gezeichneten Platzhalter.
+         */
+        void drewImpostor() {
+            impostors++;
+        }
+
+        /**
+         * Diese Methode zählt Formen, für die überprüft wurde, ob ein Punkt in ihnen liegt.
+         *
+         * @param count Die Anzahl der Formen
+         */
+        void hitTested(int count) {
+            hitTested += count;
+        }
+
+        /**
+         * @param detail Eine Beschreibung, zum Beispiel der Zustand des Programms oder der Name einer Datei
+         */
+        void setDetail(String detail) {
+            this.detail = detail;
+        }
+
+        /**
+         * Diese Methode beendet die Messung und übernimmt sie in die Zähler.
+         * <p>Läuft sie im Event Dispatch Thread, wird sie als letzte Messung ihres Abschnitts gemerkt.</p>
+         */
+        void end() {
+            nanos = System.nanoTime() - start;
+            int i = phase.ordinal();
+            counts[i].increment();
+            totals[i].add(nanos);
+            maxima[i].accumulate(nanos);
+            histograms.incrementAndGet(i * BUCKETS + Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(nanos)));
+            shapesDrawn.add(shapes);
+            impostorsDrawn.add(impostors);
+            shapesHitTested.add(hitTested);
+            if (SwingUtilities.isEventDispatchThread()) {
+                last[i] = this;
+                if (phase.frame) {
+                    lastFrame = this;
+                }
+            }
+            if (event.shouldCommit()) {
+                event.phase = phase.label;
+                event.detail = detail;
+                event.shapesDrawn = shapes;
+                event.impostorsDrawn = impostors;
+                event.shapesHitTested = hitTested;
+                event.commit();
+            }
+        }
+
+        /**
+         * @return Der Abschnitt
+         */
+        Phase getPhase() {
+            return phase;
+        }
+
+        /**
+         * @return Die Dauer in Nanosekunden
+         */
+        long getNanos() {
+            return nanos;
+        }
+
+        /**
+         * @return Die Anzahl der einzeln gezeichneten Formen
+         */
+        int getShapes() {
+            return shapes;
+        }
+
+        /**
+         * @return Die Anzahl der gezeichneten Platzhalter
+         */
+        int getImpostors() {
+            return impostors;
+        }
+
+        /**
+         * @return Die Anzahl der Formen, für die überprüft wurde, ob ein Punkt in ihnen liegt
+         */
+        int getHitTested() {
+            return hitTested;
+        }
+    }
+
+    /**
+     * Das JFR-Ereignis eines gemessenen Abschnitts.
+     */
+    @Name("planer.Phase")
+    @Label("Planer Phase")
+    @Category("Planer")
+    @Description("A measured phase of the drawing program, such as a redraw, a mouse handler or loading a file")
+    static final class PhaseEvent extends Event {
+        @Label("Phase")
+        String phase;
+        @Label("Detail")
+        @Description("The program state, the file or the shape class")
+        String detail;
+        @Label("Shapes Drawn")
+        int shapesDrawn;
+        @Label("Placeholders Drawn")
+        int impostorsDrawn;
+        @Label("Shapes Hit-Tested")
+        int shapesHitTested;
+    }
+}
@@ -0,0 +1,457 @@
+package planer;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.Locator;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.helpers.DefaultHandler;
+import planer.shapes.Points;
+import planer.shapes.Shape;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParser;
+import javax.xml.parsers.SAXParserFactory;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+/**
+ * Diese Klasse liest große XML-Dateien mit Formen auf mehreren Prozessorkernen.
+ * <p>Die Datei wird in den Speicher abgebildet und an den Anfängen von {@code <shape>}-Elementen in Abschnitte
+ * geteilt. In jedem Abschnitt werden zuerst die Elemente gezählt, damit jede Form ihre Position in der Datei kennt.
+ * Danach wird jeder Abschnitt in einem {@link ForkJoinPool} mit einem eigenen SAX-Parser gelesen, wobei seine
+ * Koordinaten auch gleich angepasst werden. Die Formen werden als {@link ShapeBatch Blöcke} übergeben, sobald sie
+ * gelesen sind; über ihre Position bleibt die z-Reihenfolge erhalten.</p>
+ * <p>Attributwerte dürfen kein {@code <} enthalten. Deshalb kann ein Abschnitt nur innerhalb von Kommentaren oder
+ * CDATA-Abschnitten an einer falschen Stelle beginnen; solche Dateien schreibt {@link XmlShapeWriter} nicht. Wie der
+ * Parser unterscheiden die Suche nach Elementen und das Zählen nicht zwischen Groß- und Kleinschreibung.</p>
+ * <p>Da die Abschnitte mit {@code int}-Positionen beschrieben werden, können nur Dateien bis 2 GB gelesen werden;
+ * größere Zeichnungen werden im {@link BinaryShapeFormat Binärformat} gespeichert.</p>
+ * <p>Fehler enthalten die Zeile in der ganzen Datei, auch wenn sie in einem späteren Abschnitt auftreten.</p>
+ */
+final class ParallelXmlShapeReader {
+    /**
+     * Die Dateigröße in Bytes, ab der sich paralleles Lesen lohnt
+     */
+    static final long MIN_PARALLEL_SIZE = 1 << 20;
+    /**
+     * Die Anzahl der Abschnitte pro Prozessorkern, damit ungleich schnelle Abschnitte ausgeglichen werden
+     */
+    private static final int CHUNKS_PER_CORE = 4;
+    /**
+     * Der Anfang eines {@code <shape>}-Elements
+     */
+    private static final byte[] SHAPE_TAG = "<shape".getBytes(StandardCharsets.US_ASCII);
+    /**
+     * Das Ende des Wurzelelements
+     */
+    private static final byte[] END_TAG = "</shapes".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Diese Klasse enthält nur statische Methoden.
+     */
+    private ParallelXmlShapeReader() {
+    }
+
+    /**
+     * Diese Methode liest alle Formen aus einer XML-Datei und fügt sie in ihrer Reihenfolge als oberste Formen hinzu.
+     * <p>Formen, deren Typ nicht erzeugt werden kann, werden übersprungen.</p>
+     *
+     * @param f       Die Datei, die gelesen wird
+     * @param store   Die Formen, zu denen die gelesenen Formen hinzugefügt werden
+     * @param factory Die Funktion, die eine neue Form des übergebenen Typs erzeugt oder {@code null} zurückgibt; sie
+     *                wird gleichzeitig von mehreren Threads aufgerufen
+     * @throws IOException  falls die Datei nicht gelesen werden konnte
+     * @throws SAXException falls die Datei kein gültiges XML enthält
+     */
+    static void read(Path f, ShapeStore store, Function<String, Shape> factory) throws IOException, SAXException {
+        List<ShapeBatch> batches = Collections.synchronizedList(new ArrayList<>());
+        read(f, factory, null, new ShapeBatch.Sink() {
+            @Override
+            public void begin(int total) {
+                store.ensureCapacity(total);
+            }
+
+            @Override
+            public void accept(ShapeBatch batch) {
+                batches.add(batch);
+            }
+        });
+        batches.sort(Comparator.comparingInt(b -> b.ordinals[0]));
+        for (ShapeBatch b :
+                batches) {
+            short[] types = b.mapTypes(store);
+            for (int i = 0; i < b.size; i++) {
+                store.append(types[b.types[i]], b.coords[4 * i], b.coords[4 * i + 1], b.coords[4 * i + 2], b.coords[4 * i + 3], b.points(i));
+            }
+        }
+    }
+
+    /**
+     * Diese Methode liest alle Formen aus einer XML-Datei und übergibt sie blockweise an einen Empfänger.
+     * <p>Die Blöcke werden übergeben, sobald ein Abschnitt gelesen ist, und deshalb nicht unbedingt in der
+     * Reihenfolge der Datei. Ist ein sichtbarer Bereich angegeben, enthält jeder Block entweder nur Formen in diesem
+     * Bereich oder nur Formen außerhalb.</p>
+     *
+     * @param f        Die Datei, die gelesen wird
+     * @param factory  Die Funktion, die eine neue Form des übergebenen Typs erzeugt oder {@code null} zurückgibt; sie
+     *                 wird gleichzeitig von mehreren Threads aufgerufen
+     * @param viewport Der sichtbare Bereich als {@code minX, minY, maxX, maxY} oder {@code null}
+     * @param sink     Der Empfänger der Blöcke; er wird gleichzeitig von mehreren Threads aufgerufen
+     * @throws IOException  falls die Datei nicht gelesen werden konnte oder größer als 2 GB ist
+     * @throws SAXException falls die Datei kein gültiges XML enthält
+     */
+    static void read(Path f, Function<String, Shape> factory, double[] viewport, ShapeBatch.Sink sink) throws IOException, SAXException {
+        ByteBuffer data;
+        try (FileChannel ch = FileChannel.open(f, StandardOpenOption.READ)) {
+            if (ch.size() > Integer.MAX_VALUE) {
+                throw new IOException(f.getFileName() + " is larger than 2 GB; XML files of this size cannot be read, "
+                        + "save large drawings in the ." + BinaryShapeFormat.EXTENSION + " format instead");
+            }
+            data = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+        }
+        int start = indexOfTag(data, SHAPE_TAG, 0);
+        if (start < 0) {
+            sink.begin(0);
+            return;
+        }
+        int end = lastIndexOf(data, END_TAG);
+        if (end < start) {
+            throw new SAXException("The root element is not closed.");
+        }
+        int count = data.limit() < MIN_PARALLEL_SIZE ? 1 : Math.max(1, ForkJoinPool.getCommonPoolParallelism() * CHUNKS_PER_CORE);
+        int[] bounds = new int[count + 1];
+        int n = 0;
+        bounds[n++] = start;
+        for (int i = 1; i < count; i++) {
+            int b = indexOfTag(data, SHAPE_TAG, Math.max(bounds[n - 1] + 1, start + (int) ((long) (end - start) * i / count)));
+            if (b < 0 || b >= end) {
+                break;
+            }
+            bounds[n++] = b;
+        }
+        bounds[n++] = end;
+        final int[] chunkBounds = Arrays.copyOf(bounds, n);
+        int[] ordinals = IntStream.range(0, n - 1).parallel()
+                .map(i -> countTags(data, chunkBounds[i], chunkBounds[i + 1]))
+                .toArray();
+        int total = 0;
+        for (int i = 0; i < ordinals.length; i++) {
+            int c = ordinals[i];
+            ordinals[i] = total;
+            total += c;
+        }
+        sink.begin(total);
+        try {
+            ForkJoinPool.commonPool().invoke(new ChunkTask(data, chunkBounds, ordinals, 0, n - 1, factory, viewport, sink));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } catch (ChunkException e) {
+            SAXException cause = e.getCause();
+            if (cause instanceof SAXParseException && ((SAXParseException) cause).getLineNumber() > 0) {
+                // Die Zeilen des Parsers zählen ab dem Anfang des Abschnitts.
+                SAXParseException p = (SAXParseException) cause;
+                throw new SAXParseException(p.getMessage(), p.getPublicId(), p.getSystemId(),
+                        p.getLineNumber() + countLines(data, 0, e.start), p.getColumnNumber(), p);
+            }
+            throw cause;
+        }
+    }
+
+    /**
+     * @param data Die Datei
+     * @param from Der Anfang des Bereichs (inklusive)
+     * @param to   Das Ende des Bereichs (exklusive)
+     * @return Die Anzahl der {@code <shape>}-Elemente im Bereich
+     */
+    private static int countTags(ByteBuffer data, int from, int to) {
+        int c = 0;
+        for (int i = indexOfTag(data, SHAPE_TAG, from); i >= 0 && i < to; i = indexOfTag(data, SHAPE_TAG, i + 1)) {
+            c++;
+        }
+        return c;
+    }
+
+    /**
+     * @param data Die Datei
+     * @param from Der Anfang des Bereichs (inklusive)
+     * @param to   Das Ende des Bereichs (exklusive)
+     * @return Die Anzahl der Zeilenumbrüche im Bereich
+     */
+    private static int countLines(ByteBuffer data, int from, int to) {
+        int c = 0;
+        for (int i = from; i < to; i++) {
+            if (data.get(i) == '\n') {
+                c++;
+            }
+        }
+        return c;
+    }
+
+    /**
+     * Diese Methode sucht den Anfang eines Elements, dessen Name dem übergebenen Anfang ohne Beachtung der Groß- und
+     * Kleinschreibung entspricht.
+     *
+     * @param data Die Datei
+     * @param tag  Der Anfang des Elements, zum Beispiel {@code <shape}
+     * @param from Die Position, ab der gesucht wird
+     * @return Die Position des Elements oder {@code -1}, falls keines gefunden wurde
+     */
+    private static int indexOfTag(ByteBuffer data, byte[] tag, int from) {
+        int limit = data.limit() - tag.length;
+        for (int i = from; i < limit; i++) {
+            if (matches(data, tag, i)) {
+                byte next = data.get(i + tag.length);
+                if (next == ' ' || next == '\t' || next == '\r' || next == '\n' || next == '/' || next == '>') {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param data Die Datei
+     * @param s    Die gesuchte Bytefolge
+     * @return Die letzte Position der Bytefolge ohne Beachtung der Groß- und Kleinschreibung oder {@code -1}, falls
+     * sie nicht gefunden wurde
+     */
+    private static int lastIndexOf(ByteBuffer data, byte[] s) {
+        for (int i = data.limit() - s.length; i >= 0; i--) {
+            if (matches(data, s, i)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param data Die Datei
+     * @param s    Die gesuchte Bytefolge in Kleinbuchstaben
+     * @param at   Die Position, an der verglichen wird
+     * @return Ob die Bytefolge ohne Beachtung der Groß- und Kleinschreibung an der Position steht
+     */
+    private static boolean matches(ByteBuffer data, byte[] s, int at) {
+        for (int j = 0; j < s.length; j++) {
+            byte c = data.get(at + j);
+            if (c >= 'A' && c <= 'Z') {
+                c += 'a' - 'A';
+            }
+            if (c != s[j]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Eine Aufgabe, die einen Bereich von Abschnitten liest, indem sie ihn teilt, bis nur ein Abschnitt übrig ist.
+     */
+    private static final class ChunkTask extends RecursiveAction {
+        /**
+         * Die Version der serialisierten Form
+         */
+        private static final long serialVersionUID = 1L;
+        /**
+         * Die Anzahl an Formen pro Block
+         */
+        private static final int BATCH_SIZE = 8192;
+        /**
+         * Die Datei
+         */
+        private final ByteBuffer data;
+        /**
+         * Die Grenzen aller Abschnitte
+         */
+        private final int[] bounds;
+        /**
+         * Die Position der ersten Form jedes Abschnitts in der Datei
+         */
+        private final int[] ordinals;
+        /**
+         * Der erste (inklusive) und der letzte (exklusive) Abschnitt dieser Aufgabe
+         */
+        private final int from, to;
+        /**
+         * Die Funktion, die eine neue Form erzeugt
+         */
+        private final Function<String, Shape> factory;
+        /**
+         * Der sichtbare Bereich oder {@code null}
+         */
+        private final double[] viewport;
+        /**
+         * Der Empfänger der Blöcke
+         */
+        private final ShapeBatch.Sink sink;
+
+        /**
+         * @param data     Die Datei
+         * @param bounds   Die Grenzen aller Abschnitte
+         * @param ordinals Die Position der ersten Form jedes Abschnitts in der Datei
+         * @param from     Der erste Abschnitt (inklusive)
+         * @param to       Der letzte Abschnitt (exklusive)
+         * @param factory  Die Funktion, die eine neue Form erzeugt
+         * @param viewport Der sichtbare Bereich oder {@code null}
+         * @param sink     Der Empfänger der Blöcke
+         */
+        ChunkTask(ByteBuffer data, int[] bounds, int[] ordinals, int from, int to, Function<String, Shape> factory,
+                  double[] viewport, ShapeBatch.Sink sink) {
+            this.data = data;
+            this.bounds = bounds;
+            this.ordinals = ordinals;
+            this.from = from;
+            this.to = to;
+            this.factory = factory;
+            this.viewport = viewport;
+            this.sink = sink;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                parse();
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new ChunkTask(data, bounds, ordinals, from, mid, factory, viewport, sink),
+                    new ChunkTask(data, bounds, ordinals, mid, to, factory, viewport, sink));
+        }
+
+        /**
+         * Diese Methode liest einen einzelnen Abschnitt, der in ein künstliches Wurzelelement eingebettet wird.
+         */
+        private void parse() {
+            ByteBuffer slice = data.duplicate();
+            slice.position(bounds[from]).limit(bounds[from + 1]);
+            InputStream in = new SequenceInputStream(new SequenceInputStream(
+                    new ByteArrayInputStream("<shapes>".getBytes(StandardCharsets.US_ASCII)),
+                    new BufferInputStream(slice.slice())),
+                    new ByteArrayInputStream("</shapes>".getBytes(StandardCharsets.US_ASCII)));
+            InputSource iso = new InputSource(in);
+            iso.setEncoding("UTF-8");
+            ShapeBatch.Builder builder = new ShapeBatch.Builder(factory, sink, viewport, true, BATCH_SIZE);
+            try {
+                SAXParser saxp = SAXParserFactory.newInstance().newSAXParser();
+                saxp.parse(iso, new DefaultHandler() {
+                    int ordinal = ordinals[from];
+                    Locator locator;
+
+                    @Override
+                    public void setDocumentLocator(Locator locator) {
+                        this.locator = locator;
+                    }
+
+                    @Override
+                    public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
+                        if (qName.equalsIgnoreCase("shape")) {
+                            try {
+                                builder.add(attributes.getValue("type"), Double.parseDouble(attributes.getValue("x0")), Double.parseDouble(attributes.getValue("y0")), Double.parseDouble(attributes.getValue("x1")), Double.parseDouble(attributes.getValue("y1")), points(attributes.getValue("points")), ordinal++);
+                            } catch (NullPointerException | NumberFormatException e) {
+                                // Ein Attribut fehlt oder ist keine Zahl.
+                                throw new SAXParseException("Invalid shape: " + e.getMessage(), locator, e);
+                            }
+                        }
+                    }
+
+                    /**
+                     * @param text Der Wert des Attributs {@code points} oder {@code null}
+                     * @return Die Punkte oder {@code null}
+                     * @throws SAXException falls der Wert keine gültigen Punkte enthält
+                     */
+                    private Points points(String text) throws SAXException {
+                        try {
+                            return text != null ? PointsCodec.decode(text) : null;
+                        } catch (IllegalArgumentException e) {
+                            throw new SAXParseException("Invalid points: " + e.getMessage(), locator, e);
+                        }
+                    }
+                });
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } catch (SAXException e) {
+                throw new ChunkException(e, bounds[from]);
+            } catch (ParserConfigurationException e) {
+                throw new ChunkException(new SAXException(e), bounds[from]);
+            }
+            builder.finish();
+        }
+    }
+
+    /**
+     * Ein {@link InputStream}, der aus einem {@link ByteBuffer} liest.
+     */
+    private static final class BufferInputStream extends InputStream {
+        /**
+         * Der Puffer, aus dem gelesen wird
+         */
+        private final ByteBuffer b;
+
+        /**
+         * @param b Der Puffer, aus dem gelesen wird
+         */
+        BufferInputStream(ByteBuffer b) {
+            this.b = b;
+        }
+
+        @Override
+        public int read() {
+            return b.hasRemaining() ? b.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] buf, int off, int len) {
+            if (!b.hasRemaining()) {
+                return -1;
+            }
+            len = Math.min(len, b.remaining());
+            b.get(buf, off, len);
+            return len;
+        }
+    }
+
+    /**
+     * Eine Ausnahme, mit der eine {@link SAXException} aus einer {@link ChunkTask} weitergereicht wird.
+     */
+    private static final class ChunkException extends RuntimeException {
+        /**
+         * Die Version der serialisierten Form
+         */
+        private static final long serialVersionUID = 1L;
+        /**
+         * Die Position des Abschnitts in der Datei, in dem die Ausnahme auftrat
+         */
+        private final int start;
+
+        /**
+         * @param cause Die Ausnahme des Parsers
+         * @param start Die Position des Abschnitts in der Datei
+         */
+        ChunkException(SAXException cause, int start) {
+            super(cause);
+            this.start = start;
+        }
+
+        @Override
+        public synchronized SAXException getCause() {
+            return (SAXException) super.getCause();
+        }
+    }
+}
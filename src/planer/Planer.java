@@ -1,32 +1,34 @@
 package planer;
 
 import ch.aplu.util.GPanel;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.xml.sax.Attributes;
-import org.xml.sax.InputSource;
 import org.xml.sax.SAXException;
-import org.xml.sax.helpers.DefaultHandler;
+import planer.shapes.Canvas;
 import planer.shapes.Shape;
 
 import javax.swing.*;
 import javax.swing.filechooser.FileNameExtensionFilter;
-import javax.xml.parsers.*;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerConfigurationException;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
+import javax.xml.stream.XMLStreamException;
 import java.awt.*;
 import java.awt.event.ActionEvent;
+import java.awt.event.KeyEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseMotionAdapter;
 import java.io.*;
-import java.lang.reflect.InvocationTargetException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
 
 /**
  * Hauptklasse des Projekts.
@@ -39,10 +41,56 @@ public class Planer {
      * Die Konstante, die den Pfad zur Auflistung der Formen und ihrer korrespondierenden Klassen enthält
      */
     private static final String SHAPE_CLASSES_PATH = "shapeClasses.xml";
+    /**
+     * Die Anzahl der Pixel, um die ein beschädigter Bereich beim Neuzeichnen vergrößert wird
+     */
+    private static final int DAMAGE_MARGIN = 2;
+    /**
+     * Die Größe in Pixeln, unter der Formen und Gruppen von Formen nur noch als Platzhalter gezeichnet werden
+     */
+    private static final int LOD_PIXELS = 2;
+    /**
+     * Der Faktor, um den ein Schritt des Mausrads oder ein Menüpunkt den Ausschnitt vergrößert
+     */
+    private static final double ZOOM_STEP = 1.25;
+    /**
+     * Die Farbe, in der ausgewählte Formen hervorgehoben werden
+     */
+    private static final Color SELECTION_COLOR = Color.blue;
+    /**
+     * Der Kehrwert des Anteils an allen Formen, ab dem bei einer Bearbeitung der Auswahl der räumliche Index einmal
+     * neu aufgebaut wird, statt jede Form einzeln darin zu aktualisieren
+     */
+    private static final int BULK_FRACTION = 16;
+    /**
+     * Die Farbe, in der die Leistungsanzeige geschrieben wird
+     */
+    private static final Color HUD_COLOR = Color.darkGray;
+    /**
+     * Die Höhe einer Zeile der Leistungsanzeige in Pixeln
+     */
+    private static final int HUD_LINE = 14;
+    /**
+     * Das Verzeichnis des {@link EditJournal}s, relativ zum Benutzerverzeichnis
+     */
+    private static final String JOURNAL_DIR = ".planer/autosave";
+    /**
+     * Der Speicherbedarf in Bytes, den der Verlauf höchstens belegen darf, falls mit der Systemeigenschaft
+     * {@code planer.undoBudget} nichts anderes festgelegt wird
+     */
+    private static final long UNDO_BUDGET = 4 << 20;
     /**
      * Der Dialog, der sich öffnet, wenn eine Datei geöffnet oder geschlossen werden soll
      */
     private final JFileChooser jfc;
+    /**
+     * Der Dialog, der sich öffnet, wenn ein Bild exportiert werden soll
+     */
+    private final JFileChooser imageChooser;
+    /**
+     * Der Dateifilter für Dateien im {@link BinaryShapeFormat Binärformat}
+     */
+    private final FileNameExtensionFilter binaryFilter = new FileNameExtensionFilter("Planer binary files", BinaryShapeFormat.EXTENSION);
     /**
      * Zeichenfarbe, initialisiert mit Standardfarbe
      */
@@ -64,195 +112,378 @@ public class Planer {
      */
     private double x1 = 0, y1 = 0;
     /**
-     * Eine Liste, in der alle gezeichneten Formen verwaltet werden
+     * Die Funktion, die eine neue Form eines Typs erzeugt oder {@code null} zurückgibt, falls der Typ unbekannt ist
+     */
+    private final Function<String, Shape> shapeFactory = name -> this.shapeRegistry.factory(name) != null ? getNewShapeInstance(name, 0, 0, 0, 0) : null;
+    /**
+     * Die Funktion, mit der die Leser und die {@link ShapeStore#snapshot(Function) Kopien} im Hintergrund eine neue
+     * Form eines Typs erzeugen. Sie zeichnet keine Metriken auf und meldet Fehler über den Event Dispatch Thread
+     * (siehe {@link Planer#getReaderShapeInstance(String)}).
+     */
+    private final Function<String, Shape> readerShapeFactory = this::getReaderShapeInstance;
+    /**
+     * Der Speicher, in dem alle gezeichneten Formen spaltenweise verwaltet werden
+     */
+    private final ShapeStore shapeStore = new ShapeStore(shapeFactory);
+    /**
+     * Der räumliche Index über {@link Planer#shapeStore}, mit dem die oberste Form an einer Position gefunden wird
+     */
+    private final ShapeIndex shapeIndex = new ShapeIndex(shapeStore);
+    /**
+     * Der Bereich, der seit dem letzten Neuzeichnen durch Bearbeitungen verändert wurde
+     */
+    private final DirtyRegion damage = new DirtyRegion();
+    /**
+     * Die Zähler und JFR-Ereignisse, mit denen gemessen wird, wie viel Zeit die einzelnen Abschnitte kosten
      */
-    private ArrayList<Shape> shapesList = new ArrayList<>();
+    private final Metrics metrics = new Metrics(shapeStore);
+    /**
+     * Ob die Leistungsanzeige über die Zeichnung geschrieben wird
+     */
+    private boolean hud = false;
     /**
      * Das Panel, in dem gezeichnet wird
      */
     private GPanel p;
+    /**
+     * Die Zeichenfläche, über die die Formen auf {@link Planer#p} gezeichnet werden
+     */
+    private GPanelCanvas canvas;
     /**
      * Die Form, die im Moment gezeichnet oder bearbeitet wird
      */
     private Shape currentShape;
     /**
-     * Die {@link java.util.Map Map}, in der alle verfügbaren Formen und ihre Namen gespeichert werden
+     * Der Platz der {@link Planer#currentShape aktuellen Form} im {@link Planer#shapeStore} oder {@code -1}, falls
+     * sie noch nicht gespeichert wurde
+     */
+    private int currentSlot = -1;
+    /**
+     * Der {@link ShapeLoader}, der gerade eine Datei liest, oder {@code null}
+     */
+    private ShapeLoader loader;
+    /**
+     * Das Journal, in dem jede Bearbeitung für das automatische Speichern festgehalten wird, oder {@code null}, falls
+     * es nicht geöffnet werden konnte
      */
-    private HashMap<String, Class> shapeClasses = new HashMap<>();
+    private EditJournal journal;
+    /**
+     * Der Verlauf der Bearbeitungen, die rückgängig gemacht werden können
+     */
+    private final EditHistory history;
+    /**
+     * Das Verzeichnis aller verfügbaren Formen aus {@link Planer#SHAPE_CLASSES_PATH}
+     */
+    private ShapeRegistry shapeRegistry;
     /**
      * Der Name der aktuellen Form
      */
     private String currentShapeString;
+    /**
+     * Der Ausschnitt der Zeichnung, der angezeigt wird
+     */
+    private final Viewport view = new Viewport();
+    /**
+     * Die Pixelposition, an der der Ausschnitt zuletzt mit der mittleren Maustaste verschoben wurde, oder {@code null}
+     */
+    private Point panAnchor;
+    /**
+     * Das letzte Mausereignis beim Ziehen, das noch nicht gezeichnet wurde, oder {@code null}
+     */
+    private MouseEvent pendingDrag;
+    /**
+     * Die Drehung des Mausrads, die noch nicht auf den {@link Planer#view Ausschnitt} angewendet wurde
+     */
+    private double pendingWheel;
+    /**
+     * Die Pixelposition des Cursors bei der letzten Drehung des Mausrads
+     */
+    private Point wheelPoint;
+    /**
+     * Der Taktgeber, der Mausereignisse zusammenfasst und höchstens einmal pro Bild zeichnet
+     */
+    private final FrameScheduler frames = new FrameScheduler(this::drawFrame);
+    /**
+     * Die Formen, die mit einem Auswahlrechteck ausgewählt wurden
+     */
+    private final Selection selection = new Selection();
+    /**
+     * Die Geste, die im Zustand {@link State#SELECT} gerade mit der Maus ausgeführt wird
+     */
+    private Gesture gesture = Gesture.NONE;
 
     /**
      * Der Konstruktor der Hauptklasse.
      * <p>Es werden {@code Listener} für das Klicken der Maustasten, das Loslassen der Maustasten und das Bewegen der
      * Maus bei gedrückter Taste implementiert. In den {@code Listener}n wird, wenn es nötig ist, zwischen den
      * Zuständen des Programms unterschieden.</p>
+     * <p>Alle gespeicherten Formen werden im Zwischenspeicher des {@link GPanel}s gehalten (siehe
+     * {@link GPanel#storeGraphics()}). Die Form, die gerade bearbeitet wird, wird nur darüber gezeichnet und beim
+     * nächsten Mausereignis durch {@link GPanel#recallGraphics()} wieder entfernt.</p>
+     * <p>Mit dem Mausrad wird der {@link Planer#view Ausschnitt} um die Position des Cursors vergrößert oder
+     * verkleinert, mit gedrückter mittlerer Maustaste wird er verschoben.</p>
+     * <p>Im Zustand {@link State#SELECT} wird mit einem Auswahlrechteck eine {@link Planer#selection Auswahl}
+     * getroffen. Wird eine ausgewählte Form angeklickt, wird die ganze Auswahl mit der linken Maustaste verschoben
+     * und mit der rechten um ihren Mittelpunkt vergrößert oder verkleinert.</p>
+     * <p>Beim Ziehen und Drehen des Mausrads wird nur das neueste Ereignis festgehalten. Gezeichnet wird erst im
+     * nächsten Takt der {@link Planer#frames Bildwiederholung} (siehe {@link Planer#drawFrame()}).</p>
      */
     private Planer() {
+        history = new EditHistory(shapeStore, new EditHistory.Listener() {
+            /**
+             * Ob so viele Formen auf einmal bearbeitet werden, dass der räumliche Index danach einmal neu aufgebaut
+             * wird, statt jede Form einzeln darin zu aktualisieren (siehe {@link Planer#BULK_FRACTION})
+             */
+            private boolean bulk;
+
+            @Override
+            public void beginBulk(int count) {
+                bulk = count > shapeStore.count() / BULK_FRACTION;
+            }
+
+            @Override
+            public void endBulk() {
+                if (bulk) {
+                    bulk = false;
+                    if (!compactIfNeeded()) {
+                        shapeIndex.rebuild();
+                    }
+                }
+            }
+
+            @Override
+            public void changing(int slot) {
+                damage.add(shapeStore.view(slot));
+            }
+
+            @Override
+            public void added(int slot) {
+                if (!bulk) {
+                    shapeIndex.insert(slot);
+                }
+                damage.add(shapeStore.view(slot));
+                if (journal != null) {
+                    journal.added(shapeStore, slot);
+                }
+            }
+
+            @Override
+            public void changed(int slot) {
+                if (!bulk) {
+                    shapeIndex.update(slot);
+                }
+                damage.add(shapeStore.view(slot));
+                if (journal != null) {
+                    journal.changed(shapeStore, slot);
+                }
+            }
+
+            @Override
+            public void removed(int slot) {
+                if (!bulk) {
+                    shapeIndex.remove(slot);
+                }
+                if (journal != null) {
+                    journal.removed(shapeStore, slot);
+                }
+            }
+
+            @Override
+            public void overBudget(long bytes) {
+                // Die Meldung wird erst nach der Bearbeitung angezeigt, damit sie die Maus nicht unterbricht.
+                SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(p.getPane(),
+                        String.format("This edit needs about %.1f MB of undo memory, more than the limit of %.1f MB."
+                                + " Only this edit can be undone.", bytes / 1048576.0, history.budget() / 1048576.0),
+                        "Undo", JOptionPane.WARNING_MESSAGE));
+            }
+        }, Long.getLong("planer.undoBudget", UNDO_BUDGET));
         loadShapeClasses();
         p = new GPanel(setMenu());
-        currentShapeString = shapeClasses.keySet().toArray(new String[0])[0];
+        canvas = new GPanelCanvas(p);
+        view.apply(p);
+        redraw();
+        openJournal();
+        currentShapeString = shapeRegistry.getFirst();
         p.addMouseListener(new MouseAdapter() {
             /**
              * In dieser Methode wird das Klicken der Maus behandelt.
              * <p>Die Koordinaten {@code x0}, {@code y0}, {@code x1} und {@code y1} werden auf die angeklickten
              * Koordinaten gesetzt.</p>
              * Daraufhin erfolgt eine Unterscheidung des Zustands.
-             * <p>Sollte eine Form verschoben werden, wird über die Liste mit allen Formen iteriert und es wird
-             * überprüft, ob die angeklickten Koordinaten in der aktuellen Form der Iteration liegen. Von mehreren
-             * überlappenden Formen wird die letzte in der Liste ausgewählt und in {@link Planer#currentShape}
+             * <p>Sollte eine Form verschoben werden, wird im {@link Planer#shapeIndex räumlichen Index} nach den
+             * Formen gesucht, in denen die angeklickten Koordinaten liegen. Von mehreren überlappenden Formen wird
+             * die oberste ausgewählt. Für sie wird ein neues Objekt erzeugt und in {@link Planer#currentShape}
              * gespeichert.</p>
-             * <p>Das gleiche Verhalten wird während einer Größenänderung verwendet.</p>
+             * <p>Das gleiche Verhalten wird während einer Größenänderung verwendet. Die ausgewählte Form wird dabei aus
+             * dem Zwischenspeicher entfernt und nur noch provisorisch in {@link Color#red Rot} darüber gezeichnet.</p>
              * <p>Sollte eine Form gezeichnet werden, wird {@link Planer#currentShape} mit einer neuen Form, mit den
-             * aktuellen Koordinaten, initialisiert und dieses Objekt wird in {@link Planer#shapesList}
-             * gespeichert.</p>
+             * aktuellen Koordinaten, initialisiert. Dieses Objekt wird erst beim Loslassen der Maustaste in
+             * {@link Planer#shapeStore} gespeichert.</p>
              *
              * @param e Das {@link MouseEvent}, das den Aufruf dieser Methode ausgelöst hat.
              *          <p>Es wird dazu genutzt, die Koordinaten des Klicks zu bestimmen.</p>
              */
             @Override
             public void mousePressed(MouseEvent e) {
+                if (SwingUtilities.isMiddleMouseButton(e)) {
+                    if (!isEditing()) {
+                        panAnchor = e.getPoint();
+                    }
+                    return;
+                }
+                if (panAnchor != null) {
+                    return;
+                }
+                Metrics.Span span = metrics.begin(Metrics.Phase.PRESS);
+                span.setDetail(state.name());
                 x0 = x1 = p.toWindowX(e.getX());
                 y0 = y1 = p.toWindowY(e.getY());
                 switch (state) {
                     case DELETE:
                     case RESIZE:
                     case DRAG:
-                        for (Shape s :
-                                shapesList) {
-                            if (s.isHit(x0, y0)) {
-                                currentShape = s;
+                        currentSlot = topmostAt(x0, y0);
+                        if (currentSlot >= 0) {
+                            currentShape = shapeStore.get(currentSlot);
+                            damage.add(currentShape);
+                            if (state != State.DELETE) {
+                                redrawDamage(currentSlot);
+                                p.setColor(Color.red);
+                                currentShape.draw(canvas, false);
                             }
                         }
                         break;
                     case DRAW:
                         currentShape = getNewShapeInstance(currentShapeString, x0, y0, x1, y1);
-                        shapesList.add(currentShape);
+                        currentSlot = -1;
+                        break;
+                    case SELECT:
+                        beginGesture(SwingUtilities.isLeftMouseButton(e));
                         break;
                 }
+                span.end();
             }
 
             /**
              * In dieser Methode wird das loslassen der Maustaste behandelt.
-             * <p>Der Modus des {@link GPanel} {@link Planer#p} wird auf zeichnen gesetzt und die Standardfarbe
-             * {@link Planer#penColor} wird als die Farbe gesetzt, mit der gezeichnet wird.</p>
+             * <p>Die provisorische Zeichnung wird durch den Zwischenspeicher ersetzt.</p>
              * <p>Daraufhin erfolgt eine Unterscheidung des Zustands.</p>
              * <p>Sollte eine Form verschoben werden, werden die Koordinaten dieser Form verschoben.</p>
              * <p>Sollte die Größe einer Form verändert werden oder eine Form gezeichnet werden, werden die temporären Koordinaten
-             * als aktuelle Koordinaten gesetzt.</p>
-             * <p>Danach wird die Form permanent gezeichnet.</p>
+             * als aktuelle Koordinaten gesetzt. Das Zeichnen einer neuen Form wird vorher mit {@link Shape#finish()}
+             * abgeschlossen.</p>
+             * <p>Die aktuellen Koordinaten werden über den {@link Planer#history Verlauf} in
+             * {@link Planer#shapeStore} übernommen. Eine neu gezeichnete Form wird dort als oberste Form hinzugefügt.</p>
+             * <p>Der Listener des Verlaufs hält jede Änderung im {@link Planer#journal Journal} und im räumlichen Index
+             * fest und meldet den alten und neuen Bereich der Form als beschädigt. Danach wird nur der beschädigte
+             * Bereich neu gezeichnet.</p>
              *
              * @param e Das {@link MouseEvent}, das den Aufruf dieser Methode ausgelöst hat.
              *          <p>Es wird in dieser Methode nicht verwendet, da die Veränderung der Koordinaaten in
-             *          {@code mouseDragged()} erfolgt.</p>
+             *          {@link Planer#drawFrame()} erfolgt.</p>
              */
             @Override
             public void mouseReleased(MouseEvent e) {
+                frames.flush();
+                if (SwingUtilities.isMiddleMouseButton(e)) {
+                    panAnchor = null;
+                    return;
+                }
+                Metrics.Span span = metrics.begin(Metrics.Phase.RELEASE);
+                span.setDetail(state.name());
+                if (gesture != Gesture.NONE) {
+                    p.recallGraphics();
+                    endGesture();
+                }
                 if (currentShape != null) {
+                    p.recallGraphics();
+                    // Den räumlichen Index, das Journal und den beschädigten Bereich aktualisiert der Listener von
+                    // history.
                     switch (state) {
                         case DELETE:
-                            shapesList.remove(currentShape);
+                            history.delete(currentSlot);
                             break;
                         case DRAG:
-                            currentShape.move(x1 - x0, y1 - y0, false);
+                            if (x1 != x0 || y1 != y0) {
+                                history.move(currentSlot, x1 - x0, y1 - y0);
+                            } else {
+                                // Ohne Bewegung gibt es keine Bearbeitung, die Form wurde beim Drücken aber aus dem
+                                // Zwischenspeicher entfernt und muss wieder gezeichnet werden.
+                                damage.add(currentShape);
+                            }
                             break;
                         case RESIZE:
+                            currentShape.setTmpCoords();
+                            history.set(currentSlot, currentShape.getX0(), currentShape.getY0(), currentShape.getX1(), currentShape.getY1());
+                            break;
                         case DRAW:
+                            currentShape.finish();
                             currentShape.setTmpCoords();
+                            currentSlot = history.add(currentShapeString, currentShape);
                             break;
                     }
-                    p.setPaintMode();
-                    p.setColor(penColor);
-                    currentShape.draw(p, false);
+                    compactIfNeeded();
+                    checkpoint(false);
                 }
                 currentShape = null;
-                redraw();
+                currentSlot = -1;
+                redrawDamage();
+                if (loader != null) {
+                    loader.schedule();
+                }
+                span.end();
             }
         });
 
         p.addMouseMotionListener(new MouseMotionAdapter() {
             /**
              * In dieser Methode wird die Bewegung der Maus bei gedrückter Maustaste behandelt.
-             * <p>Das {@link GPanel} {@link Planer#p} wird in den XOR-Zeichenmodus versetzt. Dabei wird die
-             * {@link Color Farbe} {@link Color#white weiß} als Parameter übergeben. Das bedeutet, dass bei jeder
-             * Zeichenoperation über weißen Pixeln, mit der aktuellen {@link Planer#penColor Zeichenfarbe} des
-             * {@link Planer#p Panels}, diese Pixel mit der Zeichenfarbe überschrieben werden und dass Pixel der
-             * Zeichenfarbe mit weiß überschrieben werden, wenn auf ihnen gezeichnet wird. Dieses Verhalten sorgt
-             * dafür, dass eine zu verändernde Form gelöscht wird und durch die provisprische Zeichnung ersetzt wird
-             * und dass die provisorische Zeichnunng sich verändert.</p>
-             * <p>Die darauf folgende Zeichnung der {@link Planer#currentShape aktuellen Form} löscht diese auf Grund
-             * des festgelegten Zeichenverhaltens.</p>
-             * <p>Die Koordinaten {@link Planer#x1} und {@link Planer#y1} werden auf die aktuelle Position des
-             * Cursors gesetzt.</p>
-             * <p>{@link Color#red Rot} wird als Zeichenfarbe für die provisorische Zeichnung der aktuellen Form
-             * festgelegt.</p>
-             * <p>Daraufhin folgt eine Unterscheidung des Zustands.</p>
-             * <p>Sollte eine Form gezeichnet werden, werden die Koordinaten des Mausklicks und die aktuellen
-             * Koordinaten des Cursors als die Koordinaten dieser Form gesetzt.</p>
-             * <p>Sollte eine Form verschoben werden, werden ihre Koordinaten temporär in x-Richtung um die Distanz
-             * zwischen {@link Planer#x1} und {@link Planer#x0} verschoben und in y-Richtung um die Distanz zwischen
-             * {@link Planer#y1} und {@link Planer#y0}.</p>
-             * <p>Sollte die Größe einer Form verändert werden, wird zusätzlich zwischen rechter und linker Maustaste
-             * unterschieden. Mit der linken Maustaste wird eine Form vergrößert, mit der Rechten verkleinert. In x- und
-             * y-Richtung wird jeweils unterschieden, ob die aktuelle Mausposition größer oder kleiner ist als die Startposition
-             * der Maus. Das Ergebnis dieser Unterscheidung entscheidet dann über die Belegung der Koordinaten.</p>
-             * <p>Nach der Unterscheidung wird die aktuelle Form mit den temporären Koordinaten gezeichnet.</p>
+             * <p>Das Ereignis wird nur festgehalten. Ältere Ereignisse, die noch nicht gezeichnet wurden, werden
+             * dabei verworfen. Die Form wird erst im nächsten Takt mit der neuesten Position bearbeitet und
+             * gezeichnet (siehe {@link Planer#drawFrame()}).</p>
+             * <p>Nur eine neue Form erhält jede Position sofort über {@link Shape#drawTo}, damit eine Freihandlinie
+             * keine Punkte verliert.</p>
              *
              * @param e Das {@link MouseEvent}, das den Aufruf dieser Methode ausgelöst hat.
              *          <p>Es wird genutzt, um die aktuelle Position des Cursors zu ermitteln.</p>
              */
             public void mouseDragged(MouseEvent e) {
-                p.setXORMode(bgColor);
-                if (currentShape != null) {
-                    currentShape.draw(p, true);
-                    x1 = p.toWindowX(e.getX());
-                    y1 = p.toWindowY(e.getY());
-                    p.setColor(Color.red);
-                    switch (state) {
-                        case DRAW:
-                            currentShape.setCoords(x0, y0, x1, y1, false);      // Koordinaten werden fest gesetzt, da kein Nutzen durch temporäre Setzung entsteht.
-                            break;
-                        case DRAG:
-                            currentShape.move(x1 - x0, y1 - y0, true);
-                            break;
-                        case RESIZE:
-                            if (SwingUtilities.isLeftMouseButton(e)) {
-                                currentShape.setCoords(
-                                        (x0 < x1) ? currentShape.getX0() : currentShape.getX0() + (x1 - x0),
-                                        (y0 < y1) ? currentShape.getY0() : currentShape.getY0() + (y1 - y0),
-                                        (x0 < x1) ? currentShape.getX1() + (x1 - x0) : currentShape.getX1(),
-                                        (y0 < y1) ? currentShape.getY1() + (y1 - y0) : currentShape.getY1(),
-                                        true
-                                );
-                            } else {
-                                currentShape.setCoords(
-                                        (x0 < x1) ? currentShape.getX0() + (x1 - x0) : currentShape.getX0(),
-                                        (y0 < y1) ? currentShape.getY0() + (y1 - y0) : currentShape.getY0(),
-                                        (x0 < x1) ? currentShape.getX1() : currentShape.getX1() + (x1 - x0),
-                                        (y0 < y1) ? currentShape.getY1() : currentShape.getY1() + (y1 - y0),
-                                        true
-                                );
-                            }
-                            break;
-                    }
-                    currentShape.draw(p, true);
+                if (panAnchor == null && gesture == Gesture.NONE && state == State.DRAW && currentShape != null) {
+                    currentShape.drawTo(x0, y0, p.toWindowX(e.getX()), p.toWindowY(e.getY()),
+                            Math.abs(p.toWindowX(1) - p.toWindowX(0)));
                 }
+                if (panAnchor != null || isEditing()) {
+                    pendingDrag = e;
+                    frames.request();
+                }
+            }
+        });
+        p.addMouseWheelListener(e -> {
+            if (!isEditing() && panAnchor == null) {
+                pendingWheel += e.getPreciseWheelRotation();
+                wheelPoint = e.getPoint();
+                frames.request();
             }
         });
         jfc = new JFileChooser();
+        jfc.addChoosableFileFilter(binaryFilter);
         jfc.setFileFilter(new FileNameExtensionFilter("XML files", "xml", "XML"));
+        imageChooser = new JFileChooser();
+        imageChooser.setFileFilter(new FileNameExtensionFilter("PNG images", "png", "PNG"));
     }
 
     /**
      * Main-Methode der Klasse.
-     * <p>Einzige Funktion ist das erzeugen eines neuen {@link Planer}-Objekts.</p>
+     * <p>Ohne Kommandozeilenparameter wird ein neues {@link Planer}-Objekt erzeugt. Mit Kommandozeilenparametern
+     * werden Dateien ohne Fenster vom {@link BatchProcessor} verarbeitet.</p>
      *
      * @param args Kommandozeilenparameter.
-     *             <p>Sie haben in dieser Klasse keine Funktion.</p>
+     *             <p>Der Befehl, die Optionen und die Dateien für den {@link BatchProcessor}.</p>
      */
     public static void main(String... args) {
+        if (args.length > 0) {
+            System.exit(BatchProcessor.run(args));
+        }
         new Planer();
     }
 
@@ -268,423 +499,1442 @@ public class Planer {
      * @return Eine neue Instanz der Form, deren Name übergeben wurde
      */
     private Shape getNewShapeInstance(String shape, double x0, double y0, double x1, double y1) {
+        ShapeFactory factory = shapeRegistry.factory(shape);
+        if (factory == null) {
+            return null;
+        }
         Shape s = null;
+        Metrics.Span span = metrics.begin(Metrics.Phase.CREATE);
+        span.setDetail(shape);
         try {
-            s = (Shape) shapeClasses.get(shape).getConstructor(double.class, double.class, double.class, double.class).newInstance(x0, y0, x1, y1);
-        } catch (InstantiationException e1) {
-            JOptionPane.showMessageDialog(p.getPane(), "The class of this shape could not be instantiated.", "Instantiation Error", JOptionPane.ERROR_MESSAGE);
-        } catch (IllegalAccessException e1) {
-            JOptionPane.showMessageDialog(p.getPane(), "The class of this shape can not be accessed.", "Illegal Access", JOptionPane.ERROR_MESSAGE);
-        } catch (NoSuchMethodException e1) {
-            JOptionPane.showMessageDialog(p.getPane(), "The class of this shape does not follow the rules for classes of shapes.", "Lack of Constructor", JOptionPane.ERROR_MESSAGE);
-        } catch (InvocationTargetException e1) {
+            s = factory.create(x0, y0, x1, y1);
+        } catch (IllegalArgumentException e1) {
             JOptionPane.showMessageDialog(p.getPane(), "The class of the shape triggered an error.", "Class Error", JOptionPane.ERROR_MESSAGE);
+        } finally {
+            span.end();
         }
+        metrics.created(shape, span.getNanos());
         return s;
     }
 
     /**
-     * Diese Methode liest aus der Datei, die auf dem Pfad {@link Planer#SHAPE_CLASSES_PATH} liegt, alle verfügbaren Form-Klassen
-     * aus und schreibt diese Klassen in {@link Planer#shapeClasses}.
+     * Diese Methode generiert eine neue Form für die Leser, die im Hintergrund laufen.
+     * <p>Anders als {@link Planer#getNewShapeInstance(String, double, double, double, double)} hat sie keine
+     * Nebenwirkungen außerhalb des aufrufenden Threads: Sie zeichnet keine Metriken auf und zeigt keinen Dialog an.
+     * Löst die Klasse der Form einen Fehler aus, wird er über {@link SwingUtilities#invokeLater(Runnable)} auf dem
+     * Event Dispatch Thread gemeldet.</p>
+     *
+     * @param shape Der Name der Form, von der eine neue Instanz erzeugt werden soll
+     * @return Eine neue Instanz der Form oder {@code null}, falls sie nicht erzeugt werden kann
      */
-    private void loadShapeClasses() {
-        InputStream ist = getClass().getResourceAsStream(SHAPE_CLASSES_PATH);
-        Reader r;
-        try {
-            r = new InputStreamReader(ist, "UTF-8");
-        } catch (UnsupportedEncodingException ignored) {
-            return;
+    private Shape getReaderShapeInstance(String shape) {
+        ShapeFactory factory = shapeRegistry.factory(shape);
+        if (factory == null) {
+            return null;
         }
-        InputSource iso;
-        iso = new InputSource(r);
-        iso.setEncoding("UTF-8");
-
-        SAXParser saxp;
         try {
-            saxp = SAXParserFactory.newInstance().newSAXParser();
-        } catch (ParserConfigurationException | SAXException e) {
-            JOptionPane.showMessageDialog(p.getPane(), "The file containing the usable shapes could not be parsed", "Parser Error", JOptionPane.ERROR_MESSAGE);
-            return;
+            return factory.create(0, 0, 0, 0);
+        } catch (IllegalArgumentException e) {
+            SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(p.getPane(),
+                    "The class of the shape " + shape + " triggered an error.", "Class Error", JOptionPane.ERROR_MESSAGE));
+            return null;
         }
-        DefaultHandler dh = new DefaultHandler() {
-            ShapeClassLoader scl = new ShapeClassLoader();
-            Class c;
+    }
 
-            @Override
-            public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
-                if (qName.equalsIgnoreCase("shape") || qName.equalsIgnoreCase("abstractShape")) {
-                    try {
-                        c = scl.loadClass(attributes.getValue("name"));
-                    } catch (ClassNotFoundException e) {
-                        JOptionPane.showMessageDialog(p.getPane(), "One of the shape classes could not be found.", "Shape Class not Found", JOptionPane.ERROR_MESSAGE);
-                    }
-                    shapeClasses.put(attributes.getValue("name"), c);
-                }
-            }
-        };
-        try {
-            saxp.parse(iso, dh);
+    /**
+     * Diese Methode liest aus der Datei, die auf dem Pfad {@link Planer#SHAPE_CLASSES_PATH} liegt, alle verfügbaren Formen
+     * in das {@link Planer#shapeRegistry} ein.
+     * <p>Dabei wird keine Form-Klasse geladen. Klassen, die den Regeln für Form-Klassen nicht entsprechen, werden erst
+     * beim ersten Verwenden mit einer Fehlermeldung abgelehnt. Danach kommen die Formen der Plugins im Verzeichnis
+     * {@link ShapeRegistry#pluginDirectory()} hinzu.</p>
+     */
+    private void loadShapeClasses() {
+        try (InputStream ist = getClass().getResourceAsStream(SHAPE_CLASSES_PATH)) {
+            shapeRegistry = new ShapeRegistry(ist, e -> SwingUtilities.invokeLater(() ->
+                    JOptionPane.showMessageDialog(null, e.getMessage(), "Misformed Shape Class", JOptionPane.ERROR_MESSAGE)));
         } catch (SAXException e) {
-            JOptionPane.showMessageDialog(p.getPane(), "An error ocurred during parsing the file containing the usable shapes.", "Parsing Error", JOptionPane.ERROR_MESSAGE);
+            JOptionPane.showMessageDialog(null, "An error ocurred during parsing the file containing the usable shapes.", "Parsing Error", JOptionPane.ERROR_MESSAGE);
         } catch (IOException e) {
-            JOptionPane.showMessageDialog(p.getPane(), "The file containing the usable shapes could not be loaded.", "IO Error", JOptionPane.ERROR_MESSAGE);
+            JOptionPane.showMessageDialog(null, "The file containing the usable shapes could not be loaded.", "IO Error", JOptionPane.ERROR_MESSAGE);
+        }
+        if (shapeRegistry != null) {
+            try {
+                shapeRegistry.loadPlugins(ShapeRegistry.pluginDirectory());
+            } catch (IOException e) {
+                JOptionPane.showMessageDialog(null, "The shape plugins could not be loaded.", "IO Error", JOptionPane.ERROR_MESSAGE);
+            }
         }
     }
 
     /**
-     * Diese Methode zeichnet alle Formen neu, um zu verindern, dass durch den XOR-Zeichenmodus Teile nicht
-     * betroffener Formen gelöscht werden.
+     * Diese Methode öffnet das {@link EditJournal} im Verzeichnis {@link Planer#JOURNAL_DIR}.
+     * <p>Enthält es Formen aus einer früheren Sitzung, wird gefragt, ob sie wiederhergestellt werden sollen. Danach
+     * beginnt das Journal mit einem Abbild der aktuellen Formen. Kann es nicht geöffnet werden, wird ohne automatisches
+     * Speichern weitergearbeitet.</p>
      */
-    private void redraw() {
-        p.storeGraphics();      // ⸣
-        p.clearStore(bgColor);  // ⸠ Diese Zeilen löschen alle vorherigen Zeichnungen ohne den Hintergrund zu löschen.
-        p.recallGraphics();     // ⸥
-        p.setPaintMode();
-        p.setColor(penColor);
-        for (Shape s :
-                shapesList) {
-            s.draw(p, false);
+    private void openJournal() {
+        try {
+            journal = new EditJournal(Paths.get(System.getProperty("user.home"), JOURNAL_DIR));
+            journal.recover(shapeStore);
+        } catch (IOException e) {
+            if (journal != null) {
+                journal.close();
+                journal = null;
+            }
+            shapeStore.clear();
+            JOptionPane.showMessageDialog(p.getPane(), "Autosave is not available: " + e.getMessage(), "Autosave", JOptionPane.WARNING_MESSAGE);
+            return;
         }
+        if (shapeStore.count() > 0 && JOptionPane.showConfirmDialog(p.getPane(), "Restore the drawing from the last session?", "Autosave", JOptionPane.YES_NO_OPTION) == JOptionPane.YES_OPTION) {
+            shapeIndex.rebuild();
+            redraw();
+        } else {
+            shapeStore.clear();
+        }
+        journal.checkpoint(shapeStore.snapshot(readerShapeFactory));
+        Runtime.getRuntime().addShutdownHook(new Thread(journal::close));
     }
 
     /**
-     * In dieser Methode wird ein Menü für das Zeichenfenster erzeugt.
-     * <p>Als {@link Action} der Menüpunkte wird jeweils eine anonyme Klasse verwendet, um die dem Menüpubkt entsprechende Aktion
-     * durchzuführen.</p>
-     * <p>Der Menüpunkt {@code Shapes} wird automatisch aus der Datei, in der alle verfügbaren Formen und ihre Klassen aufgelistet
-     * sind, mit allen verfügbaren Formen gefüllt.</p>
+     * Diese Methode fasst das {@link Planer#journal Journal} im Hintergrund in ein neues Abbild zusammen.
+     * <p>Während eine Datei geladen wird, wird damit gewartet, da das Abbild sonst nur einen Teil der Datei
+     * enthielte.</p>
      *
-     * @return Die Menüleiste, die von {@link Planer#p} verwendet wird.
+     * @param force Ob auch zusammengefasst werden soll, wenn das Journal noch klein ist
      */
-    private JMenuBar setMenu() {
-        JMenu fileMenu = new JMenu("File");
-        fileMenu.add(new JMenuItem(new AbstractAction("Open file...") {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                if (jfc.showOpenDialog(p.getPane()) == JFileChooser.APPROVE_OPTION) {
-                    File f = jfc.getSelectedFile();
-                    replaceShapes(f);
-                }
-            }
-        }));
-        fileMenu.add(new JMenuItem(new AbstractAction("Save to...") {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                if (jfc.showSaveDialog(p.getPane()) == JFileChooser.APPROVE_OPTION) {
-                    File f = jfc.getSelectedFile();
-                    saveShapes(f);
-                }
-            }
-        }));
-
-        final JMenu shapesMenu = new JMenu("Shapes");
+    private void checkpoint(boolean force) {
+        if (journal != null && loader == null && (force || journal.needsCheckpoint())) {
+            journal.checkpoint(shapeStore.snapshot(readerShapeFactory));
+        }
+    }
 
-        JMenu editMenu = new JMenu("Edit");
-        editMenu.add(new JMenuItem(new AbstractAction("Delete") {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                state = State.DELETE;
-            }
-        }));
-        editMenu.add(new JMenuItem(new AbstractAction("Drag") {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                state = State.DRAG;
-            }
-        }));
-        editMenu.add(new JMenuItem(new AbstractAction("Resize") {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                state = State.RESIZE;
+    /**
+     * Diese Methode zeichnet ein Bild mit den neuesten Mausereignissen und wird von {@link Planer#frames} höchstens
+     * einmal pro Takt aufgerufen.
+     * <p>Sollte der Ausschnitt mit der mittleren Maustaste verschoben werden, wird er um die Distanz zwischen
+     * {@link Planer#panAnchor} und der neuesten Position des Cursors verschoben. Die gesammelte Drehung des Mausrads
+     * vergrößert oder verkleinert ihn um die letzte Position des Cursors.</p>
+     * <p>Sollte eine {@link Gesture Geste} mit der Auswahl ausgeführt werden, wird sie mit der neuesten Position des
+     * Cursors provisorisch gezeichnet (siehe {@link Planer#drawSelection()}).</p>
+     * <p>Sollte eine Form bearbeitet werden, wird die vorherige provisorische Zeichnung entfernt, indem alle
+     * gespeicherten Formen mit {@link GPanel#recallGraphics()} aus dem Zwischenspeicher wiederhergestellt werden. Der
+     * Aufwand dafür hängt nicht von der Anzahl der Formen ab.</p>
+     * <p>Die Koordinaten {@link Planer#x1} und {@link Planer#y1} werden auf die neueste Position des Cursors gesetzt.
+     * {@link Color#red Rot} wird als Zeichenfarbe für die provisorische Zeichnung der aktuellen Form festgelegt.</p>
+     * <p>Daraufhin folgt eine Unterscheidung des Zustands.</p>
+     * <p>Sollte eine Form gezeichnet werden, wurden die Koordinaten des Mausklicks und die aktuellen
+     * Koordinaten des Cursors bereits beim Ziehen als die Koordinaten dieser Form gesetzt.</p>
+     * <p>Sollte eine Form verschoben werden, werden ihre Koordinaten temporär in x-Richtung um die Distanz
+     * zwischen {@link Planer#x1} und {@link Planer#x0} verschoben und in y-Richtung um die Distanz zwischen
+     * {@link Planer#y1} und {@link Planer#y0}.</p>
+     * <p>Sollte die Größe einer Form verändert werden, wird zusätzlich zwischen rechter und linker Maustaste
+     * unterschieden. Mit der linken Maustaste wird eine Form vergrößert, mit der Rechten verkleinert. In x- und
+     * y-Richtung wird jeweils unterschieden, ob die aktuelle Mausposition größer oder kleiner ist als die Startposition
+     * der Maus. Das Ergebnis dieser Unterscheidung entscheidet dann über die Belegung der Koordinaten.</p>
+     * <p>Nach der Unterscheidung wird die aktuelle Form mit den temporären Koordinaten gezeichnet.</p>
+     */
+    private void drawFrame() {
+        Metrics.Span span = metrics.begin(Metrics.Phase.FRAME);
+        span.setDetail(state.name());
+        MouseEvent e = pendingDrag;
+        double wheel = pendingWheel;
+        pendingDrag = null;
+        pendingWheel = 0;
+        if (panAnchor != null) {
+            if (e != null) {
+                view.pan(p.toWindowX(panAnchor.x) - p.toWindowX(e.getX()), p.toWindowY(panAnchor.y) - p.toWindowY(e.getY()));
+                panAnchor = e.getPoint();
+                changeView();
             }
-        }));
-
-        JMenu colorMenu = new JMenu("Color");
-        colorMenu.add(new JMenuItem(new AbstractAction("Change Pen Color") {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                Color nC = JColorChooser.showDialog(p.getPane(), "Pen Color", penColor);
-                if (nC != null) {
-                    penColor = nC;
-                    p.setColor(nC);
-                }
+        } else if (gesture != Gesture.NONE) {
+            if (e != null) {
+                p.recallGraphics();
+                x1 = p.toWindowX(e.getX());
+                y1 = p.toWindowY(e.getY());
+                drawOverlay();
             }
-        }));
-        colorMenu.add(new JMenuItem(new AbstractAction("Change Background Color") {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                Color nC = JColorChooser.showDialog(p.getPane(), "Background Color", bgColor);
-                if (nC != null) {
-                    bgColor = nC;
-                    p.bgColor(bgColor);
-                    redraw();
+        } else if (currentShape != null) {
+            if (e != null) {
+                p.recallGraphics();
+                drawOverlay();
+                x1 = p.toWindowX(e.getX());
+                y1 = p.toWindowY(e.getY());
+                p.setColor(Color.red);
+                switch (state) {
+                    case DRAW:
+                        // Die Koordinaten wurden bereits in mouseDragged über drawTo fest gesetzt.
+                        break;
+                    case DRAG:
+                        currentShape.move(x1 - x0, y1 - y0, true);
+                        break;
+                    case RESIZE:
+                        if (SwingUtilities.isLeftMouseButton(e)) {
+                            currentShape.setCoords(
+                                    (x0 < x1) ? currentShape.getX0() : currentShape.getX0() + (x1 - x0),
+                                    (y0 < y1) ? currentShape.getY0() : currentShape.getY0() + (y1 - y0),
+                                    (x0 < x1) ? currentShape.getX1() + (x1 - x0) : currentShape.getX1(),
+                                    (y0 < y1) ? currentShape.getY1() + (y1 - y0) : currentShape.getY1(),
+                                    true
+                            );
+                        } else {
+                            currentShape.setCoords(
+                                    (x0 < x1) ? currentShape.getX0() + (x1 - x0) : currentShape.getX0(),
+                                    (y0 < y1) ? currentShape.getY0() + (y1 - y0) : currentShape.getY0(),
+                                    (x0 < x1) ? currentShape.getX1() : currentShape.getX1() + (x1 - x0),
+                                    (y0 < y1) ? currentShape.getY1() : currentShape.getY1() + (y1 - y0),
+                                    true
+                            );
+                        }
+                        break;
                 }
+                currentShape.draw(canvas, true);
+                span.drew(currentSlot >= 0 ? shapeStore.type(currentSlot) : shapeStore.typeId(currentShapeString));
             }
-        }));
+        } else if (wheel != 0) {
+            view.zoom(Math.pow(ZOOM_STEP, -wheel), p.toWindowX(wheelPoint.x), p.toWindowY(wheelPoint.y));
+            changeView();
+        }
+        span.end();
+    }
 
-        InputStream ist = getClass().getResourceAsStream(SHAPE_CLASSES_PATH);
-        Reader r;
-        try {
-            r = new InputStreamReader(ist, "UTF-8");
-        } catch (UnsupportedEncodingException ignored) {
-            return null;
+    /**
+     * @return Ob gerade eine Form oder die {@link Planer#selection Auswahl} mit der Maus bearbeitet wird
+     */
+    private boolean isEditing() {
+        return currentShape != null || gesture != Gesture.NONE;
+    }
+
+    /**
+     * Diese Methode wechselt den Zustand des Programms und hebt die {@link Planer#selection Auswahl} auf.
+     *
+     * @param state Der neue Zustand
+     */
+    private void setState(State state) {
+        this.state = state;
+        clearSelection();
+    }
+
+    /**
+     * Diese Methode hebt die {@link Planer#selection Auswahl} auf und entfernt ihre Hervorhebung.
+     * <p>Sie muss aufgerufen werden, wenn sich die Plätze im {@link Planer#shapeStore} ändern.</p>
+     */
+    private void clearSelection() {
+        if (!selection.isEmpty()) {
+            selection.clear();
+            p.recallGraphics();
         }
-        InputSource iso;
-        iso = new InputSource(r);
-        iso.setEncoding("UTF-8");
+    }
 
-        SAXParser saxp;
-        try {
-            saxp = SAXParserFactory.newInstance().newSAXParser();
-        } catch (ParserConfigurationException | SAXException e) {
-            JOptionPane.showMessageDialog(p.getPane(), "The file containing the usable shapes could not be parsed", "Parser Error", JOptionPane.ERROR_MESSAGE);
-            return null;
+    /**
+     * Diese Methode beginnt eine {@link Gesture Geste} im Zustand {@link State#SELECT}.
+     * <p>Wurde eine ausgewählte Form angeklickt, wird die Auswahl mit der linken Maustaste verschoben und mit der
+     * rechten skaliert. Sonst wird die Auswahl aufgehoben und ein neues Auswahlrechteck aufgezogen.</p>
+     *
+     * @param left Ob die linke Maustaste gedrückt wurde
+     */
+    private void beginGesture(boolean left) {
+        if (selection.contains(topmostAt(x0, y0))) {
+            gesture = left ? Gesture.MOVE : Gesture.SCALE;
+        } else {
+            gesture = Gesture.MARQUEE;
+            clearSelection();
         }
-        DefaultHandler dh = new DefaultHandler() {
-            JMenu parent = null;
-            JMenu current = shapesMenu;
+    }
 
-            @Override
-            public void startElement(String uri, String localName, String qName, final Attributes attributes) throws SAXException {
-                if (qName.equalsIgnoreCase("shape")) {
-                    String screenName = null;
-                    final String shapeString;
-                    Class<Shape> shape = shapeClasses.get(attributes.getValue("name"));
-                    try {
-                        screenName = (String) shape.getMethod("getShapeName").invoke(shape.getConstructor(double.class, double.class, double.class, double.class).newInstance(0.0, 0.0, 0.0, 0.0));
-                    } catch (InstantiationException | IllegalAccessException | InvocationTargetException | NoSuchMethodException e) {
-                        JOptionPane.showMessageDialog(null, "The class " + shape.getCanonicalName() + " does not conform to the rules for shape classes", "Misformed Shape Class", JOptionPane.ERROR_MESSAGE);
-                    }
-                    shapeString = attributes.getValue("name");
-                    current.add(new JMenuItem(new AbstractAction(screenName) {
-                        @Override
-                        public void actionPerformed(ActionEvent e) {
-                            state = State.DRAW;
-                            currentShapeString = shapeString;
-                        }
-                    }));
-                } else if (qName.equalsIgnoreCase("abstractShape")) {
-                    JMenu abstractShapeMenu = new JMenu(attributes.getValue("name"));
-                    current.add(abstractShapeMenu);
-                    parent = current;
-                    current = abstractShapeMenu;
-                }
+    /**
+     * Diese Methode beendet die aktuelle {@link Gesture Geste} mit den Koordinaten {@link Planer#x1} und
+     * {@link Planer#y1} und wendet sie auf die {@link Planer#selection Auswahl} an.
+     */
+    private void endGesture() {
+        switch (gesture) {
+            case MARQUEE:
+                if (x0 == x1 && y0 == y1) {
+                    selection.select(shapeStore, topmostAt(x0, y0));
+                } else {
+                    selection.select(shapeStore, shapeIndex, Math.min(x0, x1), Math.min(y0, y1), Math.max(x0, x1), Math.max(y0, y1));
+                }
+                break;
+            case MOVE:
+                if (x1 != x0 || y1 != y0) {
+                    moveSelection(x1 - x0, y1 - y0);
+                }
+                break;
+            case SCALE:
+                double f = scaleFactor();
+                // Auf einen Punkt skalierte Formen könnten nicht wiederhergestellt werden.
+                if (f != 1 && f > 0) {
+                    scaleSelection(f);
+                }
+                break;
+        }
+        gesture = Gesture.NONE;
+    }
+
+    /**
+     * Diese Methode sucht die oberste Form an einer Position und misst dabei die Anzahl der überprüften Formen.
+     *
+     * @param x Die x-Koordinate
+     * @param y Die y-Koordinate
+     * @return Der Platz der obersten Form oder {@code -1}
+     */
+    private int topmostAt(double x, double y) {
+        Metrics.Span span = metrics.begin(Metrics.Phase.HIT_TEST);
+        int slot = shapeIndex.topmostAt(x, y);
+        span.hitTested(shapeIndex.getLastHitTested());
+        span.end();
+        return slot;
+    }
+
+    /**
+     * Diese Methode zeichnet alles, was provisorisch über dem Zwischenspeicher liegt: die
+     * {@link Planer#selection Auswahl} und, falls sie eingeschaltet ist, die Leistungsanzeige.
+     */
+    private void drawOverlay() {
+        drawSelection();
+        if (hud) {
+            drawHud();
+        }
+    }
+
+    /**
+     * Diese Methode schreibt die Leistungsanzeige in die linke obere Ecke.
+     * <p>Sie zeigt die Dauer des letzten Bildes und die Anzahl der darin gezeichneten Formen und Platzhalter, die
+     * Anzahl der Formen, die bei der letzten Suche nach der obersten Form überprüft wurden, und die Anzahl aller
+     * Formen. Die Werte stammen aus {@link Planer#metrics}.</p>
+     */
+    private void drawHud() {
+        ArrayList<String> lines = new ArrayList<>();
+        Metrics.Span frame = metrics.getLastFrame();
+        if (frame != null) {
+            lines.add(String.format("%s: %.2f ms", frame.getPhase().label, frame.getNanos() / 1e6));
+            lines.add(String.format("Drawn: %d shapes, %d placeholders", frame.getShapes(), frame.getImpostors()));
+        }
+        Metrics.Span hit = metrics.getLast(Metrics.Phase.HIT_TEST);
+        if (hit != null) {
+            lines.add(String.format("Hit test: %d shapes, %.3f ms", hit.getHitTested(), hit.getNanos() / 1e6));
+        }
+        lines.add(String.format("Shapes: %d", shapeStore.count()));
+        p.setColor(bgColor);
+        p.fillRectangle(p.toWindowX(0), p.toWindowY(0), p.toWindowX(260), p.toWindowY(HUD_LINE * lines.size() + 8));
+        p.setColor(HUD_COLOR);
+        for (int i = 0; i < lines.size(); i++) {
+            p.text(p.toWindowX(6), p.toWindowY(HUD_LINE * (i + 1)), lines.get(i));
+        }
+        p.setColor(penColor);
+    }
+
+    /**
+     * Diese Methode zeichnet die {@link Planer#selection Auswahl} provisorisch über den Zwischenspeicher.
+     * <p>Ohne {@link Gesture Geste} werden die ausgewählten Formen in {@link Planer#SELECTION_COLOR} hervorgehoben.
+     * Während einer Geste wird das Auswahlrechteck oder die verschobene oder skalierte Auswahl in
+     * {@link Color#red Rot} gezeichnet.</p>
+     * <p>Wie beim Neuzeichnen werden nur Formen gezeichnet, die im {@link Planer#view Ausschnitt} liegen: Der
+     * räumliche Index liefert die Formen, die nach der Verschiebung oder Skalierung im Ausschnitt liegen, und davon
+     * werden nur die ausgewählten gezeichnet. Der Aufwand hängt deshalb vom Ausschnitt ab und nicht von der Größe der
+     * Auswahl.</p>
+     */
+    private void drawSelection() {
+        if (gesture == Gesture.MARQUEE) {
+            p.setColor(Color.red);
+            canvas.rectangle(x0, y0, x1, y1);
+        } else if (!selection.isEmpty()) {
+            double cx = (selection.getMinX() + selection.getMaxX()) / 2, cy = (selection.getMinY() + selection.getMaxY()) / 2;
+            double f = gesture == Gesture.SCALE ? scaleFactor() : 1;
+            if (f <= 0) {
+                return;
+            }
+            // Der Bereich, der durch die Geste in den Ausschnitt abgebildet wird
+            double minX = view.getMinX(), minY = view.getMinY(), maxX = view.getMaxX(), maxY = view.getMaxY();
+            if (gesture == Gesture.MOVE) {
+                minX -= x1 - x0;
+                maxX -= x1 - x0;
+                minY -= y1 - y0;
+                maxY -= y1 - y0;
+            } else if (gesture == Gesture.SCALE) {
+                minX = cx + (minX - cx) / f;
+                maxX = cx + (maxX - cx) / f;
+                minY = cy + (minY - cy) / f;
+                maxY = cy + (maxY - cy) / f;
             }
+            p.setColor(gesture == Gesture.NONE ? SELECTION_COLOR : Color.red);
+            for (int slot :
+                    shapeIndex.query(minX, minY, maxX, maxY)) {
+                if (!selection.contains(slot)) {
+                    continue;
+                }
+                Shape s = shapeStore.view(slot);
+                switch (gesture) {
+                    case MOVE:
+                        s.move(x1 - x0, y1 - y0, true);
+                        break;
+                    case SCALE:
+                        s.setCoords(cx + (s.getX0() - cx) * f, cy + (s.getY0() - cy) * f,
+                                cx + (s.getX1() - cx) * f, cy + (s.getY1() - cy) * f, true);
+                        break;
+                }
+                s.draw(canvas, gesture != Gesture.NONE);
+            }
+        }
+        p.setColor(penColor);
+    }
 
-            @Override
-            public void endElement(String uri, String localName, String qName) throws SAXException {
-                if (qName.equalsIgnoreCase("abstractShape")) {
-                    current = parent;
+    /**
+     * @return Der Faktor, um den die {@link Planer#selection Auswahl} skaliert wird: das Verhältnis der Abstände
+     * von {@link Planer#x1}, {@link Planer#y1} und von {@link Planer#x0}, {@link Planer#y0} zum Mittelpunkt der
+     * Auswahl
+     */
+    private double scaleFactor() {
+        double cx = (selection.getMinX() + selection.getMaxX()) / 2, cy = (selection.getMinY() + selection.getMaxY()) / 2;
+        double d0 = Math.hypot(x0 - cx, y0 - cy);
+        return d0 > 0 ? Math.hypot(x1 - cx, y1 - cy) / d0 : 1;
+    }
+
+    /**
+     * Diese Methode verschiebt alle ausgewählten Formen in einem Durchgang.
+     * <p>Die Bearbeitung wird als ein Kommando mit den z-Positionen der Formen und der Verschiebung im
+     * {@link Planer#history Verlauf} festgehalten.</p>
+     *
+     * @param dx Die Verschiebung in x-Richtung
+     * @param dy Die Verschiebung in y-Richtung
+     */
+    private void moveSelection(double dx, double dy) {
+        history.moveAll(selection.getSlots(), dx, dy);
+        selection.update(shapeStore);
+        checkpoint(false);
+    }
+
+    /**
+     * Diese Methode skaliert alle ausgewählten Formen in einem Durchgang um den Mittelpunkt der Auswahl.
+     * <p>Die Bearbeitung wird als ein Kommando mit den z-Positionen der Formen, dem Mittelpunkt und dem Faktor im
+     * {@link Planer#history Verlauf} festgehalten.</p>
+     *
+     * @param f Der Faktor; er muss größer als {@code 0} sein
+     */
+    private void scaleSelection(double f) {
+        double cx = (selection.getMinX() + selection.getMaxX()) / 2, cy = (selection.getMinY() + selection.getMaxY()) / 2;
+        history.scaleAll(selection.getSlots(), cx, cy, f);
+        selection.update(shapeStore);
+        checkpoint(false);
+    }
+
+    /**
+     * Diese Methode löscht alle ausgewählten Formen in einem Durchgang.
+     * <p>Die Formen werden nur als gelöscht markiert. Ist die Auswahl groß, wird der räumliche Index danach einmal neu
+     * aufgebaut, statt jede Form einzeln zu entfernen (siehe {@link EditHistory.Listener#beginBulk(int)}). Die
+     * Bearbeitung wird als ein Kommando mit den gepackten Formen im {@link Planer#history Verlauf} festgehalten.</p>
+     */
+    private void deleteSelection() {
+        int[] slots = selection.getSlots();
+        selection.clear();
+        history.deleteAll(slots);
+        compactIfNeeded();
+        p.recallGraphics();
+        redrawDamage();
+        checkpoint(false);
+    }
+
+    /**
+     * Diese Methode verdichtet {@link Planer#shapeStore}, falls sich das lohnt, und baut den räumlichen Index danach
+     * neu auf. Da sich dabei die Plätze ändern, wird die {@link Planer#selection Auswahl} aufgehoben.
+     *
+     * @return Ob verdichtet wurde
+     */
+    private boolean compactIfNeeded() {
+        if (!shapeStore.needsCompaction()) {
+            return false;
+        }
+        shapeStore.compact();
+        if (loader == null) {
+            shapeStore.sortByZ();
+        }
+        shapeIndex.rebuild();
+        clearSelection();
+        return true;
+    }
+
+    /**
+     * Diese Methode setzt den veränderten {@link Planer#view Ausschnitt} und zeichnet alle Formen darin neu.
+     */
+    private void changeView() {
+        view.apply(p);
+        redraw();
+    }
+
+    /**
+     * Diese Methode zeichnet alle sichtbaren Formen neu und legt das Ergebnis im Zwischenspeicher des {@link GPanel}s
+     * ab.
+     * <p>Es werden nur die Formen im {@link Planer#view Ausschnitt} gezeichnet, und sehr kleine Formen nur als
+     * Platzhalter (siehe {@link Planer#drawShapes(ShapeStore, ShapeIndex, Canvas, double, double, double, double,
+     * double, double, int)}). Der Aufwand hängt deshalb vom sichtbaren Ausschnitt ab und nicht von der Anzahl der
+     * Formen.</p>
+     */
+    private void redraw() {
+        p.storeGraphics();      // ⸣
+        p.clearStore(bgColor);  // ⸠ Diese Zeilen löschen alle vorherigen Zeichnungen ohne den Hintergrund zu löschen.
+        p.recallGraphics();     // ⸥
+        Metrics.Span span = metrics.begin(Metrics.Phase.REDRAW);
+        p.setPaintMode();
+        p.setColor(penColor);
+        drawShapes(shapeStore, shapeIndex, canvas, view.getMinX(), view.getMinY(), view.getMaxX(), view.getMaxY(),
+                Math.abs(p.toWindowWidth(1)), Math.abs(p.toWindowHeight(1)), -1, span);
+        p.storeGraphics();
+        damage.clear();
+        span.end();
+        drawOverlay();
+    }
+
+    /**
+     * Diese Methode zeichnet alle Formen, die nicht gelöscht sind, in ihrer Reihenfolge auf eine Zeichenfläche.
+     *
+     * @param store  Die Formen
+     * @param canvas Die Zeichenfläche
+     */
+    static void drawShapes(ShapeStore store, Canvas canvas) {
+        for (int i = 0; i < store.size(); i++) {
+            if (store.isAlive(i)) {
+                store.view(i).draw(canvas, false);
+            }
+        }
+    }
+
+    /**
+     * Diese Methode zeichnet die Formen in einem Bereich auf eine Zeichenfläche und ersetzt dabei sehr kleine Formen
+     * durch Platzhalter.
+     * <p>Formen und Teilbäume des räumlichen Index, die kleiner als {@link Planer#LOD_PIXELS} Pixel sind, werden
+     * nicht einzeln gezeichnet: ist das umschließende Rechteck kleiner als ein Pixel, wird ein Punkt gezeichnet, sonst
+     * wird das Rechteck gefüllt. Da alle Formen in derselben Farbe und ohne Füllung gezeichnet werden, spielt die
+     * Reihenfolge der Platzhalter keine Rolle. Eine ausgelassene Form kann in einem Platzhalter enthalten sein.</p>
+     *
+     * @param store       Die Formen
+     * @param index       Der räumliche Index über {@code store}
+     * @param canvas      Die Zeichenfläche
+     * @param minX        Die linke Grenze des Bereichs
+     * @param minY        Die untere Grenze des Bereichs
+     * @param maxX        Die rechte Grenze des Bereichs
+     * @param maxY        Die obere Grenze des Bereichs
+     * @param pixelWidth  Die Breite eines Pixels in Fensterkoordinaten
+     * @param pixelHeight Die Höhe eines Pixels in Fensterkoordinaten
+     * @param excluded    Der Platz der Form, die nicht gezeichnet werden soll, oder {@code -1}
+     */
+    static void drawShapes(ShapeStore store, ShapeIndex index, Canvas canvas, double minX, double minY, double maxX,
+                           double maxY, double pixelWidth, double pixelHeight, int excluded) {
+        drawShapes(store, index, canvas, minX, minY, maxX, maxY, pixelWidth, pixelHeight, excluded, null);
+    }
+
+    /**
+     * Diese Methode zeichnet die Formen in einem Bereich wie {@link Planer#drawShapes(ShapeStore, ShapeIndex, Canvas,
+     * double, double, double, double, double, double, int)} und zählt dabei die gezeichneten Formen und Platzhalter.
+     *
+     * @param store       Die Formen
+     * @param index       Der räumliche Index über {@code store}
+     * @param canvas      Die Zeichenfläche
+     * @param minX        Die linke Grenze des Bereichs
+     * @param minY        Die untere Grenze des Bereichs
+     * @param maxX        Die rechte Grenze des Bereichs
+     * @param maxY        Die obere Grenze des Bereichs
+     * @param pixelWidth  Die Breite eines Pixels in Fensterkoordinaten
+     * @param pixelHeight Die Höhe eines Pixels in Fensterkoordinaten
+     * @param excluded    Der Platz der Form, die nicht gezeichnet werden soll, oder {@code -1}
+     * @param span        Die Messung, in der gezählt wird, oder {@code null}
+     */
+    static void drawShapes(ShapeStore store, ShapeIndex index, Canvas canvas, double minX, double minY, double maxX,
+                           double maxY, double pixelWidth, double pixelHeight, int excluded, Metrics.Span span) {
+        int[] slots = index.query(minX, minY, maxX, maxY, LOD_PIXELS * pixelWidth, LOD_PIXELS * pixelHeight,
+                (x0, y0, x1, y1) -> {
+                    if (x1 - x0 < pixelWidth && y1 - y0 < pixelHeight) {
+                        canvas.point((x0 + x1) / 2, (y0 + y1) / 2);
+                    } else {
+                        canvas.fillRectangle(x0, y0, x1, y1);
+                    }
+                    if (span != null) {
+                        span.drewImpostor();
+                    }
+                });
+        for (int slot :
+                slots) {
+            if (slot != excluded) {
+                store.view(slot).draw(canvas, false);
+                if (span != null) {
+                    span.drew(store.type(slot));
                 }
             }
-        };
+        }
+    }
+
+    /**
+     * Diese Methode zeichnet nur den Bereich neu, der seit dem letzten Neuzeichnen durch Bearbeitungen verändert wurde.
+     * <p>Der Bereich wird um einige Pixel vergrößert, damit auch die Strichbreite der Umrisse erfasst wird. Das
+     * Zeichnen wird auf diesen Bereich beschnitten, der Bereich wird mit der Hintergrundfarbe gefüllt und nur die
+     * Formen im {@link Planer#view Ausschnitt}, die ihn schneiden, werden in ihrer Reihenfolge neu gezeichnet.</p>
+     * <p>Das Ergebnis wird im Zwischenspeicher des {@link GPanel}s abgelegt.</p>
+     */
+    private void redrawDamage() {
+        redrawDamage(-1);
+    }
+
+    /**
+     * Diese Methode zeichnet den beschädigten Bereich neu und lässt dabei eine Form aus.
+     * <p>Sie wird verwendet, um eine Form, die gerade bearbeitet wird, aus dem Zwischenspeicher zu entfernen.</p>
+     *
+     * @param excluded Der Platz der Form, die nicht gezeichnet werden soll, oder {@code -1}
+     */
+    private void redrawDamage(int excluded) {
+        p.setPaintMode();
+        p.setColor(penColor);
+        if (damage.isEmpty()) {
+            drawOverlay();
+            return;
+        }
+        Metrics.Span span = metrics.begin(Metrics.Phase.DAMAGE);
+        double marginX = Math.abs(p.toWindowWidth(DAMAGE_MARGIN)), marginY = Math.abs(p.toWindowHeight(DAMAGE_MARGIN));
+        double minX = damage.getMinX() - marginX, minY = damage.getMinY() - marginY;
+        double maxX = damage.getMaxX() + marginX, maxY = damage.getMaxY() + marginY;
+        damage.clear();
+        int px0 = p.toPixelX(minX), px1 = p.toPixelX(maxX), py0 = p.toPixelY(minY), py1 = p.toPixelY(maxY);
+        Graphics2D g = p.getOffG2D();
+        g.setClip(Math.min(px0, px1), Math.min(py0, py1), Math.abs(px1 - px0) + 1, Math.abs(py1 - py0) + 1);
         try {
-            saxp.parse(iso, dh);
-        } catch (SAXException e) {
-            JOptionPane.showMessageDialog(p.getPane(), "An error ocurred during parsing the file containing the usable shapes.", "Parsing Error", JOptionPane.ERROR_MESSAGE);
-        } catch (IOException e) {
-            JOptionPane.showMessageDialog(p.getPane(), "The file containing the usable shapes could not be loaded.", "IO Error", JOptionPane.ERROR_MESSAGE);
+            p.setColor(bgColor);
+            p.fillRectangle(minX, minY, maxX, maxY);
+            p.setColor(penColor);
+            double vMinX = Math.max(minX, view.getMinX()), vMinY = Math.max(minY, view.getMinY());
+            double vMaxX = Math.min(maxX, view.getMaxX()), vMaxY = Math.min(maxY, view.getMaxY());
+            if (vMinX <= vMaxX && vMinY <= vMaxY) {
+                drawShapes(shapeStore, shapeIndex, canvas, vMinX, vMinY, vMaxX, vMaxY,
+                        Math.abs(p.toWindowWidth(1)), Math.abs(p.toWindowHeight(1)), excluded, span);
+            }
+        } finally {
+            g.setClip(null);
         }
+        p.storeGraphics();
+        span.end();
+        drawOverlay();
+    }
+
+    /**
+     * In dieser Methode wird ein Menü für das Zeichenfenster erzeugt.
+     * <p>Als {@link Action} der Menüpunkte wird jeweils eine anonyme Klasse verwendet, um die dem Menüpubkt entsprechende Aktion
+     * durchzuführen.</p>
+     * <p>Der Menüpunkt {@code Shapes} wird automatisch aus der Datei, in der alle verfügbaren Formen und ihre Klassen aufgelistet
+     * sind, mit allen verfügbaren Formen gefüllt.</p>
+     *
+     * @return Die Menüleiste, die von {@link Planer#p} verwendet wird.
+     */
+    private JMenuBar setMenu() {
+        JMenu fileMenu = new JMenu("File");
+        fileMenu.add(new JMenuItem(new AbstractAction("Open file...") {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (jfc.showOpenDialog(p.getPane()) == JFileChooser.APPROVE_OPTION) {
+                    File f = jfc.getSelectedFile();
+                    replaceShapes(f);
+                }
+            }
+        }));
+        fileMenu.add(new JMenuItem(new AbstractAction("Save to...") {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (jfc.showSaveDialog(p.getPane()) == JFileChooser.APPROVE_OPTION) {
+                    File f = jfc.getSelectedFile();
+                    if (jfc.getFileFilter() == binaryFilter && !BinaryShapeFormat.hasExtension(f.toPath())) {
+                        f = new File(f.getPath() + "." + BinaryShapeFormat.EXTENSION);
+                    }
+                    saveShapes(f);
+                }
+            }
+        }));
+        fileMenu.add(new JMenuItem(new AbstractAction("Export image...") {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (imageChooser.showSaveDialog(p.getPane()) == JFileChooser.APPROVE_OPTION) {
+                    File f = imageChooser.getSelectedFile();
+                    if (!f.getName().toLowerCase().endsWith(".png")) {
+                        f = new File(f.getPath() + ".png");
+                    }
+                    exportImage(f);
+                }
+            }
+        }));
+
+        final JMenu shapesMenu = new JMenu("Shapes");
+
+        JMenu editMenu = new JMenu("Edit");
+        JMenuItem undoItem = new JMenuItem(new AbstractAction("Undo") {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (!isEditing() && history.canUndo()) {
+                    clearSelection();
+                    history.undo();
+                    redrawDamage();
+                    checkpoint(false);
+                }
+            }
+        });
+        undoItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Z, Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx()));
+        editMenu.add(undoItem);
+        JMenuItem redoItem = new JMenuItem(new AbstractAction("Redo") {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (!isEditing() && history.canRedo()) {
+                    clearSelection();
+                    history.redo();
+                    redrawDamage();
+                    checkpoint(false);
+                }
+            }
+        });
+        redoItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Y, Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx()));
+        editMenu.add(redoItem);
+        editMenu.addSeparator();
+        editMenu.add(new JMenuItem(new AbstractAction("Delete") {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                setState(State.DELETE);
+            }
+        }));
+        editMenu.add(new JMenuItem(new AbstractAction("Drag") {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                setState(State.DRAG);
+            }
+        }));
+        editMenu.add(new JMenuItem(new AbstractAction("Resize") {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                setState(State.RESIZE);
+            }
+        }));
+        editMenu.addSeparator();
+        editMenu.add(new JMenuItem(new AbstractAction("Select") {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                setState(State.SELECT);
+            }
+        }));
+        JMenuItem selectAllItem = new JMenuItem(new AbstractAction("Select All") {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (!isEditing()) {
+                    setState(State.SELECT);
+                    selection.select(shapeStore, shapeIndex, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY,
+                            Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY);
+                    drawSelection();
+                }
+            }
+        });
+        selectAllItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_A, Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx()));
+        editMenu.add(selectAllItem);
+        JMenuItem deleteSelectionItem = new JMenuItem(new AbstractAction("Delete Selection") {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (!isEditing() && !selection.isEmpty()) {
+                    deleteSelection();
+                }
+            }
+        });
+        deleteSelectionItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_DELETE, 0));
+        editMenu.add(deleteSelectionItem);
+
+        JMenu viewMenu = new JMenu("View");
+        JMenuItem zoomInItem = new JMenuItem(new AbstractAction("Zoom In") {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (!isEditing()) {
+                    view.zoom(ZOOM_STEP, view.getCenterX(), view.getCenterY());
+                    changeView();
+                }
+            }
+        });
+        zoomInItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_EQUALS, Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx()));
+        viewMenu.add(zoomInItem);
+        JMenuItem zoomOutItem = new JMenuItem(new AbstractAction("Zoom Out") {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (!isEditing()) {
+                    view.zoom(1 / ZOOM_STEP, view.getCenterX(), view.getCenterY());
+                    changeView();
+                }
+            }
+        });
+        zoomOutItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_MINUS, Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx()));
+        viewMenu.add(zoomOutItem);
+        JMenuItem resetItem = new JMenuItem(new AbstractAction("Reset View") {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if (!isEditing()) {
+                    view.reset();
+                    changeView();
+                }
+            }
+        });
+        resetItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_0, Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx()));
+        viewMenu.add(resetItem);
+        viewMenu.addSeparator();
+        JCheckBoxMenuItem hudItem = new JCheckBoxMenuItem(new AbstractAction("Performance Overlay") {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                hud = ((JCheckBoxMenuItem) e.getSource()).isSelected();
+                if (!isEditing()) {
+                    p.recallGraphics();
+                    drawOverlay();
+                }
+            }
+        });
+        hudItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_F3, 0));
+        viewMenu.add(hudItem);
+        viewMenu.add(new JMenuItem(new AbstractAction("Performance Statistics...") {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                JTextArea area = new JTextArea(metrics.report());
+                area.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+                area.setEditable(false);
+                Object[] options = {"Close", "Reset"};
+                if (JOptionPane.showOptionDialog(p.getPane(), new JScrollPane(area), "Performance Statistics",
+                        JOptionPane.DEFAULT_OPTION, JOptionPane.INFORMATION_MESSAGE, null, options, options[0]) == 1) {
+                    metrics.reset();
+                }
+            }
+        }));
+
+        JMenu colorMenu = new JMenu("Color");
+        colorMenu.add(new JMenuItem(new AbstractAction("Change Pen Color") {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                Color nC = JColorChooser.showDialog(p.getPane(), "Pen Color", penColor);
+                if (nC != null) {
+                    penColor = nC;
+                    p.setColor(nC);
+                }
+            }
+        }));
+        colorMenu.add(new JMenuItem(new AbstractAction("Change Background Color") {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                Color nC = JColorChooser.showDialog(p.getPane(), "Background Color", bgColor);
+                if (nC != null) {
+                    bgColor = nC;
+                    p.bgColor(bgColor);
+                    redraw();
+                }
+            }
+        }));
+
+        addShapeItems(shapesMenu, shapeRegistry.getEntries());
 
         JMenuBar menuBar = new JMenuBar();
         menuBar.add(fileMenu);
         menuBar.add(shapesMenu);
         menuBar.add(editMenu);
+        menuBar.add(viewMenu);
         menuBar.add(colorMenu);
 
         return menuBar;
     }
 
     /**
-     * Diese Methode speichert alle Formen, die sich in der {@link Planer#shapesList} befinden, in einer XML-Datei.
-     * <p>Das Wurzelelement ist {@code <shapes>}.</p>
-     * <p>Die Kindelemente heißen {@code <shape>}. Das Attribut {@code type} legt den Typ der Form fest. Die Attribute
-     * {@code x0}, {@code y0}, {@code x1} und {@code y1} legen die Koordinaten der Form fest.</p>
+     * Diese Methode fügt für jeden Eintrag aus {@link Planer#SHAPE_CLASSES_PATH} einen Menüpunkt hinzu, für Gruppen
+     * ein Untermenü.
+     * <p>Die Form-Klasse wird erst aufgelöst, wenn ihr Menüpunkt ausgewählt wird.</p>
+     *
+     * @param menu    Das Menü, zu dem die Menüpunkte hinzugefügt werden
+     * @param entries Die Einträge
+     */
+    private void addShapeItems(JMenu menu, List<ShapeRegistry.Entry> entries) {
+        for (final ShapeRegistry.Entry entry :
+                entries) {
+            if (entry.isGroup()) {
+                JMenu abstractShapeMenu = new JMenu(entry.getLabel());
+                addShapeItems(abstractShapeMenu, entry.getChildren());
+                menu.add(abstractShapeMenu);
+            } else {
+                menu.add(new JMenuItem(new AbstractAction(entry.getLabel()) {
+                    @Override
+                    public void actionPerformed(ActionEvent e) {
+                        if (shapeRegistry.factory(entry.getName()) != null) {
+                            setState(State.DRAW);
+                            currentShapeString = entry.getName();
+                        }
+                    }
+                }));
+            }
+        }
+    }
+
+    /**
+     * Diese Methode speichert alle Formen, die sich im {@link Planer#shapeStore} befinden, im Hintergrund in einer
+     * XML-Datei.
+     * <p>Das Format wird in {@link XmlShapeWriter} beschrieben. Die Formen werden beim Schreiben direkt aus den
+     * Spalten gelesen, ohne vorher ein Dokument im Speicher aufzubauen.</p>
+     * <p>Hat die Datei die Endung des {@link BinaryShapeFormat Binärformats}, wird stattdessen dieses verwendet.
+     * Gespeichert wird der Stand beim Aufruf dieser Methode (siehe {@link ShapeSaver}).</p>
      *
      * @param f Die Datei, in der die Formen gespeichert werden
      */
     private void saveShapes(File f) {
-        DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-        DocumentBuilder db;
-        try {
-            db = dbf.newDocumentBuilder();
-        } catch (ParserConfigurationException e) {
-            JOptionPane.showMessageDialog(p.getPane(), "Something in your parser configuration is wrong.", "Parser Configuratipon Error", JOptionPane.ERROR_MESSAGE);
+        new ShapeSaver(f).execute();
+    }
+
+    /**
+     * Diese Methode exportiert den sichtbaren Ausschnitt im Hintergrund als PNG-Bild.
+     * <p>Die Breite des Bildes wird abgefragt; die Höhe ergibt sich aus dem Seitenverhältnis des Fensters. Die
+     * Strichbreite wird mit der Auflösung vergrößert, damit das Bild wie der Bildschirm aussieht. Das Bild wird nie
+     * vollständig im Speicher gehalten (siehe {@link TileExporter}).</p>
+     *
+     * @param f Die Datei, in der das Bild gespeichert wird
+     */
+    private void exportImage(File f) {
+        Object input = JOptionPane.showInputDialog(p.getPane(), "Width of the image in pixels:", "Export Image",
+                JOptionPane.QUESTION_MESSAGE, null, null, String.valueOf(4 * p.getWidth()));
+        if (input == null) {
             return;
         }
-        Document d = db.newDocument();
-        Element rE = d.createElement("shapes");
-        d.appendChild(rE);
-        for (Shape s :
-                shapesList) {
-            Element e = d.createElement("shape");
-            rE.appendChild(e);
-            double[] coords = s.getCoords();
-            e.setAttribute("type", s.getClassName());
-            e.setAttribute("x0", String.valueOf(coords[0]));
-            e.setAttribute("y0", String.valueOf(coords[1]));
-            e.setAttribute("x1", String.valueOf(coords[2]));
-            e.setAttribute("y1", String.valueOf(coords[3]));
-        }
-        TransformerFactory tf = TransformerFactory.newInstance();
-        Transformer t;
+        int width;
         try {
-            t = tf.newTransformer();
-        } catch (TransformerConfigurationException e) {
-            JOptionPane.showMessageDialog(p.getPane(), "Something in your configuration is wrong.", "Configuration Error", JOptionPane.ERROR_MESSAGE);
-            return;
+            width = Integer.parseInt(input.toString().trim());
+        } catch (NumberFormatException e) {
+            width = 0;
         }
-        DOMSource ds = new DOMSource(d);
-        StreamResult sr = new StreamResult(f);
-        try {
-            t.transform(ds, sr);
-        } catch (TransformerException e) {
-            JOptionPane.showMessageDialog(p.getPane(), "An error ocurred during writing.", "Transformation Error", JOptionPane.ERROR_MESSAGE);
+        int height = (int) Math.round((double) width * p.getHeight() / p.getWidth());
+        if (width <= 0 || height <= 0) {
+            JOptionPane.showMessageDialog(p.getPane(), "Please enter a positive number.", "Export Image", JOptionPane.ERROR_MESSAGE);
+            return;
         }
+        float lineWidth = Math.max(1, (float) width / p.getWidth());
+        new ImageSaver(f, new TileExporter(shapeStore.snapshot(readerShapeFactory), width, height,
+                p.toWindowX(0), p.toWindowY(p.getHeight()), p.toWindowX(p.getWidth()), p.toWindowY(0),
+                penColor, bgColor, lineWidth), height).execute();
     }
 
     /**
-     * Diese Methode parst eine XML-Datei und erstellt aus dem Inhalt Formen, speichert diese in der {@link Planer#shapesList}
-     * und lässt alle Formen neu zeichnen.
+     * Diese Methode liest eine Datei im Hintergrund und fügt die enthaltenen Formen schrittweise zum
+     * {@link Planer#shapeStore} hinzu.
+     * <p>Beginnt die Datei mit der Kennung des {@link BinaryShapeFormat Binärformats}, wird sie in diesem Format
+     * gelesen, sonst mit dem {@link ParallelXmlShapeReader} als XML-Datei. Die Formen im sichtbaren Bereich werden
+     * zuerst übernommen und gezeichnet, die übrigen folgen, sobald die Datei vollständig gelesen wurde. Bereits
+     * übernommene Formen können währenddessen bearbeitet werden (siehe {@link ShapeLoader}).</p>
      *
      * @param f Die Datei, aus der gelesen wird
      */
     private void replaceShapes(File f) {
-        InputStream ist;
-        try {
-            ist = new FileInputStream(f);
-        } catch (FileNotFoundException e) {
-            JOptionPane.showMessageDialog(p.getPane(), "The file you chose could not be found.", "File not found", JOptionPane.ERROR_MESSAGE);
+        if (loader != null) {
+            JOptionPane.showMessageDialog(p.getPane(), "Another file is still being loaded.", "Loading", JOptionPane.INFORMATION_MESSAGE);
             return;
         }
-        Reader r;
-        try {
-            r = new InputStreamReader(ist, "UTF-8");
-        } catch (UnsupportedEncodingException ignored) {
-            return;
+        double wx0 = p.toWindowX(0), wx1 = p.toWindowX(p.getWidth());
+        double wy0 = p.toWindowY(0), wy1 = p.toWindowY(p.getHeight());
+        double[] viewport = {Math.min(wx0, wx1), Math.min(wy0, wy1), Math.max(wx0, wx1), Math.max(wy0, wy1)};
+        loader = new ShapeLoader(f, viewport);
+        loader.execute();
+    }
+
+    /**
+     * Eine Auflistung aller möglichen Zustände dieser Klasse.
+     */
+    private enum State {
+        DRAG, RECTANGLE, SQUARE, RIGHT_TRIANGLE, RESIZE, DRAW, DELETE, SELECT // An dieser Stelle müssen neue Formen eingetragen werden.
+    }
+
+    /**
+     * Eine Auflistung der Gesten, die im Zustand {@link State#SELECT} mit der Maus ausgeführt werden.
+     */
+    private enum Gesture {
+        NONE, MARQUEE, MOVE, SCALE
+    }
+
+
+    /**
+     * Ein {@link SwingWorker}, der eine Datei im Hintergrund liest und die Formen blockweise übernimmt.
+     * <p>Die Datei wird auf Hintergrund-Threads in {@link ShapeBatch Blöcke} zerlegt. Blöcke mit Formen im sichtbaren
+     * Bereich werden sofort veröffentlicht, die übrigen erst, wenn die Datei vollständig gelesen wurde. Im Event
+     * Dispatch Thread werden die Blöcke in {@link Planer#shapeStore} und {@link Planer#shapeIndex} übernommen und
+     * gezeichnet. Damit Mausereignisse nicht warten müssen, wird pro Durchgang nur so lange übernommen, wie
+     * {@link ShapeLoader#FRAME_MILLIS} erlaubt.</p>
+     * <p>Für alle Formen der Datei wird zu Beginn ein Bereich von z-Positionen reserviert. Jede Form erhält die
+     * z-Position, die ihrer Position in der Datei entspricht, auch wenn ihr Block früher oder später übernommen wird.
+     * Am Ende werden die Plätze wieder nach der z-Position geordnet; solange eine Form bearbeitet wird, wird damit
+     * gewartet, weil sich dabei die Plätze ändern.</p>
+     * <p>Der Fortschritt wird in einem {@link ProgressMonitor} angezeigt. Wird dort abgebrochen, wird das Lesen beendet
+     * und alle Formen aus der Datei, die bereits übernommen wurden, werden wieder entfernt.</p>
+     */
+    private final class ShapeLoader extends SwingWorker<Void, ShapeBatch> {
+        /**
+         * Die Zeit in Millisekunden, die pro Durchgang im Event Dispatch Thread höchstens für das Übernehmen von
+         * Blöcken verwendet wird
+         */
+        private static final long FRAME_MILLIS = 16;
+        /**
+         * Die Datei, die gelesen wird
+         */
+        private final File f;
+        /**
+         * Der sichtbare Bereich als {@code minX, minY, maxX, maxY}
+         */
+        private final double[] viewport;
+        /**
+         * Die Anzeige des Fortschritts
+         */
+        private final ProgressMonitor monitor;
+        /**
+         * Die Blöcke außerhalb des sichtbaren Bereichs, die erst nach dem Lesen veröffentlicht werden
+         */
+        private final List<ShapeBatch> deferred = Collections.synchronizedList(new ArrayList<>());
+        /**
+         * Die veröffentlichten Blöcke, die noch nicht übernommen wurden; wird nur im Event Dispatch Thread verwendet
+         */
+        private final ArrayDeque<ShapeBatch> pending = new ArrayDeque<>();
+        /**
+         * Die Anzahl der Formen, die bereits gelesen wurden
+         */
+        private final AtomicInteger parsed = new AtomicInteger();
+        /**
+         * Die Anzahl aller Formen in der Datei
+         */
+        private volatile int total = 0;
+        /**
+         * Die Anzahl der Formen, die bereits übernommen wurden
+         */
+        private volatile int applied = 0;
+        /**
+         * Die erste reservierte z-Position oder {@code -1}, falls noch nichts reserviert wurde
+         */
+        private int zBase = -1;
+        /**
+         * Ob gerade ein Durchgang zum Übernehmen geplant ist
+         */
+        private boolean scheduled = false;
+
+        /**
+         * @param f        Die Datei, die gelesen wird
+         * @param viewport Der sichtbare Bereich als {@code minX, minY, maxX, maxY}
+         */
+        private ShapeLoader(File f, double[] viewport) {
+            this.f = f;
+            this.viewport = viewport;
+            monitor = new ProgressMonitor(p.getPane(), "Loading " + f.getName(), null, 0, 100);
+            addPropertyChangeListener(e -> {
+                if ("progress".equals(e.getPropertyName())) {
+                    monitor.setProgress((Integer) e.getNewValue());
+                    if (monitor.isCanceled()) {
+                        cancel(true);
+                        schedule();
+                    }
+                }
+            });
         }
-        InputSource iso;
-        iso = new InputSource(r);
-        iso.setEncoding("UTF-8");
 
-        SAXParser saxp;
-        try {
-            saxp = SAXParserFactory.newInstance().newSAXParser();
-        } catch (ParserConfigurationException | SAXException e) {
-            JOptionPane.showMessageDialog(p.getPane(), "The File you chose could not be parsed.", "Parser Error", JOptionPane.ERROR_MESSAGE);
-            return;
+        /**
+         * Diese Methode liest die Datei mit {@link ShapeLoader#read()} und misst dabei die Dauer.
+         *
+         * @return {@code null}
+         * @throws IOException  falls die Datei nicht gelesen werden konnte
+         * @throws SAXException falls die Datei kein gültiges XML enthält
+         */
+        @Override
+        protected Void doInBackground() throws IOException, SAXException {
+            Metrics.Span span = metrics.begin(Metrics.Phase.LOAD);
+            span.setDetail(f.getName());
+            try {
+                read();
+            } finally {
+                span.end();
+            }
+            return null;
         }
-        DefaultHandler dh = new DefaultHandler() {
-            Shape s;
-            double x0, y0, x1, y1;
-            String coord = "";
 
-            @Override
-            public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
-                if (qName.equalsIgnoreCase("shape")) {
-                    if (shapeClasses.containsKey(attributes.getValue("type"))) {
-                        s = getNewShapeInstance(attributes.getValue("type"), Double.parseDouble(attributes.getValue("x0")), Double.parseDouble(attributes.getValue("y0")), Double.parseDouble(attributes.getValue("x1")), Double.parseDouble(attributes.getValue("y1")));
+        /**
+         * Diese Methode liest die Datei und veröffentlicht die Blöcke.
+         *
+         * @throws IOException  falls die Datei nicht gelesen werden konnte
+         * @throws SAXException falls die Datei kein gültiges XML enthält
+         */
+        private void read() throws IOException, SAXException {
+            ShapeBatch.Sink sink = new ShapeBatch.Sink() {
+                @Override
+                public void begin(int total) {
+                    ShapeLoader.this.total = total;
+                }
+
+                @Override
+                public void accept(ShapeBatch batch) {
+                    if (isCancelled()) {
+                        throw new CancellationException();
+                    }
+                    parsed.addAndGet(batch.size);
+                    updateProgress();
+                    if (batch.visible) {
+                        publish(batch);
+                    } else {
+                        deferred.add(batch);
                     }
-//                    if (attributes.getValue("type").equalsIgnoreCase("rectangle")) {
-//                        s = new Rectangle(Double.parseDouble(attributes.getValue("x0")), Double.parseDouble(attributes.getValue("y0")), Double.parseDouble(attributes.getValue("x1")), Double.parseDouble(attributes.getValue("y1")));
-//                    } else if (attributes.getValue("type").equalsIgnoreCase("square")) {
-//                        s = new Square(Double.parseDouble(attributes.getValue("x0")), Double.parseDouble(attributes.getValue("y0")), Double.parseDouble(attributes.getValue("x1")), Double.parseDouble(attributes.getValue("y1")));
-//                    } else if (attributes.getValue("type").equalsIgnoreCase("right-triangle")) {
-//                        s = new RightTriangle(Double.parseDouble(attributes.getValue("x0")), Double.parseDouble(attributes.getValue("y0")), Double.parseDouble(attributes.getValue("x1")), Double.parseDouble(attributes.getValue("y1")));
-//                    }
                 }
+            };
+            if (BinaryShapeFormat.isBinary(f.toPath())) {
+                BinaryShapeFormat.read(f.toPath(), readerShapeFactory, viewport, sink);
+            } else {
+                ParallelXmlShapeReader.read(f.toPath(), readerShapeFactory, viewport, sink);
             }
+            synchronized (deferred) {
+                for (ShapeBatch b :
+                        deferred) {
+                    publish(b);
+                }
+                deferred.clear();
+            }
+        }
 
-            @Override
-            public void endElement(String uri, String localName, String qName) throws SAXException {
-                shapesList.add(s);
+        /**
+         * Diese Methode meldet den Fortschritt. Gelesene und übernommene Formen zählen jeweils zur Hälfte.
+         */
+        private void updateProgress() {
+            if (total > 0) {
+                setProgress((int) Math.min(100, 50L * (parsed.get() + applied) / total));
             }
+        }
 
-            @Override
-            public void characters(char[] ch, int start, int length) throws SAXException {
-                String s = new String(ch, start, length);
-                switch (coord) {
-                    case "x0":
-                        x0 = Double.parseDouble(s);
-                        break;
-                    case "y0":
-                        y0 = Double.parseDouble(s);
-                        break;
-                    case "x1":
-                        x1 = Double.parseDouble(s);
-                        break;
-                    case "y1":
-                        y1 = Double.parseDouble(s);
-                        break;
+        /**
+         * Diese Methode merkt sich veröffentlichte Blöcke und plant einen Durchgang zum Übernehmen.
+         *
+         * @param batches Die veröffentlichten Blöcke
+         */
+        @Override
+        protected void process(List<ShapeBatch> batches) {
+            if (!isCancelled()) {
+                pending.addAll(batches);
+                schedule();
+            }
+        }
+
+        /**
+         * Diese Methode wird aufgerufen, wenn die Datei vollständig gelesen wurde, ein Fehler aufgetreten ist oder
+         * abgebrochen wurde.
+         * <p>Bereits übernommene Formen bleiben bei einem Fehler erhalten.</p>
+         */
+        @Override
+        protected void done() {
+            try {
+                get();
+            } catch (InterruptedException | CancellationException ignored) {
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof SAXException) {
+                    JOptionPane.showMessageDialog(p.getPane(), "An error ocurred during parsing.", "Parsing Error", JOptionPane.ERROR_MESSAGE);
+                } else {
+                    JOptionPane.showMessageDialog(p.getPane(), "The file you chose could not be loaded.", "IO Error", JOptionPane.ERROR_MESSAGE);
                 }
             }
+            schedule();
+        }
+
+        /**
+         * Diese Methode plant einen Durchgang zum Übernehmen, falls noch keiner geplant ist.
+         * <p>Sie wird auch nach dem Loslassen der Maustaste aufgerufen, damit ein wegen einer Bearbeitung verschobener
+         * Abschluss nachgeholt wird.</p>
+         */
+        private void schedule() {
+            if (!scheduled) {
+                scheduled = true;
+                SwingUtilities.invokeLater(this::apply);
+            }
+        }
 
-            @Override
-            public void endDocument() throws SAXException {
+        /**
+         * Diese Methode übernimmt Blöcke, bis {@link ShapeLoader#FRAME_MILLIS} verstrichen sind, und zeichnet die
+         * Formen im sichtbaren Bereich in den Zwischenspeicher.
+         * <p>Eine Form, die gerade bearbeitet wird, wird danach wieder provisorisch darüber gezeichnet. Sind alle
+         * Blöcke übernommen und die Datei vollständig gelesen, werden die Plätze nach der z-Position geordnet.</p>
+         */
+        private void apply() {
+            scheduled = false;
+            if (monitor.isCanceled() && !isCancelled()) {
+                cancel(true);
+            }
+            if (isCancelled()) {
+                pending.clear();
+                if (!isEditing()) {
+                    rollback();
+                    finish();
+                }
+                return;
+            }
+            if (pending.isEmpty() && !isDone()) {
+                return;
+            }
+            if (zBase < 0) {
+                zBase = shapeStore.reserveZ(total);
+            }
+            if (!pending.isEmpty()) {
+                long deadline = System.nanoTime() + FRAME_MILLIS * 1_000_000;
+                p.recallGraphics();
+                p.setPaintMode();
+                p.setColor(penColor);
+                do {
+                    ShapeBatch b = pending.poll();
+                    short[] types = b.mapTypes(shapeStore);
+                    shapeStore.ensureCapacity(b.size);
+                    for (int i = 0; i < b.size; i++) {
+                        int slot = shapeStore.append(types[b.types[i]], b.coords[4 * i], b.coords[4 * i + 1],
+                                b.coords[4 * i + 2], b.coords[4 * i + 3], b.points(i), zBase + b.ordinals[i]);
+                        shapeIndex.insert(slot);
+                        if (b.visible) {
+                            shapeStore.view(slot).draw(canvas, false);
+                        }
+                    }
+                    applied += b.size;
+                } while (!pending.isEmpty() && System.nanoTime() < deadline);
+                p.storeGraphics();
+                drawOverlay();
+                if (currentShape != null && state != State.DELETE) {
+                    p.setColor(Color.red);
+                    currentShape.draw(canvas, true);
+                }
+                updateProgress();
+            }
+            if (!pending.isEmpty()) {
+                schedule();
+            } else if (isDone() && !isEditing()) {
+                if (shapeStore.sortByZ()) {
+                    shapeIndex.rebuild();
+                    clearSelection();
+                }
+                finish();
+                checkpoint(true);
+            }
+        }
+
+        /**
+         * Diese Methode entfernt alle Formen, die aus der Datei übernommen wurden, und zeichnet die übrigen neu.
+         */
+        private void rollback() {
+            if (zBase >= 0) {
+                for (int i = 0; i < shapeStore.size(); i++) {
+                    if (shapeStore.isAlive(i) && shapeStore.z(i) >= zBase && shapeStore.z(i) - zBase < total) {
+                        shapeStore.remove(i);
+                    }
+                }
+                if (shapeStore.needsCompaction()) {
+                    shapeStore.compact();
+                }
+                shapeStore.sortByZ();
+                shapeIndex.rebuild();
+                selection.clear();
                 redraw();
             }
-        };
+        }
 
-        try {
-            saxp.parse(iso, dh);
-        } catch (SAXException e) {
-            JOptionPane.showMessageDialog(p.getPane(), "An error ocurred during parsing.", "Parsing Error", JOptionPane.ERROR_MESSAGE);
-        } catch (IOException e) {
-            JOptionPane.showMessageDialog(p.getPane(), "The file you chose could not be loaded.", "IO Error", JOptionPane.ERROR_MESSAGE);
+        /**
+         * Diese Methode schließt die Anzeige des Fortschritts und gibt {@link Planer#loader} frei.
+         */
+        private void finish() {
+            monitor.close();
+            loader = null;
         }
     }
 
     /**
-     * Eine Auflistung aller möglichen Zustände dieser Klasse.
+     * Ein {@link SwingWorker}, der alle Formen im Hintergrund speichert.
+     * <p>Gespeichert wird eine {@link ShapeStore#snapshot() Kopie}, die beim Erzeugen angelegt wird, so dass
+     * währenddessen weiter gezeichnet werden kann. Die Datei wird zuerst unter einem temporären Namen im selben
+     * Verzeichnis geschrieben und erst danach umbenannt; bei einem Fehler oder Abbruch bleibt eine vorhandene Datei
+     * deshalb unverändert.</p>
      */
-    private enum State {
-        DRAG, RECTANGLE, SQUARE, RIGHT_TRIANGLE, RESIZE, DRAW, DELETE // An dieser Stelle müssen neue Formen eingetragen werden.
+    private final class ShapeSaver extends SwingWorker<Void, Void> {
+        /**
+         * Die Datei, in der gespeichert wird
+         */
+        private final File f;
+        /**
+         * Die Kopie der Formen, die gespeichert wird
+         */
+        private final ShapeStore snapshot;
+        /**
+         * Die Anzeige des Fortschritts
+         */
+        private final ProgressMonitor monitor;
+
+        /**
+         * @param f Die Datei, in der gespeichert wird
+         */
+        private ShapeSaver(File f) {
+            this.f = f;
+            snapshot = shapeStore.snapshot(readerShapeFactory);
+            monitor = new ProgressMonitor(p.getPane(), "Saving " + f.getName(), null, 0, 100);
+            addPropertyChangeListener(e -> {
+                if ("progress".equals(e.getPropertyName())) {
+                    monitor.setProgress((Integer) e.getNewValue());
+                    if (monitor.isCanceled()) {
+                        cancel(true);
+                    }
+                }
+            });
+        }
+
+        /**
+         * Diese Methode schreibt die Kopie mit {@link ShapeSaver#write()} und misst dabei die Dauer.
+         *
+         * @return {@code null}
+         * @throws IOException        falls die Datei nicht geschrieben werden konnte
+         * @throws XMLStreamException falls beim Schreiben der XML-Datei ein Fehler auftritt
+         */
+        @Override
+        protected Void doInBackground() throws IOException, XMLStreamException {
+            Metrics.Span span = metrics.begin(Metrics.Phase.SAVE);
+            span.setDetail(f.getName());
+            try {
+                write();
+            } finally {
+                span.end();
+            }
+            return null;
+        }
+
+        /**
+         * Diese Methode schreibt die Kopie in eine temporäre Datei und ersetzt danach die Zieldatei.
+         * <p>Die Kopie wird erst hier nach der z-Position sortiert, so dass der Event Dispatch Thread dafür nicht
+         * warten muss.</p>
+         *
+         * @throws IOException        falls die Datei nicht geschrieben werden konnte
+         * @throws XMLStreamException falls beim Schreiben der XML-Datei ein Fehler auftritt
+         */
+        private void write() throws IOException, XMLStreamException {
+            snapshot.sortByZ();
+            Path target = f.toPath().toAbsolutePath();
+            Path tmp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
+            int count = Math.max(1, snapshot.count());
+            IntConsumer progress = written -> {
+                if (isCancelled()) {
+                    throw new CancellationException();
+                }
+                setProgress((int) (100L * written / count));
+            };
+            try {
+                if (BinaryShapeFormat.hasExtension(target)) {
+                    BinaryShapeFormat.write(snapshot, tmp, progress);
+                } else {
+                    try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp))) {
+                        XmlShapeWriter.write(snapshot, out, progress);
+                    }
+                }
+                replace(tmp, target);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        }
+
+        /**
+         * Diese Methode zeigt einen Fehler an, falls das Speichern fehlgeschlagen ist.
+         */
+        @Override
+        protected void done() {
+            monitor.close();
+            try {
+                get();
+            } catch (InterruptedException | CancellationException ignored) {
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof XMLStreamException) {
+                    JOptionPane.showMessageDialog(p.getPane(), "An error ocurred during writing.", "Writing Error", JOptionPane.ERROR_MESSAGE);
+                } else {
+                    JOptionPane.showMessageDialog(p.getPane(), "The file you chose could not be written.", "IO Error", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }
     }
 
+    /**
+     * Diese Methode ersetzt eine Datei durch eine vollständig geschriebene temporäre Datei, wenn möglich atomar.
+     *
+     * @param tmp    Die temporäre Datei
+     * @param target Die Datei, die ersetzt wird
+     * @throws IOException falls die Datei nicht ersetzt werden konnte
+     */
+    private static void replace(Path tmp, Path target) throws IOException {
+        try {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
 
     /**
-     * Ein {@link ClassLoader}, der nur Klassen aus dem {@code shapes}-Package lädt.
+     * Ein {@link SwingWorker}, der ein Bild im Hintergrund mit einem {@link TileExporter} exportiert.
+     * <p>Wie beim {@link ShapeSaver} wird zuerst eine temporäre Datei geschrieben, so dass eine vorhandene Datei bei
+     * einem Fehler oder Abbruch unverändert bleibt.</p>
      */
-    private final class ShapeClassLoader extends ClassLoader {
+    private final class ImageSaver extends SwingWorker<Void, Void> {
+        /**
+         * Die Datei, in der das Bild gespeichert wird
+         */
+        private final File f;
+        /**
+         * Der Exporter, der das Bild zeichnet
+         */
+        private final TileExporter exporter;
+        /**
+         * Die Höhe des Bildes in Pixeln
+         */
+        private final int height;
+        /**
+         * Die Anzeige des Fortschritts
+         */
+        private final ProgressMonitor monitor;
+
+        /**
+         * @param f        Die Datei, in der das Bild gespeichert wird
+         * @param exporter Der Exporter, der das Bild zeichnet
+         * @param height   Die Höhe des Bildes in Pixeln
+         */
+        private ImageSaver(File f, TileExporter exporter, int height) {
+            this.f = f;
+            this.exporter = exporter;
+            this.height = height;
+            monitor = new ProgressMonitor(p.getPane(), "Exporting " + f.getName(), null, 0, 100);
+            addPropertyChangeListener(e -> {
+                if ("progress".equals(e.getPropertyName())) {
+                    monitor.setProgress((Integer) e.getNewValue());
+                    if (monitor.isCanceled()) {
+                        cancel(true);
+                    }
+                }
+            });
+        }
+
         /**
-         * Diese Methode lädt nur Klassen, die im {@code shapes}-Package liegen.
+         * Diese Methode schreibt das Bild in eine temporäre Datei und ersetzt danach die Zieldatei.
          *
-         * @param name Der Name, der Klasse, die geladen werden soll
-         * @return Die Klasse, die geladen werden sollte, falls sie gefunden wurde
-         * @throws ClassNotFoundException falls die Klasse nicht gefunden werden konnte
+         * @return {@code null}
+         * @throws IOException falls die Datei nicht geschrieben werden konnte
          */
         @Override
-        protected Class<?> findClass(String name) throws ClassNotFoundException {
-            name = "planer.shapes." + name;
-            String file = name.replace('.', File.separatorChar) + ".class";
-            byte[] b;
+        protected Void doInBackground() throws IOException {
+            Metrics.Span span = metrics.begin(Metrics.Phase.EXPORT);
+            span.setDetail(f.getName());
+            Path target = f.toPath().toAbsolutePath();
+            Path tmp = Files.createTempFile(target.getParent(), target.getFileName().toString(), ".tmp");
             try {
-                b = loadClassFileData(file);
-                Class c = defineClass(name, b, 0, b.length);
-                resolveClass(c);
-                return c;
-            } catch (IOException e) {
-                JOptionPane.showMessageDialog(p.getPane(), name + "could not be loaded. Please provide the correct file or remove this class from shapes.xml", "File not found", JOptionPane.ERROR_MESSAGE);
+                exporter.write(tmp, rows -> {
+                    if (isCancelled()) {
+                        throw new CancellationException();
+                    }
+                    setProgress((int) (100L * rows / height));
+                });
+                replace(tmp, target);
+            } finally {
+                Files.deleteIfExists(tmp);
+                span.end();
             }
-            throw new ClassNotFoundException();
+            return null;
         }
 
         /**
-         * Diese Methode lädt die Binärdaten aus einer {@code .class}-Datei
-         *
-         * @param name Die Datei, die geladen werden soll
-         * @return Die Binärdaten der Datei
-         * @throws IOException falls die Datei nicht gelesen werden konnte
-         */
-        private byte[] loadClassFileData(String name) throws IOException {
-            InputStream stream = getClass().getClassLoader().getResourceAsStream(
-                    name);
-            int size = stream.available();
-            byte buff[] = new byte[size];
-            DataInputStream in = new DataInputStream(stream);
-            in.readFully(buff);
-            in.close();
-            return buff;
-        }
-    }
-}
\ No newline at end of file
+         * Diese Methode zeigt einen Fehler an, falls der Export fehlgeschlagen ist.
+         */
+        @Override
+        protected void done() {
+            monitor.close();
+            try {
+                get();
+            } catch (InterruptedException | CancellationException ignored) {
+            } catch (ExecutionException e) {
+                JOptionPane.showMessageDialog(p.getPane(), "The image could not be written.", "IO Error", JOptionPane.ERROR_MESSAGE);
+            }
+        }
+    }
+}
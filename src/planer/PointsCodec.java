@@ -0,0 +1,92 @@
+package planer;
+
+import planer.shapes.Points;
+
+import java.nio.ByteBuffer;
+import java.util.Base64;
+
+/**
+ * Diese Klasse schreibt und liest die {@link Points Punkte} einer Form in einer kompakten Binärdarstellung.
+ * <p>Die Darstellung besteht aus dem relativen Abstand, in dem die Form getroffen wird, als {@code float}, der Anzahl
+ * der Punkte als {@code int} und den relativen Koordinaten der Punkte als je zwei vorzeichenlose 16-Bit-Werte. Ein
+ * Punkt belegt damit vier Bytes. Sie wird im {@link BinaryShapeFormat} und im {@link EditJournal} direkt und im
+ * XML-Format als Base64-Text verwendet.</p>
+ */
+final class PointsCodec {
+    /**
+     * Die Länge der Darstellung ohne die Punkte
+     */
+    static final int HEADER_SIZE = Float.BYTES + Integer.BYTES;
+    /**
+     * Die Länge eines Punkts
+     */
+    static final int POINT_SIZE = 2 * Character.BYTES;
+
+    /**
+     * Diese Klasse enthält nur statische Methoden.
+     */
+    private PointsCodec() {
+    }
+
+    /**
+     * @param points Die Punkte
+     * @return Die Länge ihrer Darstellung in Bytes
+     */
+    static int bytes(Points points) {
+        return HEADER_SIZE + points.size() * POINT_SIZE;
+    }
+
+    /**
+     * Diese Methode schreibt die Punkte in einen Puffer, der genug Platz haben muss.
+     *
+     * @param b      Der Puffer
+     * @param points Die Punkte
+     */
+    static void put(ByteBuffer b, Points points) {
+        b.putFloat(points.getTolerance()).putInt(points.size());
+        for (int i = 0; i < points.size(); i++) {
+            b.putChar((char) points.getU(i)).putChar((char) points.getV(i));
+        }
+    }
+
+    /**
+     * Diese Methode liest Punkte aus einem Puffer.
+     *
+     * @param b Der Puffer
+     * @return Die Punkte
+     * @throws IllegalArgumentException falls der Puffer keine gültigen Punkte enthält
+     */
+    static Points get(ByteBuffer b) {
+        if (b.remaining() < HEADER_SIZE) {
+            throw new IllegalArgumentException("Truncated points");
+        }
+        float tolerance = b.getFloat();
+        int count = b.getInt();
+        if (count < 0 || count > b.remaining() / POINT_SIZE) {
+            throw new IllegalArgumentException("Invalid number of points " + count);
+        }
+        char[] coords = new char[2 * count];
+        b.asCharBuffer().get(coords);
+        b.position(b.position() + count * POINT_SIZE);
+        return new Points(coords, tolerance);
+    }
+
+    /**
+     * @param points Die Punkte
+     * @return Die Darstellung der Punkte als Base64-Text
+     */
+    static String encode(Points points) {
+        ByteBuffer b = ByteBuffer.allocate(bytes(points));
+        put(b, points);
+        return Base64.getEncoder().encodeToString(b.array());
+    }
+
+    /**
+     * @param text Die Darstellung von Punkten als Base64-Text
+     * @return Die Punkte
+     * @throws IllegalArgumentException falls der Text keine gültigen Punkte enthält
+     */
+    static Points decode(String text) {
+        return get(ByteBuffer.wrap(Base64.getDecoder().decode(text)));
+    }
+}
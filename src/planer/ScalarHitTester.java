@@ -0,0 +1,93 @@
+package planer;
+
+/**
+ * Dieser {@link HitTester} überprüft die gepackten Kandidaten Form für Form.
+ * <p>Er wird verwendet, wenn die Vector API nicht verfügbar ist, und von {@code VectorHitTester} für die Kandidaten,
+ * die nicht mehr einen ganzen Vektor füllen.</p>
+ */
+class ScalarHitTester extends HitTester {
+    /**
+     * @param store Die Formen, die überprüft werden
+     */
+    ScalarHitTester(ShapeStore store) {
+        super(store);
+    }
+
+    @Override
+    void testBoxes(double x, double y) {
+        testBoxes(x, y, 0);
+    }
+
+    @Override
+    void testCircles(double x, double y) {
+        testCircles(x, y, 0);
+    }
+
+    @Override
+    void testRightTriangles(double x, double y) {
+        testRightTriangles(x, y, 0);
+    }
+
+    /**
+     * Diese Methode überprüft die Rechtecke und Quadrate ab einem Index.
+     *
+     * @param x    Die x-Koordinate
+     * @param y    Die y-Koordinate
+     * @param from Der Index des ersten Kandidaten
+     */
+    final void testBoxes(double x, double y, int from) {
+        Batch b = boxes;
+        for (int i = from; i < b.size; i++) {
+            if (x >= Math.min(b.x0[i], b.x1[i]) && x <= Math.max(b.x0[i], b.x1[i])
+                    && y >= Math.min(b.y0[i], b.y1[i]) && y <= Math.max(b.y0[i], b.y1[i])) {
+                hit(b.slots[i]);
+            }
+        }
+    }
+
+    /**
+     * Diese Methode überprüft die Kreise ab einem Index.
+     *
+     * @param x    Die x-Koordinate
+     * @param y    Die y-Koordinate
+     * @param from Der Index des ersten Kandidaten
+     */
+    final void testCircles(double x, double y, int from) {
+        Batch b = circles;
+        for (int i = from; i < b.size; i++) {
+            double cx = b.x0[i] + (b.x1[i] - b.x0[i]) / 2, cy = b.y0[i] + (b.y1[i] - b.y0[i]) / 2;
+            double r2 = (b.x0[i] - cx) * (b.x0[i] - cx) + (b.y0[i] - cy) * (b.y0[i] - cy);
+            double dx = x - cx, dy = y - cy;
+            if (dx * dx + dy * dy <= r2) {
+                hit(b.slots[i]);
+            }
+        }
+    }
+
+    /**
+     * Diese Methode überprüft die rechtwinkligen Dreiecke ab einem Index.
+     * <p>Die vier Fälle von {@link planer.shapes.RightTriangle#isHit(double, double)} werden ohne Verzweigung
+     * zusammengefasst: Der Bereich in x-Richtung ist {@code [x0, x1]}, falls {@code x0 < x1} und {@code y0 != y1},
+     * sonst {@code [x1, x0]}. Die Form liegt oberhalb von {@code y0}, falls {@code y0 < y1} und {@code x0 != x1},
+     * sonst unterhalb. Der Strahlensatz liefert in allen Fällen denselben Wert, da {@code (x0 - x) / (x0 - x1)} und
+     * {@code (x - x0) / (x1 - x0)} auch in Gleitkommazahlen gleich sind.</p>
+     *
+     * @param x    Die x-Koordinate
+     * @param y    Die y-Koordinate
+     * @param from Der Index des ersten Kandidaten
+     */
+    final void testRightTriangles(double x, double y, int from) {
+        Batch b = rightTriangles;
+        for (int i = from; i < b.size; i++) {
+            double x0 = b.x0[i], y0 = b.y0[i], x1 = b.x1[i], y1 = b.y1[i];
+            boolean ascending = x0 < x1 && (y0 < y1 || y0 > y1);
+            boolean inX = ascending ? x >= x0 && x <= x1 : x <= x0 && x >= x1;
+            boolean above = y0 < y1 && (x0 < x1 || x0 > x1);
+            double edge = y0 + (y1 - y0) * ((x - x0) / (x1 - x0));
+            boolean inY = above ? y >= y0 && y <= edge : y <= y0 && y >= edge;
+            if (inX && inY) {
+                hit(b.slots[i]);
+            }
+        }
+    }
+}
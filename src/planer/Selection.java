@@ -0,0 +1,140 @@
+package planer;
+
+import planer.shapes.Shape;
+
+import java.util.Arrays;
+
+/**
+ * Diese Klasse verwaltet die Formen, die mit einem Auswahlrechteck ausgewählt wurden.
+ * <p>Die Auswahl besteht aus den Plätzen der Formen im {@link ShapeStore}, aufsteigend sortiert. Sie wird über den
+ * {@link ShapeIndex räumlichen Index} gefunden, der Aufwand hängt deshalb nur von der Anzahl der Formen im
+ * Auswahlrechteck ab. Ausgewählt werden nur Formen, deren umschließendes Rechteck vollständig im Auswahlrechteck
+ * liegt; dafür genügen die Rechtecke im Index (siehe {@link ShapeIndex#queryWithin(double, double, double, double)}).
+ * Mit einem Klick wird die oberste Form an einer Position ausgewählt.</p>
+ * <p>Da sich beim Verdichten und Sortieren des {@link ShapeStore}s die Plätze ändern, muss die Auswahl danach
+ * verworfen werden.</p>
+ */
+final class Selection {
+    /**
+     * Eine leere Auswahl
+     */
+    private static final int[] EMPTY = new int[0];
+    /**
+     * Die Plätze der ausgewählten Formen, aufsteigend sortiert
+     */
+    private int[] slots = EMPTY;
+    /**
+     * Die Grenzen des Rechtecks, das alle ausgewählten Formen umschließt
+     */
+    private double minX, minY, maxX, maxY;
+
+    /**
+     * Diese Methode ersetzt die Auswahl durch alle Formen, die vollständig in einem Rechteck liegen.
+     *
+     * @param store Die Formen
+     * @param index Der räumliche Index über {@code store}
+     * @param minX  Die linke Grenze des Rechtecks
+     * @param minY  Die untere Grenze des Rechtecks
+     * @param maxX  Die rechte Grenze des Rechtecks
+     * @param maxY  Die obere Grenze des Rechtecks
+     */
+    void select(ShapeStore store, ShapeIndex index, double minX, double minY, double maxX, double maxY) {
+        slots = index.queryWithin(minX, minY, maxX, maxY);
+        Arrays.sort(slots);
+        update(store);
+    }
+
+    /**
+     * Diese Methode ersetzt die Auswahl durch eine einzelne Form, zum Beispiel die oberste Form an einer Position.
+     *
+     * @param store Die Formen
+     * @param slot  Der Platz der Form oder {@code -1}, um nichts auszuwählen
+     */
+    void select(ShapeStore store, int slot) {
+        slots = slot >= 0 ? new int[]{slot} : EMPTY;
+        update(store);
+    }
+
+    /**
+     * Diese Methode berechnet das umschließende Rechteck neu, nachdem die ausgewählten Formen verändert wurden.
+     *
+     * @param store Die Formen
+     */
+    void update(ShapeStore store) {
+        minX = minY = Double.POSITIVE_INFINITY;
+        maxX = maxY = Double.NEGATIVE_INFINITY;
+        for (int slot :
+                slots) {
+            Shape s = store.view(slot);
+            minX = Math.min(minX, s.getMinX());
+            minY = Math.min(minY, s.getMinY());
+            maxX = Math.max(maxX, s.getMaxX());
+            maxY = Math.max(maxY, s.getMaxY());
+        }
+    }
+
+    /**
+     * Diese Methode hebt die Auswahl auf.
+     */
+    void clear() {
+        slots = EMPTY;
+        update(null);
+    }
+
+    /**
+     * @param slot Ein Platz oder {@code -1}
+     * @return Ob die Form auf dem Platz ausgewählt ist
+     */
+    boolean contains(int slot) {
+        return slot >= 0 && Arrays.binarySearch(slots, slot) >= 0;
+    }
+
+    /**
+     * @return Ob keine Form ausgewählt ist
+     */
+    boolean isEmpty() {
+        return slots.length == 0;
+    }
+
+    /**
+     * @return Die Anzahl der ausgewählten Formen
+     */
+    int size() {
+        return slots.length;
+    }
+
+    /**
+     * @return Die Plätze der ausgewählten Formen, aufsteigend sortiert; das Feld darf nicht verändert werden
+     */
+    int[] getSlots() {
+        return slots;
+    }
+
+    /**
+     * @return Die linke Grenze des umschließenden Rechtecks
+     */
+    double getMinX() {
+        return minX;
+    }
+
+    /**
+     * @return Die untere Grenze des umschließenden Rechtecks
+     */
+    double getMinY() {
+        return minY;
+    }
+
+    /**
+     * @return Die rechte Grenze des umschließenden Rechtecks
+     */
+    double getMaxX() {
+        return maxX;
+    }
+
+    /**
+     * @return Die obere Grenze des umschließenden Rechtecks
+     */
+    double getMaxY() {
+        return maxY;
+    }
+}
@@ -0,0 +1,283 @@
+package planer;
+
+import planer.shapes.Points;
+import planer.shapes.Shape;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Ein Block gelesener Formen, der von einem Thread zum Lesen an den {@link ShapeStore} übergeben wird.
+ * <p>Die Formen werden wie im {@link ShapeStore} spaltenweise gespeichert. Die Typnummern beziehen sich auf die
+ * eigene Typtabelle des Blocks. Zu jeder Form wird ihre Position in der Datei gespeichert, damit die z-Reihenfolge
+ * auch dann erhalten bleibt, wenn die Blöcke nicht in der Reihenfolge der Datei übernommen werden.</p>
+ */
+final class ShapeBatch {
+    /**
+     * Die Namen der Typen dieses Blocks, sortiert nach ihrer Typnummer
+     */
+    final List<String> typeNames;
+    /**
+     * Ob die Formen dieses Blocks im sichtbaren Bereich liegen
+     */
+    final boolean visible;
+    /**
+     * Die Typnummern der Formen
+     */
+    short[] types;
+    /**
+     * Die Koordinaten der Formen, jeweils vier hintereinander
+     */
+    double[] coords;
+    /**
+     * Die Punkte der Formen oder {@code null}, solange keine Form des Blocks Punkte hat
+     */
+    private Points[] points;
+    /**
+     * Die Positionen der Formen in der Datei
+     */
+    int[] ordinals;
+    /**
+     * Die Anzahl der Formen
+     */
+    int size = 0;
+
+    /**
+     * @param typeNames Die Namen der Typen dieses Blocks
+     * @param visible   Ob die Formen dieses Blocks im sichtbaren Bereich liegen
+     * @param capacity  Die erwartete Anzahl an Formen
+     */
+    private ShapeBatch(List<String> typeNames, boolean visible, int capacity) {
+        this.typeNames = typeNames;
+        this.visible = visible;
+        types = new short[capacity];
+        coords = new double[4 * capacity];
+        ordinals = new int[capacity];
+    }
+
+    /**
+     * Diese Methode fügt eine Form mit ihren aktuellen Koordinaten und ihren Punkten hinzu.
+     *
+     * @param type    Die Typnummer innerhalb dieses Blocks
+     * @param s       Die Form
+     * @param ordinal Die Position der Form in der Datei
+     */
+    private void add(short type, Shape s, int ordinal) {
+        if (size == types.length) {
+            int capacity = Math.max(16, 2 * size);
+            types = Arrays.copyOf(types, capacity);
+            coords = Arrays.copyOf(coords, 4 * capacity);
+            ordinals = Arrays.copyOf(ordinals, capacity);
+            if (points != null) {
+                points = Arrays.copyOf(points, capacity);
+            }
+        }
+        Points p = s.getPoints();
+        if (p != null) {
+            if (points == null) {
+                points = new Points[types.length];
+            }
+            points[size] = p;
+        }
+        types[size] = type;
+        coords[4 * size] = s.getX0();
+        coords[4 * size + 1] = s.getY0();
+        coords[4 * size + 2] = s.getX1();
+        coords[4 * size + 3] = s.getY1();
+        ordinals[size] = ordinal;
+        size++;
+    }
+
+    /**
+     * @param i Der Index einer Form in diesem Block
+     * @return Die Punkte der Form oder {@code null}
+     */
+    Points points(int i) {
+        return points != null ? points[i] : null;
+    }
+
+    /**
+     * Diese Methode übersetzt die Typtabelle des Blocks in die Typnummern des {@link ShapeStore}s.
+     *
+     * @param store Die Formen, in die der Block übernommen werden soll
+     * @return Die Typnummern im {@link ShapeStore}, sortiert nach den Typnummern dieses Blocks
+     */
+    short[] mapTypes(ShapeStore store) {
+        short[] mapped = new short[typeNames.size()];
+        for (int t = 0; t < mapped.length; t++) {
+            mapped[t] = store.typeId(typeNames.get(t));
+        }
+        return mapped;
+    }
+
+    /**
+     * Der Empfänger der Blöcke. Seine Methoden können gleichzeitig von mehreren Threads aufgerufen werden.
+     */
+    interface Sink {
+        /**
+         * Diese Methode wird aufgerufen, bevor der erste Block übergeben wird.
+         *
+         * @param total Die Anzahl aller Formen in der Datei; die Positionen der Formen liegen zwischen {@code 0} und
+         *              {@code total}
+         */
+        void begin(int total);
+
+        /**
+         * Diese Methode übernimmt einen vollständigen Block.
+         *
+         * @param batch Der Block
+         */
+        void accept(ShapeBatch batch);
+    }
+
+    /**
+     * Diese Klasse füllt Blöcke mit gelesenen Formen und übergibt sie an einen {@link Sink}.
+     * <p>Sie wird von genau einem Thread verwendet. Für jeden Typ wird eine Form erzeugt, mit der die Koordinaten wie
+     * im Konstruktor angepasst werden und das umschließende Rechteck bestimmt wird. Ist ein sichtbarer Bereich
+     * angegeben, werden die Formen in diesem Bereich in eigenen Blöcken gesammelt.</p>
+     */
+    static final class Builder {
+        /**
+         * Die Funktion, die eine neue Form erzeugt oder {@code null} zurückgibt
+         */
+        private final Function<String, Shape> factory;
+        /**
+         * Der Empfänger der Blöcke
+         */
+        private final Sink sink;
+        /**
+         * Der sichtbare Bereich als {@code minX, minY, maxX, maxY} oder {@code null}
+         */
+        private final double[] viewport;
+        /**
+         * Ob die Koordinaten angepasst werden müssen
+         */
+        private final boolean normalize;
+        /**
+         * Die Anzahl an Formen, ab der ein Block übergeben wird
+         */
+        private final int batchSize;
+        /**
+         * Die Namen der bisher gelesenen Typen
+         */
+        private final ArrayList<String> typeNames = new ArrayList<>();
+        /**
+         * Die Zuordnung der Typnamen zu ihren Typnummern
+         */
+        private final HashMap<String, Short> typeIds = new HashMap<>();
+        /**
+         * Eine Form pro Typ oder {@code null} für unbekannte Typen
+         */
+        private final ArrayList<Shape> views = new ArrayList<>();
+        /**
+         * Die Blöcke, die gerade gefüllt werden
+         */
+        private ShapeBatch visibleBatch, otherBatch;
+
+        /**
+         * @param factory   Die Funktion, die eine neue Form erzeugt oder {@code null} zurückgibt
+         * @param sink      Der Empfänger der Blöcke
+         * @param viewport  Der sichtbare Bereich als {@code minX, minY, maxX, maxY} oder {@code null}
+         * @param normalize Ob die Koordinaten wie im Konstruktor der Form angepasst werden müssen
+         * @param batchSize Die Anzahl an Formen, ab der ein Block übergeben wird
+         */
+        Builder(Function<String, Shape> factory, Sink sink, double[] viewport, boolean normalize, int batchSize) {
+            this.factory = factory;
+            this.sink = sink;
+            this.viewport = viewport;
+            this.normalize = normalize;
+            this.batchSize = batchSize;
+        }
+
+        /**
+         * Diese Methode liefert die Typnummer eines Typs innerhalb der Blöcke dieses Builders.
+         *
+         * @param name Der Name des Typs
+         * @return Die Typnummer
+         */
+        short typeId(String name) {
+            Short id = typeIds.get(name);
+            if (id == null) {
+                id = (short) typeNames.size();
+                typeNames.add(name);
+                typeIds.put(name, id);
+                views.add(factory.apply(name));
+            }
+            return id;
+        }
+
+        /**
+         * Diese Methode fügt eine gelesene Form hinzu. Formen unbekannter Typen werden übersprungen.
+         *
+         * @param name    Der Name des Typs
+         * @param x0      Die x0-Koordinate
+         * @param y0      Die y0-Koordinate
+         * @param x1      Die x1-Koordinate
+         * @param y1      Die y1-Koordinate
+         * @param points  Die Punkte der Form oder {@code null}
+         * @param ordinal Die Position der Form in der Datei
+         */
+        void add(String name, double x0, double y0, double x1, double y1, Points points, int ordinal) {
+            add(typeId(name), x0, y0, x1, y1, points, ordinal);
+        }
+
+        /**
+         * Diese Methode fügt eine gelesene Form hinzu. Formen unbekannter Typen werden übersprungen.
+         *
+         * @param type    Die Typnummer, die von {@link Builder#typeId(String)} vergeben wurde
+         * @param x0      Die x0-Koordinate
+         * @param y0      Die y0-Koordinate
+         * @param x1      Die x1-Koordinate
+         * @param y1      Die y1-Koordinate
+         * @param points  Die Punkte der Form oder {@code null}
+         * @param ordinal Die Position der Form in der Datei
+         */
+        void add(short type, double x0, double y0, double x1, double y1, Points points, int ordinal) {
+            Shape v = views.get(type);
+            if (v == null) {
+                return;
+            }
+            v.setPoints(points);
+            if (normalize) {
+                v.setCoords(x0, y0, x1, y1, false);
+            } else {
+                v.bind(x0, y0, x1, y1);
+            }
+            boolean visible = viewport != null && v.getMinX() <= viewport[2] && v.getMaxX() >= viewport[0]
+                    && v.getMinY() <= viewport[3] && v.getMaxY() >= viewport[1];
+            ShapeBatch b = visible ? visibleBatch : otherBatch;
+            if (b == null) {
+                b = new ShapeBatch(new ArrayList<>(typeNames), visible, batchSize);
+            } else if (b.typeNames.size() < typeNames.size()) {
+                b.typeNames.addAll(typeNames.subList(b.typeNames.size(), typeNames.size()));
+            }
+            b.add(type, v, ordinal);
+            if (b.size >= batchSize) {
+                sink.accept(b);
+                b = null;
+            }
+            if (visible) {
+                visibleBatch = b;
+            } else {
+                otherBatch = b;
+            }
+        }
+
+        /**
+         * Diese Methode übergibt die Blöcke, die noch nicht voll sind.
+         */
+        void finish() {
+            if (visibleBatch != null) {
+                sink.accept(visibleBatch);
+                visibleBatch = null;
+            }
+            if (otherBatch != null) {
+                sink.accept(otherBatch);
+                otherBatch = null;
+            }
+        }
+    }
+}
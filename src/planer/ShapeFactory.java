@@ -0,0 +1,114 @@
+package planer;
+
+import planer.shapes.Shape;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Modifier;
+
+/**
+ * Diese Klasse erzeugt Formen einer Form-Klasse über einen einmal aufgelösten {@link MethodHandle} auf ihren
+ * Konstruktor.
+ * <p>Die Form-Klasse wird beim {@link ShapeFactory#of(String, Class) Registrieren} vollständig überprüft. Danach
+ * kostet das Erzeugen einer Form nur noch den Aufruf des Konstruktors, ohne dass der Konstruktor bei jedem Aufruf
+ * per Reflection gesucht wird.</p>
+ */
+final class ShapeFactory {
+    /**
+     * Der Typ des Konstruktors, den jede Form-Klasse haben muss
+     */
+    private static final MethodType CONSTRUCTOR = MethodType.methodType(void.class, double.class, double.class,
+            double.class, double.class);
+    /**
+     * Der Typ, auf den der Konstruktor angepasst wird, damit er mit {@link MethodHandle#invokeExact} aufgerufen werden
+     * kann
+     */
+    private static final MethodType FACTORY = MethodType.methodType(Shape.class, double.class, double.class,
+            double.class, double.class);
+    /**
+     * Der Name der Form, wie er in {@code shapeClasses.xml} steht
+     */
+    private final String name;
+    /**
+     * Die Form-Klasse
+     */
+    private final Class<? extends Shape> shapeClass;
+    /**
+     * Der Konstruktor der Form-Klasse
+     */
+    private final MethodHandle constructor;
+
+    /**
+     * @param name        Der Name der Form
+     * @param shapeClass  Die Form-Klasse
+     * @param constructor Der Konstruktor mit dem Typ {@link ShapeFactory#FACTORY}
+     */
+    private ShapeFactory(String name, Class<? extends Shape> shapeClass, MethodHandle constructor) {
+        this.name = name;
+        this.shapeClass = shapeClass;
+        this.constructor = constructor;
+    }
+
+    /**
+     * Diese Methode überprüft eine Form-Klasse und löst ihren Konstruktor auf.
+     * <p>Die Klasse muss öffentlich und nicht abstrakt sein, von {@link Shape} erben und einen öffentlichen
+     * Konstruktor mit vier {@code double}-Parametern haben. Zur Probe wird eine Form erzeugt.</p>
+     *
+     * @param name Der Name der Form, wie er in {@code shapeClasses.xml} steht
+     * @param c    Die Klasse
+     * @return Die Fabrik für die Klasse
+     * @throws IllegalArgumentException falls die Klasse den Regeln für Form-Klassen nicht entspricht
+     */
+    static ShapeFactory of(String name, Class<?> c) {
+        if (!Shape.class.isAssignableFrom(c)) {
+            throw new IllegalArgumentException(c.getName() + " does not extend " + Shape.class.getName());
+        }
+        if (Modifier.isAbstract(c.getModifiers()) || !Modifier.isPublic(c.getModifiers())) {
+            throw new IllegalArgumentException(c.getName() + " is abstract or not public");
+        }
+        MethodHandle constructor;
+        try {
+            constructor = MethodHandles.publicLookup().findConstructor(c, CONSTRUCTOR).asType(FACTORY);
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IllegalArgumentException(c.getName() + " has no public constructor (double, double, double, double)", e);
+        }
+        ShapeFactory f = new ShapeFactory(name, c.asSubclass(Shape.class), constructor);
+        f.create(0, 0, 0, 0);
+        return f;
+    }
+
+    /**
+     * Diese Methode erzeugt eine neue Form.
+     *
+     * @param x0 Die x0-Koordinate
+     * @param y0 Die y0-Koordinate
+     * @param x1 Die x1-Koordinate
+     * @param y1 Die y1-Koordinate
+     * @return Die neue Form
+     * @throws IllegalArgumentException falls der Konstruktor der Form-Klasse eine Ausnahme geworfen hat
+     */
+    Shape create(double x0, double y0, double x1, double y1) {
+        try {
+            return (Shape) constructor.invokeExact(x0, y0, x1, y1);
+        } catch (Error e) {
+            throw e;
+        } catch (Throwable t) {
+            throw new IllegalArgumentException("The constructor of " + shapeClass.getName() + " failed", t);
+        }
+    }
+
+    /**
+     * @return Der Name der Form, wie er in {@code shapeClasses.xml} steht
+     */
+    String getName() {
+        return name;
+    }
+
+    /**
+     * @return Die Form-Klasse
+     */
+    Class<? extends Shape> getShapeClass() {
+        return shapeClass;
+    }
+}
@@ -0,0 +1,664 @@
+package planer;
+
+import planer.shapes.Shape;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Ein räumlicher Index (R-Baum) über die umschließenden Rechtecke aller Formen.
+ * <p>Der Index beantwortet die Frage, welche Form an einer bestimmten Position ganz oben liegt, ohne über alle
+ * Formen iterieren zu müssen. Die Formen werden über ihren Platz im {@link ShapeStore} angesprochen; als z-Wert wird
+ * ihre {@link ShapeStore#z(int) z-Position} verwendet. Von mehreren getroffenen Formen gewinnt die oberste.</p>
+ * <p>Jeder Knoten speichert zusätzlich den größten z-Wert seines Teilbaums, nach dem die Ergebnisse einer Suche
+ * sortiert werden. Bei der Suche nach der obersten Form werden die Teilbäume nach diesem Wert absteigend besucht;
+ * Teilbäume, die nur unter einem Treffer liegen, werden nicht mehr durchsucht.</p>
+ * <p>Ob ein Punkt in einer Form liegt, wird nicht für jede Form einzeln überprüft: Die Formen, deren umschließendes
+ * Rechteck den Punkt enthält, werden in Blöcken zu {@link ShapeIndex#HIT_BATCH} gesammelt und von einem
+ * {@link HitTester} in einem Durchgang überprüft.</p>
+ */
+final class ShapeIndex {
+    /**
+     * Die maximale Anzahl an Kindern eines Knotens
+     */
+    private static final int MAX_CHILDREN = 16;
+    /**
+     * Die minimale Anzahl an Kindern eines Knotens, der nicht die Wurzel ist
+     */
+    private static final int MIN_CHILDREN = 6;
+    /**
+     * Die Anzahl an Kandidaten, die bei der Suche nach der obersten Form gemeinsam überprüft werden
+     */
+    private static final int HIT_BATCH = 64;
+    /**
+     * Sortiert Rechtecke nach ihrem Mittelpunkt in x-Richtung
+     */
+    private static final Comparator<Box> BY_X = Comparator.comparingDouble(b -> b.minX + b.maxX);
+    /**
+     * Sortiert Rechtecke nach ihrem Mittelpunkt in y-Richtung
+     */
+    private static final Comparator<Box> BY_Y = Comparator.comparingDouble(b -> b.minY + b.maxY);
+    /**
+     * Die Formen, auf die sich der Index bezieht
+     */
+    private final ShapeStore store;
+    /**
+     * Die Einträge im Baum, sortiert nach dem Platz ihrer Form
+     */
+    private Entry[] entries = new Entry[0];
+    /**
+     * Die Wurzel des Baums
+     */
+    private Node root = new Node(true);
+    /**
+     * Der {@link HitTester}, mit dem die Kandidaten einer Suche nach einem Punkt überprüft werden
+     */
+    private final HitTester tester;
+    /**
+     * Die Anzahl der Formen, die bei der letzten Suche nach der obersten Form überprüft wurden
+     */
+    private int lastHitTested;
+
+    /**
+     * @param store Die Formen, auf die sich der Index bezieht
+     */
+    ShapeIndex(ShapeStore store) {
+        this.store = store;
+        tester = HitTester.create(store);
+    }
+
+    /**
+     * Diese Methode fügt eine Form in den Index ein.
+     *
+     * @param slot Der Platz der Form
+     */
+    void insert(int slot) {
+        if (slot >= entries.length) {
+            entries = Arrays.copyOf(entries, Math.max(slot + 1, entries.length + (entries.length >> 1)));
+        }
+        Entry e = new Entry(slot, store.z(slot));
+        e.setBounds(store.view(slot));
+        entries[slot] = e;
+        insert(e);
+    }
+
+    /**
+     * Diese Methode entfernt eine Form aus dem Index.
+     *
+     * @param slot Der Platz der Form
+     */
+    void remove(int slot) {
+        Entry e = slot < entries.length ? entries[slot] : null;
+        if (e != null) {
+            entries[slot] = null;
+            remove(e);
+        }
+    }
+
+    /**
+     * Diese Methode aktualisiert das umschließende Rechteck einer Form, nachdem ihre Koordinaten verändert wurden.
+     *
+     * @param slot Der Platz der Form
+     */
+    void update(int slot) {
+        Entry e = slot < entries.length ? entries[slot] : null;
+        if (e == null) {
+            return;
+        }
+        remove(e);
+        e.setBounds(store.view(slot));
+        insert(e);
+    }
+
+    /**
+     * Diese Methode verwirft den gesamten Index und baut ihn aus allen Formen des {@link ShapeStore}s neu auf.
+     * <p>Sie muss aufgerufen werden, nachdem sich die Plätze durch {@link ShapeStore#compact()} geändert haben. Der
+     * Baum wird dabei nicht Form für Form, sondern mit dem Sort-Tile-Recursive-Verfahren in einem Durchgang
+     * aufgebaut.</p>
+     */
+    void rebuild() {
+        entries = new Entry[store.size()];
+        Box[] level = new Box[store.size()];
+        int n = 0;
+        for (int i = 0; i < store.size(); i++) {
+            if (store.isAlive(i)) {
+                Entry e = new Entry(i, store.z(i));
+                e.setBounds(store.view(i));
+                entries[i] = e;
+                level[n++] = e;
+            }
+        }
+        level = Arrays.copyOf(level, n);
+        boolean leaf = true;
+        while (level.length > MAX_CHILDREN) {
+            level = pack(level, leaf);
+            leaf = false;
+        }
+        root = new Node(leaf);
+        for (Box b :
+                level) {
+            root.add(b);
+        }
+        root.recalculate();
+    }
+
+    /**
+     * Diese Methode sucht die oberste Form, in der die übergebenen Koordinaten liegen.
+     * <p>Knoten und Einträge, deren Rechteck den Punkt enthält, werden nach ihrem größten z-Wert absteigend aus einer
+     * Warteschlange genommen. Die Einträge kommen deshalb von oben nach unten in den {@link HitTester} und werden
+     * blockweise überprüft. Der oberste Treffer eines Blocks liegt über allen Formen, die noch in der Warteschlange
+     * sind, so dass die Suche dort endet, ohne die tieferen Teilbäume zu betreten.</p>
+     *
+     * @param x Die x-Koordinate, die überprüft werden soll
+     * @param y Die y-Koordinate, die überprüft werden soll
+     * @return Der Platz der obersten getroffenen Form oder {@code -1}, falls keine Form getroffen wurde
+     */
+    int topmostAt(double x, double y) {
+        lastHitTested = 0;
+        PriorityQueue<Box> queue = new PriorityQueue<>(Comparator.comparingLong((Box b) -> b.maxZ).reversed());
+        queue.add(root);
+        tester.clear();
+        while (!queue.isEmpty()) {
+            Box b = queue.poll();
+            if (b instanceof Entry) {
+                tester.add(((Entry) b).slot);
+            } else {
+                Node n = (Node) b;
+                for (int i = 0; i < n.size; i++) {
+                    Box c = n.children[i];
+                    if (c.contains(x, y)) {
+                        queue.add(c);
+                    }
+                }
+            }
+            if (tester.size() == HIT_BATCH || (queue.isEmpty() && tester.size() > 0)) {
+                lastHitTested += tester.size();
+                int best = -1;
+                int count = tester.test(x, y);
+                int[] hits = tester.getHits();
+                for (int i = 0; i < count; i++) {
+                    if (best < 0 || store.z(hits[i]) > store.z(best)) {
+                        best = hits[i];
+                    }
+                }
+                if (best >= 0) {
+                    return best;
+                }
+                tester.clear();
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return Die Anzahl der Formen, die beim letzten Aufruf von {@link ShapeIndex#topmostAt(double, double)}
+     * überprüft wurden
+     */
+    int getLastHitTested() {
+        return lastHitTested;
+    }
+
+    /**
+     * Diese Methode sucht alle Formen, deren umschließendes Rechteck den übergebenen Bereich schneidet.
+     *
+     * @param minX Die linke Grenze des Bereichs
+     * @param minY Die untere Grenze des Bereichs
+     * @param maxX Die rechte Grenze des Bereichs
+     * @param maxY Die obere Grenze des Bereichs
+     * @return Die Plätze der gefundenen Formen, von unten nach oben sortiert
+     */
+    int[] query(double minX, double minY, double maxX, double maxY) {
+        return query(minX, minY, maxX, maxY, 0, 0, null);
+    }
+
+    /**
+     * Diese Methode sucht alle Formen, deren umschließendes Rechteck vollständig im übergebenen Bereich liegt.
+     * <p>Dafür werden nur die Rechtecke im Index verglichen, keine Form wird überprüft.</p>
+     *
+     * @param minX Die linke Grenze des Bereichs
+     * @param minY Die untere Grenze des Bereichs
+     * @param maxX Die rechte Grenze des Bereichs
+     * @param maxY Die obere Grenze des Bereichs
+     * @return Die Plätze der gefundenen Formen in beliebiger Reihenfolge
+     */
+    int[] queryWithin(double minX, double minY, double maxX, double maxY) {
+        int[] slots = new int[16];
+        int count = 0;
+        ArrayList<Node> stack = new ArrayList<>();
+        stack.add(root);
+        while (!stack.isEmpty()) {
+            Node n = stack.remove(stack.size() - 1);
+            for (int i = 0; i < n.size; i++) {
+                Box c = n.children[i];
+                if (!c.intersects(minX, minY, maxX, maxY)) {
+                    continue;
+                }
+                if (!n.leaf) {
+                    stack.add((Node) c);
+                } else if (c.minX >= minX && c.minY >= minY && c.maxX <= maxX && c.maxY <= maxY) {
+                    if (count == slots.length) {
+                        slots = Arrays.copyOf(slots, 2 * count);
+                    }
+                    slots[count++] = ((Entry) c).slot;
+                }
+            }
+        }
+        return Arrays.copyOf(slots, count);
+    }
+
+    /**
+     * Diese Methode sucht wie {@link ShapeIndex#query(double, double, double, double)} alle Formen, deren
+     * umschließendes Rechteck den übergebenen Bereich schneidet, fasst dabei aber kleine Formen zusammen.
+     * <p>Ist das umschließende Rechteck einer Form oder eines ganzen Teilbaums in beiden Richtungen kleiner als eine
+     * Zelle, wird es nur als Platzhalter an {@code impostors} übergeben, ohne den Teilbaum weiter zu durchsuchen. Wird
+     * eine Zelle etwa so groß wie ein Pixel gewählt, hängt die Anzahl der gefundenen Formen und Platzhalter damit von
+     * der Anzahl der Pixel im Bereich ab und nicht von der Anzahl der Formen.</p>
+     *
+     * @param minX       Die linke Grenze des Bereichs
+     * @param minY       Die untere Grenze des Bereichs
+     * @param maxX       Die rechte Grenze des Bereichs
+     * @param maxY       Die obere Grenze des Bereichs
+     * @param cellWidth  Die Breite einer Zelle
+     * @param cellHeight Die Höhe einer Zelle
+     * @param impostors  Erhält die umschließenden Rechtecke der Platzhalter; darf {@code null} sein, falls beide
+     *                   Abmessungen der Zelle {@code 0} sind
+     * @return Die Plätze der Formen, die nicht durch einen Platzhalter ersetzt wurden, von unten nach oben sortiert
+     */
+    int[] query(double minX, double minY, double maxX, double maxY, double cellWidth, double cellHeight, Impostors impostors) {
+        ArrayList<Entry> found = new ArrayList<>();
+        ArrayList<Node> stack = new ArrayList<>();
+        stack.add(root);
+        while (!stack.isEmpty()) {
+            Node n = stack.remove(stack.size() - 1);
+            for (int i = 0; i < n.size; i++) {
+                Box c = n.children[i];
+                if (!c.intersects(minX, minY, maxX, maxY)) {
+                    continue;
+                }
+                if (c.maxX - c.minX < cellWidth && c.maxY - c.minY < cellHeight) {
+                    impostors.accept(c.minX, c.minY, c.maxX, c.maxY);
+                } else if (n.leaf) {
+                    found.add((Entry) c);
+                } else {
+                    stack.add((Node) c);
+                }
+            }
+        }
+        found.sort(Comparator.comparingLong(e -> e.maxZ));
+        int[] slots = new int[found.size()];
+        for (int i = 0; i < slots.length; i++) {
+            slots[i] = found.get(i).slot;
+        }
+        return slots;
+    }
+
+    /**
+     * Diese Methode fügt einen Eintrag in das passende Blatt ein und teilt überlaufende Knoten.
+     *
+     * @param e Der Eintrag, der eingefügt werden soll
+     */
+    private void insert(Entry e) {
+        Node n = root;
+        while (!n.leaf) {
+            Node best = null;
+            double bestGrowth = 0, bestArea = 0;
+            for (int i = 0; i < n.size; i++) {
+                Node c = (Node) n.children[i];
+                double area = c.area();
+                double growth = c.unionArea(e) - area;
+                if (best == null || growth < bestGrowth || (growth == bestGrowth && area < bestArea)) {
+                    best = c;
+                    bestGrowth = growth;
+                    bestArea = area;
+                }
+            }
+            n = best;
+        }
+        n.add(e);
+        while (n != null) {
+            if (n.size > MAX_CHILDREN) {
+                Node sibling = split(n);
+                if (n.parent == null) {
+                    Node newRoot = new Node(false);
+                    newRoot.add(n);
+                    newRoot.add(sibling);
+                    newRoot.recalculate();
+                    root = newRoot;
+                    return;
+                }
+                n.parent.add(sibling);
+            } else {
+                n.include(e);
+            }
+            n = n.parent;
+        }
+    }
+
+    /**
+     * Diese Methode entfernt einen Eintrag aus seinem Blatt.
+     * <p>Knoten, die dadurch zu wenige Kinder haben, werden aufgelöst und ihre Einträge neu eingefügt.</p>
+     *
+     * @param e Der Eintrag, der entfernt werden soll
+     */
+    private void remove(Entry e) {
+        Node n = e.parent;
+        n.removeChild(e);
+        ArrayList<Entry> orphans = new ArrayList<>();
+        while (n.parent != null) {
+            Node parent = n.parent;
+            if (n.size < MIN_CHILDREN) {
+                parent.removeChild(n);
+                n.collect(orphans);
+            } else {
+                n.recalculate();
+            }
+            n = parent;
+        }
+        root.recalculate();
+        if (!root.leaf && root.size == 1) {
+            root = (Node) root.children[0];
+            root.parent = null;
+        } else if (!root.leaf && root.size == 0) {
+            root = new Node(true);
+        }
+        for (Entry o :
+                orphans) {
+            insert(o);
+        }
+    }
+
+    /**
+     * Diese Methode teilt einen übergelaufenen Knoten in zwei Knoten auf.
+     * <p>Die Kinder werden entlang der x- und der y-Achse sortiert. Es wird die Aufteilung gewählt, bei der sich die
+     * beiden neuen Knoten am wenigsten überlappen und die geringste Fläche haben.</p>
+     *
+     * @param n Der Knoten, der geteilt werden soll
+     * @return Der neue Geschwisterknoten, der die zweite Hälfte der Kinder enthält
+     */
+    private Node split(Node n) {
+        Box[] children = Arrays.copyOf(n.children, n.size);
+        Box[] best = null;
+        int bestK = 0;
+        double bestOverlap = Double.MAX_VALUE, bestArea = Double.MAX_VALUE;
+        for (int axis = 0; axis < 2; axis++) {
+            Box[] sorted = children.clone();
+            Arrays.sort(sorted, axis == 0 ? BY_X : BY_Y);
+            for (int k = MIN_CHILDREN; k <= sorted.length - MIN_CHILDREN; k++) {
+                Box a = Box.union(sorted, 0, k);
+                Box b = Box.union(sorted, k, sorted.length);
+                double overlap = a.overlap(b);
+                double area = a.area() + b.area();
+                if (overlap < bestOverlap || (overlap == bestOverlap && area < bestArea)) {
+                    best = sorted;
+                    bestK = k;
+                    bestOverlap = overlap;
+                    bestArea = area;
+                }
+            }
+        }
+        n.clear();
+        Node sibling = new Node(n.leaf);
+        for (int i = 0; i < best.length; i++) {
+            (i < bestK ? n : sibling).add(best[i]);
+        }
+        n.recalculate();
+        sibling.recalculate();
+        return sibling;
+    }
+
+    /**
+     * Diese Methode fasst eine Ebene des Baums beim Neuaufbau zu Knoten der nächsthöheren Ebene zusammen.
+     *
+     * @param level Die Knoten oder Einträge der aktuellen Ebene
+     * @param leaf  Ob die erzeugten Knoten Blätter sind
+     * @return Die Knoten der nächsthöheren Ebene
+     */
+    private static Box[] pack(Box[] level, boolean leaf) {
+        int nodeCount = (level.length + MAX_CHILDREN - 1) / MAX_CHILDREN;
+        int sliceCount = (int) Math.ceil(Math.sqrt(nodeCount));
+        int sliceSize = sliceCount * MAX_CHILDREN;
+        Arrays.sort(level, BY_X);
+        Box[] packed = new Box[nodeCount];
+        int n = 0;
+        for (int s = 0; s < level.length; s += sliceSize) {
+            int end = Math.min(s + sliceSize, level.length);
+            Arrays.sort(level, s, end, BY_Y);
+            for (int i = s; i < end; i += MAX_CHILDREN) {
+                Node node = new Node(leaf);
+                for (int j = i; j < Math.min(i + MAX_CHILDREN, end); j++) {
+                    node.add(level[j]);
+                }
+                node.recalculate();
+                packed[n++] = node;
+            }
+        }
+        return Arrays.copyOf(packed, n);
+    }
+
+    /**
+     * Der Empfänger der Platzhalter für Formen und Teilbäume, die kleiner als eine Zelle sind.
+     */
+    interface Impostors {
+        /**
+         * @param minX Die linke Grenze des Platzhalters
+         * @param minY Die untere Grenze des Platzhalters
+         * @param maxX Die rechte Grenze des Platzhalters
+         * @param maxY Die obere Grenze des Platzhalters
+         */
+        void accept(double minX, double minY, double maxX, double maxY);
+    }
+
+    /**
+     * Ein achsenparalleles Rechteck mit dem größten z-Wert, der darin enthalten ist.
+     */
+    private static class Box {
+        /**
+         * Die Grenzen des Rechtecks
+         */
+        double minX, minY, maxX, maxY;
+        /**
+         * Der größte z-Wert innerhalb des Rechtecks
+         */
+        long maxZ;
+        /**
+         * Der Knoten, in dem dieses Rechteck als Kind gespeichert ist
+         */
+        Node parent;
+
+        /**
+         * Diese Methode erzeugt das kleinste Rechteck, das alle übergebenen Rechtecke im Bereich umschließt.
+         *
+         * @param boxes Die Rechtecke
+         * @param from  Der erste Index (inklusive)
+         * @param to    Der letzte Index (exklusive)
+         * @return Das umschließende Rechteck
+         */
+        static Box union(Box[] boxes, int from, int to) {
+            Box u = new Box();
+            u.minX = u.minY = Double.POSITIVE_INFINITY;
+            u.maxX = u.maxY = Double.NEGATIVE_INFINITY;
+            for (int i = from; i < to; i++) {
+                u.include(boxes[i]);
+            }
+            return u;
+        }
+
+        /**
+         * Diese Methode vergrößert das Rechteck so, dass es das übergebene Rechteck umschließt.
+         *
+         * @param b Das Rechteck, das umschlossen werden soll
+         */
+        void include(Box b) {
+            minX = Math.min(minX, b.minX);
+            minY = Math.min(minY, b.minY);
+            maxX = Math.max(maxX, b.maxX);
+            maxY = Math.max(maxY, b.maxY);
+            maxZ = Math.max(maxZ, b.maxZ);
+        }
+
+        /**
+         * @param x Die x-Koordinate
+         * @param y Die y-Koordinate
+         * @return Ob der Punkt im Rechteck liegt
+         */
+        boolean contains(double x, double y) {
+            return x >= minX && x <= maxX && y >= minY && y <= maxY;
+        }
+
+        /**
+         * @param minX Die linke Grenze des Bereichs
+         * @param minY Die untere Grenze des Bereichs
+         * @param maxX Die rechte Grenze des Bereichs
+         * @param maxY Die obere Grenze des Bereichs
+         * @return Ob sich das Rechteck und der Bereich schneiden
+         */
+        boolean intersects(double minX, double minY, double maxX, double maxY) {
+            return this.minX <= maxX && this.maxX >= minX && this.minY <= maxY && this.maxY >= minY;
+        }
+
+        /**
+         * @return Die Fläche des Rechtecks
+         */
+        double area() {
+            return (maxX - minX) * (maxY - minY);
+        }
+
+        /**
+         * @param b Ein weiteres Rechteck
+         * @return Die Fläche des Rechtecks, das beide Rechtecke umschließt
+         */
+        double unionArea(Box b) {
+            return (Math.max(maxX, b.maxX) - Math.min(minX, b.minX)) * (Math.max(maxY, b.maxY) - Math.min(minY, b.minY));
+        }
+
+        /**
+         * @param b Ein weiteres Rechteck
+         * @return Die Fläche, in der sich beide Rechtecke überlappen
+         */
+        double overlap(Box b) {
+            double w = Math.min(maxX, b.maxX) - Math.max(minX, b.minX);
+            double h = Math.min(maxY, b.maxY) - Math.max(minY, b.minY);
+            return w > 0 && h > 0 ? w * h : 0;
+        }
+    }
+
+    /**
+     * Ein Eintrag im Blatt des Baums, der den Platz einer Form und ihren z-Wert speichert.
+     */
+    private static final class Entry extends Box {
+        /**
+         * Der Platz der Form dieses Eintrags
+         */
+        final int slot;
+
+        /**
+         * @param slot Der Platz der Form dieses Eintrags
+         * @param z    Der z-Wert der Form
+         */
+        Entry(int slot, long z) {
+            this.slot = slot;
+            maxZ = z;
+        }
+
+        /**
+         * Diese Methode übernimmt das umschließende Rechteck der Form.
+         *
+         * @param s Die Form
+         */
+        void setBounds(Shape s) {
+            minX = s.getMinX();
+            minY = s.getMinY();
+            maxX = s.getMaxX();
+            maxY = s.getMaxY();
+        }
+    }
+
+    /**
+     * Ein innerer Knoten oder ein Blatt des Baums.
+     */
+    private static final class Node extends Box {
+        /**
+         * Ob die Kinder dieses Knotens {@link Entry Einträge} sind
+         */
+        final boolean leaf;
+        /**
+         * Die Kinder dieses Knotens; ein Platz mehr als erlaubt, damit ein Überlauf vor dem Teilen möglich ist
+         */
+        final Box[] children = new Box[MAX_CHILDREN + 1];
+        /**
+         * Die Anzahl der Kinder
+         */
+        int size;
+
+        /**
+         * @param leaf Ob dieser Knoten ein Blatt ist
+         */
+        Node(boolean leaf) {
+            this.leaf = leaf;
+            clear();
+        }
+
+        /**
+         * @param b Das Kind, das hinzugefügt werden soll
+         */
+        void add(Box b) {
+            children[size++] = b;
+            b.parent = this;
+        }
+
+        /**
+         * @param b Das Kind, das entfernt werden soll
+         */
+        void removeChild(Box b) {
+            for (int i = 0; i < size; i++) {
+                if (children[i] == b) {
+                    children[i] = children[--size];
+                    children[size] = null;
+                    b.parent = null;
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Diese Methode entfernt alle Kinder und setzt das Rechteck zurück.
+         */
+        void clear() {
+            Arrays.fill(children, null);
+            size = 0;
+            minX = minY = Double.POSITIVE_INFINITY;
+            maxX = maxY = Double.NEGATIVE_INFINITY;
+            maxZ = Long.MIN_VALUE;
+        }
+
+        /**
+         * Diese Methode berechnet das Rechteck und den größten z-Wert aus den Kindern neu.
+         */
+        void recalculate() {
+            minX = minY = Double.POSITIVE_INFINITY;
+            maxX = maxY = Double.NEGATIVE_INFINITY;
+            maxZ = Long.MIN_VALUE;
+            for (int i = 0; i < size; i++) {
+                include(children[i]);
+            }
+        }
+
+        /**
+         * Diese Methode sammelt alle Einträge dieses Teilbaums.
+         *
+         * @param out Die Liste, in die die Einträge geschrieben werden
+         */
+        void collect(List<Entry> out) {
+            for (int i = 0; i < size; i++) {
+                if (leaf) {
+                    out.add((Entry) children[i]);
+                } else {
+                    ((Node) children[i]).collect(out);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,386 @@
+package planer;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+import planer.shapes.ShapePlugin;
+import planer.shapes.ShapeProvider;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.function.Consumer;
+
+/**
+ * Dieses Verzeichnis enthält alle Formen, die in {@code shapeClasses.xml} aufgelistet sind.
+ * <p>Die Datei wird genau einmal gelesen. Jedes {@code <shape>}-Element enthält im Attribut {@code name} den Namen
+ * der Klasse im {@code shapes}-Package und im Attribut {@code label} den Namen, der im Menü angezeigt wird. Fehlt
+ * {@code label}, wird der Name der Klasse angezeigt. {@code <abstractShape>}-Elemente bilden Untermenüs.</p>
+ * <p>Für das Menü wird keine Klasse geladen. Eine Klasse wird erst geladen und zu einer {@link ShapeFactory}
+ * aufgelöst, wenn eine Form ihres Typs zum ersten Mal erzeugt wird. Klassen, die dabei abgelehnt werden, werden
+ * einmalig gemeldet und danach wie unbekannte Typen behandelt.</p>
+ * <p>Mit {@link ShapeRegistry#loadPlugins(Path)} kommen die Formen aller {@link ShapeProvider}s aus den JAR-Dateien
+ * eines Verzeichnisses hinzu. Von ihnen wird beim Start nur die Annotation {@link ShapePlugin} gelesen; der
+ * {@link ShapeProvider} wird erst erzeugt, wenn eine seiner Formen zum ersten Mal aufgelöst wird. Da jede Form einzeln
+ * aufgelöst wird, können verschiedene Formen gleichzeitig von mehreren Threads geladen werden.</p>
+ */
+final class ShapeRegistry {
+    /**
+     * Das Package der Form-Klassen
+     */
+    private static final String PACKAGE = "planer.shapes.";
+    /**
+     * Das Verzeichnis der Plugins, relativ zum Benutzerverzeichnis
+     */
+    private static final String PLUGIN_DIR = ".planer/plugins";
+    /**
+     * Die Endung der JAR-Dateien im Verzeichnis der Plugins
+     */
+    private static final String JAR_EXTENSION = ".jar";
+    /**
+     * Die Einträge der obersten Ebene in der Reihenfolge der Datei
+     */
+    private final ArrayList<Entry> entries = new ArrayList<>();
+    /**
+     * Alle Formen unter ihren Namen
+     */
+    private final HashMap<String, Entry> shapes = new HashMap<>();
+    /**
+     * Der Empfänger der Fehler, die beim Auflösen einer Form-Klasse auftreten
+     */
+    private final Consumer<IllegalArgumentException> errors;
+    /**
+     * Der Name der ersten Form in der Datei oder {@code null}
+     */
+    private String first;
+
+    /**
+     * Der Konstruktor liest die Beschreibung aller Formen.
+     *
+     * @param descriptor Der Inhalt von {@code shapeClasses.xml}
+     * @param errors     Der Empfänger der Fehler, die beim Auflösen einer Form-Klasse auftreten
+     * @throws IOException  falls die Beschreibung nicht gelesen werden konnte
+     * @throws SAXException falls die Beschreibung kein gültiges XML enthält
+     */
+    ShapeRegistry(InputStream descriptor, Consumer<IllegalArgumentException> errors) throws IOException, SAXException {
+        this.errors = errors;
+        InputSource iso = new InputSource(descriptor);
+        iso.setEncoding("UTF-8");
+        try {
+            SAXParserFactory.newInstance().newSAXParser().parse(iso, new DefaultHandler() {
+                final ArrayDeque<List<Entry>> levels = new ArrayDeque<>(Collections.singleton(entries));
+
+                @Override
+                public void startElement(String uri, String localName, String qName, Attributes attributes) {
+                    String name = attributes.getValue("name");
+                    String label = attributes.getValue("label") != null ? attributes.getValue("label") : name;
+                    if (qName.equalsIgnoreCase("shape")) {
+                        Entry e = new Entry(name, label, null, null);
+                        levels.peek().add(e);
+                        shapes.put(name, e);
+                        if (first == null) {
+                            first = name;
+                        }
+                    } else if (qName.equalsIgnoreCase("abstractShape")) {
+                        Entry e = new Entry(name, label, new ArrayList<>(), null);
+                        levels.peek().add(e);
+                        levels.push(e.children);
+                    }
+                }
+
+                @Override
+                public void endElement(String uri, String localName, String qName) {
+                    if (qName.equalsIgnoreCase("abstractShape")) {
+                        levels.pop();
+                    }
+                }
+            });
+        } catch (ParserConfigurationException e) {
+            throw new SAXException(e);
+        }
+    }
+
+    /**
+     * @return Das Verzeichnis der Plugins, das mit der Systemeigenschaft {@code planer.plugins} festgelegt wird, oder
+     * sonst {@link ShapeRegistry#PLUGIN_DIR} im Benutzerverzeichnis
+     */
+    static Path pluginDirectory() {
+        String dir = System.getProperty("planer.plugins");
+        return dir != null ? Paths.get(dir) : Paths.get(System.getProperty("user.home"), PLUGIN_DIR);
+    }
+
+    /**
+     * Diese Methode fügt die Formen aller {@link ShapeProvider}s aus den JAR-Dateien eines Verzeichnisses hinzu.
+     * <p>Die Klassen der {@link ShapeProvider}s werden dabei geladen, aber nicht initialisiert, und nur ihre Annotation
+     * {@link ShapePlugin} wird gelesen. Formen eines Plugins mit einer Gruppe werden in einem eigenen Untermenü
+     * angezeigt. {@link ShapeProvider}s ohne Annotation und Formen, deren Name schon vergeben ist, werden gemeldet und
+     * übersprungen. Existiert das Verzeichnis nicht, passiert nichts.</p>
+     * <p>Die Methode muss aufgerufen werden, bevor die Einträge verwendet werden.</p>
+     *
+     * @param dir Das Verzeichnis mit den JAR-Dateien
+     * @return Die Anzahl der gefundenen {@link ShapeProvider}s
+     * @throws IOException falls das Verzeichnis nicht gelesen werden konnte
+     */
+    int loadPlugins(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return 0;
+        }
+        ArrayList<URL> jars = new ArrayList<>();
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, "*" + JAR_EXTENSION)) {
+            for (Path p :
+                    ds) {
+                jars.add(p.toUri().toURL());
+            }
+        } catch (MalformedURLException e) {
+            throw new IOException(e);
+        }
+        if (jars.isEmpty()) {
+            return 0;
+        }
+        // Sortiert, damit die Menüs unabhängig von der Reihenfolge im Dateisystem sind
+        jars.sort((a, b) -> a.toString().compareTo(b.toString()));
+        ClassLoader loader = new URLClassLoader(jars.toArray(new URL[0]), ShapeRegistry.class.getClassLoader());
+        int count = 0;
+        try {
+            Iterator<ServiceLoader.Provider<ShapeProvider>> providers =
+                    ServiceLoader.load(ShapeProvider.class, loader).stream().iterator();
+            while (providers.hasNext()) {
+                addPlugin(new Plugin(providers.next()));
+                count++;
+            }
+        } catch (ServiceConfigurationError e) {
+            errors.accept(new IllegalArgumentException("The shape plugins in " + dir + " could not be loaded: "
+                    + e.getMessage(), e));
+        }
+        return count;
+    }
+
+    /**
+     * Diese Methode fügt die Formen eines Plugins anhand seiner Annotation hinzu.
+     *
+     * @param plugin Das Plugin
+     */
+    private void addPlugin(Plugin plugin) {
+        ShapePlugin info = plugin.type.getAnnotation(ShapePlugin.class);
+        if (info == null) {
+            errors.accept(new IllegalArgumentException("The shape provider " + plugin.type.getName()
+                    + " has no @ShapePlugin annotation."));
+            return;
+        }
+        List<Entry> level = entries;
+        if (!info.group().isEmpty()) {
+            level = null;
+            // Plugins mit derselben Gruppe teilen sich ein Untermenü
+            for (Entry e :
+                    entries) {
+                if (e.isGroup() && e.name.equals(info.group())) {
+                    level = e.children;
+                }
+            }
+            if (level == null) {
+                Entry group = new Entry(info.group(), info.group(), new ArrayList<>(), null);
+                entries.add(group);
+                level = group.children;
+            }
+        }
+        String[] names = info.names();
+        for (int i = 0; i < names.length; i++) {
+            if (shapes.containsKey(names[i])) {
+                errors.accept(new IllegalArgumentException("The shape " + names[i] + " of " + plugin.type.getName()
+                        + " is already defined."));
+                continue;
+            }
+            String label = i < info.labels().length ? info.labels()[i] : names[i];
+            Entry e = new Entry(names[i], label, null, plugin);
+            level.add(e);
+            shapes.put(names[i], e);
+            if (first == null) {
+                first = names[i];
+            }
+        }
+    }
+
+    /**
+     * @return Die Einträge der obersten Ebene in der Reihenfolge der Datei
+     */
+    List<Entry> getEntries() {
+        return Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * @return Der Name der ersten Form in der Datei oder {@code null}, falls keine Form aufgelistet ist
+     */
+    String getFirst() {
+        return first;
+    }
+
+    /**
+     * @param name Der Name einer Form
+     * @return Ob die Form aufgelistet ist; ihre Klasse wird dafür nicht geladen
+     */
+    boolean contains(String name) {
+        return name != null && shapes.containsKey(name);
+    }
+
+    /**
+     * Diese Methode liefert die {@link ShapeFactory} einer Form und löst ihre Klasse beim ersten Aufruf auf.
+     * <p>Sie kann gleichzeitig von mehreren Threads aufgerufen werden.</p>
+     *
+     * @param name Der Name der Form
+     * @return Die Fabrik oder {@code null}, falls die Form nicht aufgelistet ist oder ihre Klasse abgelehnt wurde
+     */
+    ShapeFactory factory(String name) {
+        Entry e = name != null ? shapes.get(name) : null;
+        return e != null ? e.resolve() : null;
+    }
+
+    /**
+     * Ein Eintrag in {@code shapeClasses.xml} oder aus einem Plugin: eine Form oder eine Gruppe von Formen.
+     */
+    final class Entry {
+        /**
+         * Der Name der Klasse oder der Gruppe
+         */
+        private final String name;
+        /**
+         * Der Name, der im Menü angezeigt wird
+         */
+        private final String label;
+        /**
+         * Die Einträge der Gruppe oder {@code null}, falls der Eintrag eine Form ist
+         */
+        private final List<Entry> children;
+        /**
+         * Das Plugin, das die Form bereitstellt, oder {@code null}, falls sie im {@code shapes}-Package liegt
+         */
+        private final Plugin plugin;
+        /**
+         * Die aufgelöste Fabrik oder {@code null}, solange die Klasse nicht aufgelöst wurde
+         */
+        private ShapeFactory factory;
+        /**
+         * Ob die Klasse bereits aufgelöst oder abgelehnt wurde
+         */
+        private boolean resolved = false;
+
+        /**
+         * @param name     Der Name der Klasse oder der Gruppe
+         * @param label    Der Name, der im Menü angezeigt wird
+         * @param children Die Einträge der Gruppe oder {@code null}
+         * @param plugin   Das Plugin, das die Form bereitstellt, oder {@code null}
+         */
+        private Entry(String name, String label, List<Entry> children, Plugin plugin) {
+            this.name = name;
+            this.label = label;
+            this.children = children;
+            this.plugin = plugin;
+        }
+
+        /**
+         * @return Der Name der Klasse oder der Gruppe
+         */
+        String getName() {
+            return name;
+        }
+
+        /**
+         * @return Der Name, der im Menü angezeigt wird
+         */
+        String getLabel() {
+            return label;
+        }
+
+        /**
+         * @return Ob der Eintrag eine Gruppe ist
+         */
+        boolean isGroup() {
+            return children != null;
+        }
+
+        /**
+         * @return Die Einträge der Gruppe
+         */
+        List<Entry> getChildren() {
+            return Collections.unmodifiableList(children);
+        }
+
+        /**
+         * Diese Methode lädt die Klasse aus dem {@code shapes}-Package oder über den {@link ShapeProvider} ihres Plugins
+         * beim ersten Aufruf und überprüft sie mit {@link ShapeFactory#of(String, Class)}.
+         *
+         * @return Die Fabrik oder {@code null}, falls die Klasse abgelehnt wurde
+         */
+        private synchronized ShapeFactory resolve() {
+            if (!resolved) {
+                resolved = true;
+                try {
+                    factory = ShapeFactory.of(name, plugin != null ? plugin.get().getShapeClass(name)
+                            : Class.forName(PACKAGE + name, true, ShapeRegistry.class.getClassLoader()));
+                } catch (ClassNotFoundException e) {
+                    errors.accept(new IllegalArgumentException("The shape class " + name + " could not be found.", e));
+                } catch (IllegalArgumentException e) {
+                    errors.accept(e);
+                } catch (ServiceConfigurationError | LinkageError e) {
+                    errors.accept(new IllegalArgumentException("The shape class " + name + " could not be loaded: "
+                            + e.getMessage(), e));
+                }
+            }
+            return factory;
+        }
+    }
+
+    /**
+     * Ein {@link ShapeProvider} aus einer JAR-Datei, der erst beim ersten Gebrauch erzeugt wird.
+     */
+    private static final class Plugin {
+        /**
+         * Der Eintrag des {@link ShapeProvider}s im {@link ServiceLoader}
+         */
+        private final ServiceLoader.Provider<ShapeProvider> provider;
+        /**
+         * Die Klasse des {@link ShapeProvider}s, geladen, aber nicht initialisiert
+         */
+        private final Class<? extends ShapeProvider> type;
+        /**
+         * Der erzeugte {@link ShapeProvider} oder {@code null}, solange er nicht gebraucht wurde
+         */
+        private ShapeProvider instance;
+
+        /**
+         * @param provider Der Eintrag des {@link ShapeProvider}s im {@link ServiceLoader}
+         */
+        private Plugin(ServiceLoader.Provider<ShapeProvider> provider) {
+            this.provider = provider;
+            this.type = provider.type();
+        }
+
+        /**
+         * @return Der {@link ShapeProvider}, der beim ersten Aufruf erzeugt wird
+         * @throws ServiceConfigurationError falls er nicht erzeugt werden konnte
+         */
+        private synchronized ShapeProvider get() {
+            if (instance == null) {
+                instance = provider.get();
+            }
+            return instance;
+        }
+    }
+}
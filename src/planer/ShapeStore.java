@@ -0,0 +1,860 @@
+package planer;
+
+import planer.shapes.Points;
+import planer.shapes.Shape;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.function.Function;
+
+/**
+ * Diese Klasse speichert alle gezeichneten Formen spaltenweise in primitiven Arrays.
+ * <p>Für jede Form werden nur ihre vier Koordinaten, die Nummer ihres Typs, ihre z-Position und gegebenenfalls ihre
+ * unveränderlichen {@link Points Punkte} gespeichert. Jede Form belegt einen Platz; die Plätze sind in der Reihenfolge
+ * belegt, in der die Formen hinzugefügt wurden, und damit aufsteigend nach ihrer z-Position sortiert. Gelöschte Formen
+ * werden zunächst nur als gelöscht markiert und erst bei {@link ShapeStore#compact()} entfernt. Nur während eine Datei
+ * schrittweise geladen wird oder nachdem eine bereits verdichtete Form wiederhergestellt wurde, können die Plätze
+ * vorübergehend von der z-Reihenfolge abweichen (siehe {@link ShapeStore#sortByZ()}).</p>
+ * <p>{@link Shape}-Objekte werden nur bei Bedarf erzeugt. Zum Zeichnen und Überprüfen wird für jeden Typ ein einziges
+ * Objekt wiederverwendet, das mit {@link Shape#bind(double, double, double, double)} auf die Koordinaten eines Platzes
+ * gesetzt wird. Temporäre Koordinaten existieren nur in dem Objekt, das gerade bearbeitet wird.</p>
+ * <p>Die Spalten sind in Abschnitte zu je {@link ShapeStore#CHUNK_SIZE} Plätzen aufgeteilt. Eine
+ * {@link ShapeStore#snapshot() Kopie} übernimmt nur die Verweise auf die Abschnitte, die danach von beiden Seiten
+ * geteilt werden. Wer einen geteilten Abschnitt verändert, kopiert ihn vorher. Eine Kopie kostet deshalb nur so viel
+ * wie die Anzahl der Abschnitte, und die erste Bearbeitung danach kopiert nur die Abschnitte, die sie betrifft. Die
+ * Kopie sieht nie einen Teil einer späteren Bearbeitung und kann ohne Sperren in einem anderen Thread gelesen
+ * werden.</p>
+ * <p>Zu jeder z-Position wird der Platz ihrer Form festgehalten, damit {@link ShapeStore#slotOf(int)} unabhängig von
+ * der Anzahl der Formen und ihrer Reihenfolge ist.</p>
+ */
+final class ShapeStore {
+    /**
+     * Die Typnummer, mit der gelöschte Plätze markiert werden
+     */
+    private static final short DELETED = -1;
+    /**
+     * Die anfängliche Anzahl an Plätzen
+     */
+    private static final int INITIAL_CAPACITY = 64;
+    /**
+     * Der Zweierlogarithmus von {@link ShapeStore#CHUNK_SIZE}
+     */
+    private static final int CHUNK_SHIFT = 12;
+    /**
+     * Die Anzahl der Plätze eines Abschnitts; nur der erste Abschnitt kann kleiner sein, solange er der einzige ist
+     */
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    /**
+     * Die Maske für den Platz innerhalb eines Abschnitts
+     */
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    /**
+     * Die Funktion, die eine neue Form eines Typs erzeugt
+     */
+    private final Function<String, Shape> factory;
+    /**
+     * Die Namen der Typen, sortiert nach ihrer Typnummer
+     */
+    private final ArrayList<String> typeNames = new ArrayList<>();
+    /**
+     * Die Zuordnung der Typnamen zu ihren Typnummern
+     */
+    private final HashMap<String, Short> typeIds = new HashMap<>();
+    /**
+     * Die wiederverwendeten Formen, sortiert nach ihrer Typnummer; in einer Kopie {@code null}, bis sie gebraucht
+     * werden
+     */
+    private final ArrayList<Shape> views = new ArrayList<>();
+    /**
+     * Die Koordinaten der Formen, nach Abschnitten aufgeteilt
+     */
+    private double[][] x0 = {new double[INITIAL_CAPACITY]}, y0 = {new double[INITIAL_CAPACITY]},
+            x1 = {new double[INITIAL_CAPACITY]}, y1 = {new double[INITIAL_CAPACITY]};
+    /**
+     * Die Typnummern der Formen, nach Abschnitten aufgeteilt
+     */
+    private short[][] type = {new short[INITIAL_CAPACITY]};
+    /**
+     * Die z-Positionen der Formen, nach Abschnitten aufgeteilt; eine Form mit größerer z-Position liegt über einer Form
+     * mit kleinerer
+     */
+    private int[][] z = {new int[INITIAL_CAPACITY]};
+    /**
+     * Die Punkte der Formen oder {@code null} für Formen ohne Punkte, nach Abschnitten aufgeteilt
+     */
+    private Points[][] points = {new Points[INITIAL_CAPACITY]};
+    /**
+     * Ob ein Abschnitt mit einer Kopie geteilt wird und vor dem nächsten Schreiben kopiert werden muss
+     */
+    private boolean[] shared = new boolean[1];
+    /**
+     * Die Anzahl der Plätze in allen Abschnitten
+     */
+    private int capacity = INITIAL_CAPACITY;
+    /**
+     * Die Anzahl der belegten Plätze, inklusive der gelöschten
+     */
+    private int size = 0;
+    /**
+     * Die Anzahl der gelöschten Plätze
+     */
+    private int deleted = 0;
+    /**
+     * Die z-Position, die die nächste Form erhält
+     */
+    private int nextZ = 0;
+    /**
+     * Ob die Plätze aufsteigend nach der z-Position sortiert sind
+     */
+    private boolean sorted = true;
+    /**
+     * Der Platz jeder z-Position plus eins oder {@code 0}, falls es keine Form mit dieser z-Position gibt, nach
+     * Abschnitten zu je {@link ShapeStore#CHUNK_SIZE} z-Positionen aufgeteilt; Abschnitte ohne Formen fehlen. Ist
+     * {@code null}, bis {@link ShapeStore#slotOf(int)} zum ersten Mal aufgerufen wird, und wird danach bei jeder
+     * Änderung der Plätze mitgeführt.
+     */
+    private int[][] slotsByZ;
+
+    /**
+     * @param factory Die Funktion, die eine neue Form des übergebenen Typs erzeugt, oder {@code null} zurückgibt,
+     *                falls der Typ nicht erzeugt werden kann
+     */
+    ShapeStore(Function<String, Shape> factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * Diese Methode erzeugt eine unabhängige Kopie aller Formen, deren Objekte mit derselben Funktion erzeugt werden
+     * (siehe {@link ShapeStore#snapshot(Function)}).
+     *
+     * @return Die Kopie
+     */
+    ShapeStore snapshot() {
+        return snapshot(factory);
+    }
+
+    /**
+     * Diese Methode erzeugt eine unabhängige Kopie aller Formen, zum Beispiel um sie im Hintergrund zu speichern,
+     * während weiter gezeichnet wird.
+     * <p>Die Abschnitte werden nicht kopiert, sondern geteilt; beide Seiten kopieren einen Abschnitt erst, bevor sie
+     * ihn verändern. Die Typtabelle wird übernommen, ohne {@code factory} aufzurufen. Die Kopie erzeugt ihre eigenen
+     * wiederverwendeten Objekte erst, wenn sie gebraucht werden, und kann deshalb in einem anderen Thread gelesen
+     * werden, während hier weiter bearbeitet wird.</p>
+     * <p>Die Plätze der Kopie sind nicht unbedingt nach der z-Position sortiert. Wer sie in dieser Reihenfolge
+     * braucht, ruft {@link ShapeStore#sortByZ()} im Thread auf, der die Kopie liest.</p>
+     *
+     * @param factory Die Funktion, mit der die Kopie ihre Objekte erzeugt; sie wird im Thread aufgerufen, der die
+     *                Kopie liest
+     * @return Die Kopie
+     */
+    ShapeStore snapshot(Function<String, Shape> factory) {
+        ShapeStore copy = new ShapeStore(factory);
+        copy.typeNames.addAll(typeNames);
+        copy.typeIds.putAll(typeIds);
+        for (int t = 0; t < typeNames.size(); t++) {
+            copy.views.add(null);
+        }
+        int chunks = type.length;
+        Arrays.fill(shared, true);
+        copy.x0 = x0.clone();
+        copy.y0 = y0.clone();
+        copy.x1 = x1.clone();
+        copy.y1 = y1.clone();
+        copy.type = type.clone();
+        copy.z = z.clone();
+        copy.points = points.clone();
+        copy.shared = new boolean[chunks];
+        Arrays.fill(copy.shared, true);
+        copy.capacity = capacity;
+        copy.size = size;
+        copy.deleted = deleted;
+        copy.nextZ = nextZ;
+        copy.sorted = sorted;
+        return copy;
+    }
+
+    /**
+     * Diese Methode liefert die Typnummer eines Typs und vergibt eine neue, falls der Typ noch nicht verwendet wurde.
+     *
+     * @param name Der Name des Typs, wie er in {@code shapeClasses.xml} steht
+     * @return Die Typnummer oder {@code -1}, falls der Typ nicht erzeugt werden kann
+     */
+    short typeId(String name) {
+        Short id = typeIds.get(name);
+        if (id != null) {
+            return id;
+        }
+        Shape view = factory.apply(name);
+        if (view == null) {
+            return DELETED;
+        }
+        short newId = (short) typeNames.size();
+        typeNames.add(name);
+        typeIds.put(name, newId);
+        views.add(view);
+        return newId;
+    }
+
+    /**
+     * @return Die Anzahl der verwendeten Typen
+     */
+    int typeCount() {
+        return typeNames.size();
+    }
+
+    /**
+     * @param typeId Eine Typnummer
+     * @return Der Name des Typs
+     */
+    String typeName(short typeId) {
+        return typeNames.get(typeId);
+    }
+
+    /**
+     * @param typeId Eine Typnummer
+     * @return Die Klasse der Formen dieses Typs
+     */
+    Class<? extends Shape> typeClass(short typeId) {
+        return sharedView(typeId).getClass();
+    }
+
+    /**
+     * Diese Methode fügt eine Form als oberste Form hinzu.
+     * <p>Wird die Form noch gezeichnet, wird das Zeichnen vorher mit {@link Shape#finish()} abgeschlossen.</p>
+     *
+     * @param name Der Name des Typs
+     * @param s    Die Form, deren aktuelle Koordinaten und Punkte übernommen werden
+     * @return Der Platz der Form oder {@code -1}, falls der Typ nicht erzeugt werden kann
+     */
+    int add(String name, Shape s) {
+        s.finish();
+        short t = typeId(name);
+        if (t == DELETED) {
+            return -1;
+        }
+        return append(t, s.getX0(), s.getY0(), s.getX1(), s.getY1(), s.getPoints());
+    }
+
+    /**
+     * Diese Methode fügt eine Form als oberste Form hinzu.
+     * <p>Die Koordinaten werden wie im Konstruktor der Form angepasst, zum Beispiel zu einem Quadrat.</p>
+     *
+     * @param name Der Name des Typs
+     * @param x0   Die x0-Koordinate
+     * @param y0   Die y0-Koordinate
+     * @param x1   Die x1-Koordinate
+     * @param y1   Die y1-Koordinate
+     * @return Der Platz der Form oder {@code -1}, falls der Typ nicht erzeugt werden kann
+     */
+    int add(String name, double x0, double y0, double x1, double y1) {
+        short t = typeId(name);
+        if (t == DELETED) {
+            return -1;
+        }
+        return add(t, x0, y0, x1, y1);
+    }
+
+    /**
+     * Diese Methode fügt eine Form eines bereits verwendeten Typs als oberste Form hinzu.
+     * <p>Die Koordinaten werden wie im Konstruktor der Form angepasst, zum Beispiel zu einem Quadrat.</p>
+     *
+     * @param t  Die Typnummer, die von {@link ShapeStore#typeId(String)} vergeben wurde
+     * @param x0 Die x0-Koordinate
+     * @param y0 Die y0-Koordinate
+     * @param x1 Die x1-Koordinate
+     * @param y1 Die y1-Koordinate
+     * @return Der Platz der Form
+     */
+    int add(short t, double x0, double y0, double x1, double y1) {
+        Shape v = sharedView(t);
+        v.setCoords(x0, y0, x1, y1, false);
+        return append(t, v.getX0(), v.getY0(), v.getX1(), v.getY1());
+    }
+
+    /**
+     * Diese Methode stellt sicher, dass ohne Vergrößerung der Spalten noch die übergebene Anzahl an Formen
+     * hinzugefügt werden kann.
+     *
+     * @param additional Die Anzahl der Formen, die hinzugefügt werden sollen
+     */
+    void ensureCapacity(int additional) {
+        if (size + additional > capacity) {
+            grow(size + additional);
+        }
+    }
+
+    /**
+     * Diese Methode vergrößert den ersten Abschnitt bis zu {@link ShapeStore#CHUNK_SIZE} Plätzen und hängt danach
+     * neue Abschnitte an, bis die übergebene Anzahl an Plätzen erreicht ist.
+     *
+     * @param minCapacity Die Anzahl an Plätzen, die mindestens vorhanden sein sollen
+     */
+    private void grow(int minCapacity) {
+        if (type.length == 1 && capacity < CHUNK_SIZE) {
+            int n = Math.min(CHUNK_SIZE, Math.max(minCapacity, capacity + (capacity >> 1)));
+            x0[0] = Arrays.copyOf(x0[0], n);
+            y0[0] = Arrays.copyOf(y0[0], n);
+            x1[0] = Arrays.copyOf(x1[0], n);
+            y1[0] = Arrays.copyOf(y1[0], n);
+            type[0] = Arrays.copyOf(type[0], n);
+            z[0] = Arrays.copyOf(z[0], n);
+            points[0] = Arrays.copyOf(points[0], n);
+            shared[0] = false;
+            capacity = n;
+        }
+        if (minCapacity > capacity) {
+            int chunks = type.length, total = (minCapacity + CHUNK_MASK) >>> CHUNK_SHIFT;
+            x0 = Arrays.copyOf(x0, total);
+            y0 = Arrays.copyOf(y0, total);
+            x1 = Arrays.copyOf(x1, total);
+            y1 = Arrays.copyOf(y1, total);
+            type = Arrays.copyOf(type, total);
+            z = Arrays.copyOf(z, total);
+            points = Arrays.copyOf(points, total);
+            shared = Arrays.copyOf(shared, total);
+            for (int c = chunks; c < total; c++) {
+                x0[c] = new double[CHUNK_SIZE];
+                y0[c] = new double[CHUNK_SIZE];
+                x1[c] = new double[CHUNK_SIZE];
+                y1[c] = new double[CHUNK_SIZE];
+                type[c] = new short[CHUNK_SIZE];
+                z[c] = new int[CHUNK_SIZE];
+                points[c] = new Points[CHUNK_SIZE];
+            }
+            capacity = total << CHUNK_SHIFT;
+        }
+    }
+
+    /**
+     * Diese Methode bereitet das Schreiben eines Platzes vor: Wird sein Abschnitt mit einer
+     * {@link ShapeStore#snapshot() Kopie} geteilt, wird er vorher kopiert.
+     *
+     * @param slot Der Platz
+     * @return Der Abschnitt des Platzes
+     */
+    private int writable(int slot) {
+        int c = slot >>> CHUNK_SHIFT;
+        if (shared[c]) {
+            x0[c] = x0[c].clone();
+            y0[c] = y0[c].clone();
+            x1[c] = x1[c].clone();
+            y1[c] = y1[c].clone();
+            type[c] = type[c].clone();
+            z[c] = z[c].clone();
+            points[c] = points[c].clone();
+            shared[c] = false;
+        }
+        return c;
+    }
+
+    /**
+     * Diese Methode fügt eine Form mit bereits angepassten Koordinaten hinzu.
+     * <p>Sie wird für Koordinaten verwendet, die aus einem {@link ShapeStore} stammen. Ein erneutes Anpassen würde
+     * sie durch Rundungsfehler leicht verändern.</p>
+     *
+     * @param t  Die Typnummer, die von {@link ShapeStore#typeId(String)} vergeben wurde
+     * @param x0 Die x0-Koordinate
+     * @param y0 Die y0-Koordinate
+     * @param x1 Die x1-Koordinate
+     * @param y1 Die y1-Koordinate
+     * @return Der Platz der Form
+     */
+    int append(short t, double x0, double y0, double x1, double y1) {
+        return append(t, x0, y0, x1, y1, null, nextZ++);
+    }
+
+    /**
+     * Diese Methode fügt eine Form mit bereits angepassten Koordinaten und ihren Punkten hinzu.
+     *
+     * @param t      Die Typnummer, die von {@link ShapeStore#typeId(String)} vergeben wurde
+     * @param x0     Die x0-Koordinate
+     * @param y0     Die y0-Koordinate
+     * @param x1     Die x1-Koordinate
+     * @param y1     Die y1-Koordinate
+     * @param points Die Punkte der Form oder {@code null}
+     * @return Der Platz der Form
+     */
+    int append(short t, double x0, double y0, double x1, double y1, Points points) {
+        return append(t, x0, y0, x1, y1, points, nextZ++);
+    }
+
+    /**
+     * Diese Methode fügt eine Form mit bereits angepassten Koordinaten und vorgegebener z-Position hinzu.
+     * <p>Die z-Position muss vorher mit {@link ShapeStore#reserveZ(int)} reserviert worden sein. Liegen die Plätze
+     * danach nicht mehr aufsteigend nach ihrer z-Position, muss {@link ShapeStore#sortByZ()} aufgerufen werden, bevor
+     * die Formen in der Reihenfolge ihrer Plätze gezeichnet werden.</p>
+     *
+     * @param t      Die Typnummer, die von {@link ShapeStore#typeId(String)} vergeben wurde
+     * @param x0     Die x0-Koordinate
+     * @param y0     Die y0-Koordinate
+     * @param x1     Die x1-Koordinate
+     * @param y1     Die y1-Koordinate
+     * @param points Die Punkte der Form oder {@code null}
+     * @param pos    Die z-Position
+     * @return Der Platz der Form
+     */
+    int append(short t, double x0, double y0, double x1, double y1, Points points, int pos) {
+        if (size == capacity) {
+            grow(size + 1);
+        }
+        int c = writable(size), i = size & CHUNK_MASK;
+        this.x0[c][i] = x0;
+        this.y0[c][i] = y0;
+        this.x1[c][i] = x1;
+        this.y1[c][i] = y1;
+        type[c][i] = t;
+        z[c][i] = pos;
+        this.points[c][i] = points;
+        if (size > 0 && pos <= z(size - 1)) {
+            sorted = false;
+        }
+        if (slotsByZ != null) {
+            putSlot(pos, size);
+        }
+        return size++;
+    }
+
+    /**
+     * Diese Methode reserviert einen Bereich von z-Positionen über allen bisherigen Formen.
+     * <p>Formen, die danach hinzugefügt werden, liegen über dem gesamten Bereich.</p>
+     *
+     * @param count Die Anzahl der z-Positionen
+     * @return Die erste reservierte z-Position
+     */
+    int reserveZ(int count) {
+        int base = nextZ;
+        nextZ += count;
+        return base;
+    }
+
+    /**
+     * Diese Methode ordnet die Plätze aufsteigend nach der z-Position der Formen.
+     * <p>Die Plätze der Formen ändern sich dabei, gelöschte Plätze bleiben erhalten.</p>
+     *
+     * @return Ob sich die Reihenfolge der Plätze verändert hat
+     */
+    boolean sortByZ() {
+        if (sorted) {
+            return false;
+        }
+        long[] keys = new long[size];
+        for (int i = 0; i < size; i++) {
+            // z-Position in den oberen, alter Platz in den unteren 32 Bit
+            keys[i] = (long) z(i) << 32 | i;
+        }
+        Arrays.sort(keys);
+        // Die Abschnitte werden neu angelegt, damit geteilte Abschnitte unverändert bleiben.
+        int chunks = type.length;
+        double[][] nx0 = new double[chunks][], ny0 = new double[chunks][],
+                nx1 = new double[chunks][], ny1 = new double[chunks][];
+        short[][] ntype = new short[chunks][];
+        int[][] nz = new int[chunks][];
+        Points[][] npoints = new Points[chunks][];
+        for (int c = 0; c < chunks; c++) {
+            int n = type[c].length;
+            nx0[c] = new double[n];
+            ny0[c] = new double[n];
+            nx1[c] = new double[n];
+            ny1[c] = new double[n];
+            ntype[c] = new short[n];
+            nz[c] = new int[n];
+            npoints[c] = new Points[n];
+        }
+        for (int n = 0; n < size; n++) {
+            int i = (int) keys[n], ci = i >>> CHUNK_SHIFT, ii = i & CHUNK_MASK;
+            int cn = n >>> CHUNK_SHIFT, in = n & CHUNK_MASK;
+            nx0[cn][in] = x0[ci][ii];
+            ny0[cn][in] = y0[ci][ii];
+            nx1[cn][in] = x1[ci][ii];
+            ny1[cn][in] = y1[ci][ii];
+            ntype[cn][in] = type[ci][ii];
+            nz[cn][in] = z[ci][ii];
+            npoints[cn][in] = points[ci][ii];
+        }
+        x0 = nx0;
+        y0 = ny0;
+        x1 = nx1;
+        y1 = ny1;
+        type = ntype;
+        z = nz;
+        points = npoints;
+        shared = new boolean[chunks];
+        sorted = true;
+        if (slotsByZ != null) {
+            for (int n = 0; n < size; n++) {
+                putSlot(z(n), n);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Diese Methode übernimmt die aktuellen Koordinaten und die Punkte einer bearbeiteten Form.
+     *
+     * @param slot Der Platz der Form
+     * @param s    Die bearbeitete Form
+     */
+    void set(int slot, Shape s) {
+        set(slot, s.getX0(), s.getY0(), s.getX1(), s.getY1());
+        setPoints(slot, s.getPoints());
+    }
+
+    /**
+     * Diese Methode setzt die Punkte einer Form.
+     *
+     * @param slot   Der Platz der Form
+     * @param points Die Punkte oder {@code null}
+     */
+    void setPoints(int slot, Points points) {
+        if (this.points[slot >>> CHUNK_SHIFT][slot & CHUNK_MASK] != points) {
+            this.points[writable(slot)][slot & CHUNK_MASK] = points;
+        }
+    }
+
+    /**
+     * Diese Methode setzt die Koordinaten einer Form, ohne sie anzupassen.
+     *
+     * @param slot Der Platz der Form
+     * @param x0   Die x0-Koordinate
+     * @param y0   Die y0-Koordinate
+     * @param x1   Die x1-Koordinate
+     * @param y1   Die y1-Koordinate
+     */
+    void set(int slot, double x0, double y0, double x1, double y1) {
+        int c = writable(slot), i = slot & CHUNK_MASK;
+        this.x0[c][i] = x0;
+        this.y0[c][i] = y0;
+        this.x1[c][i] = x1;
+        this.y1[c][i] = y1;
+    }
+
+    /**
+     * Diese Methode markiert eine Form als gelöscht.
+     *
+     * @param slot Der Platz der Form
+     */
+    void remove(int slot) {
+        if (type(slot) != DELETED) {
+            type[writable(slot)][slot & CHUNK_MASK] = DELETED;
+            deleted++;
+        }
+    }
+
+    /**
+     * Diese Methode entfernt alle Formen.
+     */
+    void clear() {
+        // Die Punkte werden freigegeben; neue Abschnitte werden nie geteilt.
+        for (int c = 0; c < points.length; c++) {
+            points[c] = new Points[points[c].length];
+        }
+        size = 0;
+        deleted = 0;
+        sorted = true;
+        slotsByZ = null;
+    }
+
+    /**
+     * @return Ob so viele Plätze gelöscht sind, dass sich {@link ShapeStore#compact()} lohnt
+     */
+    boolean needsCompaction() {
+        return deleted > INITIAL_CAPACITY && deleted > size / 2;
+    }
+
+    /**
+     * Diese Methode entfernt alle gelöschten Plätze in einem Durchgang.
+     * <p>Die Reihenfolge der übrigen Formen bleibt erhalten, ihre Plätze ändern sich aber.</p>
+     */
+    void compact() {
+        int n = 0;
+        for (int i = 0; i < size; i++) {
+            if (type(i) != DELETED) {
+                if (n != i) {
+                    int cn = writable(n), in = n & CHUNK_MASK, ci = i >>> CHUNK_SHIFT, ii = i & CHUNK_MASK;
+                    x0[cn][in] = x0[ci][ii];
+                    y0[cn][in] = y0[ci][ii];
+                    x1[cn][in] = x1[ci][ii];
+                    y1[cn][in] = y1[ci][ii];
+                    type[cn][in] = type[ci][ii];
+                    z[cn][in] = z[ci][ii];
+                    points[cn][in] = points[ci][ii];
+                    if (slotsByZ != null) {
+                        putSlot(z[cn][in], n);
+                    }
+                }
+                n++;
+            } else if (slotsByZ != null) {
+                putSlot(z(i), -1);
+            }
+        }
+        // Die Punkte der entfernten Plätze werden freigegeben.
+        for (int i = n; i < size; i++) {
+            if (points(i) != null) {
+                points[writable(i)][i & CHUNK_MASK] = null;
+            }
+        }
+        size = n;
+        deleted = 0;
+    }
+
+    /**
+     * @return Die Anzahl der belegten Plätze, inklusive der gelöschten
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return Die Anzahl der Formen, die nicht gelöscht sind
+     */
+    int count() {
+        return size - deleted;
+    }
+
+    /**
+     * @param slot Ein Platz
+     * @return Ob auf dem Platz eine Form liegt, die nicht gelöscht ist
+     */
+    boolean isAlive(int slot) {
+        return type(slot) != DELETED;
+    }
+
+    /**
+     * @param slot Der Platz einer Form
+     * @return Die Typnummer der Form
+     */
+    short type(int slot) {
+        return type[slot >>> CHUNK_SHIFT][slot & CHUNK_MASK];
+    }
+
+    /**
+     * @param slot Der Platz einer Form
+     * @return Die z-Position der Form
+     */
+    int z(int slot) {
+        return z[slot >>> CHUNK_SHIFT][slot & CHUNK_MASK];
+    }
+
+    /**
+     * Diese Methode sucht den Platz der Form mit einer z-Position.
+     * <p>Beim ersten Aufruf wird die Zuordnung der z-Positionen zu ihren Plätzen einmal aufgebaut; danach wird sie bei
+     * jeder Änderung der Plätze mitgeführt und jeder Aufruf braucht unabhängig von der Anzahl der Formen gleich
+     * lange.</p>
+     *
+     * @param pos Die z-Position
+     * @return Der Platz der Form, auch falls sie gelöscht ist, oder {@code -1}, falls es keine Form mit dieser
+     * z-Position gibt
+     */
+    int slotOf(int pos) {
+        if (pos < 0) {
+            return -1;
+        }
+        if (slotsByZ == null) {
+            slotsByZ = new int[(nextZ >>> CHUNK_SHIFT) + 1][];
+            for (int i = 0; i < size; i++) {
+                putSlot(z(i), i);
+            }
+        }
+        int c = pos >>> CHUNK_SHIFT;
+        return c < slotsByZ.length && slotsByZ[c] != null ? slotsByZ[c][pos & CHUNK_MASK] - 1 : -1;
+    }
+
+    /**
+     * Diese Methode hält den Platz einer z-Position in {@link ShapeStore#slotsByZ} fest.
+     *
+     * @param pos  Die z-Position
+     * @param slot Der Platz oder {@code -1}, falls es keine Form mit dieser z-Position mehr gibt
+     */
+    private void putSlot(int pos, int slot) {
+        if (pos < 0) {
+            return;
+        }
+        int c = pos >>> CHUNK_SHIFT;
+        if (c >= slotsByZ.length) {
+            if (slot < 0) {
+                return;
+            }
+            slotsByZ = Arrays.copyOf(slotsByZ, Math.max(c + 1, slotsByZ.length + (slotsByZ.length >> 1)));
+        }
+        if (slotsByZ[c] == null) {
+            if (slot < 0) {
+                return;
+            }
+            slotsByZ[c] = new int[CHUNK_SIZE];
+        }
+        slotsByZ[c][pos & CHUNK_MASK] = slot + 1;
+    }
+
+    /**
+     * Diese Methode stellt eine gelöschte Form mit ihrer früheren z-Position wieder her.
+     * <p>Liegt der gelöschte Platz noch vor, wird er wiederverwendet. Wurde er bereits beim Verdichten entfernt, wird
+     * die Form mit ihrer z-Position hinzugefügt; die Plätze sind dann nicht mehr nach der z-Position sortiert.</p>
+     *
+     * @param pos    Die z-Position der Form
+     * @param t      Die Typnummer
+     * @param x0     Die x0-Koordinate
+     * @param y0     Die y0-Koordinate
+     * @param x1     Die x1-Koordinate
+     * @param y1     Die y1-Koordinate
+     * @param points Die Punkte der Form oder {@code null}
+     * @return Der Platz der Form
+     */
+    int revive(int pos, short t, double x0, double y0, double x1, double y1, Points points) {
+        int slot = slotOf(pos);
+        if (slot < 0) {
+            return append(t, x0, y0, x1, y1, points, pos);
+        }
+        if (type(slot) == DELETED) {
+            deleted--;
+        }
+        type[writable(slot)][slot & CHUNK_MASK] = t;
+        set(slot, x0, y0, x1, y1);
+        setPoints(slot, points);
+        return slot;
+    }
+
+    /**
+     * Diese Methode verschiebt eine Form mit {@link Shape#move(double, double, boolean)}.
+     *
+     * @param slot Der Platz der Form
+     * @param dx   Die Verschiebung in x-Richtung
+     * @param dy   Die Verschiebung in y-Richtung
+     */
+    void move(int slot, double dx, double dy) {
+        Shape v = view(slot);
+        v.move(dx, dy, false);
+        set(slot, v);
+    }
+
+    /**
+     * Diese Methode skaliert eine Form um einen Mittelpunkt. Die Koordinaten werden dabei wie mit
+     * {@link Shape#setCoords(double, double, double, double, boolean)} angepasst.
+     *
+     * @param slot Der Platz der Form
+     * @param cx   Die x-Koordinate des Mittelpunkts
+     * @param cy   Die y-Koordinate des Mittelpunkts
+     * @param f    Der Faktor
+     */
+    void scale(int slot, double cx, double cy, double f) {
+        Shape v = view(slot);
+        v.setCoords(cx + (v.getX0() - cx) * f, cy + (v.getY0() - cy) * f,
+                cx + (v.getX1() - cx) * f, cy + (v.getY1() - cy) * f, false);
+        set(slot, v);
+    }
+
+    /**
+     * @param slot Der Platz einer Form
+     * @return Die x0-Koordinate der Form
+     */
+    double x0(int slot) {
+        return x0[slot >>> CHUNK_SHIFT][slot & CHUNK_MASK];
+    }
+
+    /**
+     * @param slot Der Platz einer Form
+     * @return Die y0-Koordinate der Form
+     */
+    double y0(int slot) {
+        return y0[slot >>> CHUNK_SHIFT][slot & CHUNK_MASK];
+    }
+
+    /**
+     * @param slot Der Platz einer Form
+     * @return Die x1-Koordinate der Form
+     */
+    double x1(int slot) {
+        return x1[slot >>> CHUNK_SHIFT][slot & CHUNK_MASK];
+    }
+
+    /**
+     * @param slot Der Platz einer Form
+     * @return Die y1-Koordinate der Form
+     */
+    double y1(int slot) {
+        return y1[slot >>> CHUNK_SHIFT][slot & CHUNK_MASK];
+    }
+
+    /**
+     * @param slot Der Platz einer Form
+     * @return Die Punkte der Form oder {@code null}, falls sie nur aus ihren Koordinaten besteht
+     */
+    Points points(int slot) {
+        return points[slot >>> CHUNK_SHIFT][slot & CHUNK_MASK];
+    }
+
+    /**
+     * Diese Methode liefert das wiederverwendete Objekt des Typs einer Form, gesetzt auf ihre Koordinaten.
+     * <p>Das Objekt darf nicht verändert oder aufbewahrt werden, da es beim nächsten Aufruf für eine andere Form
+     * verwendet wird.</p>
+     *
+     * @param slot Der Platz der Form
+     * @return Die Form als wiederverwendetes Objekt
+     */
+    Shape view(int slot) {
+        int c = slot >>> CHUNK_SHIFT, i = slot & CHUNK_MASK;
+        Shape v = sharedView(type[c][i]);
+        v.setPoints(points[c][i]);
+        v.bind(x0[c][i], y0[c][i], x1[c][i], y1[c][i]);
+        return v;
+    }
+
+    /**
+     * @param t Eine Typnummer
+     * @return Das wiederverwendete Objekt des Typs; in einer {@link ShapeStore#snapshot(Function) Kopie} wird es
+     * beim ersten Aufruf erzeugt
+     */
+    private Shape sharedView(short t) {
+        Shape v = views.get(t);
+        if (v == null) {
+            v = factory.apply(typeNames.get(t));
+            views.set(t, v);
+        }
+        return v;
+    }
+
+    /**
+     * Diese Methode erzeugt für jeden Typ ein neues Objekt, das wie mit {@link ShapeStore#view(int)} wiederverwendet
+     * werden kann.
+     * <p>Sie wird von Threads verwendet, die gleichzeitig Formen zeichnen und deshalb nicht die gemeinsamen Objekte
+     * von {@link ShapeStore#view(int)} verwenden dürfen.</p>
+     *
+     * @return Die neuen Objekte, sortiert nach ihrer Typnummer
+     */
+    Shape[] newViews() {
+        Shape[] v = new Shape[typeNames.size()];
+        for (int t = 0; t < v.length; t++) {
+            v[t] = factory.apply(typeNames.get(t));
+        }
+        return v;
+    }
+
+    /**
+     * Diese Methode liefert das Objekt des Typs einer Form aus {@code views}, gesetzt auf ihre Koordinaten.
+     *
+     * @param slot  Der Platz der Form
+     * @param views Die Objekte aus {@link ShapeStore#newViews()}
+     * @return Die Form als wiederverwendetes Objekt
+     */
+    Shape view(int slot, Shape[] views) {
+        int c = slot >>> CHUNK_SHIFT, i = slot & CHUNK_MASK;
+        Shape v = views[type[c][i]];
+        v.setPoints(points[c][i]);
+        v.bind(x0[c][i], y0[c][i], x1[c][i], y1[c][i]);
+        return v;
+    }
+
+    /**
+     * Diese Methode erzeugt ein neues Objekt für eine Form, das bearbeitet werden kann.
+     * <p>Veränderungen werden erst mit {@link ShapeStore#set(int, Shape)} übernommen.</p>
+     *
+     * @param slot Der Platz der Form
+     * @return Die Form als neues Objekt
+     */
+    Shape get(int slot) {
+        Shape s = factory.apply(typeNames.get(type(slot)));
+        s.setPoints(points(slot));
+        s.bind(x0(slot), y0(slot), x1(slot), y1(slot));
+        return s;
+    }
+}
@@ -0,0 +1,391 @@
+package planer;
+
+import planer.shapes.Shape;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.IntConsumer;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Diese Klasse zeichnet alle Formen ohne Fenster in Kacheln und schreibt das Ergebnis als PNG-Datei.
+ * <p>Das Bild wird in Streifen aus einer Reihe von Kacheln aufgeteilt. Die Kacheln eines Streifens werden in einem
+ * {@link ForkJoinPool} gleichzeitig gezeichnet, jede nur mit den Formen, die der {@link ShapeIndex räumliche Index}
+ * für sie findet. Danach werden die Zeilen des Streifens in Abschnitten gleichzeitig komprimiert und in der
+ * richtigen Reihenfolge in die Datei geschrieben, während bereits der nächste Streifen gezeichnet wird.</p>
+ * <p>Es liegen nie mehr als zwei Streifen im Speicher, unabhängig von der Höhe des Bildes. Die Abschnitte werden wie
+ * bei {@code pigz} unabhängig voneinander komprimiert und mit {@link Deflater#SYNC_FLUSH} abgeschlossen, so dass sie
+ * aneinandergehängt einen gültigen zlib-Datenstrom ergeben; die Prüfsumme wird aus den Prüfsummen der Abschnitte
+ * zusammengesetzt.</p>
+ */
+final class TileExporter {
+    /**
+     * Die Kantenlänge einer Kachel in Pixeln
+     */
+    static final int TILE_SIZE = 256;
+    /**
+     * Die Anzahl der Zeilen, die höchstens zusammen in einem Abschnitt komprimiert werden
+     */
+    private static final int ROWS_PER_SEGMENT = 32;
+    /**
+     * Die Signatur am Anfang jeder PNG-Datei
+     */
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+    /**
+     * Der Kopf des zlib-Datenstroms: Deflate mit 32 KiB Fenster und normaler Kompression
+     */
+    private static final byte[] ZLIB_HEADER = {0x78, (byte) 0x9c};
+    /**
+     * Der Modul der Adler-32-Prüfsumme
+     */
+    private static final int ADLER_BASE = 65521;
+    /**
+     * Die Formen, die gezeichnet werden; sie dürfen während des Exports nicht verändert werden
+     */
+    private final ShapeStore store;
+    /**
+     * Der räumliche Index über {@link TileExporter#store}
+     */
+    private final ShapeIndex index;
+    /**
+     * Die Größe des Bildes in Pixeln
+     */
+    private final int width, height;
+    /**
+     * Der Bereich in Fensterkoordinaten, der exportiert wird
+     */
+    private final double minX, minY, maxX, maxY;
+    /**
+     * Die Zeichenfarbe
+     */
+    private final Color penColor;
+    /**
+     * Die Hintergrundfarbe
+     */
+    private final Color bgColor;
+    /**
+     * Die Strichbreite in Pixeln
+     */
+    private final float lineWidth;
+
+    /**
+     * @param store     Die Formen, die gezeichnet werden; sie dürfen während des Exports nicht verändert werden,
+     *                  weshalb meist eine {@link ShapeStore#snapshot() Kopie} übergeben wird
+     * @param width     Die Breite des Bildes in Pixeln
+     * @param height    Die Höhe des Bildes in Pixeln
+     * @param minX      Die Fensterkoordinate am linken Rand
+     * @param minY      Die Fensterkoordinate am unteren Rand
+     * @param maxX      Die Fensterkoordinate am rechten Rand
+     * @param maxY      Die Fensterkoordinate am oberen Rand
+     * @param penColor  Die Zeichenfarbe
+     * @param bgColor   Die Hintergrundfarbe
+     * @param lineWidth Die Strichbreite in Pixeln
+     */
+    TileExporter(ShapeStore store, int width, int height, double minX, double minY, double maxX, double maxY,
+                 Color penColor, Color bgColor, float lineWidth) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("The image must not be empty");
+        }
+        this.store = store;
+        this.width = width;
+        this.height = height;
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.penColor = penColor;
+        this.bgColor = bgColor;
+        this.lineWidth = lineWidth;
+        index = new ShapeIndex(store);
+    }
+
+    /**
+     * Diese Methode zeichnet das Bild und schreibt es als PNG-Datei.
+     * <p>Die Formen werden erst hier nach der z-Position sortiert und der räumliche Index erst hier aufgebaut, so dass
+     * der Aufrufer dafür nicht warten muss. Wirft {@code progress} eine Ausnahme, wird der Export abgebrochen; die Datei ist dann unvollständig.</p>
+     *
+     * @param f        Die Datei, die geschrieben wird
+     * @param progress Erhält die Anzahl der bisher geschriebenen Zeilen
+     * @throws IOException falls die Datei nicht geschrieben werden konnte
+     */
+    void write(Path f, IntConsumer progress) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(f), 1 << 16))) {
+            write(out, progress);
+        }
+    }
+
+    /**
+     * Diese Methode zeichnet das Bild und schreibt es im PNG-Format in einen Datenstrom.
+     *
+     * @param out      Der Datenstrom
+     * @param progress Erhält die Anzahl der bisher geschriebenen Zeilen
+     * @throws IOException falls beim Schreiben ein Fehler auftritt
+     */
+    private void write(DataOutputStream out, IntConsumer progress) throws IOException {
+        store.sortByZ();
+        index.rebuild();
+        out.write(PNG_SIGNATURE);
+        ByteArrayOutputStream header = new ByteArrayOutputStream(13);
+        DataOutputStream h = new DataOutputStream(header);
+        h.writeInt(width);
+        h.writeInt(height);
+        h.writeByte(8);     // Bits pro Kanal
+        h.writeByte(2);     // RGB
+        h.writeByte(0);     // Deflate
+        h.writeByte(0);     // Standardfilter
+        h.writeByte(0);     // ohne Interlacing
+        writeChunk(out, "IHDR", header.toByteArray(), 0, header.size());
+        writeChunk(out, "IDAT", ZLIB_HEADER, 0, ZLIB_HEADER.length);
+        int strips = (height + TILE_SIZE - 1) / TILE_SIZE;
+        long adler = 1;
+        ForkJoinTask<Segment[]> next = ForkJoinPool.commonPool().submit(new Strip(0));
+        try {
+            for (int s = 0; s < strips; s++) {
+                Segment[] segments = next.join();
+                next = s + 1 < strips ? ForkJoinPool.commonPool().submit(new Strip(s + 1)) : null;
+                for (Segment seg :
+                        segments) {
+                    writeChunk(out, "IDAT", seg.data, 0, seg.data.length);
+                    adler = combineAdler(adler, seg.adler, seg.length);
+                }
+                progress.accept(Math.min(height, (s + 1) * TILE_SIZE));
+            }
+        } finally {
+            if (next != null) {
+                next.cancel(true);
+            }
+        }
+        Deflater last = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        last.finish();
+        byte[] trailer = new byte[16];
+        int n = last.deflate(trailer);
+        last.end();
+        trailer[n++] = (byte) (adler >>> 24);
+        trailer[n++] = (byte) (adler >>> 16);
+        trailer[n++] = (byte) (adler >>> 8);
+        trailer[n++] = (byte) adler;
+        writeChunk(out, "IDAT", trailer, 0, n);
+        writeChunk(out, "IEND", trailer, 0, 0);
+    }
+
+    /**
+     * Diese Methode schreibt einen PNG-Block mit Länge, Typ, Daten und Prüfsumme.
+     *
+     * @param out  Der Datenstrom
+     * @param type Der Typ des Blocks aus vier Buchstaben
+     * @param data Die Daten
+     * @param off  Der Anfang der Daten in {@code data}
+     * @param len  Die Länge der Daten
+     * @throws IOException falls beim Schreiben ein Fehler auftritt
+     */
+    private static void writeChunk(DataOutputStream out, String type, byte[] data, int off, int len) throws IOException {
+        byte[] t = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(t);
+        crc.update(data, off, len);
+        out.writeInt(len);
+        out.write(t);
+        out.write(data, off, len);
+        out.writeInt((int) crc.getValue());
+    }
+
+    /**
+     * Diese Methode setzt die Adler-32-Prüfsumme zweier aufeinanderfolgender Datenblöcke zusammen, wie
+     * {@code adler32_combine} aus zlib.
+     *
+     * @param adler1 Die Prüfsumme des ersten Blocks
+     * @param adler2 Die Prüfsumme des zweiten Blocks
+     * @param len2   Die Länge des zweiten Blocks in Bytes
+     * @return Die Prüfsumme beider Blöcke hintereinander
+     */
+    static long combineAdler(long adler1, long adler2, long len2) {
+        long rem = len2 % ADLER_BASE;
+        long sum1 = adler1 & 0xffff;
+        long sum2 = (rem * sum1) % ADLER_BASE;
+        sum1 += (adler2 & 0xffff) + ADLER_BASE - 1;
+        sum2 += ((adler1 >>> 16) & 0xffff) + ((adler2 >>> 16) & 0xffff) + ADLER_BASE - rem;
+        sum1 %= ADLER_BASE;
+        sum2 %= ADLER_BASE;
+        return sum1 | (sum2 << 16);
+    }
+
+    /**
+     * Diese Methode zeichnet eine Kachel und kopiert sie in die Pixel ihres Streifens.
+     * <p>Gezeichnet werden nur die Formen, deren umschließendes Rechteck die Kachel einschließlich der halben
+     * Strichbreite schneidet, in ihrer Reihenfolge und mit eigenen Objekten aus {@link ShapeStore#newViews()}.</p>
+     *
+     * @param pixels Die Pixel des Streifens
+     * @param left   Die linke Pixelspalte der Kachel im Bild
+     * @param top    Die oberste Pixelzeile der Kachel im Bild
+     * @param w      Die Breite der Kachel
+     * @param h      Die Höhe der Kachel
+     */
+    private void drawTile(int[] pixels, int left, int top, int w, int h) {
+        double sx = (maxX - minX) / width, sy = (maxY - minY) / height;
+        double margin = lineWidth / 2 + 1;
+        double tMinX = minX + left * sx, tMaxX = minX + (left + w) * sx;
+        double tMaxY = maxY - top * sy, tMinY = maxY - (top + h) * sy;
+        BufferedImage tile = new BufferedImage(w, h, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = tile.createGraphics();
+        try {
+            g.setColor(bgColor);
+            g.fillRect(0, 0, w, h);
+            g.setColor(penColor);
+            g.setStroke(new BasicStroke(lineWidth));
+            // Alle Kacheln verwenden die Abbildung des ganzen Bildes, damit die Striche an den Kanten zusammenpassen.
+            g.translate(-left, -top);
+            Graphics2DCanvas canvas = new Graphics2DCanvas(g, width, height, minX, minY, maxX, maxY);
+            Shape[] views = store.newViews();
+            for (int slot :
+                    index.query(tMinX - margin * sx, tMinY - margin * sy, tMaxX + margin * sx, tMaxY + margin * sy)) {
+                store.view(slot, views).draw(canvas, false);
+            }
+        } finally {
+            g.dispose();
+        }
+        int[] data = ((DataBufferInt) tile.getRaster().getDataBuffer()).getData();
+        for (int row = 0; row < h; row++) {
+            System.arraycopy(data, row * w, pixels, row * width + left, w);
+        }
+    }
+
+    /**
+     * Diese Methode wandelt Zeilen in PNG-Zeilen ohne Filter um und komprimiert sie.
+     *
+     * @param pixels Die Pixel des Streifens
+     * @param from   Die erste Zeile im Streifen
+     * @param to     Die Zeile nach der letzten Zeile im Streifen
+     * @return Der komprimierte Abschnitt
+     */
+    private Segment compress(int[] pixels, int from, int to) {
+        byte[] line = new byte[1 + 3 * width];
+        byte[] buf = new byte[1 << 16];
+        Adler32 adler = new Adler32();
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            for (int row = from; row < to; row++) {
+                int p = row * width;
+                for (int x = 0, i = 1; x < width; x++) {
+                    int rgb = pixels[p + x];
+                    line[i++] = (byte) (rgb >>> 16);
+                    line[i++] = (byte) (rgb >>> 8);
+                    line[i++] = (byte) rgb;
+                }
+                adler.update(line);
+                deflater.setInput(line);
+                while (!deflater.needsInput()) {
+                    out.write(buf, 0, deflater.deflate(buf));
+                }
+            }
+            int n;
+            do {
+                n = deflater.deflate(buf, 0, buf.length, Deflater.SYNC_FLUSH);
+                out.write(buf, 0, n);
+            } while (n == buf.length);
+        } finally {
+            deflater.end();
+        }
+        return new Segment(out.toByteArray(), adler.getValue(), (long) (to - from) * line.length);
+    }
+
+    /**
+     * Ein komprimierter Abschnitt aus mehreren Zeilen.
+     */
+    private static final class Segment {
+        /**
+         * Die komprimierten Daten, abgeschlossen mit {@link Deflater#SYNC_FLUSH}
+         */
+        final byte[] data;
+        /**
+         * Die Adler-32-Prüfsumme der unkomprimierten Zeilen
+         */
+        final long adler;
+        /**
+         * Die Länge der unkomprimierten Zeilen in Bytes
+         */
+        final long length;
+
+        /**
+         * @param data   Die komprimierten Daten
+         * @param adler  Die Prüfsumme der unkomprimierten Zeilen
+         * @param length Die Länge der unkomprimierten Zeilen
+         */
+        Segment(byte[] data, long adler, long length) {
+            this.data = data;
+            this.adler = adler;
+            this.length = length;
+        }
+    }
+
+    /**
+     * Diese Aufgabe zeichnet einen Streifen aus einer Reihe von Kacheln und komprimiert seine Zeilen.
+     */
+    private final class Strip extends RecursiveTask<Segment[]> {
+        /**
+         * Die Version der serialisierten Form
+         */
+        private static final long serialVersionUID = 1L;
+        /**
+         * Die Nummer des Streifens
+         */
+        private final int strip;
+
+        /**
+         * @param strip Die Nummer des Streifens
+         */
+        Strip(int strip) {
+            this.strip = strip;
+        }
+
+        @Override
+        protected Segment[] compute() {
+            int top = strip * TILE_SIZE;
+            int rows = Math.min(TILE_SIZE, height - top);
+            int[] pixels = new int[width * rows];
+            List<RecursiveAction> tiles = new ArrayList<>();
+            for (int left = 0; left < width; left += TILE_SIZE) {
+                int x = left;
+                tiles.add(new RecursiveAction() {
+                    @Override
+                    protected void compute() {
+                        drawTile(pixels, x, top, Math.min(TILE_SIZE, width - x), rows);
+                    }
+                });
+            }
+            invokeAll(tiles);
+            Segment[] segments = new Segment[(rows + ROWS_PER_SEGMENT - 1) / ROWS_PER_SEGMENT];
+            List<RecursiveAction> compressions = new ArrayList<>();
+            for (int i = 0; i < segments.length; i++) {
+                int seg = i;
+                compressions.add(new RecursiveAction() {
+                    @Override
+                    protected void compute() {
+                        int from = seg * ROWS_PER_SEGMENT;
+                        segments[seg] = compress(pixels, from, Math.min(rows, from + ROWS_PER_SEGMENT));
+                    }
+                });
+            }
+            invokeAll(compressions);
+            return segments;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package planer;
+
+import ch.aplu.util.GPanel;
+
+/**
+ * Diese Klasse verwaltet den Ausschnitt der Zeichnung, der im {@link GPanel} angezeigt wird.
+ * <p>Der Ausschnitt wird in Fensterkoordinaten angegeben und mit {@link Viewport#apply(GPanel)} als Koordinatensystem
+ * des Panels gesetzt. Zu Beginn zeigt er den Bereich {@code [0, 1] × [0, 1]}, wie das {@link GPanel} ohne
+ * Vergrößerung.</p>
+ */
+final class Viewport {
+    /**
+     * Die kleinste Breite und Höhe des Ausschnitts
+     */
+    private static final double MIN_SIZE = 1e-6;
+    /**
+     * Die größte Breite und Höhe des Ausschnitts
+     */
+    private static final double MAX_SIZE = 1e6;
+    /**
+     * Die Grenzen des Ausschnitts
+     */
+    private double minX, minY, maxX, maxY;
+
+    /**
+     * Der Konstruktor erzeugt den Ausschnitt {@code [0, 1] × [0, 1]}.
+     */
+    Viewport() {
+        reset();
+    }
+
+    /**
+     * Diese Methode setzt den Ausschnitt auf {@code [0, 1] × [0, 1]} zurück.
+     */
+    void reset() {
+        minX = minY = 0;
+        maxX = maxY = 1;
+    }
+
+    /**
+     * Diese Methode vergrößert oder verkleinert den Ausschnitt um einen Punkt, der dabei an seiner Stelle bleibt.
+     * <p>Der Faktor wird so begrenzt, dass der Ausschnitt nicht kleiner als {@link Viewport#MIN_SIZE} und nicht größer
+     * als {@link Viewport#MAX_SIZE} wird.</p>
+     *
+     * @param factor Der Faktor, um den die Formen größer erscheinen sollen; Werte kleiner als {@code 1} verkleinern
+     * @param x      Die x-Koordinate des festen Punkts
+     * @param y      Die y-Koordinate des festen Punkts
+     */
+    void zoom(double factor, double x, double y) {
+        double size = Math.max(maxX - minX, maxY - minY);
+        double scale = Math.min(Math.max(1 / factor, MIN_SIZE / size), MAX_SIZE / size);
+        minX = x + (minX - x) * scale;
+        maxX = x + (maxX - x) * scale;
+        minY = y + (minY - y) * scale;
+        maxY = y + (maxY - y) * scale;
+    }
+
+    /**
+     * Diese Methode verschiebt den Ausschnitt.
+     *
+     * @param dx Die Verschiebung in x-Richtung
+     * @param dy Die Verschiebung in y-Richtung
+     */
+    void pan(double dx, double dy) {
+        minX += dx;
+        maxX += dx;
+        minY += dy;
+        maxY += dy;
+    }
+
+    /**
+     * Diese Methode setzt den Ausschnitt als Koordinatensystem eines Panels.
+     *
+     * @param p Das Panel
+     */
+    void apply(GPanel p) {
+        p.window(minX, maxX, minY, maxY);
+    }
+
+    /**
+     * @return Die x-Koordinate der Mitte
+     */
+    double getCenterX() {
+        return (minX + maxX) / 2;
+    }
+
+    /**
+     * @return Die y-Koordinate der Mitte
+     */
+    double getCenterY() {
+        return (minY + maxY) / 2;
+    }
+
+    /**
+     * @return Die linke Grenze des Ausschnitts
+     */
+    double getMinX() {
+        return minX;
+    }
+
+    /**
+     * @return Die untere Grenze des Ausschnitts
+     */
+    double getMinY() {
+        return minY;
+    }
+
+    /**
+     * @return Die rechte Grenze des Ausschnitts
+     */
+    double getMaxX() {
+        return maxX;
+    }
+
+    /**
+     * @return Die obere Grenze des Ausschnitts
+     */
+    double getMaxY() {
+        return maxY;
+    }
+}
@@ -0,0 +1,86 @@
+package planer;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.OutputStream;
+import java.util.function.IntConsumer;
+
+/**
+ * Diese Klasse schreibt alle Formen eines {@link ShapeStore}s im XML-Format in einen Datenstrom.
+ * <p>Das Wurzelelement ist {@code <shapes>}. Die Kindelemente heißen {@code <shape>}. Das Attribut {@code type} legt
+ * den Typ der Form fest. Die Attribute {@code x0}, {@code y0}, {@code x1} und {@code y1} legen die Koordinaten der
+ * Form fest. Formen aus vielen Punkten, wie eine {@link planer.shapes.Polyline}, erhalten zusätzlich das Attribut
+ * {@code points} mit ihren Punkten als Base64-Text (siehe {@link PointsCodec}).</p>
+ * <p>Jede Form wird direkt geschrieben, während über die Spalten iteriert wird. Es wird kein Dokument im Speicher
+ * aufgebaut, so dass der Speicherbedarf nicht von der Anzahl der Formen abhängt.</p>
+ */
+final class XmlShapeWriter {
+    /**
+     * Die Kodierung der geschriebenen Dateien
+     */
+    private static final String ENCODING = "UTF-8";
+    /**
+     * Die Anzahl an Formen, nach der jeweils der Fortschritt gemeldet wird
+     */
+    private static final int PROGRESS_INTERVAL = 8192;
+
+    /**
+     * Diese Klasse enthält nur statische Methoden.
+     */
+    private XmlShapeWriter() {
+    }
+
+    /**
+     * Diese Methode schreibt alle Formen, die nicht gelöscht sind, in den übergebenen Datenstrom.
+     * <p>Der Datenstrom wird nicht geschlossen und sollte gepuffert sein.</p>
+     *
+     * @param store Die Formen, die geschrieben werden sollen
+     * @param out   Der Datenstrom, in den geschrieben wird
+     * @throws XMLStreamException falls beim Schreiben ein Fehler auftritt
+     */
+    static void write(ShapeStore store, OutputStream out) throws XMLStreamException {
+        write(store, out, written -> {
+        });
+    }
+
+    /**
+     * Diese Methode schreibt alle Formen, die nicht gelöscht sind, in den übergebenen Datenstrom und meldet dabei
+     * regelmäßig den Fortschritt.
+     * <p>Der Datenstrom wird nicht geschlossen und sollte gepuffert sein. Wirft {@code progress} eine Ausnahme, wird
+     * das Schreiben abgebrochen.</p>
+     *
+     * @param store    Die Formen, die geschrieben werden sollen
+     * @param out      Der Datenstrom, in den geschrieben wird
+     * @param progress Erhält die Anzahl der bisher geschriebenen Formen
+     * @throws XMLStreamException falls beim Schreiben ein Fehler auftritt
+     */
+    static void write(ShapeStore store, OutputStream out, IntConsumer progress) throws XMLStreamException {
+        int written = 0;
+        XMLStreamWriter w = XMLOutputFactory.newInstance().createXMLStreamWriter(out, ENCODING);
+        w.writeStartDocument(ENCODING, "1.0");
+        w.writeStartElement("shapes");
+        for (int i = 0; i < store.size(); i++) {
+            if (!store.isAlive(i)) {
+                continue;
+            }
+            w.writeEmptyElement("shape");
+            w.writeAttribute("type", store.typeName(store.type(i)));
+            w.writeAttribute("x0", String.valueOf(store.x0(i)));
+            w.writeAttribute("y0", String.valueOf(store.y0(i)));
+            w.writeAttribute("x1", String.valueOf(store.x1(i)));
+            w.writeAttribute("y1", String.valueOf(store.y1(i)));
+            if (store.points(i) != null) {
+                w.writeAttribute("points", PointsCodec.encode(store.points(i)));
+            }
+            if (++written % PROGRESS_INTERVAL == 0) {
+                progress.accept(written);
+            }
+        }
+        w.writeEndElement();
+        w.writeEndDocument();
+        w.flush();
+        w.close();
+        progress.accept(written);
+    }
+}
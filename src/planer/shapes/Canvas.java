@@ -0,0 +1,72 @@
+package planer.shapes;
+
+/**
+ * Diese Schnittstelle beschreibt die Zeichenfläche, auf der eine {@link Shape} gezeichnet wird.
+ * <p>Alle Koordinaten und Längen werden in Fensterkoordinaten angegeben, so wie bei {@link ch.aplu.util.GPanel}. Im
+ * Programm zeichnen die Formen auf das {@link ch.aplu.util.GPanel}, ohne Fenster zum Beispiel in ein Bild.</p>
+ */
+public interface Canvas {
+    /**
+     * Diese Methode setzt die aktuelle Position, an der zum Beispiel ein Kreis gezeichnet wird.
+     *
+     * @param x Die x-Koordinate der Position
+     * @param y Die y-Koordinate der Position
+     */
+    void move(double x, double y);
+
+    /**
+     * Diese Methode zeichnet eine Strecke von der aktuellen Position zu einem Punkt, der danach die aktuelle Position
+     * ist.
+     *
+     * @param x Die x-Koordinate des Punkts
+     * @param y Die y-Koordinate des Punkts
+     */
+    void lineTo(double x, double y);
+
+    /**
+     * Diese Methode zeichnet den Umriss eines Kreises um die aktuelle Position.
+     *
+     * @param r Der Radius des Kreises
+     */
+    void circle(double r);
+
+    /**
+     * Diese Methode zeichnet den Umriss eines achsenparallelen Rechtecks zwischen zwei gegenüberliegenden Ecken.
+     *
+     * @param x0 Die x-Koordinate der ersten Ecke
+     * @param y0 Die y-Koordinate der ersten Ecke
+     * @param x1 Die x-Koordinate der zweiten Ecke
+     * @param y1 Die y-Koordinate der zweiten Ecke
+     */
+    void rectangle(double x0, double y0, double x1, double y1);
+
+    /**
+     * Diese Methode zeichnet den Umriss eines Dreiecks.
+     *
+     * @param x0 Die x-Koordinate der ersten Ecke
+     * @param y0 Die y-Koordinate der ersten Ecke
+     * @param x1 Die x-Koordinate der zweiten Ecke
+     * @param y1 Die y-Koordinate der zweiten Ecke
+     * @param x2 Die x-Koordinate der dritten Ecke
+     * @param y2 Die y-Koordinate der dritten Ecke
+     */
+    void triangle(double x0, double y0, double x1, double y1, double x2, double y2);
+
+    /**
+     * Diese Methode füllt ein achsenparalleles Rechteck zwischen zwei gegenüberliegenden Ecken.
+     *
+     * @param x0 Die x-Koordinate der ersten Ecke
+     * @param y0 Die y-Koordinate der ersten Ecke
+     * @param x1 Die x-Koordinate der zweiten Ecke
+     * @param y1 Die y-Koordinate der zweiten Ecke
+     */
+    void fillRectangle(double x0, double y0, double x1, double y1);
+
+    /**
+     * Diese Methode zeichnet einen einzelnen Pixel.
+     *
+     * @param x Die x-Koordinate des Punkts
+     * @param y Die y-Koordinate des Punkts
+     */
+    void point(double x, double y);
+}
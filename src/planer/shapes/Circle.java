@@ -1,13 +1,25 @@
 package planer.shapes;
 
-import ch.aplu.util.GPanel;
-
 /**
  * Diese Klasse zeichnet einen Kreis
  * <p>
  * Created by Ben Weber on 01.08.2017.
  */
 public class Circle extends Shape {
+    /**
+     * Der Mittelpunkt mit den aktuellen Koordinaten; wird in {@link Circle#coordsChanged()} berechnet und hat deshalb
+     * keinen Initialisierer
+     */
+    private double cx, cy;
+    /**
+     * Das Quadrat des Radius mit den aktuellen Koordinaten
+     */
+    private double r2;
+    /**
+     * Der Radius mit den aktuellen Koordinaten oder ein negativer Wert, solange er nicht berechnet wurde
+     */
+    private double r;
+
     /**
      * In diesem Konstruktor werden die Koordinaten der Form erstmals gesetzt. Dafür wird die Methode
      * {@link Shape#setCoords(double, double, double, double, boolean)} verwendet.
@@ -21,20 +33,69 @@ public class Circle extends Shape {
         super(x0, y0, x1, y1);
     }
 
+    /**
+     * Diese Methode berechnet den Mittelpunkt und das Quadrat des Radius neu. Der Radius selbst wird erst berechnet,
+     * wenn er gebraucht wird, da zum Überprüfen das Quadrat genügt.
+     */
+    @Override
+    protected void coordsChanged() {
+        cx = x0 + (x1 - x0) / 2;
+        cy = y0 + (y1 - y0) / 2;
+        r2 = (x0 - cx) * (x0 - cx) + (y0 - cy) * (y0 - cy);
+        r = -1;
+    }
+
     @Override
     public boolean isHit(double x, double y) {
-        return Math.sqrt(Math.pow(y - (y0 + (y1 - y0) / 2), 2) + Math.pow(x - (x0 + (x1 - x0) / 2), 2)) <= Math.sqrt(Math.pow(x0 - (x0 + (x1 - x0) / 2), 2) + Math.pow(y0 - (y0 + (y1 - y0) / 2), 2));
+        double dx = x - cx, dy = y - cy;
+        return dx * dx + dy * dy <= r2;
     }
 
     @Override
-    public void draw(GPanel panel, boolean temporary) {
+    public void draw(Canvas canvas, boolean temporary) {
         if (temporary) {
-            panel.move(tmpx0 + (tmpx1 - tmpx0) / 2, tmpy0 + (tmpy1 - tmpy0) / 2);
-            panel.circle(Math.sqrt(Math.pow((tmpy1 - tmpy0), 2) + Math.pow((tmpx1 - tmpx0), 2)) / 2);
+            canvas.move(tmpx0 + (tmpx1 - tmpx0) / 2, tmpy0 + (tmpy1 - tmpy0) / 2);
+            canvas.circle(Math.sqrt((tmpy1 - tmpy0) * (tmpy1 - tmpy0) + (tmpx1 - tmpx0) * (tmpx1 - tmpx0)) / 2);
         } else {
-            panel.move(x0 + (x1 - x0) / 2, y0 + (y1 - y0) / 2);
-            panel.circle(Math.sqrt(Math.pow((y1 - y0), 2) + Math.pow((x1 - x0), 2)) / 2);
+            canvas.move(cx, cy);
+            canvas.circle(getRadius());
+        }
+    }
+
+    /**
+     * Der Kreis liegt um den Mittelpunkt der Koordinaten und hat die halbe Diagonale als Radius. Er ragt deshalb über
+     * die Koordinaten hinaus.
+     *
+     * @return Die linke Grenze des Kreises
+     */
+    @Override
+    public double getMinX() {
+        return cx - getRadius();
+    }
+
+    @Override
+    public double getMinY() {
+        return cy - getRadius();
+    }
+
+    @Override
+    public double getMaxX() {
+        return cx + getRadius();
+    }
+
+    @Override
+    public double getMaxY() {
+        return cy + getRadius();
+    }
+
+    /**
+     * @return Der Radius des Kreises mit den aktuellen Koordinaten
+     */
+    private double getRadius() {
+        if (r < 0) {
+            r = Math.sqrt((y1 - y0) * (y1 - y0) + (x1 - x0) * (x1 - x0)) / 2;
         }
+        return r;
     }
 
     @Override
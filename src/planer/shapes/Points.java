@@ -0,0 +1,281 @@
+package planer.shapes;
+
+import java.util.Arrays;
+
+/**
+ * Diese Klasse speichert die Punkte einer Form, die aus mehr als ihren vier Koordinaten besteht, zum Beispiel einer
+ * {@link Polyline}.
+ * <p>Die Punkte werden relativ zum Rechteck zwischen den Koordinaten der Form gespeichert: {@code 0} entspricht
+ * {@code x0} beziehungsweise {@code y0}, {@link Points#SCALE} entspricht {@code x1} beziehungsweise {@code y1}. Jede
+ * Koordinate belegt damit nur 16 Bit. Da sich beim Verschieben und Skalieren nur die Koordinaten der Form ändern,
+ * müssen die Punkte dabei nicht verändert werden.</p>
+ * <p>Objekte dieser Klasse sind unveränderlich und können deshalb von mehreren Formen, Kopien und Threads gemeinsam
+ * verwendet werden.</p>
+ * <p>Zum Überprüfen werden die Strecken zwischen den Punkten beim ersten Aufruf in ein Gitter über das Rechteck
+ * einsortiert. Danach werden nur die Strecken in den Zellen um einen Punkt überprüft.</p>
+ */
+public final class Points {
+    /**
+     * Der Wert einer relativen Koordinate am Rand {@code x1} beziehungsweise {@code y1}
+     */
+    public static final int SCALE = 0xFFFF;
+    /**
+     * Die ungefähre Anzahl an Strecken pro Zelle des Gitters
+     */
+    private static final int SEGMENTS_PER_CELL = 4;
+    /**
+     * Die größte Anzahl an Zellen in jeder Richtung
+     */
+    private static final int MAX_CELLS = 64;
+    /**
+     * Die relativen Koordinaten, jeweils x und y hintereinander
+     */
+    private final char[] coords;
+    /**
+     * Der Abstand, in dem eine Strecke noch getroffen wird, relativ zur längeren Seite des Rechtecks
+     */
+    private final float tolerance;
+    /**
+     * Das Gitter der Strecken oder {@code null}, solange es nicht gebraucht wurde
+     */
+    private volatile Grid grid;
+
+    /**
+     * @param coords    Die relativen Koordinaten zwischen {@code 0} und {@link Points#SCALE}, jeweils x und y
+     *                  hintereinander; das Array wird kopiert
+     * @param tolerance Der Abstand, in dem eine Strecke noch getroffen wird, relativ zur längeren Seite des Rechtecks
+     * @throws IllegalArgumentException falls weniger als zwei Punkte übergeben werden oder der Abstand negativ ist
+     */
+    public Points(char[] coords, float tolerance) {
+        if (coords.length < 4 || coords.length % 2 != 0) {
+            throw new IllegalArgumentException("At least two points are needed");
+        }
+        if (!(tolerance >= 0)) {
+            throw new IllegalArgumentException("Invalid tolerance " + tolerance);
+        }
+        this.coords = coords.clone();
+        this.tolerance = tolerance;
+    }
+
+    /**
+     * @return Die Anzahl der Punkte
+     */
+    public int size() {
+        return coords.length / 2;
+    }
+
+    /**
+     * @param i Der Index eines Punkts
+     * @return Die relative x-Koordinate des Punkts zwischen {@code 0} und {@link Points#SCALE}
+     */
+    public int getU(int i) {
+        return coords[2 * i];
+    }
+
+    /**
+     * @param i Der Index eines Punkts
+     * @return Die relative y-Koordinate des Punkts zwischen {@code 0} und {@link Points#SCALE}
+     */
+    public int getV(int i) {
+        return coords[2 * i + 1];
+    }
+
+    /**
+     * @return Der Abstand, in dem eine Strecke noch getroffen wird, relativ zur längeren Seite des Rechtecks
+     */
+    public float getTolerance() {
+        return tolerance;
+    }
+
+    /**
+     * @param x0 Die x0-Koordinate der Form
+     * @param y0 Die y0-Koordinate der Form
+     * @param x1 Die x1-Koordinate der Form
+     * @param y1 Die y1-Koordinate der Form
+     * @return Der Abstand, in dem eine Strecke noch getroffen wird, in Fensterkoordinaten
+     */
+    public double getTolerance(double x0, double y0, double x1, double y1) {
+        return tolerance * Math.max(Math.abs(x1 - x0), Math.abs(y1 - y0));
+    }
+
+    /**
+     * Diese Methode zeichnet die Strecken zwischen den Punkten.
+     *
+     * @param canvas Die {@link Canvas Zeichenfläche}, auf der gezeichnet werden soll
+     * @param x0     Die x0-Koordinate der Form
+     * @param y0     Die y0-Koordinate der Form
+     * @param x1     Die x1-Koordinate der Form
+     * @param y1     Die y1-Koordinate der Form
+     */
+    public void draw(Canvas canvas, double x0, double y0, double x1, double y1) {
+        double sx = (x1 - x0) / SCALE, sy = (y1 - y0) / SCALE;
+        canvas.move(x0 + coords[0] * sx, y0 + coords[1] * sy);
+        for (int i = 2; i < coords.length; i += 2) {
+            canvas.lineTo(x0 + coords[i] * sx, y0 + coords[i + 1] * sy);
+        }
+    }
+
+    /**
+     * Diese Methode überprüft, ob ein Punkt höchstens {@link Points#getTolerance(double, double, double, double)} von
+     * einer der Strecken entfernt liegt.
+     *
+     * @param x  Die x-Koordinate, die überprüft werden soll
+     * @param y  Die y-Koordinate, die überprüft werden soll
+     * @param x0 Die x0-Koordinate der Form
+     * @param y0 Die y0-Koordinate der Form
+     * @param x1 Die x1-Koordinate der Form
+     * @param y1 Die y1-Koordinate der Form
+     * @return Ob eine Strecke getroffen wurde
+     */
+    public boolean isHit(double x, double y, double x0, double y0, double x1, double y1) {
+        double w = x1 - x0, h = y1 - y0, tol = getTolerance(x0, y0, x1, y1);
+        if (x < Math.min(x0, x1) - tol || x > Math.max(x0, x1) + tol
+                || y < Math.min(y0, y1) - tol || y > Math.max(y0, y1) + tol) {
+            return false;
+        }
+        Grid g = grid();
+        int n = g.cells;
+        // Die Zellen, die der Kreis mit dem Abstand um den Punkt berührt; ist eine Seite leer, liegen alle Punkte
+        // auf ihr und jede Zelle in dieser Richtung kommt in Frage.
+        int c0 = 0, c1 = n - 1, r0 = 0, r1 = n - 1;
+        if (w != 0) {
+            double u = (x - x0) / w * n, du = tol / Math.abs(w) * n;
+            c0 = clamp((int) Math.floor(u - du), n);
+            c1 = clamp((int) Math.floor(u + du), n);
+        }
+        if (h != 0) {
+            double v = (y - y0) / h * n, dv = tol / Math.abs(h) * n;
+            r0 = clamp((int) Math.floor(v - dv), n);
+            r1 = clamp((int) Math.floor(v + dv), n);
+        }
+        double sx = w / SCALE, sy = h / SCALE, tol2 = tol * tol;
+        for (int r = r0; r <= r1; r++) {
+            for (int c = c0; c <= c1; c++) {
+                int cell = r * n + c;
+                for (int k = g.start[cell]; k < g.start[cell + 1]; k++) {
+                    int i = 2 * g.segments[k];
+                    if (distanceSq(x, y, x0 + coords[i] * sx, y0 + coords[i + 1] * sy,
+                            x0 + coords[i + 2] * sx, y0 + coords[i + 3] * sy) <= tol2) {
+                        return true;
+                    }
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Diese Methode berechnet das Quadrat des Abstands eines Punkts von einer Strecke.
+     *
+     * @param x  Die x-Koordinate des Punkts
+     * @param y  Die y-Koordinate des Punkts
+     * @param ax Die x-Koordinate des Anfangs der Strecke
+     * @param ay Die y-Koordinate des Anfangs der Strecke
+     * @param bx Die x-Koordinate des Endes der Strecke
+     * @param by Die y-Koordinate des Endes der Strecke
+     * @return Das Quadrat des Abstands
+     */
+    public static double distanceSq(double x, double y, double ax, double ay, double bx, double by) {
+        double dx = bx - ax, dy = by - ay, len2 = dx * dx + dy * dy;
+        double t = len2 > 0 ? Math.max(0, Math.min(1, ((x - ax) * dx + (y - ay) * dy) / len2)) : 0;
+        double px = x - ax - t * dx, py = y - ay - t * dy;
+        return px * px + py * py;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Points && tolerance == ((Points) o).tolerance && Arrays.equals(coords, ((Points) o).coords);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(coords) + Float.hashCode(tolerance);
+    }
+
+    /**
+     * @param i Ein Index einer Zelle, auch außerhalb des Gitters
+     * @param n Die Anzahl der Zellen in einer Richtung
+     * @return Der nächste Index innerhalb des Gitters
+     */
+    private static int clamp(int i, int n) {
+        return Math.max(0, Math.min(n - 1, i));
+    }
+
+    /**
+     * @return Das Gitter der Strecken, das beim ersten Aufruf aufgebaut wird
+     */
+    private Grid grid() {
+        Grid g = grid;
+        if (g == null) {
+            // Gleichzeitige Aufrufe bauen dasselbe Gitter höchstens mehrfach auf.
+            g = new Grid(coords);
+            grid = g;
+        }
+        return g;
+    }
+
+    /**
+     * Ein gleichmäßiges Gitter über das Rechteck der Form, in dem jede Zelle die Strecken auflistet, deren
+     * umschließendes Rechteck sie berührt.
+     * <p>Die Strecken aller Zellen liegen hintereinander in einem Array; die Einträge der Zelle {@code i} liegen
+     * zwischen {@code start[i]} (inklusive) und {@code start[i + 1]} (exklusive).</p>
+     */
+    private static final class Grid {
+        /**
+         * Die Anzahl der Zellen in jeder Richtung
+         */
+        private final int cells;
+        /**
+         * Der erste Eintrag jeder Zelle in {@link Grid#segments}, mit einem zusätzlichen Eintrag am Ende
+         */
+        private final int[] start;
+        /**
+         * Die Indizes der Strecken aller Zellen; eine Strecke beginnt am Punkt mit demselben Index
+         */
+        private final int[] segments;
+
+        /**
+         * @param coords Die relativen Koordinaten der Punkte
+         */
+        private Grid(char[] coords) {
+            int count = coords.length / 2 - 1;
+            int n = (int) Math.ceil(Math.sqrt((double) count / SEGMENTS_PER_CELL));
+            cells = Math.max(1, Math.min(MAX_CELLS, n));
+            start = new int[cells * cells + 1];
+            // Im ersten Durchgang wird gezählt, im zweiten einsortiert.
+            for (int s = 0; s < count; s++) {
+                int i = 2 * s;
+                int c0 = cell(Math.min(coords[i], coords[i + 2])), c1 = cell(Math.max(coords[i], coords[i + 2]));
+                int r0 = cell(Math.min(coords[i + 1], coords[i + 3])), r1 = cell(Math.max(coords[i + 1], coords[i + 3]));
+                for (int r = r0; r <= r1; r++) {
+                    for (int c = c0; c <= c1; c++) {
+                        start[r * cells + c + 1]++;
+                    }
+                }
+            }
+            for (int c = 0; c < cells * cells; c++) {
+                start[c + 1] += start[c];
+            }
+            segments = new int[start[cells * cells]];
+            int[] next = Arrays.copyOf(start, cells * cells);
+            for (int s = 0; s < count; s++) {
+                int i = 2 * s;
+                int c0 = cell(Math.min(coords[i], coords[i + 2])), c1 = cell(Math.max(coords[i], coords[i + 2]));
+                int r0 = cell(Math.min(coords[i + 1], coords[i + 3])), r1 = cell(Math.max(coords[i + 1], coords[i + 3]));
+                for (int r = r0; r <= r1; r++) {
+                    for (int c = c0; c <= c1; c++) {
+                        segments[next[r * cells + c]++] = s;
+                    }
+                }
+            }
+        }
+
+        /**
+         * @param u Eine relative Koordinate zwischen {@code 0} und {@link Points#SCALE}
+         * @return Die Zelle, in der sie liegt
+         */
+        private int cell(int u) {
+            return Math.min(cells - 1, u * cells / SCALE);
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package planer.shapes;
+
+import java.util.Arrays;
+
+/**
+ * Diese Klasse zeichnet eine Freihandlinie aus beliebig vielen Punkten.
+ * <p>Während gezeichnet wird, werden die Punkte in wachsenden {@code double}-Arrays gesammelt und sofort vereinfacht:
+ * Ein neuer Punkt ersetzt den letzten, solange alle Punkte seit dem letzten festen Punkt höchstens die Größe eines
+ * Pixels von der Strecke zwischen diesem und dem neuen Punkt entfernt liegen. Erst wenn das nicht mehr gilt, wird der
+ * letzte Punkt fest. Gerade Abschnitte bestehen deshalb aus wenigen Punkten, ohne dass die Linie sichtbar verändert
+ * wird.</p>
+ * <p>Danach werden die Punkte als unveränderliche {@link Points} relativ zu den Koordinaten gespeichert, die das
+ * umschließende Rechteck der Punkte bilden, sobald das Zeichnen mit {@link Polyline#finish()} abgeschlossen wird.
+ * Verschieben und Skalieren verändert nur die Koordinaten. Ohne Punkte, zum Beispiel aus einer Datei ohne Punkte,
+ * ist die Linie eine Strecke zwischen den Koordinaten.</p>
+ */
+public class Polyline extends Shape {
+    /**
+     * Die anfängliche Anzahl an Punkten beim Zeichnen
+     */
+    private static final int INITIAL_CAPACITY = 64;
+    /**
+     * Die größte Anzahl an Punkten, die beim Vereinfachen gegen eine Strecke überprüft werden, bevor ein Punkt fest
+     * wird
+     */
+    private static final int MAX_RUN = 256;
+    /**
+     * Der Abstand in Pixeln, in dem die Linie noch getroffen wird
+     */
+    private static final double HIT_PIXELS = 4;
+    /**
+     * Die Größe eines Pixels in Fensterkoordinaten ohne Zoom: Die Fensterkoordinaten reichen von {@code 0} bis
+     * {@code 1}, das Fenster ist etwa tausend Pixel breit. Eine Linie ohne Punkte kennt die Größe eines Pixels beim
+     * Zeichnen nicht und wird deshalb mit dieser getroffen.
+     */
+    private static final double DEFAULT_PIXEL = 1e-3;
+    /**
+     * Die gespeicherten Punkte oder {@code null}, solange gezeichnet wird oder die Linie eine Strecke ist
+     */
+    private Points points;
+    /**
+     * Die Punkte, die beim Zeichnen behalten wurden, in Fensterkoordinaten
+     */
+    private double[] xs, ys;
+    /**
+     * Die Anzahl der behaltenen Punkte; {@code 0}, solange nicht gezeichnet wird
+     */
+    private int count;
+    /**
+     * Der Index des letzten festen Punkts; alle Punkte danach können beim Vereinfachen noch ersetzt werden
+     */
+    private int anchor;
+    /**
+     * Alle Punkte seit dem letzten festen Punkt, wie sie beim Zeichnen übergeben wurden
+     */
+    private double[] runX, runY;
+    /**
+     * Die Anzahl der Punkte seit dem letzten festen Punkt
+     */
+    private int runCount;
+    /**
+     * Das umschließende Rechteck der festen Punkte
+     */
+    private double fixedMinX, fixedMinY, fixedMaxX, fixedMaxY;
+    /**
+     * Der Abstand, um den beim Zeichnen vereinfacht wird, in Fensterkoordinaten
+     */
+    private double simplify;
+    /**
+     * Der Abstand, in dem die Linie noch getroffen wird, in Fensterkoordinaten; wird in
+     * {@link Polyline#coordsChanged()} berechnet und hat deshalb keinen Initialisierer
+     */
+    private double tolerance;
+
+    /**
+     * In diesem Konstruktor werden die Koordinaten der Linie erstmals gesetzt. Dazu wird der Konstruktor der
+     * Oberklasse {@link Shape} aufgerufen.
+     *
+     * @param x0 Die x0-Koordinate, die gesetzt werden soll
+     * @param y0 Die y0-Koordinate, die gesetzt werden soll
+     * @param x1 Die x1-Koordinate, die gesetzt werden soll
+     * @param y1 Die y1-Koordinate, die gesetzt werden soll
+     */
+    public Polyline(double x0, double y0, double x1, double y1) {
+        super(x0, y0, x1, y1);
+    }
+
+    /**
+     * Diese Methode nimmt beim Zeichnen die neue Position des Cursors als Punkt auf und vereinfacht die Linie dabei.
+     * <p>Beim ersten Aufruf beginnt die Linie am Startpunkt. Die Koordinaten werden auf das umschließende Rechteck der
+     * behaltenen Punkte gesetzt.</p>
+     *
+     * @param x0    Die x-Koordinate des Startpunkts
+     * @param y0    Die y-Koordinate des Startpunkts
+     * @param x1    Die x-Koordinate der neuen Position
+     * @param y1    Die y-Koordinate der neuen Position
+     * @param pixel Die Größe eines Pixels in Fensterkoordinaten
+     */
+    @Override
+    public void drawTo(double x0, double y0, double x1, double y1, double pixel) {
+        if (count == 0) {
+            xs = new double[INITIAL_CAPACITY];
+            ys = new double[INITIAL_CAPACITY];
+            runX = new double[MAX_RUN];
+            runY = new double[MAX_RUN];
+            points = null;
+            simplify = pixel;
+            tolerance = HIT_PIXELS * pixel;
+            xs[0] = fixedMinX = fixedMaxX = x0;
+            ys[0] = fixedMinY = fixedMaxY = y0;
+            count = 1;
+            anchor = 0;
+            runCount = 0;
+        }
+        if (x1 == xs[count - 1] && y1 == ys[count - 1]) {
+            return;
+        }
+        if (count - 1 > anchor) {
+            if (runCount < MAX_RUN && isCovered(x1, y1)) {
+                // Der letzte Punkt wird durch den neuen ersetzt.
+                count--;
+            } else {
+                // Der letzte Punkt wird fest.
+                anchor = count - 1;
+                fixedMinX = Math.min(fixedMinX, xs[anchor]);
+                fixedMinY = Math.min(fixedMinY, ys[anchor]);
+                fixedMaxX = Math.max(fixedMaxX, xs[anchor]);
+                fixedMaxY = Math.max(fixedMaxY, ys[anchor]);
+                runCount = 0;
+            }
+        }
+        if (count == xs.length) {
+            xs = Arrays.copyOf(xs, 2 * count);
+            ys = Arrays.copyOf(ys, 2 * count);
+        }
+        xs[count] = x1;
+        ys[count] = y1;
+        count++;
+        runX[runCount] = x1;
+        runY[runCount] = y1;
+        runCount++;
+        this.x0 = tmpx0 = Math.min(fixedMinX, x1);
+        this.y0 = tmpy0 = Math.min(fixedMinY, y1);
+        this.x1 = tmpx1 = Math.max(fixedMaxX, x1);
+        this.y1 = tmpy1 = Math.max(fixedMaxY, y1);
+    }
+
+    /**
+     * Diese Methode überprüft, ob alle Punkte seit dem letzten festen Punkt nah genug an der Strecke zwischen diesem
+     * und einem neuen Punkt liegen.
+     *
+     * @param x Die x-Koordinate des neuen Punkts
+     * @param y Die y-Koordinate des neuen Punkts
+     * @return Ob der letzte Punkt durch den neuen ersetzt werden kann
+     */
+    private boolean isCovered(double x, double y) {
+        double ax = xs[anchor], ay = ys[anchor], max = simplify * simplify;
+        for (int i = 0; i < runCount; i++) {
+            if (Points.distanceSq(runX[i], runY[i], ax, ay, x, y) > max) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Diese Methode schließt das Zeichnen ab und wandelt die behaltenen Punkte in {@link Points} um. Liegen alle
+     * Punkte auf einer Stelle, hat die Linie danach keine Punkte.
+     * <p>Wird gerade nicht gezeichnet, verändert sie nichts.</p>
+     */
+    @Override
+    public void finish() {
+        if (count > 0) {
+            double w = x1 - x0, h = y1 - y0, size = Math.max(w, h);
+            if (size > 0 && count > 1) {
+                char[] coords = new char[2 * count];
+                for (int i = 0; i < count; i++) {
+                    coords[2 * i] = (char) (w > 0 ? Math.round((xs[i] - x0) / w * Points.SCALE) : 0);
+                    coords[2 * i + 1] = (char) (h > 0 ? Math.round((ys[i] - y0) / h * Points.SCALE) : 0);
+                }
+                points = new Points(coords, (float) (tolerance / size));
+            }
+            count = 0;
+            xs = ys = runX = runY = null;
+            coordsChanged();
+        }
+    }
+
+    /**
+     * Diese Methode liefert die Punkte der Linie relativ zu ihren Koordinaten.
+     *
+     * @return Die Punkte oder {@code null}, falls die Linie eine Strecke zwischen ihren Koordinaten ist oder noch
+     * gezeichnet wird
+     */
+    @Override
+    public Points getPoints() {
+        return count == 0 ? points : null;
+    }
+
+    /**
+     * Diese Methode setzt die Punkte der Linie, zum Beispiel aus einer Datei.
+     *
+     * @param points Die Punkte oder {@code null}, falls die Linie eine Strecke zwischen ihren Koordinaten ist
+     */
+    @Override
+    public void setPoints(Points points) {
+        this.points = points;
+        count = 0;
+        coordsChanged();
+    }
+
+    /**
+     * Diese Methode berechnet den Abstand neu, in dem die Linie noch getroffen wird, da er mit der Größe der Linie
+     * wächst. Eine Linie ohne Punkte wird wie beim Zeichnen {@link Polyline#HIT_PIXELS} Pixel weit getroffen, gemessen
+     * mit {@link Polyline#DEFAULT_PIXEL}.
+     */
+    @Override
+    protected void coordsChanged() {
+        if (count == 0) {
+            tolerance = points != null ? points.getTolerance(x0, y0, x1, y1) : HIT_PIXELS * DEFAULT_PIXEL;
+        }
+    }
+
+    @Override
+    public boolean isHit(double x, double y) {
+        if (count > 0) {
+            double max = tolerance * tolerance;
+            for (int i = 1; i < count; i++) {
+                if (Points.distanceSq(x, y, xs[i - 1], ys[i - 1], xs[i], ys[i]) <= max) {
+                    return true;
+                }
+            }
+            return count == 1 && Points.distanceSq(x, y, xs[0], ys[0], xs[0], ys[0]) <= max;
+        }
+        if (points != null) {
+            return points.isHit(x, y, x0, y0, x1, y1);
+        }
+        return Points.distanceSq(x, y, x0, y0, x1, y1) <= tolerance * tolerance;
+    }
+
+    @Override
+    public void draw(Canvas canvas, boolean temporary) {
+        if (count > 0) {
+            canvas.move(xs[0], ys[0]);
+            for (int i = 1; i < count; i++) {
+                canvas.lineTo(xs[i], ys[i]);
+            }
+        } else if (points != null) {
+            if (temporary) {
+                points.draw(canvas, tmpx0, tmpy0, tmpx1, tmpy1);
+            } else {
+                points.draw(canvas, x0, y0, x1, y1);
+            }
+        } else if (temporary) {
+            canvas.move(tmpx0, tmpy0);
+            canvas.lineTo(tmpx1, tmpy1);
+        } else {
+            canvas.move(x0, y0);
+            canvas.lineTo(x1, y1);
+        }
+    }
+
+    /**
+     * Die Linie kann bis zu dem Abstand, in dem sie noch getroffen wird, über ihre Koordinaten hinaus angeklickt
+     * werden. Das umschließende Rechteck wird deshalb um diesen Abstand vergrößert, damit sie auch dort gefunden wird,
+     * wenn sie waagerecht oder senkrecht ist.
+     *
+     * @return Die linke Grenze der Linie
+     */
+    @Override
+    public double getMinX() {
+        return Math.min(x0, x1) - tolerance;
+    }
+
+    @Override
+    public double getMinY() {
+        return Math.min(y0, y1) - tolerance;
+    }
+
+    @Override
+    public double getMaxX() {
+        return Math.max(x0, x1) + tolerance;
+    }
+
+    @Override
+    public double getMaxY() {
+        return Math.max(y0, y1) + tolerance;
+    }
+
+    @Override
+    public String getShapeName() {
+        return "Polyline";
+    }
+}
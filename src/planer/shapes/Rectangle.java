@@ -1,11 +1,14 @@
 package planer.shapes;
 
-import ch.aplu.util.GPanel;
-
 /**
  * Diese Klasse verwaltet die Koordinaten eines Rechtecks und ermöglicht das Zeichnen und Verändern dieses.
  */
 public class Rectangle extends Shape {
+    /**
+     * Die Grenzen des Rechtecks mit den aktuellen Koordinaten; werden in {@link Rectangle#coordsChanged()} berechnet
+     * und haben deshalb keinen Initialisierer
+     */
+    private double minX, minY, maxX, maxY;
 
     /**
      * In diesem Konstruktor werden die Koordinaten des Rechtecks erstmals gesetzt. Dazu wird der Konstruktor der
@@ -22,7 +25,7 @@ public class Rectangle extends Shape {
 
     /**
      * Diese Methode überprüft, ob die übergebenen Koordinaten in den Koordinaten des Rechtecks liegen.
-     * <p>Dabei wird durch den ternären Operator {@code ?:} festgelegt welche Intervalle überprüft werden müssen.</p>
+     * <p>Dafür werden die Grenzen verwendet, die beim Setzen der Koordinaten berechnet wurden.</p>
      *
      * @param x Die x-Koordinate, die überprüft werden soll
      * @param y Die y-Koordinate, die überprüft werden soll
@@ -31,26 +34,55 @@ public class Rectangle extends Shape {
      */
     @Override
     public boolean isHit(double x, double y) {
-        boolean xCoords, yCoords;
-        xCoords = x0 < x1 ? x >= x0 && x <= x1 : x >= x1 && x <= x0;
-        yCoords = y0 < y1 ? y >= y0 && y <= y1 : y >= y1 && y <= y0;
-        return xCoords && yCoords;
+        return x >= minX && x <= maxX && y >= minY && y <= maxY;
+    }
+
+    /**
+     * Diese Methode berechnet die Grenzen des Rechtecks neu, so dass sie beim Überprüfen nicht jedes Mal aus den
+     * Koordinaten bestimmt werden müssen.
+     */
+    @Override
+    protected void coordsChanged() {
+        minX = Math.min(x0, x1);
+        minY = Math.min(y0, y1);
+        maxX = Math.max(x0, x1);
+        maxY = Math.max(y0, y1);
+    }
+
+    @Override
+    public double getMinX() {
+        return minX;
+    }
+
+    @Override
+    public double getMinY() {
+        return minY;
+    }
+
+    @Override
+    public double getMaxX() {
+        return maxX;
+    }
+
+    @Override
+    public double getMaxY() {
+        return maxY;
     }
 
     /**
      * Diese Methode zeichnet das Rechteck, welches durch diese Klasse beschrieben wird.
-     * <p>Sie macht sich {@link GPanel#rectangle(double, double, double, double)} zunutze und verwendet entsprechend des Parameters
+     * <p>Sie macht sich {@link Canvas#rectangle(double, double, double, double)} zunutze und verwendet entsprechend des Parameters
      * {@code temporary} die aktuellen oder die temporären Koordinaten.</p>
      *
-     * @param panel     Das {@link GPanel} auf dem gezeichnet werden soll
+     * @param canvas    Die {@link Canvas Zeichenfläche}, auf der gezeichnet werden soll
      * @param temporary Ob die temporären oder aktuellen Koordianten verwendet werden sollen
      */
     @Override
-    public void draw(GPanel panel, boolean temporary) {
+    public void draw(Canvas canvas, boolean temporary) {
         if (temporary) {
-            panel.rectangle(tmpx0, tmpy0, tmpx1, tmpy1);
+            canvas.rectangle(tmpx0, tmpy0, tmpx1, tmpy1);
         } else {
-            panel.rectangle(x0, y0, x1, y1);
+            canvas.rectangle(x0, y0, x1, y1);
         }
     }
 
@@ -1,7 +1,5 @@
 package planer.shapes;
 
-import ch.aplu.util.GPanel;
-
 /**
  * Diese Klasse verwaltet die Koordinaten eines rechtwinkligen Dreiecks und ermöglicht das Zeichnen desselben.
  */
@@ -42,15 +40,15 @@ public class RightTriangle extends Triangle {
     }
 
     /**
-     * Diese Methode zeichnet das Dreieck auf dem übergebenen {@link GPanel}.
+     * Diese Methode zeichnet das Dreieck auf der übergebenen {@link Canvas Zeichenfläche}.
      * <p>Je nach Zustand des Parameters {@code temporary} werden die aktuellen oder temporären Koordinaten verwendet.</p>
      *
-     * @param panel     Das {@link GPanel} auf dem gezeichnet werden soll
+     * @param canvas    Die {@link Canvas Zeichenfläche}, auf der gezeichnet werden soll
      * @param temporary Ob die temporären oder aktuellen Koordianten verwendet werden sollen
      */
     @Override
-    public void draw(GPanel panel, boolean temporary) {
-        panel.triangle(
+    public void draw(Canvas canvas, boolean temporary) {
+        canvas.triangle(
                 temporary ? tmpx0 : x0,
                 temporary ? tmpy0 : y0,
                 temporary ? tmpx1 : x1,
@@ -1,7 +1,5 @@
 package planer.shapes;
 
-import ch.aplu.util.GPanel;
-
 /**
  * Diese abstrakte Klasse schreibt die Methoden und Variablen vor, die nötig sind, um das Bearbeiten von Formen im
  * {@link planer.Planer} zu ermöglichen.
@@ -19,6 +17,8 @@ public abstract class Shape {
     /**
      * In diesem Konstruktor werden die Koordinaten der Form erstmals gesetzt. Dafür wird die Methode
      * {@link Shape#setCoords(double, double, double, double, boolean)} verwendet.
+     * <p>Dabei wird bereits {@link Shape#coordsChanged()} aufgerufen, bevor die Felder der Unterklasse initialisiert
+     * sind. Felder, die dort berechnet werden, dürfen deshalb keinen Initialisierer haben.</p>
      *
      * @param x0 Die x0-Koordinate, die gesetzt werden soll
      * @param y0 Die y0-Koordinate, die gesetzt werden soll
@@ -41,13 +41,13 @@ public abstract class Shape {
     public abstract boolean isHit(double x, double y);
 
     /**
-     * Diese Methode zeichnet die Form, auf der sie aufgerufen wurde, auf dem übergebenen {@link GPanel}.
+     * Diese Methode zeichnet die Form, auf der sie aufgerufen wurde, auf der übergebenen {@link Canvas Zeichenfläche}.
      * <p>Dies kann entweder mit den aktuellen oder den temporären Koordinaten geschehen.</p>
      *
-     * @param panel     Das {@link GPanel} auf dem gezeichnet werden soll
+     * @param canvas    Die {@link Canvas Zeichenfläche}, auf der gezeichnet werden soll
      * @param temporary Ob die temporären oder aktuellen Koordianten verwendet werden sollen
      */
-    public abstract void draw(GPanel panel, boolean temporary);
+    public abstract void draw(Canvas canvas, boolean temporary);
 
     /**
      * Diese Methode setzt die Koordinaten der Form, auf der sie aufgerufen wurde.
@@ -74,9 +74,83 @@ public abstract class Shape {
             tmpy0 = y0;
             tmpx1 = x1;
             tmpy1 = y1;
+            coordsChanged();
         }
     }
 
+    /**
+     * Diese Methode setzt die aktuellen und die temporären Koordinaten unverändert.
+     * <p>Im Gegensatz zu {@link Shape#setCoords(double, double, double, double, boolean)} werden die Koordinaten nicht
+     * angepasst. Die Methode wird verwendet, um eine Form auf bereits gespeicherte Koordinaten zu setzen.</p>
+     *
+     * @param x0 Die x0-Koordinate, die gesetzt werden soll
+     * @param y0 Die y0-Koordinate, die gesetzt werden soll
+     * @param x1 Die x1-Koordinate, die gesetzt werden soll
+     * @param y1 Die y1-Koordinate, die gesetzt werden soll
+     */
+    public void bind(double x0, double y0, double x1, double y1) {
+        this.x0 = tmpx0 = x0;
+        this.y0 = tmpy0 = y0;
+        this.x1 = tmpx1 = x1;
+        this.y1 = tmpy1 = y1;
+        coordsChanged();
+    }
+
+    /**
+     * Diese Methode wird beim Zeichnen einer neuen Form für jede Position des Cursors aufgerufen, auch für
+     * Zwischenpositionen, die nicht einzeln gezeichnet werden.
+     * <p>Standardmäßig werden die Koordinaten mit {@link Shape#setCoords(double, double, double, double, boolean)}
+     * auf den Startpunkt und die neue Position gesetzt. Formen aus vielen Punkten, wie eine {@link Polyline}, nehmen
+     * die Position stattdessen als neuen Punkt auf.</p>
+     *
+     * @param x0    Die x-Koordinate des Startpunkts
+     * @param y0    Die y-Koordinate des Startpunkts
+     * @param x1    Die x-Koordinate der neuen Position
+     * @param y1    Die y-Koordinate der neuen Position
+     * @param pixel Die Größe eines Pixels in Fensterkoordinaten; kleinere Abweichungen sind nicht sichtbar
+     */
+    public void drawTo(double x0, double y0, double x1, double y1, double pixel) {
+        setCoords(x0, y0, x1, y1, false);
+    }
+
+    /**
+     * Diese Methode wird aufgerufen, wenn das Zeichnen einer neuen Form abgeschlossen ist, bevor sie gespeichert wird.
+     * <p>Standardmäßig macht sie nichts. Formen aus vielen Punkten, wie eine {@link Polyline}, wandeln hier die
+     * gesammelten Punkte in {@link Points} um, die danach von {@link Shape#getPoints()} geliefert werden. Ein zweiter
+     * Aufruf verändert nichts.</p>
+     */
+    public void finish() {
+    }
+
+    /**
+     * Diese Methode liefert die Punkte einer Form, die aus mehr als ihren vier Koordinaten besteht.
+     * <p>Die Punkte sind relativ zu den aktuellen Koordinaten gespeichert und werden mit der Form gespeichert und
+     * geladen. Verschieben und Skalieren verändert sie nicht.</p>
+     *
+     * @return Die Punkte oder {@code null}, falls die Form nur aus ihren Koordinaten besteht
+     */
+    public Points getPoints() {
+        return null;
+    }
+
+    /**
+     * Diese Methode setzt die Punkte einer Form, die von {@link Shape#getPoints()} geliefert wurden.
+     * <p>Formen, die nur aus ihren Koordinaten bestehen, ignorieren die Punkte.</p>
+     *
+     * @param points Die Punkte oder {@code null}
+     */
+    public void setPoints(Points points) {
+    }
+
+    /**
+     * Diese Methode wird aufgerufen, nachdem sich die aktuellen Koordinaten geändert haben.
+     * <p>Unterklassen können sie überschreiben, um Werte, die sie bei jedem Überprüfen oder Zeichnen bräuchten, wie
+     * einen Mittelpunkt oder einen Radius, nur einmal pro Änderung zu berechnen. Unterklassen, die die Koordinaten
+     * direkt setzen, müssen sie danach selbst aufrufen.</p>
+     */
+    protected void coordsChanged() {
+    }
+
     /**
      * Diese Methode gibt die aktuellen Koordinaten der Form zurück.
      * <p>Die Koordinaten sind in einem {@code double}-Array gespeichert. Index 0 entspricht x0, 1 entspricht y0, 2
@@ -85,7 +159,22 @@ public abstract class Shape {
      * @return Die aktuellen Koordinaten der Form
      */
     public double[] getCoords() {
-        return new double[]{x0, y0, x1, y1};
+        return getCoords(new double[4]);
+    }
+
+    /**
+     * Diese Methode schreibt die aktuellen Koordinaten der Form in ein vorhandenes Array, ohne ein neues anzulegen.
+     * <p>Die Reihenfolge entspricht {@link Shape#getCoords()}.</p>
+     *
+     * @param coords Ein Array mit mindestens vier Elementen
+     * @return Das übergebene Array
+     */
+    public double[] getCoords(double[] coords) {
+        coords[0] = x0;
+        coords[1] = y0;
+        coords[2] = x1;
+        coords[3] = y1;
+        return coords;
     }
 
     /**
@@ -108,6 +197,7 @@ public abstract class Shape {
             y0 += y;
             x1 += x;
             y1 += y;
+            coordsChanged();
         }
     }
 
@@ -147,6 +237,44 @@ public abstract class Shape {
         return y1;
     }
 
+    /**
+     * Diese Methode liefert die kleinste x-Koordinate des Rechtecks, das die Form umschließt.
+     * <p>Formen, die über die Koordinaten hinausragen, müssen diese Methode und die übrigen Methoden für das
+     * umschließende Rechteck überschreiben.</p>
+     *
+     * @return Die linke Grenze der aktuellen Form
+     */
+    public double getMinX() {
+        return Math.min(x0, x1);
+    }
+
+    /**
+     * Diese Methode liefert die kleinste y-Koordinate des Rechtecks, das die Form umschließt.
+     *
+     * @return Die untere Grenze der aktuellen Form
+     */
+    public double getMinY() {
+        return Math.min(y0, y1);
+    }
+
+    /**
+     * Diese Methode liefert die größte x-Koordinate des Rechtecks, das die Form umschließt.
+     *
+     * @return Die rechte Grenze der aktuellen Form
+     */
+    public double getMaxX() {
+        return Math.max(x0, x1);
+    }
+
+    /**
+     * Diese Methode liefert die größte y-Koordinate des Rechtecks, das die Form umschließt.
+     *
+     * @return Die obere Grenze der aktuellen Form
+     */
+    public double getMaxY() {
+        return Math.max(y0, y1);
+    }
+
     /**
      * Diese Methode setzt die temporären Koordinaten als die aktuellen Koordinaten.
      */
@@ -155,17 +283,17 @@ public abstract class Shape {
         y0 = tmpy0;
         x1 = tmpx1;
         y1 = tmpy1;
+        coordsChanged();
     }
 
     /**
      * Diese Methode liefert den Klassennamen, so wie im Quellcode verwendet wird.
+     * <p>Der Name wird von der JVM zwischengespeichert; es wird bei keinem Aufruf ein Text zerlegt.</p>
      *
      * @return Der Name der implementirenden Klasse im Quellcode
      */
     public String getClassName() {
-        String na = this.getClass().getName();
-        String[] n = na.split("\\.");
-        return n[2];
+        return getClass().getSimpleName();
     }
 
     /**
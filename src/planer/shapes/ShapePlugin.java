@@ -0,0 +1,35 @@
+package planer.shapes;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Diese Annotation beschreibt die Formen eines {@link ShapeProvider}s.
+ * <p>Sie wird gelesen, ohne die Klasse des {@link ShapeProvider}s zu initialisieren oder eine Form-Klasse zu laden.
+ * Damit kann das Menü aufgebaut werden, ohne dass der Start mit der Anzahl der Plugins langsamer wird.</p>
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface ShapePlugin {
+    /**
+     * @return Der Name des Untermenüs, in dem die Formen angezeigt werden, oder ein leerer Text, falls sie direkt im
+     * Menü angezeigt werden
+     */
+    String group() default "";
+
+    /**
+     * @return Die Namen der Formen, unter denen sie in Dateien gespeichert werden; sie dürfen nicht mit den Namen
+     * anderer Formen übereinstimmen
+     */
+    String[] names();
+
+    /**
+     * @return Die Namen, die im Menü angezeigt werden, in derselben Reihenfolge wie {@link ShapePlugin#names()}; fehlt
+     * ein Name, wird der Name der Form angezeigt
+     */
+    String[] labels() default {};
+}
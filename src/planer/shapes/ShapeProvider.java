@@ -0,0 +1,29 @@
+package planer.shapes;
+
+/**
+ * Diese Schnittstelle wird von Plugins implementiert, die weitere Formen aus einer eigenen JAR-Datei bereitstellen.
+ * <p>Die Implementierung wird in {@code META-INF/services/planer.shapes.ShapeProvider} eingetragen und mit
+ * {@link ShapePlugin} beschrieben. Das Programm liest nur die Annotation, ohne die Klasse zu initialisieren; erst wenn
+ * eine Form des Plugins zum ersten Mal gebraucht wird, wird ein Objekt erzeugt und
+ * {@link ShapeProvider#getShapeClass(String)} aufgerufen. Für die Form-Klassen gelten dieselben Regeln wie für die
+ * Formen in {@code shapeClasses.xml}.</p>
+ * <p>Ein Beispiel:</p>
+ * <pre>
+ * &#64;ShapePlugin(group = "Furniture", names = {"Table", "Chair"})
+ * public class FurnitureShapes implements ShapeProvider {
+ * }
+ * </pre>
+ */
+public interface ShapeProvider {
+    /**
+     * Diese Methode lädt die Form-Klasse zu einem Namen aus {@link ShapePlugin#names()}.
+     * <p>Ohne eigene Implementierung wird die Klasse mit diesem Namen im Package der Implementierung geladen.</p>
+     *
+     * @param name Der Name der Form
+     * @return Die Form-Klasse
+     * @throws ClassNotFoundException falls es keine Klasse zu dem Namen gibt
+     */
+    default Class<?> getShapeClass(String name) throws ClassNotFoundException {
+        return Class.forName(getClass().getPackageName() + "." + name, true, getClass().getClassLoader());
+    }
+}
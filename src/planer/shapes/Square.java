@@ -31,6 +31,8 @@ public class Square extends Rectangle {
      * In dieser Methode werden die Koordinaten des Quadrats gesetzt.
      * <p>Je nachdem, ob die {@code x0}-/{@code y0}-Koordinate oder {@code x1}-/{@code y1}-Koordinaten größer sind, werden die
      * Koordinaten angepaßt, um ein Quadrat zu zeichnen.</p>
+     * <p>Die angepassten Koordinaten werden für temporäre und aktuelle Koordinaten gleich berechnet und dann an
+     * {@link Shape#setCoords(double, double, double, double, boolean)} übergeben.</p>
      *
      * @param x0 Die x0-Koordinate, die gesetzt werden soll
      * @param y0 Die y0-Koordinate, die gesetzt werden soll
@@ -39,58 +41,15 @@ public class Square extends Rectangle {
      */
     @Override
     public void setCoords(double x0, double y0, double x1, double y1, boolean temporary) {
-        if (!temporary) {
-            this.x0 = x0;
-            this.y0 = y0;
-            if ((x1 > x0 && y1 > y0) || (x1 < x0 && y1 < y0)) {
-                if (Math.abs(x1 - x0) < Math.abs(y1 - y0)) {
-                    this.y1 = y1;
-                    this.x1 = x0 + (y1 - y0);
-                } else if (Math.abs(y1 - y0) < Math.abs(x1 - x0)) {
-                    this.x1 = x1;
-                    this.y1 = y0 + (x1 - x0);
-                } else {
-                    this.x1 = x1;
-                    this.y1 = y1;
-                }
-            } else if (Math.abs(x1 - x0) < Math.abs(y1 - y0)) {
-                this.y1 = y1;
-                this.x1 = x0 - (y1 - y0);
-            } else if (Math.abs(y1 - y0) < Math.abs(x1 - x0)) {
-                this.x1 = x1;
-                this.y1 = y0 - (x1 - x0);
-            } else {
-                this.x1 = x1;
-                this.y1 = y1;
-            }
-            tmpx0 = this.x0;
-            tmpy0 = this.y0;
-            tmpx1 = this.x1;
-            tmpy1 = this.y1;
-        } else {
-            tmpx0 = x0;
-            tmpy0 = y0;
-            if ((x1 > x0 && y1 > y0) || (x1 < x0 && y1 < y0)) {
-                if (Math.abs(x1 - x0) < Math.abs(y1 - y0)) {
-                    tmpy1 = y1;
-                    tmpx1 = x0 + (y1 - y0);
-                } else if (Math.abs(y1 - y0) < Math.abs(x1 - x0)) {
-                    tmpx1 = x1;
-                    tmpy1 = y0 + (x1 - x0);
-                } else {
-                    tmpx1 = x1;
-                    tmpy1 = y1;
-                }
-            } else if (Math.abs(x1 - x0) < Math.abs(y1 - y0)) {
-                tmpy1 = y1;
-                tmpx1 = x0 - (y1 - y0);
-            } else if (Math.abs(y1 - y0) < Math.abs(x1 - x0)) {
-                tmpx1 = x1;
-                tmpy1 = y0 - (x1 - x0);
-            } else {
-                tmpx1 = x1;
-                tmpy1 = y1;
-            }
+        double w = x1 - x0, h = y1 - y0;
+        // Zeigen beide Seiten in dieselbe Richtung, wird die kürzere Seite in diese Richtung verlängert, sonst in die
+        // Gegenrichtung.
+        double sign = (w > 0 && h > 0) || (w < 0 && h < 0) ? 1 : -1;
+        if (Math.abs(w) < Math.abs(h)) {
+            x1 = x0 + sign * h;
+        } else if (Math.abs(h) < Math.abs(w)) {
+            y1 = y0 + sign * w;
         }
+        super.setCoords(x0, y0, x1, y1, temporary);
     }
 }
@@ -0,0 +1,100 @@
+package planer;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+import static jdk.incubator.vector.VectorOperators.GE;
+import static jdk.incubator.vector.VectorOperators.GT;
+import static jdk.incubator.vector.VectorOperators.LE;
+import static jdk.incubator.vector.VectorOperators.LT;
+
+/**
+ * Dieser {@link HitTester} überprüft mit der Vector API so viele Kandidaten gleichzeitig, wie in einen Vektor der
+ * bevorzugten Länge passen.
+ * <p>Die Berechnungen entsprechen Schritt für Schritt denen des {@link ScalarHitTester}s; es werden keine
+ * zusammengefassten Multiplikationen und Additionen verwendet, damit die Ergebnisse gleich bleiben. Die restlichen
+ * Kandidaten, die keinen ganzen Vektor mehr füllen, werden einzeln überprüft.</p>
+ * <p>Die Klasse liegt getrennt vom übrigen Programm in {@code vector/src}, da sie nur mit dem Modul
+ * {@code jdk.incubator.vector} übersetzt werden kann. Sie wird nur über {@link HitTester#create(ShapeStore)} per
+ * Reflection geladen, wenn das Modul verfügbar ist.</p>
+ */
+final class VectorHitTester extends ScalarHitTester {
+    /**
+     * Die bevorzugte Vektorlänge für {@code double}
+     */
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    /**
+     * @param store Die Formen, die überprüft werden
+     */
+    VectorHitTester(ShapeStore store) {
+        super(store);
+    }
+
+    @Override
+    void testBoxes(double x, double y) {
+        Batch b = boxes;
+        int bound = SPECIES.loopBound(b.size);
+        for (int i = 0; i < bound; i += SPECIES.length()) {
+            DoubleVector x0 = DoubleVector.fromArray(SPECIES, b.x0, i), x1 = DoubleVector.fromArray(SPECIES, b.x1, i);
+            DoubleVector y0 = DoubleVector.fromArray(SPECIES, b.y0, i), y1 = DoubleVector.fromArray(SPECIES, b.y1, i);
+            VectorMask<Double> in = x0.min(x1).compare(LE, x).and(x0.max(x1).compare(GE, x))
+                    .and(y0.min(y1).compare(LE, y)).and(y0.max(y1).compare(GE, y));
+            report(in, b, i);
+        }
+        testBoxes(x, y, bound);
+    }
+
+    @Override
+    void testCircles(double x, double y) {
+        Batch b = circles;
+        int bound = SPECIES.loopBound(b.size);
+        for (int i = 0; i < bound; i += SPECIES.length()) {
+            DoubleVector x0 = DoubleVector.fromArray(SPECIES, b.x0, i), x1 = DoubleVector.fromArray(SPECIES, b.x1, i);
+            DoubleVector y0 = DoubleVector.fromArray(SPECIES, b.y0, i), y1 = DoubleVector.fromArray(SPECIES, b.y1, i);
+            DoubleVector cx = x0.add(x1.sub(x0).div(2)), cy = y0.add(y1.sub(y0).div(2));
+            DoubleVector rx = x0.sub(cx), ry = y0.sub(cy);
+            DoubleVector r2 = rx.mul(rx).add(ry.mul(ry));
+            DoubleVector dx = DoubleVector.broadcast(SPECIES, x).sub(cx), dy = DoubleVector.broadcast(SPECIES, y).sub(cy);
+            report(dx.mul(dx).add(dy.mul(dy)).compare(LE, r2), b, i);
+        }
+        testCircles(x, y, bound);
+    }
+
+    @Override
+    void testRightTriangles(double x, double y) {
+        Batch b = rightTriangles;
+        int bound = SPECIES.loopBound(b.size);
+        for (int i = 0; i < bound; i += SPECIES.length()) {
+            DoubleVector x0 = DoubleVector.fromArray(SPECIES, b.x0, i), x1 = DoubleVector.fromArray(SPECIES, b.x1, i);
+            DoubleVector y0 = DoubleVector.fromArray(SPECIES, b.y0, i), y1 = DoubleVector.fromArray(SPECIES, b.y1, i);
+            VectorMask<Double> xLess = x0.compare(LT, x1), xDiffers = xLess.or(x0.compare(GT, x1));
+            VectorMask<Double> yLess = y0.compare(LT, y1);
+            VectorMask<Double> ascending = xLess.and(yLess.or(y0.compare(GT, y1)));
+            VectorMask<Double> inX = x0.compare(LE, x).and(x1.compare(GE, x)).and(ascending)
+                    .or(x0.compare(GE, x).and(x1.compare(LE, x)).andNot(ascending));
+            VectorMask<Double> above = yLess.and(xDiffers);
+            DoubleVector edge = y0.add(y1.sub(y0).mul(DoubleVector.broadcast(SPECIES, x).sub(x0).div(x1.sub(x0))));
+            VectorMask<Double> inY = y0.compare(LE, y).and(edge.compare(GE, y)).and(above)
+                    .or(y0.compare(GE, y).and(edge.compare(LE, y)).andNot(above));
+            report(inX.and(inY), b, i);
+        }
+        testRightTriangles(x, y, bound);
+    }
+
+    /**
+     * Diese Methode meldet die Kandidaten eines Vektors, deren Bit in der Maske gesetzt ist.
+     *
+     * @param in    Die Maske der Treffer
+     * @param b     Die Kandidaten
+     * @param first Der Index des ersten Kandidaten im Vektor
+     */
+    private void report(VectorMask<Double> in, Batch b, int first) {
+        long bits = in.toLong();
+        while (bits != 0) {
+            hit(b.slots[first + Long.numberOfTrailingZeros(bits)]);
+            bits &= bits - 1;
+        }
+    }
+}